@@ -3,25 +3,248 @@ package com.pcz.simple.jetty.core;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 将两个 int 编码到一个 long 中的原子变量，高 32 位为 hi，低 32 位为 lo，
+ * 两个值可以通过一次 CAS 同时更新
+ * <p>
+ * 与其它频繁修改的字段相邻时使用 {@link Padded}，避免伪共享
+ *
  * @author picongzhi
  */
 public class AtomicBiInteger extends AtomicLong {
+    public AtomicBiInteger() {
+    }
+
+    public AtomicBiInteger(long encoded) {
+        super(encoded);
+    }
+
     public AtomicBiInteger(int hi, int lo) {
+        super(encode(hi, lo));
     }
 
+    /**
+     * 获取 hi
+     *
+     * @return hi
+     */
+    public int getHi() {
+        return getHi(get());
+    }
+
+    /**
+     * 获取 lo
+     *
+     * @return lo
+     */
+    public int getLo() {
+        return getLo(get());
+    }
+
+    /**
+     * 设置 hi 和 lo
+     *
+     * @param hi hi
+     * @param lo lo
+     */
     public void set(int hi, int lo) {
+        set(encode(hi, lo));
+    }
+
+    /**
+     * 设置 hi，保持 lo 不变
+     *
+     * @param hi hi
+     * @return 原来的 hi
+     */
+    public int getAndSetHi(int hi) {
+        while (true) {
+            long encoded = get();
+            long update = encode(hi, getLo(encoded));
+            if (compareAndSet(encoded, update)) {
+                return getHi(encoded);
+            }
+        }
+    }
+
+    /**
+     * 设置 lo，保持 hi 不变
+     *
+     * @param lo lo
+     * @return 原来的 lo
+     */
+    public int getAndSetLo(int lo) {
+        while (true) {
+            long encoded = get();
+            long update = encode(getHi(encoded), lo);
+            if (compareAndSet(encoded, update)) {
+                return getLo(encoded);
+            }
+        }
+    }
+
+    /**
+     * 同时增加 hi 和 lo
+     *
+     * @param deltaHi hi 的增量
+     * @param deltaLo lo 的增量
+     */
+    public void add(int deltaHi, int deltaLo) {
+        while (true) {
+            long encoded = get();
+            if (compareAndSet(encoded, encode(encoded, deltaHi, deltaLo))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 增加 hi，保持 lo 不变
+     *
+     * @param delta hi 的增量
+     * @return 新的 hi
+     */
+    public int addAndGetHi(int delta) {
+        while (true) {
+            long encoded = get();
+            int hi = getHi(encoded) + delta;
+            if (compareAndSet(encoded, encodeHi(encoded, hi))) {
+                return hi;
+            }
+        }
+    }
 
+    /**
+     * 增加 lo，保持 hi 不变
+     *
+     * @param delta lo 的增量
+     * @return 新的 lo
+     */
+    public int addAndGetLo(int delta) {
+        while (true) {
+            long encoded = get();
+            int lo = getLo(encoded) + delta;
+            if (compareAndSet(encoded, encodeLo(encoded, lo))) {
+                return lo;
+            }
+        }
     }
 
+    /**
+     * 当前值等于期望的编码值时，同时更新 hi 和 lo
+     *
+     * @param encoded 期望的编码值
+     * @param hi      新的 hi
+     * @param lo      新的 lo
+     * @return 是否更新成功
+     */
     public boolean compareAndSet(long encoded, int hi, int lo) {
-        return false;
+        return compareAndSet(encoded, encode(hi, lo));
     }
 
+    /**
+     * 当前 hi 和 lo 都等于期望值时，同时更新 hi 和 lo
+     *
+     * @param expectHi 期望的 hi
+     * @param hi       新的 hi
+     * @param expectLo 期望的 lo
+     * @param lo       新的 lo
+     * @return 是否更新成功
+     */
+    public boolean compareAndSet(int expectHi, int hi, int expectLo, int lo) {
+        return compareAndSet(encode(expectHi, expectLo), encode(hi, lo));
+    }
+
+    /**
+     * 从编码值中获取 hi
+     *
+     * @param encoded 编码值
+     * @return hi
+     */
     public static int getHi(long encoded) {
-        return 0;
+        return (int) (encoded >> 32);
     }
 
+    /**
+     * 从编码值中获取 lo
+     *
+     * @param encoded 编码值
+     * @return lo
+     */
     public static int getLo(long encoded) {
-        return 0;
+        return (int) encoded;
+    }
+
+    /**
+     * 编码 hi 和 lo
+     *
+     * @param hi hi
+     * @param lo lo
+     * @return 编码值
+     */
+    public static long encode(int hi, int lo) {
+        return ((long) hi << 32) | (lo & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * 在编码值的基础上分别增加 hi 和 lo，lo 溢出时不会进位到 hi
+     *
+     * @param encoded 编码值
+     * @param deltaHi hi 的增量
+     * @param deltaLo lo 的增量
+     * @return 新的编码值
+     */
+    public static long encode(long encoded, int deltaHi, int deltaLo) {
+        return encode(getHi(encoded) + deltaHi, getLo(encoded) + deltaLo);
+    }
+
+    /**
+     * 替换编码值中的 hi
+     *
+     * @param encoded 编码值
+     * @param hi      新的 hi
+     * @return 新的编码值
+     */
+    public static long encodeHi(long encoded, int hi) {
+        return ((long) hi << 32) | (encoded & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * 替换编码值中的 lo
+     *
+     * @param encoded 编码值
+     * @param lo      新的 lo
+     * @return 新的编码值
+     */
+    public static long encodeLo(long encoded, int lo) {
+        return (encoded & 0xFFFF_FFFF_0000_0000L) | (lo & 0xFFFF_FFFFL);
+    }
+
+    @Override
+    public String toString() {
+        long encoded = get();
+        return getHi(encoded) + "|" + getLo(encoded);
+    }
+
+    /**
+     * 填充了缓存行的 {@link AtomicBiInteger}
+     * <p>
+     * 子类字段排在父类字段之后，值之后填充 128 字节，覆盖相邻缓存行预取的范围，
+     * 之后分配的对象不会与值共享缓存行。值之前是对象头，只能避免与之前分配的对象的尾部共享缓存行
+     */
+    @SuppressWarnings("unused")
+    public static class Padded extends AtomicBiInteger {
+        protected long p01, p02, p03, p04, p05, p06, p07, p08;
+        protected long p09, p10, p11, p12, p13, p14, p15, p16;
+
+        public Padded() {
+        }
+
+        public Padded(long encoded) {
+            super(encoded);
+        }
+
+        public Padded(int hi, int lo) {
+            super(hi, lo);
+        }
     }
 }
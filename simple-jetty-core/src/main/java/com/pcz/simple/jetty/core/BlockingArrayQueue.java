@@ -1,88 +1,612 @@
 package com.pcz.simple.jetty.core;
 
+import com.pcz.simple.jetty.core.thread.AutoLock;
+
 import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 阻塞数组队列
+ * <p>
+ * 基于环形数组实现，队头和队尾分别加锁，生产者和消费者互不竞争。
+ * 数组满时按 growBy 扩容，直到最大容量；扩容时同时持有两把锁
  *
  * @param <E> 元素类型
  * @author picongzhi
  */
 public class BlockingArrayQueue<E> extends AbstractList<E> implements BlockingQueue<E> {
+    /**
+     * 默认初始容量
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    /**
+     * 默认扩容大小
+     */
+    public static final int DEFAULT_GROWTH = 64;
+
+    /**
+     * 元素数量，读写两端共享
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * 队头锁，消费者使用
+     */
+    private final AutoLock.WithCondition headLock = new AutoLock.WithCondition();
+
+    /**
+     * 队尾锁，生产者使用
+     */
+    private final AutoLock.WithCondition tailLock = new AutoLock.WithCondition();
+
+    /**
+     * 每次扩容的大小，非正数表示不扩容
+     */
+    private final int growBy;
+
+    /**
+     * 最大容量
+     */
+    private final int maxCapacity;
+
+    /**
+     * 环形数组，扩容时同时持有两把锁替换
+     */
+    private Object[] elements;
+
+    /**
+     * 队头索引，由队头锁保护
+     */
+    private int head;
+
+    /**
+     * 队尾索引，即下一个元素的位置，由队尾锁保护
+     */
+    private int tail;
+
+    public BlockingArrayQueue() {
+        this(DEFAULT_CAPACITY, DEFAULT_GROWTH);
+    }
+
+    public BlockingArrayQueue(int maxCapacity) {
+        this(maxCapacity, -1, maxCapacity);
+    }
+
     public BlockingArrayQueue(int capacity, int growBy) {
-        
+        this(capacity, growBy, Integer.MAX_VALUE);
     }
 
-    @Override
-    public E get(int index) {
-        return null;
+    public BlockingArrayQueue(int capacity, int growBy, int maxCapacity) {
+        if (capacity <= 0 || capacity > maxCapacity) {
+            throw new IllegalArgumentException(
+                    "Invalid capacity " + capacity + " for max capacity " + maxCapacity);
+        }
+
+        this.elements = new Object[capacity];
+        this.growBy = growBy;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * 获取当前数组容量
+     *
+     * @return 当前数组容量
+     */
+    public int getCapacity() {
+        try (AutoLock autoLock = this.tailLock.lock()) {
+            return this.elements.length;
+        }
+    }
+
+    /**
+     * 获取最大容量
+     *
+     * @return 最大容量
+     */
+    public int getMaxCapacity() {
+        return this.maxCapacity;
     }
 
     @Override
     public int size() {
-        return 0;
+        return this.size.get();
     }
 
     @Override
-    public boolean offer(E e) {
-        return false;
+    public boolean isEmpty() {
+        return this.size.get() == 0;
     }
 
     @Override
-    public E remove() {
-        return null;
+    public boolean add(E e) {
+        if (!offer(e)) {
+            throw new IllegalStateException("Queue full");
+        }
+
+        return true;
     }
 
     @Override
-    public E poll() {
-        return null;
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+
+        int previous;
+        try (AutoLock autoLock = this.tailLock.lock()) {
+            previous = enqueue(e);
+        }
+
+        if (previous < 0) {
+            return false;
+        }
+
+        if (previous == 0) {
+            signalNotEmpty();
+        }
+
+        return true;
     }
 
     @Override
-    public E element() {
-        return null;
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+
+        long nanos = unit.toNanos(timeout);
+        int previous;
+        try (AutoLock.WithCondition autoLock = this.tailLock.lock()) {
+            while ((previous = enqueue(e)) < 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+
+                long start = System.nanoTime();
+                autoLock.await(nanos, TimeUnit.NANOSECONDS);
+                nanos -= System.nanoTime() - start;
+            }
+        }
+
+        if (previous == 0) {
+            signalNotEmpty();
+        }
+
+        return true;
     }
 
     @Override
-    public E peek() {
-        return null;
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+
+        int previous;
+        try (AutoLock.WithCondition autoLock = this.tailLock.lock()) {
+            while ((previous = enqueue(e)) < 0) {
+                autoLock.await();
+            }
+        }
+
+        if (previous == 0) {
+            signalNotEmpty();
+        }
+    }
+
+    /**
+     * 入队，调用时必须持有队尾锁
+     *
+     * @param e 元素
+     * @return 入队前的元素数量，队列已满时返回 -1
+     */
+    private int enqueue(E e) {
+        int size = this.size.get();
+        if (size >= this.maxCapacity) {
+            return -1;
+        }
+
+        if (size == this.elements.length) {
+            try (AutoLock autoLock = this.headLock.lock()) {
+                if (!grow()) {
+                    return -1;
+                }
+            }
+        }
+
+        this.elements[this.tail] = e;
+        this.tail = (this.tail + 1) % this.elements.length;
+        return this.size.getAndIncrement();
+    }
+
+    /**
+     * 扩容，调用时必须同时持有队尾锁和队头锁
+     *
+     * @return 是否扩容成功
+     */
+    private boolean grow() {
+        if (this.growBy <= 0) {
+            return false;
+        }
+
+        int capacity = this.elements.length;
+        int newCapacity = (int) Math.min((long) capacity + this.growBy, this.maxCapacity);
+        if (newCapacity <= capacity) {
+            return false;
+        }
+
+        // 按从队头到队尾的顺序拷贝到新数组的开头
+        Object[] elements = new Object[newCapacity];
+        int size = this.size.get();
+        int head = this.head;
+        int firstPart = Math.min(size, capacity - head);
+        System.arraycopy(this.elements, head, elements, 0, firstPart);
+        System.arraycopy(this.elements, 0, elements, firstPart, size - firstPart);
+
+        this.elements = elements;
+        this.head = 0;
+        this.tail = size;
+        return true;
     }
 
     @Override
-    public void put(E e) throws InterruptedException {
+    public E poll() {
+        if (this.size.get() == 0) {
+            return null;
+        }
+
+        E e;
+        int previous;
+        int capacity;
+        try (AutoLock.WithCondition autoLock = this.headLock.lock()) {
+            if (this.size.get() == 0) {
+                return null;
+            }
 
+            // 扩容需要同时持有两把锁，持有队头锁时容量不变
+            capacity = this.elements.length;
+            e = dequeue();
+            previous = this.size.getAndDecrement();
+            if (previous > 1) {
+                autoLock.signal();
+            }
+        }
+
+        // 出队前队列已满时可能有等待入队的生产者
+        if (previous >= capacity) {
+            signalNotFull();
+        }
+
+        return e;
     }
 
     @Override
-    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-        return false;
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        E e;
+        int previous;
+        int capacity;
+        try (AutoLock.WithCondition autoLock = this.headLock.lock()) {
+            try {
+                while (this.size.get() == 0) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+
+                    long start = System.nanoTime();
+                    autoLock.await(nanos, TimeUnit.NANOSECONDS);
+                    nanos -= System.nanoTime() - start;
+                }
+            } catch (InterruptedException x) {
+                // 把信号传递给其他等待者
+                autoLock.signal();
+                throw x;
+            }
+
+            capacity = this.elements.length;
+            e = dequeue();
+            previous = this.size.getAndDecrement();
+            if (previous > 1) {
+                autoLock.signal();
+            }
+        }
+
+        if (previous >= capacity) {
+            signalNotFull();
+        }
+
+        return e;
     }
 
     @Override
     public E take() throws InterruptedException {
-        return null;
+        E e;
+        int previous;
+        int capacity;
+        try (AutoLock.WithCondition autoLock = this.headLock.lock()) {
+            try {
+                while (this.size.get() == 0) {
+                    autoLock.await();
+                }
+            } catch (InterruptedException x) {
+                autoLock.signal();
+                throw x;
+            }
+
+            capacity = this.elements.length;
+            e = dequeue();
+            previous = this.size.getAndDecrement();
+            if (previous > 1) {
+                autoLock.signal();
+            }
+        }
+
+        if (previous >= capacity) {
+            signalNotFull();
+        }
+
+        return e;
+    }
+
+    /**
+     * 出队，调用时必须持有队头锁且队列非空
+     *
+     * @return 队头元素
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        Object[] elements = this.elements;
+        int head = this.head;
+        E e = (E) elements[head];
+        elements[head] = null;
+        this.head = (head + 1) % elements.length;
+        return e;
     }
 
     @Override
-    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-        return null;
+    public E remove() {
+        E e = poll();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E peek() {
+        if (this.size.get() == 0) {
+            return null;
+        }
+
+        try (AutoLock autoLock = this.headLock.lock()) {
+            if (this.size.get() == 0) {
+                return null;
+            }
+
+            return (E) this.elements[this.head];
+        }
+    }
+
+    @Override
+    public E element() {
+        E e = peek();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+
+        return e;
     }
 
     @Override
     public int remainingCapacity() {
-        return 0;
+        return this.maxCapacity - this.size.get();
     }
 
     @Override
     public int drainTo(Collection<? super E> c) {
-        return 0;
+        return drainTo(c, Integer.MAX_VALUE);
     }
 
     @Override
     public int drainTo(Collection<? super E> c, int maxElements) {
-        return 0;
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        if (maxElements <= 0) {
+            return 0;
+        }
+
+        // 在一次加锁中批量出队
+        int drained;
+        int previous;
+        int capacity;
+        try (AutoLock.WithCondition autoLock = this.headLock.lock()) {
+            drained = Math.min(maxElements, this.size.get());
+            if (drained == 0) {
+                return 0;
+            }
+
+            capacity = this.elements.length;
+            for (int i = 0; i < drained; i++) {
+                c.add(dequeue());
+            }
+
+            previous = this.size.getAndAdd(-drained);
+            if (previous > drained) {
+                autoLock.signal();
+            }
+        }
+
+        if (previous >= capacity) {
+            signalNotFull();
+        }
+
+        return drained;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E get(int index) {
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            checkIndex(index, this.size.get());
+            return (E) this.elements[(this.head + index) % this.elements.length];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E set(int index, E e) {
+        Objects.requireNonNull(e);
+
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            checkIndex(index, this.size.get());
+            int i = (this.head + index) % this.elements.length;
+            E old = (E) this.elements[i];
+            this.elements[i] = e;
+            return old;
+        }
+    }
+
+    @Override
+    public void add(int index, E e) {
+        Objects.requireNonNull(e);
+
+        boolean wasEmpty;
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            int size = this.size.get();
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("!(0<=" + index + "<=" + size + ")");
+            }
+
+            if (size >= this.maxCapacity || (size == this.elements.length && !grow())) {
+                throw new IllegalStateException("Queue full");
+            }
+
+            // 将 index 之后的元素向后移动一位
+            int length = this.elements.length;
+            for (int i = size; i > index; i--) {
+                this.elements[(this.head + i) % length] = this.elements[(this.head + i - 1) % length];
+            }
+            this.elements[(this.head + index) % length] = e;
+            this.tail = (this.tail + 1) % length;
+            wasEmpty = this.size.getAndIncrement() == 0;
+        }
+
+        if (wasEmpty) {
+            signalNotEmpty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E remove(int index) {
+        E old;
+        int previous;
+        int capacity;
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            int size = this.size.get();
+            checkIndex(index, size);
+
+            // 将 index 之后的元素向前移动一位
+            int length = this.elements.length;
+            old = (E) this.elements[(this.head + index) % length];
+            for (int i = index; i < size - 1; i++) {
+                this.elements[(this.head + i) % length] = this.elements[(this.head + i + 1) % length];
+            }
+            this.tail = (this.tail - 1 + length) % length;
+            this.elements[this.tail] = null;
+            capacity = length;
+            previous = this.size.getAndDecrement();
+        }
+
+        if (previous >= capacity) {
+            signalNotFull();
+        }
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            Arrays.fill(this.elements, null);
+            this.head = 0;
+            this.tail = 0;
+            this.size.set(0);
+        }
+
+        signalNotFull();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return listIterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        // 基于快照迭代，不支持修改
+        return Collections.unmodifiableList(Arrays.asList(snapshot())).listIterator(index);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot();
+    }
+
+    /**
+     * 按从队头到队尾的顺序获取元素快照
+     *
+     * @return 元素快照
+     */
+    @SuppressWarnings("unchecked")
+    private E[] snapshot() {
+        try (AutoLock tail = this.tailLock.lock(); AutoLock head = this.headLock.lock()) {
+            int size = this.size.get();
+            int length = this.elements.length;
+            Object[] snapshot = new Object[size];
+            int firstPart = Math.min(size, length - this.head);
+            System.arraycopy(this.elements, this.head, snapshot, 0, firstPart);
+            System.arraycopy(this.elements, 0, snapshot, firstPart, size - firstPart);
+            return (E[]) snapshot;
+        }
+    }
+
+    /**
+     * 通知等待出队的消费者
+     */
+    private void signalNotEmpty() {
+        try (AutoLock.WithCondition autoLock = this.headLock.lock()) {
+            autoLock.signal();
+        }
+    }
+
+    /**
+     * 通知等待入队的生产者
+     */
+    private void signalNotFull() {
+        try (AutoLock.WithCondition autoLock = this.tailLock.lock()) {
+            autoLock.signalAll();
+        }
+    }
+
+    /**
+     * 校验索引
+     *
+     * @param index 索引
+     * @param size  元素数量
+     */
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("!(0<=" + index + "<" + size + ")");
+        }
     }
 }
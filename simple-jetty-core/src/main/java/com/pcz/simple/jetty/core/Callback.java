@@ -0,0 +1,55 @@
+package com.pcz.simple.jetty.core;
+
+import java.util.function.Consumer;
+
+/**
+ * 异步操作的回调
+ *
+ * @author picongzhi
+ */
+public interface Callback {
+    /**
+     * 什么都不做的回调
+     */
+    Callback NOOP = new Callback() {
+        @Override
+        public String toString() {
+            return "Callback.NOOP";
+        }
+    };
+
+    /**
+     * 操作成功
+     */
+    default void succeeded() {
+    }
+
+    /**
+     * 操作失败
+     *
+     * @param t 失败原因
+     */
+    default void failed(Throwable t) {
+    }
+
+    /**
+     * 根据成功和失败的处理逻辑创建回调
+     *
+     * @param success 成功的处理逻辑
+     * @param failure 失败的处理逻辑
+     * @return 回调
+     */
+    static Callback from(Runnable success, Consumer<Throwable> failure) {
+        return new Callback() {
+            @Override
+            public void succeeded() {
+                success.run();
+            }
+
+            @Override
+            public void failed(Throwable t) {
+                failure.accept(t);
+            }
+        };
+    }
+}
@@ -0,0 +1,402 @@
+package com.pcz.simple.jetty.core;
+
+import com.pcz.simple.jetty.core.thread.AutoLock;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁的有界多生产者多消费者阻塞队列
+ * <p>
+ * 每个槽有一个序列号，生产者和消费者通过对入队位置和出队位置的 CAS 认领槽，
+ * 再通过序列号交接元素，非阻塞的读写不加锁。入队位置和出队位置位于不同的缓存行，避免伪共享。
+ * <p>
+ * 阻塞的读写先短暂自旋，仍不可用时才加锁等待，非阻塞的一方只在有等待者时才加锁通知。
+ * <p>
+ * 实测吞吐约为 {@link BlockingArrayQueue} 的一半，{@link com.pcz.simple.jetty.core.thread.QueuedThreadPool}
+ * 默认仍使用 {@link BlockingArrayQueue}，只有在目标硬件上实测有收益时才通过构造方法显式传入
+ *
+ * @param <E> 元素类型
+ * @author picongzhi
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    /**
+     * 阻塞前自旋的次数
+     */
+    private static final int SPINS = 128;
+
+    /**
+     * 位置数组中相邻两个位置的间隔，128 字节，覆盖相邻缓存行预取
+     */
+    private static final int PADDING = 16;
+
+    /**
+     * 入队位置在位置数组中的下标
+     */
+    private static final int ENQUEUE = PADDING;
+
+    /**
+     * 出队位置在位置数组中的下标
+     */
+    private static final int DEQUEUE = PADDING * 2;
+
+    /**
+     * 入队位置和出队位置，中间填充以独占缓存行
+     */
+    private final AtomicLongArray positions = new AtomicLongArray(PADDING * 3);
+
+    /**
+     * 槽的序列号
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * 槽中的元素
+     */
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * 下标掩码
+     */
+    private final int mask;
+
+    /**
+     * 等待元素的消费者数量
+     */
+    private final AtomicInteger consumerWaiters = new AtomicInteger();
+
+    /**
+     * 等待空间的生产者数量
+     */
+    private final AtomicInteger producerWaiters = new AtomicInteger();
+
+    /**
+     * 消费者等待锁
+     */
+    private final AutoLock.WithCondition notEmpty = new AutoLock.WithCondition();
+
+    /**
+     * 生产者等待锁
+     */
+    private final AutoLock.WithCondition notFull = new AutoLock.WithCondition();
+
+    /**
+     * @param capacity 容量，向上取整到 2 的幂
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+
+        int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.elements = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 获取容量
+     *
+     * @return 容量
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    @Override
+    public int size() {
+        // 先读出队位置，保证结果不为负
+        long dequeue = this.positions.get(DEQUEUE);
+        long enqueue = this.positions.get(ENQUEUE);
+        return (int) Math.max(0, Math.min(enqueue - dequeue, getCapacity()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return getCapacity() - size();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+
+        if (!tryOffer(e)) {
+            return false;
+        }
+
+        if (this.consumerWaiters.get() > 0) {
+            signal(this.notEmpty);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (!offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Queue full");
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+
+        if (offer(e)) {
+            return true;
+        }
+
+        for (int i = 0; i < SPINS; i++) {
+            Thread.onSpinWait();
+            if (offer(e)) {
+                return true;
+            }
+        }
+
+        long nanos = unit.toNanos(timeout);
+        try (AutoLock.WithCondition autoLock = this.notFull.lock()) {
+            this.producerWaiters.incrementAndGet();
+            try {
+                while (!tryOffer(e)) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+
+                    long start = System.nanoTime();
+                    autoLock.await(nanos, TimeUnit.NANOSECONDS);
+                    nanos -= System.nanoTime() - start;
+                }
+            } catch (InterruptedException x) {
+                // 把可能收到的通知传递给其他等待者
+                autoLock.signal();
+                throw x;
+            } finally {
+                this.producerWaiters.decrementAndGet();
+            }
+        }
+
+        if (this.consumerWaiters.get() > 0) {
+            signal(this.notEmpty);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E e = tryPoll();
+        if (e != null && this.producerWaiters.get() > 0) {
+            signal(this.notFull);
+        }
+
+        return e;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+
+        for (int i = 0; i < SPINS; i++) {
+            Thread.onSpinWait();
+            e = poll();
+            if (e != null) {
+                return e;
+            }
+        }
+
+        long nanos = unit.toNanos(timeout);
+        try (AutoLock.WithCondition autoLock = this.notEmpty.lock()) {
+            this.consumerWaiters.incrementAndGet();
+            try {
+                while ((e = tryPoll()) == null) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+
+                    long start = System.nanoTime();
+                    autoLock.await(nanos, TimeUnit.NANOSECONDS);
+                    nanos -= System.nanoTime() - start;
+                }
+            } catch (InterruptedException x) {
+                // 把可能收到的通知传递给其他等待者
+                autoLock.signal();
+                throw x;
+            } finally {
+                this.consumerWaiters.decrementAndGet();
+            }
+        }
+
+        if (this.producerWaiters.get() > 0) {
+            signal(this.notFull);
+        }
+
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            long position = this.positions.get(DEQUEUE);
+            int index = (int) position & this.mask;
+            long sequence = this.sequences.get(index);
+            if (sequence - (position + 1) < 0) {
+                return null;
+            }
+
+            E e = this.elements.get(index);
+            // 读取期间槽没有被消费才有效
+            if (e != null && this.positions.get(DEQUEUE) == position) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = tryPoll()) != null) {
+            c.add(e);
+            drained++;
+        }
+
+        if (drained > 0 && this.producerWaiters.get() > 0) {
+            signal(this.notFull);
+        }
+
+        return drained;
+    }
+
+    /**
+     * 弱一致的快照迭代器，不支持删除
+     *
+     * @return 迭代器
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long end = this.positions.get(ENQUEUE);
+        for (long position = this.positions.get(DEQUEUE); position < end; position++) {
+            int index = (int) position & this.mask;
+            E e = this.elements.get(index);
+            if (e != null && this.sequences.get(index) == position + 1) {
+                snapshot.add(e);
+            }
+        }
+
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * 尝试入队
+     *
+     * @param e 元素
+     * @return 是否入队成功，队列已满时返回 false
+     */
+    private boolean tryOffer(E e) {
+        long position = this.positions.get(ENQUEUE);
+        while (true) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                // 槽空闲，认领
+                if (this.positions.compareAndSet(ENQUEUE, position, position + 1)) {
+                    this.elements.lazySet(index, e);
+                    // 发布元素，消费者看到序列号后一定能看到元素
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.positions.get(ENQUEUE);
+            } else if (difference < 0) {
+                // 槽还未被上一轮消费，队列已满
+                return false;
+            } else {
+                // 被其他生产者抢先
+                position = this.positions.get(ENQUEUE);
+            }
+        }
+    }
+
+    /**
+     * 尝试出队
+     *
+     * @return 元素，队列为空时返回 null
+     */
+    private E tryPoll() {
+        long position = this.positions.get(DEQUEUE);
+        while (true) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                // 槽已发布，认领
+                if (this.positions.compareAndSet(DEQUEUE, position, position + 1)) {
+                    E e = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    // 释放槽给下一轮的生产者
+                    this.sequences.set(index, position + this.mask + 1);
+                    return e;
+                }
+                position = this.positions.get(DEQUEUE);
+            } else if (difference < 0) {
+                // 槽还未发布，队列为空
+                return null;
+            } else {
+                // 被其他消费者抢先
+                position = this.positions.get(DEQUEUE);
+            }
+        }
+    }
+
+    /**
+     * 唤醒一个等待者
+     *
+     * @param lock 等待锁
+     */
+    private static void signal(AutoLock.WithCondition lock) {
+        try (AutoLock.WithCondition autoLock = lock.lock()) {
+            autoLock.signal();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{size=%d,capacity=%d}",
+                getClass().getSimpleName(), hashCode(), size(), getCapacity());
+    }
+}
@@ -1,7 +1,18 @@
 package com.pcz.simple.jetty.core;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 /**
  * 处理器工厂
+ * <p>
+ * 可用的处理器数考虑容器的 CPU 限制：从当前进程所在的 cgroup（v2 的 cpu.max、cpuset.cpus.effective，
+ * v1 的 cpu.cfs_quota_us、cpuset.cpus）中读取 CPU 配额和绑定的 CPU，配额可以是小数。
+ * 在此基础上给出线程池、保留线程、选择器和接收器的推荐数量，避免在大机器上的小容器中线程池过大
  *
  * @author picongzhi
  */
@@ -11,6 +22,36 @@ public class ProcessorUtils {
      */
     public static final String AVAILABLE_PROCESSORS = "JETTY_AVAILABLE_PROCESSORS";
 
+    /**
+     * cgroup 挂载点
+     */
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+    /**
+     * 当前进程所在的 cgroup
+     */
+    private static final Path PROC_SELF_CGROUP = Paths.get("/proc/self/cgroup");
+
+    /**
+     * 每个 CPU 推荐的最大线程数
+     */
+    private static final int THREADS_PER_CPU = 50;
+
+    /**
+     * 推荐的最大线程数的下限
+     */
+    private static final int MIN_MAX_THREADS = 16;
+
+    /**
+     * 推荐的最大线程数的上限
+     */
+    private static final int MAX_MAX_THREADS = 200;
+
+    /**
+     * 可用的 CPU 数，可以是小数
+     */
+    private static double cpuQuota = initCpuQuota();
+
     /**
      * 可用的线程数
      */
@@ -18,21 +59,256 @@ public class ProcessorUtils {
 
     /**
      * 初始化
-     * 先从环境变量中获取，获取不到降级取 {@link Runtime#getRuntime()#availableProcessors()}
+     * 先从环境变量中获取，获取不到降级取 CPU 配额向上取整
      *
      * @return 可用的线程数
      */
     static int init() {
+        Integer processors = configuredProcessors();
+        if (processors != null) {
+            return processors;
+        }
+
+        return Math.max(1, (int) Math.ceil(cpuQuota));
+    }
+
+    /**
+     * 初始化 CPU 配额
+     * 先从环境变量中获取，获取不到取 cgroup 限制和 {@link Runtime#availableProcessors()} 中的较小值
+     *
+     * @return CPU 配额
+     */
+    static double initCpuQuota() {
+        Integer processors = configuredProcessors();
+        if (processors != null) {
+            return processors;
+        }
+
+        return Math.min(Runtime.getRuntime().availableProcessors(), cgroupCpuLimit(CGROUP_ROOT, PROC_SELF_CGROUP));
+    }
+
+    /**
+     * 从系统属性或者环境变量中获取配置的处理器数
+     *
+     * @return 配置的处理器数，未配置、格式错误或者小于 1 时返回 null
+     */
+    static Integer configuredProcessors() {
         String processors = System.getProperty(AVAILABLE_PROCESSORS, System.getenv(AVAILABLE_PROCESSORS));
         if (processors != null) {
             try {
-                return Integer.parseInt(processors);
+                int value = Integer.parseInt(processors.trim());
+                if (value >= 1) {
+                    return value;
+                }
             } catch (NumberFormatException e) {
                 // 忽略
             }
         }
 
-        return Runtime.getRuntime().availableProcessors();
+        return null;
+    }
+
+    /**
+     * 从当前进程所在的 cgroup 中读取 CPU 限制，取 CPU 配额和绑定的 CPU 数中的较小值
+     * <p>
+     * 进程所在的 cgroup 从 /proc/self/cgroup 中解析，配额取该 cgroup 及其祖先中最小的一个。
+     * 容器中挂载点往往就是进程自身的 cgroup，此时解析出的路径在挂载点下不存在，退回读取挂载点
+     *
+     * @param root    cgroup 挂载点
+     * @param cgroups /proc/self/cgroup
+     * @return CPU 限制，没有限制时返回 {@link Double#POSITIVE_INFINITY}
+     */
+    static double cgroupCpuLimit(Path root, Path cgroups) {
+        String self = read(cgroups);
+        double limit = Double.POSITIVE_INFINITY;
+
+        // cgroup v2
+        Path unified = ownCgroup(root, cgroupPath(self, ""));
+        boolean v2 = false;
+        for (Path dir = unified; dir != null && dir.startsWith(root); dir = dir.getParent()) {
+            String cpuMax = read(dir.resolve("cpu.max"));
+            if (cpuMax == null) {
+                continue;
+            }
+
+            v2 = true;
+            String[] parts = cpuMax.split("\\s+");
+            if (parts.length == 2 && !"max".equals(parts[0])) {
+                limit = Math.min(limit, quota(parts[0], parts[1]));
+            }
+        }
+
+        if (!v2) {
+            // cgroup v1
+            Path mount = root.resolve("cpu");
+            for (Path dir = ownCgroup(mount, cgroupPath(self, "cpu")); dir != null && dir.startsWith(mount); dir = dir.getParent()) {
+                String quota = read(dir.resolve("cpu.cfs_quota_us"));
+                String period = read(dir.resolve("cpu.cfs_period_us"));
+                if (quota != null && period != null) {
+                    limit = Math.min(limit, quota(quota, period));
+                }
+            }
+        }
+
+        // 生效的 cpuset 已经是祖先限制的交集，取最近的一个
+        String cpuset = readNearest(unified, root, "cpuset.cpus.effective");
+        if (cpuset == null) {
+            Path mount = root.resolve("cpuset");
+            Path dir = ownCgroup(mount, cgroupPath(self, "cpuset"));
+            cpuset = readNearest(dir, mount, "cpuset.effective_cpus");
+            if (cpuset == null) {
+                cpuset = readNearest(dir, mount, "cpuset.cpus");
+            }
+        }
+        if (cpuset != null) {
+            int cpus = countCpus(cpuset);
+            if (cpus > 0) {
+                limit = Math.min(limit, cpus);
+            }
+        }
+
+        return limit;
+    }
+
+    /**
+     * 从 /proc/self/cgroup 中解析当前进程在一个层级中的路径，每行的格式为 hierarchy-ID:controller-list:cgroup-path
+     *
+     * @param cgroups    /proc/self/cgroup 的内容
+     * @param controller 控制器，为空字符串时表示 cgroup v2 的统一层级
+     * @return cgroup 路径，没有该层级时返回 null
+     */
+    static String cgroupPath(String cgroups, String controller) {
+        if (cgroups == null) {
+            return null;
+        }
+
+        for (String line : cgroups.split("\n")) {
+            String[] parts = line.trim().split(":", 3);
+            if (parts.length != 3) {
+                continue;
+            }
+
+            boolean matched = controller.isEmpty()
+                    ? parts[1].isEmpty()
+                    : Arrays.asList(parts[1].split(",")).contains(controller);
+            if (matched) {
+                return parts[2];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 获取当前进程在挂载点下的 cgroup 目录
+     *
+     * @param mount 层级的挂载点
+     * @param path  /proc/self/cgroup 中的 cgroup 路径
+     * @return cgroup 目录，路径不在挂载点下或者不存在时返回挂载点
+     */
+    private static Path ownCgroup(Path mount, String path) {
+        if (path == null) {
+            return mount;
+        }
+
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        Path dir = mount.resolve(relative).normalize();
+        if (!dir.startsWith(mount) || !Files.isDirectory(dir)) {
+            return mount;
+        }
+
+        return dir;
+    }
+
+    /**
+     * 从 cgroup 目录向上直到挂载点，读取最近的一个文件
+     *
+     * @param dir   cgroup 目录
+     * @param mount 层级的挂载点
+     * @param name  文件名
+     * @return 文件内容，都不存在时返回 null
+     */
+    private static String readNearest(Path dir, Path mount, String name) {
+        for (; dir != null && dir.startsWith(mount); dir = dir.getParent()) {
+            String content = read(dir.resolve(name));
+            if (content != null) {
+                return content;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 计算 CPU 配额
+     *
+     * @param quota  每个周期的配额，单位：us
+     * @param period 周期，单位：us
+     * @return CPU 配额，没有限制或者格式错误时返回 {@link Double#POSITIVE_INFINITY}
+     */
+    private static double quota(String quota, String period) {
+        try {
+            long q = Long.parseLong(quota);
+            long p = Long.parseLong(period);
+            if (q > 0 && p > 0) {
+                return (double) q / p;
+            }
+        } catch (NumberFormatException e) {
+            // 忽略
+        }
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * 计算 cpuset 中的 CPU 数，如 0-3,8,10-11
+     *
+     * @param cpuset cpuset
+     * @return CPU 数，格式错误时返回 0
+     */
+    static int countCpus(String cpuset) {
+        int cpus = 0;
+        try {
+            for (String range : cpuset.split(",")) {
+                range = range.trim();
+                if (range.isEmpty()) {
+                    continue;
+                }
+
+                int dash = range.indexOf('-');
+                if (dash < 0) {
+                    Integer.parseInt(range);
+                    cpus++;
+                } else {
+                    int from = Integer.parseInt(range.substring(0, dash));
+                    int to = Integer.parseInt(range.substring(dash + 1));
+                    cpus += Math.max(0, to - from + 1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+
+        return cpus;
+    }
+
+    /**
+     * 读取 cgroup 文件
+     *
+     * @param path 文件路径
+     * @return 文件内容，不存在或者不可读时返回 null
+     */
+    private static String read(Path path) {
+        try {
+            if (!Files.isReadable(path)) {
+                return null;
+            }
+
+            String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+            return content.isEmpty() ? null : content;
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
     }
 
     /**
@@ -43,4 +319,69 @@ public class ProcessorUtils {
     public static int availableProcessors() {
         return availableProcessors;
     }
+
+    /**
+     * 获取 CPU 配额，如配额为 1.5 个 CPU 时返回 1.5
+     *
+     * @return CPU 配额
+     */
+    public static double cpuQuota() {
+        return cpuQuota;
+    }
+
+    /**
+     * 获取推荐的线程池最大线程数，每个 CPU 50 个线程，在 16 到 200 之间
+     *
+     * @return 推荐的最大线程数
+     */
+    public static int recommendedMaxThreads() {
+        int threads = (int) Math.ceil(cpuQuota * THREADS_PER_CPU);
+        return Math.max(MIN_MAX_THREADS, Math.min(MAX_MAX_THREADS, threads));
+    }
+
+    /**
+     * 获取推荐的保留线程数，不超过 CPU 数和最大线程数的 1/8
+     *
+     * @param maxThreads 线程池最大线程数
+     * @return 推荐的保留线程数
+     */
+    public static int recommendedReservedThreads(int maxThreads) {
+        return Math.max(1, Math.min(availableProcessors, maxThreads / 8));
+    }
+
+    /**
+     * 获取推荐的选择器数，不超过 CPU 数的一半和最大线程数的 1/16
+     *
+     * @param maxThreads 线程池最大线程数
+     * @return 推荐的选择器数
+     */
+    public static int recommendedSelectors(int maxThreads) {
+        return Math.max(1, Math.min(availableProcessors / 2, maxThreads / 16));
+    }
+
+    /**
+     * 获取推荐的接收器数，每 8 个 CPU 一个，最多 4 个
+     *
+     * @return 推荐的接收器数
+     */
+    public static int recommendedAcceptors() {
+        return Math.max(1, Math.min(4, availableProcessors / 8));
+    }
+
+    /**
+     * 输出可用的处理器数和推荐值
+     *
+     * @return 可用的处理器数和推荐值
+     */
+    public static String dump() {
+        int maxThreads = recommendedMaxThreads();
+        return String.format("%s{cpuQuota=%.2f,processors=%d,maxThreads=%d,reserved=%d,selectors=%d,acceptors=%d}",
+                ProcessorUtils.class.getSimpleName(),
+                cpuQuota,
+                availableProcessors,
+                maxThreads,
+                recommendedReservedThreads(maxThreads),
+                recommendedSelectors(maxThreads),
+                recommendedAcceptors());
+    }
 }
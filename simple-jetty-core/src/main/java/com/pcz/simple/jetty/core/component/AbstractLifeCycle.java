@@ -158,7 +158,7 @@ public abstract class AbstractLifeCycle implements LifeCycle {
 
     @Override
     public boolean isStopped() {
-        return this.state == State.STARTED;
+        return this.state == State.STOPPED;
     }
 
     @Override
@@ -1,6 +1,12 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.util.BufferUtils;
+
 import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 抽象的字节缓存池
@@ -8,18 +14,278 @@ import java.nio.ByteBuffer;
  * @author picongzhi
  */
 abstract class AbstractByteBufferPool implements ByteBufferPool {
-    @Override
-    public ByteBuffer acquire(int size, boolean direct) {
-        return null;
+    /**
+     * 默认的容量因子
+     */
+    public static final int DEFAULT_FACTOR = 4096;
+
+    /**
+     * 默认的最大容量与容量因子的倍数
+     */
+    public static final int DEFAULT_MAX_CAPACITY_BY_FACTOR = 16;
+
+    /**
+     * 容量因子
+     */
+    private final int factor;
+
+    /**
+     * 可池化的最大容量
+     */
+    private final int maxCapacity;
+
+    /**
+     * 每个桶最多缓存的数量，负数表示不限制
+     */
+    private final int maxBucketSize;
+
+    /**
+     * 堆内存最大缓存量，非正数表示不限制
+     */
+    private final long maxHeapMemory;
+
+    /**
+     * 直接内存最大缓存量，非正数表示不限制
+     */
+    private final long maxDirectMemory;
+
+    /**
+     * 已缓存的堆内存
+     */
+    private final AtomicLong heapMemory = new AtomicLong();
+
+    /**
+     * 已缓存的直接内存
+     */
+    private final AtomicLong directMemory = new AtomicLong();
+
+    /**
+     * 基于当前缓存池的 {@link RetainableByteBufferPool}
+     */
+    private final RetainableByteBufferPool retainableByteBufferPool = new Retained();
+
+    protected AbstractByteBufferPool(int factor,
+                                     int maxCapacity,
+                                     int maxBucketSize,
+                                     long maxHeapMemory,
+                                     long maxDirectMemory) {
+        this.factor = factor <= 0 ? DEFAULT_FACTOR : factor;
+        this.maxCapacity = maxCapacity > 0 ? maxCapacity : DEFAULT_MAX_CAPACITY_BY_FACTOR * this.factor;
+        this.maxBucketSize = maxBucketSize;
+        this.maxHeapMemory = maxHeapMemory;
+        this.maxDirectMemory = maxDirectMemory;
     }
 
-    @Override
-    public void release(ByteBuffer buffer) {
+    /**
+     * 获取容量因子
+     *
+     * @return 容量因子
+     */
+    protected int getCapacityFactor() {
+        return this.factor;
+    }
+
+    /**
+     * 获取可池化的最大容量
+     *
+     * @return 可池化的最大容量
+     */
+    protected int getMaxCapacity() {
+        return this.maxCapacity;
+    }
+
+    /**
+     * 获取每个桶最多缓存的数量
+     *
+     * @return 每个桶最多缓存的数量
+     */
+    protected int getMaxBucketSize() {
+        return this.maxBucketSize;
+    }
+
+    /**
+     * 获取已缓存的内存
+     *
+     * @param direct 是否直接内存
+     * @return 已缓存的内存
+     */
+    public long getMemory(boolean direct) {
+        return direct ? this.directMemory.get() : this.heapMemory.get();
+    }
+
+    /**
+     * 获取已缓存的堆内存
+     *
+     * @return 已缓存的堆内存
+     */
+    public long getHeapMemory() {
+        return getMemory(false);
+    }
+
+    /**
+     * 获取已缓存的直接内存
+     *
+     * @return 已缓存的直接内存
+     */
+    public long getDirectMemory() {
+        return getMemory(true);
+    }
 
+    /**
+     * 判断缓存后是否会超出内存上限
+     *
+     * @param capacity 容量
+     * @param direct   是否直接内存
+     * @return 是否超出内存上限
+     */
+    protected boolean exceedsMemory(int capacity, boolean direct) {
+        long max = direct ? this.maxDirectMemory : this.maxHeapMemory;
+        return max > 0 && getMemory(direct) + capacity > max;
+    }
+
+    /**
+     * 更新已缓存的内存
+     *
+     * @param delta  变化量
+     * @param direct 是否直接内存
+     */
+    protected void updateMemory(int delta, boolean direct) {
+        if (direct) {
+            this.directMemory.addAndGet(delta);
+        } else {
+            this.heapMemory.addAndGet(delta);
+        }
+    }
+
+    /**
+     * 创建新缓存
+     *
+     * @param capacity 容量
+     * @param direct   是否直接内存
+     * @return 缓存
+     */
+    protected ByteBuffer newByteBuffer(int capacity, boolean direct) {
+        return direct
+                ? BufferUtils.allocateDirect(capacity)
+                : BufferUtils.allocate(capacity);
     }
 
     @Override
     public RetainableByteBufferPool asRetainableByteBufferPool() {
-        return null;
+        return this.retainableByteBufferPool;
+    }
+
+    /**
+     * 复用当前缓存池的 {@link RetainableByteBufferPool}，引用计数归零时缓存归还到当前缓存池
+     */
+    private class Retained implements RetainableByteBufferPool {
+        @Override
+        public RetainableByteBuffer acquire(int size, boolean direct) {
+            ByteBuffer buffer = AbstractByteBufferPool.this.acquire(size, direct);
+            return new RetainableByteBuffer(buffer, retained -> release(retained.getBuffer()));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s}",
+                    getClass().getSimpleName(), hashCode(), AbstractByteBufferPool.this);
+        }
+    }
+
+    /**
+     * 相同容量的缓存桶
+     */
+    protected class Bucket {
+        /**
+         * 缓存队列
+         */
+        private final Deque<ByteBuffer> queue = new ConcurrentLinkedDeque<>();
+
+        /**
+         * 缓存容量
+         */
+        private final int capacity;
+
+        /**
+         * 是否直接内存
+         */
+        private final boolean direct;
+
+        /**
+         * 已缓存的数量
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        protected Bucket(int capacity, boolean direct) {
+            this.capacity = capacity;
+            this.direct = direct;
+        }
+
+        /**
+         * 从桶中获取缓存
+         *
+         * @return 缓存，没有时返回 null
+         */
+        public ByteBuffer acquire() {
+            ByteBuffer buffer = this.queue.poll();
+            if (buffer != null) {
+                this.size.decrementAndGet();
+                updateMemory(-buffer.capacity(), this.direct);
+            }
+
+            return buffer;
+        }
+
+        /**
+         * 将缓存放回桶中，超出数量或内存上限时丢弃
+         *
+         * @param buffer 缓存
+         */
+        public void release(ByteBuffer buffer) {
+            BufferUtils.clear(buffer);
+
+            int maxSize = getMaxBucketSize();
+            if (maxSize >= 0 && this.size.incrementAndGet() > maxSize) {
+                this.size.decrementAndGet();
+                return;
+            }
+
+            if (maxSize < 0) {
+                this.size.incrementAndGet();
+            }
+
+            if (exceedsMemory(buffer.capacity(), this.direct)) {
+                this.size.decrementAndGet();
+                return;
+            }
+
+            // 后进先出，优先复用最近使用过的缓存
+            this.queue.offerFirst(buffer);
+            updateMemory(buffer.capacity(), this.direct);
+        }
+
+        /**
+         * 获取已缓存的数量
+         *
+         * @return 已缓存的数量
+         */
+        public int size() {
+            return this.size.get();
+        }
+
+        /**
+         * 获取缓存容量
+         *
+         * @return 缓存容量
+         */
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{capacity=%d,direct=%b,size=%d}",
+                    getClass().getSimpleName(), hashCode(), this.capacity, this.direct, size());
+        }
     }
 }
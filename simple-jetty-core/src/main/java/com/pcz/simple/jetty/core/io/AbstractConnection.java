@@ -0,0 +1,290 @@
+package com.pcz.simple.jetty.core.io;
+
+import com.pcz.simple.jetty.core.Callback;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 抽象的 {@link Connection}，基于读兴趣回调驱动读取
+ *
+ * @author picongzhi
+ */
+public abstract class AbstractConnection implements Connection {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractConnection.class);
+
+    /**
+     * 端点
+     */
+    private final EndPoint endPoint;
+
+    /**
+     * 执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 读回调
+     */
+    private final Callback readCallback;
+
+    /**
+     * 输入缓存大小
+     */
+    private int inputBufferSize = 2048;
+
+    /**
+     * 输入缓存池，未设置时输入缓存不池化
+     */
+    private RetainableByteBufferPool inputBufferPool;
+
+    /**
+     * 输入缓存是否使用直接内存
+     */
+    private boolean useInputDirectByteBuffers = true;
+
+    /**
+     * 输入缓存，没有未消费的数据并等待读取时归还到缓存池
+     */
+    private volatile RetainableByteBuffer inputBuffer;
+
+    protected AbstractConnection(EndPoint endPoint, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+
+        this.endPoint = endPoint;
+        this.executor = executor;
+        this.readCallback = Callback.from(this::onFillable, this::onFillInterestedFailed);
+    }
+
+    @Override
+    public EndPoint getEndPoint() {
+        return this.endPoint;
+    }
+
+    /**
+     * 获取执行器
+     *
+     * @return 执行器
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * 获取输入缓存大小
+     *
+     * @return 输入缓存大小
+     */
+    public int getInputBufferSize() {
+        return this.inputBufferSize;
+    }
+
+    /**
+     * 设置输入缓存大小
+     *
+     * @param inputBufferSize 输入缓存大小
+     */
+    public void setInputBufferSize(int inputBufferSize) {
+        this.inputBufferSize = inputBufferSize;
+    }
+
+    /**
+     * 获取输入缓存池
+     *
+     * @return 输入缓存池
+     */
+    public RetainableByteBufferPool getInputBufferPool() {
+        return this.inputBufferPool;
+    }
+
+    /**
+     * 设置输入缓存池
+     *
+     * @param inputBufferPool 输入缓存池
+     */
+    public void setInputBufferPool(RetainableByteBufferPool inputBufferPool) {
+        this.inputBufferPool = inputBufferPool;
+    }
+
+    /**
+     * 判断输入缓存是否使用直接内存
+     *
+     * @return 输入缓存是否使用直接内存
+     */
+    public boolean isUseInputDirectByteBuffers() {
+        return this.useInputDirectByteBuffers;
+    }
+
+    /**
+     * 设置输入缓存是否使用直接内存
+     *
+     * @param useInputDirectByteBuffers 输入缓存是否使用直接内存
+     */
+    public void setUseInputDirectByteBuffers(boolean useInputDirectByteBuffers) {
+        this.useInputDirectByteBuffers = useInputDirectByteBuffers;
+    }
+
+    /**
+     * 获取输入缓存，没有时从缓存池获取，一般在 {@link #onFillable()} 中调用
+     *
+     * @return 输入缓存
+     */
+    protected RetainableByteBuffer acquireInputBuffer() {
+        RetainableByteBuffer inputBuffer = this.inputBuffer;
+        if (inputBuffer == null) {
+            RetainableByteBufferPool pool = this.inputBufferPool;
+            inputBuffer = pool == null
+                    ? new RetainableByteBuffer(BufferUtils.allocate(getInputBufferSize()), retained -> {
+            })
+                    : pool.acquire(getInputBufferSize(), isUseInputDirectByteBuffers());
+            this.inputBuffer = inputBuffer;
+        }
+
+        return inputBuffer;
+    }
+
+    /**
+     * 获取当前持有的输入缓存
+     *
+     * @return 输入缓存，没有时返回 null
+     */
+    protected RetainableByteBuffer getInputBuffer() {
+        return this.inputBuffer;
+    }
+
+    /**
+     * 替换输入缓存，原有的输入缓存被归还，用于连接升级时接管上一个连接的缓存
+     *
+     * @param inputBuffer 输入缓存
+     */
+    protected void setInputBuffer(RetainableByteBuffer inputBuffer) {
+        RetainableByteBuffer oldInputBuffer = this.inputBuffer;
+        this.inputBuffer = inputBuffer;
+        if (oldInputBuffer != null && oldInputBuffer != inputBuffer) {
+            oldInputBuffer.release();
+        }
+    }
+
+    /**
+     * 取走输入缓存，所有权转移给调用者，用于连接升级
+     *
+     * @return 输入缓存，没有时返回 null
+     */
+    protected RetainableByteBuffer takeInputBuffer() {
+        RetainableByteBuffer inputBuffer = this.inputBuffer;
+        this.inputBuffer = null;
+        return inputBuffer;
+    }
+
+    /**
+     * 输入缓存没有未消费的数据时归还到缓存池
+     *
+     * @return 是否不再持有输入缓存
+     */
+    protected boolean releaseInputBufferIfEmpty() {
+        RetainableByteBuffer inputBuffer = this.inputBuffer;
+        if (inputBuffer == null) {
+            return true;
+        }
+
+        if (inputBuffer.hasRemaining() || inputBuffer.isRetained()) {
+            return false;
+        }
+
+        this.inputBuffer = null;
+        inputBuffer.release();
+        return true;
+    }
+
+    /**
+     * 无条件归还输入缓存
+     */
+    protected void releaseInputBuffer() {
+        RetainableByteBuffer inputBuffer = takeInputBuffer();
+        if (inputBuffer != null) {
+            inputBuffer.release();
+        }
+    }
+
+    /**
+     * 判断是否在等待读取时仍持有输入缓存，即缓存中有未消费的数据
+     *
+     * @return 是否在空闲时持有输入缓存
+     */
+    public boolean isHoldingIdleInputBuffer() {
+        return this.inputBuffer != null && isFillInterested();
+    }
+
+    /**
+     * 注册读兴趣，有数据可读时回调 {@link #onFillable()}。
+     * 注册前如果输入缓存已经消费完，先归还到缓存池，避免空闲连接占用缓存
+     */
+    public void fillInterested() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("fillInterested {}", this);
+        }
+
+        releaseInputBufferIfEmpty();
+        getEndPoint().fillInterested(this.readCallback);
+    }
+
+    /**
+     * 判断是否已注册读兴趣
+     *
+     * @return 是否已注册读兴趣
+     */
+    public boolean isFillInterested() {
+        return getEndPoint().isFillInterested();
+    }
+
+    /**
+     * 有数据可读时调用
+     */
+    public abstract void onFillable();
+
+    /**
+     * 读兴趣失败时调用
+     *
+     * @param cause 失败原因
+     */
+    protected void onFillInterestedFailed(Throwable cause) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("onFillInterestedFailed {}", this, cause);
+        }
+
+        if (getEndPoint().isOpen()) {
+            getEndPoint().close(cause);
+        }
+    }
+
+    @Override
+    public void onOpen() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("onOpen {}", this);
+        }
+    }
+
+    @Override
+    public void onClose(Throwable cause) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("onClose {}", this, cause);
+        }
+
+        releaseInputBuffer();
+    }
+
+    @Override
+    public void close() {
+        getEndPoint().close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x::%s",
+                getClass().getSimpleName(), hashCode(), getEndPoint());
+    }
+}
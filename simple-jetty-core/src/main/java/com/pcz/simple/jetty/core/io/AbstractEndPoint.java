@@ -1,9 +1,237 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.Callback;
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadPendingException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * 抽象的 {@link EndPoint}
  *
  * @author picongzhi
  */
-public abstract class AbstractEndPoint extends IdleTimeout {
+public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractEndPoint.class);
+
+    /**
+     * 创建时间戳
+     */
+    private final long createdTimeStamp = System.currentTimeMillis();
+
+    /**
+     * 是否已关闭
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * 读兴趣回调
+     */
+    private final AtomicReference<Callback> fillInterest = new AtomicReference<>();
+
+    /**
+     * 关联的连接
+     */
+    private volatile Connection connection;
+
+    /**
+     * 读取的字节总数，只由读线程更新
+     */
+    private volatile long bytesIn;
+
+    /**
+     * 写出的字节总数，只由写线程更新
+     */
+    private volatile long bytesOut;
+
+    protected AbstractEndPoint(Scheduler scheduler) {
+        super(scheduler);
+    }
+
+    @Override
+    public long getCreatedTimeStamp() {
+        return this.createdTimeStamp;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    @Override
+    public long getBytesOut() {
+        return this.bytesOut;
+    }
+
+    /**
+     * 累加读取的字节数，由 {@link #fill(ByteBuffer)} 的实现调用
+     *
+     * @param bytes 读取的字节数
+     */
+    protected void addBytesIn(long bytes) {
+        if (bytes > 0) {
+            this.bytesIn += bytes;
+        }
+    }
+
+    /**
+     * 累加写出的字节数，由 {@link #flush(ByteBuffer...)} 的实现调用
+     *
+     * @param bytes 写出的字节数
+     */
+    protected void addBytesOut(long bytes) {
+        if (bytes > 0) {
+            this.bytesOut += bytes;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !this.closed.get();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return this.connection;
+    }
+
+    @Override
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void fillInterested(Callback callback) {
+        if (!this.fillInterest.compareAndSet(null, callback)) {
+            throw new ReadPendingException();
+        }
+
+        if (!isOpen()) {
+            failFillInterest(new ClosedChannelException());
+            return;
+        }
+
+        try {
+            needsFillInterest();
+        } catch (Throwable t) {
+            failFillInterest(t);
+        }
+    }
+
+    @Override
+    public boolean isFillInterested() {
+        return this.fillInterest.get() != null;
+    }
+
+    /**
+     * 注册读兴趣，由子类向底层（如 selector）注册
+     *
+     * @throws IOException IO 异常
+     */
+    protected abstract void needsFillInterest() throws IOException;
+
+    /**
+     * 有数据可读，回调读兴趣
+     */
+    protected void fillable() {
+        Callback callback = this.fillInterest.getAndSet(null);
+        if (callback != null) {
+            callback.succeeded();
+        }
+    }
+
+    /**
+     * 读兴趣失败
+     *
+     * @param t 失败原因
+     */
+    protected void failFillInterest(Throwable t) {
+        Callback callback = this.fillInterest.getAndSet(null);
+        if (callback != null) {
+            callback.failed(t);
+        }
+    }
+
+    @Override
+    public void upgrade(Connection newConnection) {
+        Connection oldConnection = getConnection();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} upgrading from {} to {}", this, oldConnection, newConnection);
+        }
+
+        // 取出老连接已经读取但未消费的数据
+        ByteBuffer buffer = oldConnection instanceof Connection.UpgradeFrom
+                ? ((Connection.UpgradeFrom) oldConnection).onUpgradeFrom()
+                : null;
+        oldConnection.onClose(null);
+
+        setConnection(newConnection);
+
+        // 将数据直接移交给新连接
+        if (newConnection instanceof Connection.UpgradeTo) {
+            ((Connection.UpgradeTo) newConnection).onUpgradeTo(buffer);
+        } else if (BufferUtils.hasContent(buffer)) {
+            throw new IllegalStateException("Cannot upgrade: " + newConnection + " has no Connection.UpgradeTo interface");
+        }
+
+        newConnection.onOpen();
+    }
+
+    @Override
+    public void onOpen() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("onOpen {}", this);
+        }
+    }
+
+    @Override
+    public void onClose(Throwable cause) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("onClose {}", this, cause);
+        }
+
+        Connection connection = getConnection();
+        if (connection != null) {
+            connection.onClose(cause);
+        }
+    }
+
+    @Override
+    public void close(Throwable cause) {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            doClose();
+        } finally {
+            failFillInterest(cause == null ? new ClosedChannelException() : cause);
+            onClose(cause);
+        }
+    }
+
+    /**
+     * 关闭底层资源
+     */
+    protected void doClose() {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{open=%b,fillInterested=%b,idle=%d}->%s",
+                getClass().getSimpleName(),
+                hashCode(),
+                isOpen(),
+                isFillInterested(),
+                getIdleTimeout(),
+                this.connection == null ? null : this.connection.getClass().getSimpleName());
+    }
 }
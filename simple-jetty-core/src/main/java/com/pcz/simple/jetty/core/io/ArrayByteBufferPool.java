@@ -1,9 +1,168 @@
 package com.pcz.simple.jetty.core.io;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
 /**
  * 字节数组缓存池
+ * <p>
+ * 按容量因子将缓存划分到不同的桶中，容量为 {@code factor} 整数倍的缓存才会被池化
  *
  * @author picongzhi
  */
 public class ArrayByteBufferPool extends AbstractByteBufferPool {
+    private static final Logger LOG = LoggerFactory.getLogger(ArrayByteBufferPool.class);
+
+    /**
+     * 可池化的最小容量
+     */
+    private final int minCapacity;
+
+    /**
+     * 直接内存缓存桶
+     */
+    private final Bucket[] direct;
+
+    /**
+     * 堆内存缓存桶
+     */
+    private final Bucket[] indirect;
+
+    public ArrayByteBufferPool() {
+        this(-1, -1, -1);
+    }
+
+    public ArrayByteBufferPool(int minCapacity, int factor, int maxCapacity) {
+        this(minCapacity, factor, maxCapacity, -1, 0, 0);
+    }
+
+    public ArrayByteBufferPool(int minCapacity,
+                               int factor,
+                               int maxCapacity,
+                               int maxBucketSize,
+                               long maxHeapMemory,
+                               long maxDirectMemory) {
+        super(factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory);
+
+        factor = getCapacityFactor();
+        maxCapacity = getMaxCapacity();
+        if (maxCapacity % factor != 0 || factor >= maxCapacity) {
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        }
+
+        this.minCapacity = Math.max(minCapacity, 0);
+
+        int length = bucketFor(maxCapacity) + 1;
+        this.direct = new Bucket[length];
+        this.indirect = new Bucket[length];
+        for (int i = 0; i < length; i++) {
+            this.direct[i] = new Bucket(capacityFor(i), true);
+            this.indirect[i] = new Bucket(capacityFor(i), false);
+        }
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct) {
+        Bucket bucket = bucketFor(size, direct);
+        if (bucket == null) {
+            return newByteBuffer(size, direct);
+        }
+
+        ByteBuffer buffer = bucket.acquire();
+        if (buffer == null) {
+            return newByteBuffer(bucket.getCapacity(), direct);
+        }
+
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        // 容量不是桶容量的缓存不是从池中分配的，直接丢弃
+        int capacity = buffer.capacity();
+        Bucket bucket = bucketFor(capacity, buffer.isDirect());
+        if (bucket == null || bucket.getCapacity() != capacity) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("ByteBuffer {} does not belong to this pool, discarding it", buffer);
+            }
+            return;
+        }
+
+        bucket.release(buffer);
+    }
+
+    /**
+     * 获取容量对应的桶
+     *
+     * @param capacity 容量
+     * @param direct   是否直接内存
+     * @return 桶，不可池化时返回 null
+     */
+    private Bucket bucketFor(int capacity, boolean direct) {
+        if (capacity < this.minCapacity) {
+            return null;
+        }
+
+        int index = bucketFor(capacity);
+        Bucket[] buckets = direct ? this.direct : this.indirect;
+        if (index >= buckets.length) {
+            return null;
+        }
+
+        return buckets[index];
+    }
+
+    /**
+     * 获取容量对应的桶索引
+     *
+     * @param capacity 容量
+     * @return 桶索引
+     */
+    protected int bucketFor(int capacity) {
+        int factor = getCapacityFactor();
+        return (capacity + factor - 1) / factor;
+    }
+
+    /**
+     * 获取桶索引对应的容量
+     *
+     * @param bucket 桶索引
+     * @return 容量
+     */
+    protected int capacityFor(int bucket) {
+        return bucket * getCapacityFactor();
+    }
+
+    /**
+     * 获取已缓存的缓存数量
+     *
+     * @param direct 是否直接内存
+     * @return 已缓存的缓存数量
+     */
+    public long getByteBufferCount(boolean direct) {
+        long count = 0;
+        for (Bucket bucket : direct ? this.direct : this.indirect) {
+            count += bucket.size();
+        }
+
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{minCapacity=%d,maxCapacity=%d,factor=%d,heap=%d,direct=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                this.minCapacity,
+                getMaxCapacity(),
+                getCapacityFactor(),
+                getHeapMemory(),
+                getDirectMemory());
+    }
 }
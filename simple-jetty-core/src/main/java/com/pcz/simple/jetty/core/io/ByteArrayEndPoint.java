@@ -0,0 +1,358 @@
+package com.pcz.simple.jetty.core.io;
+
+import com.pcz.simple.jetty.core.thread.AutoLock;
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.core.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于内存的 {@link EndPoint}，输入是缓存队列，输出写入可扩容的缓存
+ * <p>
+ * 有数据可读时，设置了执行器则与网络端点一样把读兴趣的回调派发到执行器，
+ * 避免连接的 onFillable 在添加输入的线程中被重入调用；没有执行器时在添加输入的线程中直接回调
+ *
+ * @author picongzhi
+ */
+public class ByteArrayEndPoint extends AbstractEndPoint {
+    /**
+     * 输入结束标记
+     */
+    private static final ByteBuffer EOF = BufferUtils.allocate(0);
+
+    /**
+     * 锁
+     */
+    private final AutoLock.WithCondition lock = new AutoLock.WithCondition();
+
+    /**
+     * 执行读兴趣回调的执行器，为 null 时直接回调
+     */
+    private final Executor executor;
+
+    /**
+     * 输入队列
+     */
+    private final Queue<ByteBuffer> inputs = new ArrayDeque<>();
+
+    /**
+     * 输出缓存，处于 flush 模式
+     */
+    private ByteBuffer output;
+
+    /**
+     * 输出缓存的最大容量
+     */
+    private final int outputMaxSize;
+
+    /**
+     * 是否已关闭输出
+     */
+    private boolean outputShutdown;
+
+    public ByteArrayEndPoint(Scheduler scheduler, Executor executor, int outputSize, int outputMaxSize) {
+        super(scheduler);
+        this.executor = executor;
+        this.output = BufferUtils.allocate(outputSize);
+        this.outputMaxSize = outputMaxSize;
+    }
+
+    public ByteArrayEndPoint(Scheduler scheduler, int outputSize, int outputMaxSize) {
+        this(scheduler, null, outputSize, outputMaxSize);
+    }
+
+    public ByteArrayEndPoint(Scheduler scheduler, Executor executor) {
+        this(scheduler, executor, 1024, Integer.MAX_VALUE);
+    }
+
+    public ByteArrayEndPoint(Scheduler scheduler) {
+        this(scheduler, null);
+    }
+
+    /**
+     * 添加输入
+     *
+     * @param input 输入，处于 flush 模式
+     */
+    public void addInput(ByteBuffer input) {
+        boolean fillable;
+        try (AutoLock autoLock = this.lock.lock()) {
+            if (isInputEOF()) {
+                throw new IllegalStateException("EOF");
+            }
+
+            if (BufferUtils.hasContent(input)) {
+                this.inputs.add(input);
+            }
+
+            fillable = !this.inputs.isEmpty();
+        }
+
+        if (fillable) {
+            dispatchFillable();
+        }
+    }
+
+    /**
+     * 添加输入
+     *
+     * @param input 输入，ISO-8859-1 编码
+     */
+    public void addInput(String input) {
+        addInput(ByteBuffer.wrap(StringUtils.getBytes(input)));
+    }
+
+    /**
+     * 添加输入结束标记，读完之前的输入后 fill 返回 -1
+     */
+    public void addInputEOF() {
+        try (AutoLock autoLock = this.lock.lock()) {
+            if (!isInputEOF()) {
+                this.inputs.add(EOF);
+            }
+        }
+
+        dispatchFillable();
+    }
+
+    /**
+     * 判断是否已添加输入结束标记，调用时必须持有锁
+     *
+     * @return 是否已添加输入结束标记
+     */
+    private boolean isInputEOF() {
+        for (ByteBuffer input : this.inputs) {
+            if (input == EOF) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    protected void needsFillInterest() throws IOException {
+        boolean fillable;
+        try (AutoLock autoLock = this.lock.lock()) {
+            fillable = !this.inputs.isEmpty();
+        }
+
+        if (fillable) {
+            dispatchFillable();
+        }
+    }
+
+    /**
+     * 有数据可读且已注册读兴趣时，把回调派发到执行器，没有执行器时直接回调
+     */
+    private void dispatchFillable() {
+        Executor executor = this.executor;
+        if (executor == null) {
+            fillable();
+            return;
+        }
+
+        // 未注册读兴趣时由之后的 needsFillInterest 派发
+        if (!isFillInterested()) {
+            return;
+        }
+
+        try {
+            executor.execute(this::fillable);
+        } catch (RejectedExecutionException e) {
+            failFillInterest(e);
+        }
+    }
+
+    @Override
+    public int fill(ByteBuffer buffer) throws IOException {
+        int filled = 0;
+        try (AutoLock autoLock = this.lock.lock()) {
+            while (!this.inputs.isEmpty()) {
+                ByteBuffer input = this.inputs.peek();
+                if (input == EOF) {
+                    if (filled == 0) {
+                        filled = -1;
+                    }
+                    break;
+                }
+
+                int appended = BufferUtils.append(buffer, input);
+                filled += appended;
+                if (BufferUtils.hasContent(input)) {
+                    // 目标缓存已满
+                    break;
+                }
+
+                this.inputs.poll();
+            }
+
+            if (filled == 0 && !isOpen()) {
+                filled = -1;
+            }
+        }
+
+        addBytesIn(filled);
+
+        return filled;
+    }
+
+    @Override
+    public boolean flush(ByteBuffer... buffers) throws IOException {
+        try (AutoLock.WithCondition autoLock = this.lock.lock()) {
+            if (!isOpen()) {
+                throw new ClosedChannelException();
+            }
+
+            if (this.outputShutdown) {
+                throw new IOException("Output shutdown " + this);
+            }
+
+            boolean flushed = true;
+            long bytes = 0;
+            for (ByteBuffer buffer : buffers) {
+                int length = BufferUtils.length(buffer);
+                if (length == 0) {
+                    continue;
+                }
+
+                ensureOutputSpace(length);
+                bytes += BufferUtils.append(this.output, buffer);
+                if (BufferUtils.hasContent(buffer)) {
+                    flushed = false;
+                    break;
+                }
+            }
+
+            addBytesOut(bytes);
+
+            if (bytes > 0) {
+                autoLock.signalAll();
+            }
+
+            return flushed;
+        }
+    }
+
+    /**
+     * 扩容输出缓存，调用时必须持有锁
+     *
+     * @param length 需要追加的长度
+     */
+    private void ensureOutputSpace(int length) {
+        ByteBuffer output = this.output;
+        if (BufferUtils.space(output) >= length || output.capacity() >= this.outputMaxSize) {
+            return;
+        }
+
+        int capacity = (int) Math.min(this.outputMaxSize,
+                Math.max((long) output.capacity() * 2, (long) output.remaining() + length));
+        ByteBuffer newOutput = BufferUtils.allocate(capacity);
+        BufferUtils.append(newOutput, output);
+        this.output = newOutput;
+    }
+
+    /**
+     * 取出已写出的数据
+     *
+     * @return 已写出的数据，处于 flush 模式
+     */
+    public ByteBuffer takeOutput() {
+        try (AutoLock autoLock = this.lock.lock()) {
+            ByteBuffer output = this.output;
+            this.output = BufferUtils.allocate(output.capacity());
+            return output;
+        }
+    }
+
+    /**
+     * 取出已写出的数据
+     *
+     * @return 已写出的数据，ISO-8859-1 解码
+     */
+    public String takeOutputString() {
+        return BufferUtils.toString(takeOutput());
+    }
+
+    /**
+     * 等待输出，直到有数据写出、输出关闭或者超时
+     *
+     * @param time 超时时间
+     * @param unit 时间单位
+     * @return 已写出的数据，超时时可能为空
+     * @throws InterruptedException 中断异常
+     */
+    public ByteBuffer waitForOutput(long time, TimeUnit unit) throws InterruptedException {
+        long end = System.nanoTime() + unit.toNanos(time);
+        try (AutoLock.WithCondition autoLock = this.lock.lock()) {
+            while (BufferUtils.isEmpty(this.output) && !this.outputShutdown && isOpen()) {
+                long remaining = end - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+
+                autoLock.await(remaining, TimeUnit.NANOSECONDS);
+            }
+
+            return takeOutput();
+        }
+    }
+
+    /**
+     * 等待输出关闭或者端点关闭
+     *
+     * @param time 超时时间
+     * @param unit 时间单位
+     * @return 是否在超时前关闭
+     * @throws InterruptedException 中断异常
+     */
+    public boolean waitForOutputShutdown(long time, TimeUnit unit) throws InterruptedException {
+        long end = System.nanoTime() + unit.toNanos(time);
+        try (AutoLock.WithCondition autoLock = this.lock.lock()) {
+            while (!this.outputShutdown && isOpen()) {
+                long remaining = end - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                autoLock.await(remaining, TimeUnit.NANOSECONDS);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * 判断输出是否已关闭
+     *
+     * @return 输出是否已关闭
+     */
+    public boolean isOutputShutdown() {
+        try (AutoLock autoLock = this.lock.lock()) {
+            return this.outputShutdown || !isOpen();
+        }
+    }
+
+    @Override
+    public void shutdownOutput() {
+        try (AutoLock.WithCondition autoLock = this.lock.lock()) {
+            this.outputShutdown = true;
+            autoLock.signalAll();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        try (AutoLock.WithCondition autoLock = this.lock.lock()) {
+            autoLock.signalAll();
+        }
+    }
+}
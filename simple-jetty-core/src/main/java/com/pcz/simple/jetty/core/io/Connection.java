@@ -1,6 +1,7 @@
 package com.pcz.simple.jetty.core.io;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 
 /**
  * 连接
@@ -8,4 +9,72 @@ import java.io.Closeable;
  * @author picongzhi
  */
 public interface Connection extends Closeable {
+    /**
+     * 连接打开时调用
+     */
+    void onOpen();
+
+    /**
+     * 连接关闭时调用
+     *
+     * @param cause 关闭原因，正常关闭时为 null
+     */
+    void onClose(Throwable cause);
+
+    /**
+     * 获取关联的端点
+     *
+     * @return 端点
+     */
+    EndPoint getEndPoint();
+
+    /**
+     * 获取读取的消息数，例如 HTTP 请求数
+     *
+     * @return 读取的消息数，不支持统计时返回 -1
+     */
+    default long getMessagesIn() {
+        return -1;
+    }
+
+    /**
+     * 获取写出的消息数，例如 HTTP 响应数
+     *
+     * @return 写出的消息数，不支持统计时返回 -1
+     */
+    default long getMessagesOut() {
+        return -1;
+    }
+
+    /**
+     * 关闭连接
+     */
+    @Override
+    void close();
+
+    /**
+     * 可以升级到其他连接的连接
+     */
+    interface UpgradeFrom {
+        /**
+         * 升级时调用，返回已经读取但未消费的数据。
+         * 返回的缓存来自连接器的缓存池，所有权随之转移给新连接，不再由当前连接释放
+         *
+         * @return 未消费的数据，没有时返回 null
+         */
+        ByteBuffer onUpgradeFrom();
+    }
+
+    /**
+     * 可以由其他连接升级而来的连接
+     */
+    interface UpgradeTo {
+        /**
+         * 升级时调用，接收上一个连接已经读取但未消费的数据。
+         * 新连接直接使用该缓存而不做拷贝，使用完后负责归还到缓存池
+         *
+         * @param buffer 未消费的数据，可能为 null
+         */
+        void onUpgradeTo(ByteBuffer buffer);
+    }
 }
@@ -0,0 +1,497 @@
+package com.pcz.simple.jetty.core.io;
+
+import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import com.pcz.simple.jetty.core.statistic.CounterStatistic;
+import com.pcz.simple.jetty.core.statistic.Histogram;
+import com.pcz.simple.jetty.core.statistic.RateStatistic;
+import com.pcz.simple.jetty.core.statistic.SampleStatistic;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接统计
+ * <p>
+ * 作为 bean 添加到连接器后生效，只统计启动后打开的连接。
+ * 连接数在端点打开时计入，字节数和消息数由端点在 fill/flush 时累加，在端点关闭时汇总计入。
+ * <p>
+ * 字节数和消息数及其速率都是已关闭连接的统计：仍然打开的长连接不计入，
+ * 一个连接的全部字节数和消息数在关闭时一次计入速率窗口，速率反映的是连接关闭的节奏，而不是实时流量
+ *
+ * @author picongzhi
+ */
+public class ConnectionStatistics extends AbstractLifeCycle implements EndPoint.Listener {
+    /**
+     * 启动后打开、尚未关闭的端点，启动前打开的端点关闭时不计入
+     */
+    private final Set<EndPoint> opened = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 连接数
+     */
+    private final CounterStatistic connections = new CounterStatistic();
+
+    /**
+     * 连接时长，单位：ms
+     */
+    private final SampleStatistic connectionsDuration = new SampleStatistic();
+
+    /**
+     * 连接时长分布，单位：ms
+     */
+    private final Histogram connectionsDurationHistogram = new Histogram();
+
+    /**
+     * 每个连接读取的消息数
+     */
+    private final SampleStatistic messagesInPerConnection = new SampleStatistic();
+
+    /**
+     * 每个连接读取的消息数分布
+     */
+    private final Histogram messagesInPerConnectionHistogram = new Histogram();
+
+    /**
+     * 每个连接写出的消息数
+     */
+    private final SampleStatistic messagesOutPerConnection = new SampleStatistic();
+
+    /**
+     * 每个连接写出的消息数分布
+     */
+    private final Histogram messagesOutPerConnectionHistogram = new Histogram();
+
+    /**
+     * 已关闭连接读取的字节数
+     */
+    private final LongAdder bytesIn = new LongAdder();
+
+    /**
+     * 已关闭连接写出的字节数
+     */
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * 已关闭连接读取的消息数
+     */
+    private final LongAdder messagesIn = new LongAdder();
+
+    /**
+     * 已关闭连接写出的消息数
+     */
+    private final LongAdder messagesOut = new LongAdder();
+
+    /**
+     * 打开连接的速率
+     */
+    private final Rates connectionsRates = new Rates();
+
+    /**
+     * 读取字节的速率
+     */
+    private final Rates bytesInRates = new Rates();
+
+    /**
+     * 写出字节的速率
+     */
+    private final Rates bytesOutRates = new Rates();
+
+    /**
+     * 读取消息的速率
+     */
+    private final Rates messagesInRates = new Rates();
+
+    /**
+     * 写出消息的速率
+     */
+    private final Rates messagesOutRates = new Rates();
+
+    @Override
+    protected void doStart() throws Exception {
+        reset();
+    }
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        this.connections.reset();
+        this.connectionsDuration.reset();
+        this.connectionsDurationHistogram.reset();
+        this.messagesInPerConnection.reset();
+        this.messagesInPerConnectionHistogram.reset();
+        this.messagesOutPerConnection.reset();
+        this.messagesOutPerConnectionHistogram.reset();
+        this.bytesIn.reset();
+        this.bytesOut.reset();
+        this.messagesIn.reset();
+        this.messagesOut.reset();
+        this.connectionsRates.reset();
+        this.bytesInRates.reset();
+        this.bytesOutRates.reset();
+        this.messagesInRates.reset();
+        this.messagesOutRates.reset();
+    }
+
+    @Override
+    public void onOpened(EndPoint endPoint) {
+        if (!isStarted() || !this.opened.add(endPoint)) {
+            return;
+        }
+
+        this.connections.increment();
+        this.connectionsRates.add(1);
+    }
+
+    @Override
+    public void onClosed(EndPoint endPoint) {
+        // 启动前打开的连接没有计入，关闭时不能扣减，否则连接数会变为负数
+        if (!this.opened.remove(endPoint)) {
+            return;
+        }
+
+        this.connections.decrement();
+        if (!isStarted()) {
+            return;
+        }
+
+        long duration = System.currentTimeMillis() - endPoint.getCreatedTimeStamp();
+        this.connectionsDuration.record(duration);
+        this.connectionsDurationHistogram.record(duration);
+
+        long bytesIn = endPoint.getBytesIn();
+        this.bytesIn.add(bytesIn);
+        this.bytesInRates.add(bytesIn);
+
+        long bytesOut = endPoint.getBytesOut();
+        this.bytesOut.add(bytesOut);
+        this.bytesOutRates.add(bytesOut);
+
+        Connection connection = endPoint.getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        long messagesIn = connection.getMessagesIn();
+        if (messagesIn >= 0) {
+            this.messagesIn.add(messagesIn);
+            this.messagesInRates.add(messagesIn);
+            this.messagesInPerConnection.record(messagesIn);
+            this.messagesInPerConnectionHistogram.record(messagesIn);
+        }
+
+        long messagesOut = connection.getMessagesOut();
+        if (messagesOut >= 0) {
+            this.messagesOut.add(messagesOut);
+            this.messagesOutRates.add(messagesOut);
+            this.messagesOutPerConnection.record(messagesOut);
+            this.messagesOutPerConnectionHistogram.record(messagesOut);
+        }
+    }
+
+    /**
+     * 获取当前打开的连接数
+     *
+     * @return 当前打开的连接数
+     */
+    public long getConnections() {
+        return this.connections.getCurrent();
+    }
+
+    /**
+     * 获取打开过的连接总数
+     *
+     * @return 打开过的连接总数
+     */
+    public long getConnectionsTotal() {
+        return this.connections.getTotal();
+    }
+
+    /**
+     * 获取已关闭的连接数
+     *
+     * @return 已关闭的连接数
+     */
+    public long getConnectionsClosed() {
+        return this.connections.getTotal() - this.connections.getCurrent();
+    }
+
+    /**
+     * 获取同时打开的连接数峰值
+     *
+     * @return 连接数峰值
+     */
+    public long getConnectionsMax() {
+        return this.connections.getMax();
+    }
+
+    /**
+     * 获取平均连接时长
+     *
+     * @return 平均连接时长，单位：ms
+     */
+    public double getConnectionDurationMean() {
+        return this.connectionsDuration.getMean();
+    }
+
+    /**
+     * 获取最大连接时长
+     *
+     * @return 最大连接时长，单位：ms
+     */
+    public long getConnectionDurationMax() {
+        return this.connectionsDuration.getMax();
+    }
+
+    /**
+     * 获取连接时长的标准差
+     *
+     * @return 连接时长的标准差，单位：ms
+     */
+    public double getConnectionDurationStdDev() {
+        return this.connectionsDuration.getStdDev();
+    }
+
+    /**
+     * 获取连接时长的百分位数
+     *
+     * @param percentile 百分位，取值 (0, 100]
+     * @return 连接时长的近似百分位数，单位：ms
+     */
+    public long getConnectionDurationPercentile(double percentile) {
+        return this.connectionsDurationHistogram.getPercentile(percentile);
+    }
+
+    /**
+     * 获取已关闭连接读取的字节总数
+     *
+     * @return 已关闭连接读取的字节总数
+     */
+    public long getBytesIn() {
+        return this.bytesIn.sum();
+    }
+
+    /**
+     * 获取已关闭连接写出的字节总数
+     *
+     * @return 已关闭连接写出的字节总数
+     */
+    public long getBytesOut() {
+        return this.bytesOut.sum();
+    }
+
+    /**
+     * 获取已关闭连接读取的消息总数
+     *
+     * @return 已关闭连接读取的消息总数
+     */
+    public long getMessagesIn() {
+        return this.messagesIn.sum();
+    }
+
+    /**
+     * 获取已关闭连接写出的消息总数
+     *
+     * @return 已关闭连接写出的消息总数
+     */
+    public long getMessagesOut() {
+        return this.messagesOut.sum();
+    }
+
+    /**
+     * 获取每个连接读取消息数的均值
+     *
+     * @return 每个连接读取消息数的均值
+     */
+    public double getMessagesInPerConnectionMean() {
+        return this.messagesInPerConnection.getMean();
+    }
+
+    /**
+     * 获取每个连接读取消息数的最大值
+     *
+     * @return 每个连接读取消息数的最大值
+     */
+    public long getMessagesInPerConnectionMax() {
+        return this.messagesInPerConnection.getMax();
+    }
+
+    /**
+     * 获取每个连接读取消息数的百分位数
+     *
+     * @param percentile 百分位，取值 (0, 100]
+     * @return 每个连接读取消息数的近似百分位数
+     */
+    public long getMessagesInPerConnectionPercentile(double percentile) {
+        return this.messagesInPerConnectionHistogram.getPercentile(percentile);
+    }
+
+    /**
+     * 获取每个连接写出消息数的均值
+     *
+     * @return 每个连接写出消息数的均值
+     */
+    public double getMessagesOutPerConnectionMean() {
+        return this.messagesOutPerConnection.getMean();
+    }
+
+    /**
+     * 获取每个连接写出消息数的最大值
+     *
+     * @return 每个连接写出消息数的最大值
+     */
+    public long getMessagesOutPerConnectionMax() {
+        return this.messagesOutPerConnection.getMax();
+    }
+
+    /**
+     * 获取每个连接写出消息数的百分位数
+     *
+     * @param percentile 百分位，取值 (0, 100]
+     * @return 每个连接写出消息数的近似百分位数
+     */
+    public long getMessagesOutPerConnectionPercentile(double percentile) {
+        return this.messagesOutPerConnectionHistogram.getPercentile(percentile);
+    }
+
+    /**
+     * 获取打开连接的速率
+     *
+     * @param window 窗口
+     * @return 每秒打开的连接数
+     */
+    public double getConnectionsRate(Window window) {
+        return this.connectionsRates.getRate(window);
+    }
+
+    /**
+     * 获取读取字节的速率，按连接关闭的时刻计入
+     *
+     * @param window 窗口
+     * @return 窗口内关闭的连接平均每秒读取的字节数
+     */
+    public double getBytesInRate(Window window) {
+        return this.bytesInRates.getRate(window);
+    }
+
+    /**
+     * 获取写出字节的速率，按连接关闭的时刻计入
+     *
+     * @param window 窗口
+     * @return 窗口内关闭的连接平均每秒写出的字节数
+     */
+    public double getBytesOutRate(Window window) {
+        return this.bytesOutRates.getRate(window);
+    }
+
+    /**
+     * 获取读取消息的速率，按连接关闭的时刻计入
+     *
+     * @param window 窗口
+     * @return 窗口内关闭的连接平均每秒读取的消息数
+     */
+    public double getMessagesInRate(Window window) {
+        return this.messagesInRates.getRate(window);
+    }
+
+    /**
+     * 获取写出消息的速率，按连接关闭的时刻计入
+     *
+     * @param window 窗口
+     * @return 窗口内关闭的连接平均每秒写出的消息数
+     */
+    public double getMessagesOutRate(Window window) {
+        return this.messagesOutRates.getRate(window);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{connections=%d,max=%d,total=%d,bytesIn=%d,bytesOut=%d,messagesIn=%d,messagesOut=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getConnections(),
+                getConnectionsMax(),
+                getConnectionsTotal(),
+                getBytesIn(),
+                getBytesOut(),
+                getMessagesIn(),
+                getMessagesOut());
+    }
+
+    /**
+     * 速率统计的窗口
+     */
+    public enum Window {
+        /**
+         * 1 秒，10 个 100ms 的槽
+         */
+        SECOND(1, TimeUnit.SECONDS, 10),
+
+        /**
+         * 1 分钟，60 个 1s 的槽
+         */
+        MINUTE(1, TimeUnit.MINUTES, 60),
+
+        /**
+         * 5 分钟，60 个 5s 的槽
+         */
+        FIVE_MINUTES(5, TimeUnit.MINUTES, 60);
+
+        /**
+         * 窗口长度
+         */
+        private final long length;
+
+        /**
+         * 窗口长度的单位
+         */
+        private final TimeUnit unit;
+
+        /**
+         * 槽数
+         */
+        private final int slots;
+
+        Window(long length, TimeUnit unit, int slots) {
+            this.length = length;
+            this.unit = unit;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * 一组不同窗口的速率统计
+     */
+    private static class Rates {
+        /**
+         * 各窗口的速率统计，下标为 {@link Window#ordinal()}
+         */
+        private final RateStatistic[] rates;
+
+        private Rates() {
+            Window[] windows = Window.values();
+            this.rates = new RateStatistic[windows.length];
+            for (Window window : windows) {
+                this.rates[window.ordinal()] = new RateStatistic(window.length, window.unit, window.slots);
+            }
+        }
+
+        private void add(long delta) {
+            for (RateStatistic rate : this.rates) {
+                rate.add(delta);
+            }
+        }
+
+        private double getRate(Window window) {
+            return this.rates[window.ordinal()].getRate(TimeUnit.SECONDS);
+        }
+
+        private void reset() {
+            for (RateStatistic rate : this.rates) {
+                rate.reset();
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.Callback;
+
 import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EventListener;
 
 /**
  * 端点
@@ -14,4 +19,138 @@ public interface EndPoint extends Closeable {
      * @param timeout 空闲超时时间
      */
     void setIdleTimeout(long timeout);
+
+    /**
+     * 获取创建时间戳
+     *
+     * @return 创建时间戳，单位：ms
+     */
+    long getCreatedTimeStamp();
+
+    /**
+     * 获取读取的字节总数
+     *
+     * @return 读取的字节总数
+     */
+    long getBytesIn();
+
+    /**
+     * 获取写出的字节总数
+     *
+     * @return 写出的字节总数
+     */
+    long getBytesOut();
+
+    /**
+     * 判断端点是否打开
+     *
+     * @return 是否打开
+     */
+    boolean isOpen();
+
+    /**
+     * 读取数据到缓存，缓存处于 flush 模式，读取的数据追加到已有内容之后
+     *
+     * @param buffer 缓存
+     * @return 读取的字节数，-1 表示输入已关闭
+     * @throws IOException IO 异常
+     */
+    int fill(ByteBuffer buffer) throws IOException;
+
+    /**
+     * 写出缓存中的数据
+     *
+     * @param buffers 缓存
+     * @return 是否全部写出
+     * @throws IOException IO 异常
+     */
+    boolean flush(ByteBuffer... buffers) throws IOException;
+
+    /**
+     * 注册读兴趣，有数据可读时回调
+     *
+     * @param callback 回调
+     */
+    void fillInterested(Callback callback);
+
+    /**
+     * 判断是否已注册读兴趣
+     *
+     * @return 是否已注册读兴趣
+     */
+    boolean isFillInterested();
+
+    /**
+     * 关闭输出
+     */
+    void shutdownOutput();
+
+    /**
+     * 获取关联的连接
+     *
+     * @return 连接
+     */
+    Connection getConnection();
+
+    /**
+     * 设置关联的连接
+     *
+     * @param connection 连接
+     */
+    void setConnection(Connection connection);
+
+    /**
+     * 升级连接，未消费的数据通过 {@link Connection.UpgradeFrom} 和 {@link Connection.UpgradeTo} 移交给新连接
+     *
+     * @param newConnection 新连接
+     */
+    void upgrade(Connection newConnection);
+
+    /**
+     * 端点打开时调用
+     */
+    void onOpen();
+
+    /**
+     * 端点关闭时调用
+     *
+     * @param cause 关闭原因，正常关闭时为 null
+     */
+    void onClose(Throwable cause);
+
+    /**
+     * 关闭端点
+     */
+    @Override
+    default void close() {
+        close(null);
+    }
+
+    /**
+     * 关闭端点
+     *
+     * @param cause 关闭原因，正常关闭时为 null
+     */
+    void close(Throwable cause);
+
+    /**
+     * 端点监听器，作为 bean 添加到连接器后，在端点打开和关闭时回调
+     */
+    interface Listener extends EventListener {
+        /**
+         * 端点打开时调用
+         *
+         * @param endPoint 端点
+         */
+        default void onOpened(EndPoint endPoint) {
+        }
+
+        /**
+         * 端点关闭时调用
+         *
+         * @param endPoint 端点
+         */
+        default void onClosed(EndPoint endPoint) {
+        }
+    }
 }
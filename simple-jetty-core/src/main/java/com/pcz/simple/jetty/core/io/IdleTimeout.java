@@ -1,12 +1,46 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.thread.Scheduler;
+
 /**
  * 空闲时间
  *
  * @author picongzhi
  */
 public abstract class IdleTimeout {
+    /**
+     * 调度器
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * 空闲超时时间，单位：ms
+     */
+    private volatile long idleTimeout;
+
+    protected IdleTimeout(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 获取调度器
+     *
+     * @return 调度器
+     */
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * 获取空闲超时时间
+     *
+     * @return 空闲超时时间，单位：ms
+     */
+    public long getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
     public void setIdleTimeout(long idleTimeout) {
-        
+        this.idleTimeout = idleTimeout;
     }
 }
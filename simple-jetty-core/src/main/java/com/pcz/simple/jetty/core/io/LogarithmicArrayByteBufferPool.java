@@ -2,8 +2,49 @@ package com.pcz.simple.jetty.core.io;
 
 /**
  * 基于对数的、自增的字节数组缓存池
+ * <p>
+ * 第 n 个桶的容量为 2^n
  *
  * @author picongzhi
  */
 public class LogarithmicArrayByteBufferPool extends ArrayByteBufferPool {
+    /**
+     * 默认的最大容量
+     */
+    private static final int DEFAULT_MAX_CAPACITY = 65536;
+
+    public LogarithmicArrayByteBufferPool() {
+        this(-1, -1, -1);
+    }
+
+    public LogarithmicArrayByteBufferPool(int minCapacity, int maxCapacity) {
+        this(minCapacity, maxCapacity, -1);
+    }
+
+    public LogarithmicArrayByteBufferPool(int minCapacity, int maxCapacity, int maxBucketSize) {
+        this(minCapacity, maxCapacity, maxBucketSize, 0, 0);
+    }
+
+    public LogarithmicArrayByteBufferPool(int minCapacity,
+                                          int maxCapacity,
+                                          int maxBucketSize,
+                                          long maxHeapMemory,
+                                          long maxDirectMemory) {
+        super(minCapacity, 1, maxCapacity <= 0 ? DEFAULT_MAX_CAPACITY : maxCapacity,
+                maxBucketSize, maxHeapMemory, maxDirectMemory);
+    }
+
+    @Override
+    protected int bucketFor(int capacity) {
+        if (capacity <= 1) {
+            return 0;
+        }
+
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    @Override
+    protected int capacityFor(int bucket) {
+        return 1 << bucket;
+    }
 }
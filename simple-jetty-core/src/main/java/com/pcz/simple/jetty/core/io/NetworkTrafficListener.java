@@ -0,0 +1,48 @@
+package com.pcz.simple.jetty.core.io;
+
+import java.nio.ByteBuffer;
+import java.util.EventListener;
+
+/**
+ * 网络流量监听器
+ * <p>
+ * 回调中的缓存是只读视图，与端点共享底层数据，只在回调期间有效，需要保留时由监听器自行拷贝。
+ * 回调在 IO 线程中执行，不应阻塞
+ *
+ * @author picongzhi
+ */
+public interface NetworkTrafficListener extends EventListener {
+    /**
+     * 端点打开时调用
+     *
+     * @param endPoint 端点
+     */
+    default void opened(EndPoint endPoint) {
+    }
+
+    /**
+     * 读取到数据时调用
+     *
+     * @param endPoint 端点
+     * @param bytes    本次读取的数据
+     */
+    default void incoming(EndPoint endPoint, ByteBuffer bytes) {
+    }
+
+    /**
+     * 写出数据时调用
+     *
+     * @param endPoint 端点
+     * @param bytes    本次写出的数据
+     */
+    default void outgoing(EndPoint endPoint, ByteBuffer bytes) {
+    }
+
+    /**
+     * 端点关闭时调用
+     *
+     * @param endPoint 端点
+     */
+    default void closed(EndPoint endPoint) {
+    }
+}
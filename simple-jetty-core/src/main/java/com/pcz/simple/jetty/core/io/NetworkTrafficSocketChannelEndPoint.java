@@ -0,0 +1,141 @@
+package com.pcz.simple.jetty.core.io;
+
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * 通知 {@link NetworkTrafficListener} 的 {@link SocketChannelEndPoint}
+ * <p>
+ * 只在有监听器时才使用该端点，没有监听器的端点不承担任何额外开销
+ *
+ * @author picongzhi
+ */
+public class NetworkTrafficSocketChannelEndPoint extends SocketChannelEndPoint {
+    private static final Logger LOG = LoggerFactory.getLogger(NetworkTrafficSocketChannelEndPoint.class);
+
+    /**
+     * 监听器
+     */
+    private final List<NetworkTrafficListener> listeners;
+
+    public NetworkTrafficSocketChannelEndPoint(SocketChannel socketChannel,
+                                               ManagedSelector managedSelector,
+                                               SelectionKey selectionKey,
+                                               Scheduler scheduler,
+                                               List<NetworkTrafficListener> listeners) {
+        super(socketChannel, managedSelector, selectionKey, scheduler);
+        this.listeners = listeners;
+    }
+
+    @Override
+    public int fill(ByteBuffer buffer) throws IOException {
+        int start = buffer.limit();
+        int filled = super.fill(buffer);
+        if (filled > 0) {
+            notifyIncoming(view(buffer, start, buffer.limit()));
+        }
+
+        return filled;
+    }
+
+    @Override
+    public boolean flush(ByteBuffer... buffers) throws IOException {
+        int[] positions = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            positions[i] = buffers[i].position();
+        }
+
+        boolean flushed = super.flush(buffers);
+
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer buffer = buffers[i];
+            if (buffer.position() > positions[i]) {
+                notifyOutgoing(view(buffer, positions[i], buffer.position()));
+            }
+        }
+
+        return flushed;
+    }
+
+    @Override
+    public void onOpen() {
+        super.onOpen();
+
+        for (NetworkTrafficListener listener : this.listeners) {
+            try {
+                listener.opened(this);
+            } catch (Throwable t) {
+                LOG.info("Exception while invoking listener {}", listener, t);
+            }
+        }
+    }
+
+    @Override
+    public void onClose(Throwable cause) {
+        super.onClose(cause);
+
+        for (NetworkTrafficListener listener : this.listeners) {
+            try {
+                listener.closed(this);
+            } catch (Throwable t) {
+                LOG.info("Exception while invoking listener {}", listener, t);
+            }
+        }
+    }
+
+    /**
+     * 通知读取到的数据
+     *
+     * @param bytes 数据
+     */
+    private void notifyIncoming(ByteBuffer bytes) {
+        for (NetworkTrafficListener listener : this.listeners) {
+            try {
+                listener.incoming(this, bytes);
+            } catch (Throwable t) {
+                LOG.info("Exception while invoking listener {}", listener, t);
+            } finally {
+                bytes.rewind();
+            }
+        }
+    }
+
+    /**
+     * 通知写出的数据
+     *
+     * @param bytes 数据
+     */
+    private void notifyOutgoing(ByteBuffer bytes) {
+        for (NetworkTrafficListener listener : this.listeners) {
+            try {
+                listener.outgoing(this, bytes);
+            } catch (Throwable t) {
+                LOG.info("Exception while invoking listener {}", listener, t);
+            } finally {
+                bytes.rewind();
+            }
+        }
+    }
+
+    /**
+     * 创建 [from, to) 区间的只读视图，不拷贝数据
+     *
+     * @param buffer 缓存
+     * @param from   起始位置
+     * @param to     结束位置
+     * @return 只读视图
+     */
+    private static ByteBuffer view(ByteBuffer buffer, int from, int to) {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.limit(to);
+        view.position(from);
+        return view.slice();
+    }
+}
@@ -1,15 +1,144 @@
 package com.pcz.simple.jetty.core.io;
 
 import com.pcz.simple.jetty.core.Retainable;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
- * 可保留的缓存
+ * 可保留的缓存，基于引用计数，引用计数归零时归还到缓存池
  *
  * @author picongzhi
  */
 public class RetainableByteBuffer implements Retainable {
+    /**
+     * 缓存，处于 flush 模式
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * 引用计数
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    /**
+     * 引用计数归零时的释放器
+     */
+    private final Consumer<RetainableByteBuffer> releaser;
+
+    public RetainableByteBuffer(ByteBuffer buffer, Consumer<RetainableByteBuffer> releaser) {
+        this.buffer = buffer;
+        this.releaser = releaser;
+    }
+
+    /**
+     * 获取缓存
+     *
+     * @return 缓存
+     */
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * 判断是否被多于一个持有者保留
+     *
+     * @return 是否被多于一个持有者保留
+     */
+    public boolean isRetained() {
+        return this.references.get() > 1;
+    }
+
     @Override
     public void retain() {
-        
+        while (true) {
+            int references = this.references.get();
+            if (references <= 0) {
+                throw new IllegalStateException("Released " + this);
+            }
+
+            if (this.references.compareAndSet(references, references + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 释放一次引用，引用计数归零时归还到缓存池
+     *
+     * @return 是否已归还到缓存池
+     */
+    public boolean release() {
+        int references = this.references.decrementAndGet();
+        if (references < 0) {
+            throw new IllegalStateException("Already released " + this);
+        }
+
+        if (references == 0) {
+            this.releaser.accept(this);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * 判断是否有内容
+     *
+     * @return 是否有内容
+     */
+    public boolean hasRemaining() {
+        return this.buffer.hasRemaining();
+    }
+
+    /**
+     * 判断是否没有内容
+     *
+     * @return 是否没有内容
+     */
+    public boolean isEmpty() {
+        return !this.buffer.hasRemaining();
+    }
+
+    /**
+     * 获取内容长度
+     *
+     * @return 内容长度
+     */
+    public int remaining() {
+        return this.buffer.remaining();
+    }
+
+    /**
+     * 获取容量
+     *
+     * @return 容量
+     */
+    public int capacity() {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * 判断是否是直接内存
+     *
+     * @return 是否是直接内存
+     */
+    public boolean isDirect() {
+        return this.buffer.isDirect();
+    }
+
+    /**
+     * 清空内容
+     */
+    public void clear() {
+        BufferUtils.clear(this.buffer);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,r=%d}",
+                getClass().getSimpleName(), hashCode(), BufferUtils.toDetailString(this.buffer), this.references.get());
     }
 }
@@ -6,4 +6,12 @@ package com.pcz.simple.jetty.core.io;
  * @author picongzhi
  */
 public interface RetainableByteBufferPool {
+    /**
+     * 获取缓存，引用计数为 1，调用 {@link RetainableByteBuffer#release()} 归还
+     *
+     * @param size   缓存大小
+     * @param direct 是否需要直接内存
+     * @return 缓存，处于 flush 模式且没有内容
+     */
+    RetainableByteBuffer acquire(int size, boolean direct);
 }
@@ -1,9 +1,102 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+
 /**
  * 基于 {@link java.nio.channels.SelectableChannel} 的 {@link EndPoint}
  *
  * @author picongzhi
  */
 public abstract class SelectableChannelEndPoint extends AbstractEndPoint {
+    private static final Logger LOG = LoggerFactory.getLogger(SelectableChannelEndPoint.class);
+
+    /**
+     * 通道
+     */
+    private final SelectableChannel channel;
+
+    /**
+     * 所属的 {@link ManagedSelector}
+     */
+    private final ManagedSelector selector;
+
+    /**
+     * 注册的 {@link SelectionKey}
+     */
+    private final SelectionKey selectionKey;
+
+    protected SelectableChannelEndPoint(Scheduler scheduler,
+                                        SelectableChannel channel,
+                                        ManagedSelector selector,
+                                        SelectionKey selectionKey) {
+        super(scheduler);
+        this.channel = channel;
+        this.selector = selector;
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * 获取通道
+     *
+     * @return 通道
+     */
+    public SelectableChannel getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * 获取所属的 {@link ManagedSelector}
+     *
+     * @return {@link ManagedSelector}
+     */
+    public ManagedSelector getSelector() {
+        return this.selector;
+    }
+
+    @Override
+    protected void needsFillInterest() throws IOException {
+        SelectionKey selectionKey = this.selectionKey;
+        if (selectionKey == null || !selectionKey.isValid()) {
+            throw new IOException("Invalid selection key for " + this);
+        }
+
+        selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_READ);
+        selectionKey.selector().wakeup();
+    }
+
+    /**
+     * 通道被选中时调用，取消读兴趣并回调
+     */
+    public void onSelected() {
+        SelectionKey selectionKey = this.selectionKey;
+        if (selectionKey == null || !selectionKey.isValid()) {
+            return;
+        }
+
+        int readyOps = selectionKey.readyOps();
+        if ((readyOps & SelectionKey.OP_READ) != 0) {
+            selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("onSelected fillable {}", this);
+            }
+
+            fillable();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            LOG.debug("Unable to close {}", this.channel, e);
+        }
+    }
 }
@@ -1,10 +1,15 @@
 package com.pcz.simple.jetty.core.io;
 
+import com.pcz.simple.jetty.core.ProcessorUtils;
 import com.pcz.simple.jetty.core.component.ContainerLifeCycle;
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import com.pcz.simple.jetty.core.thread.ThreadPool;
+import com.pcz.simple.jetty.core.thread.ThreadPoolBudget;
 
 import java.io.Closeable;
 import java.nio.channels.SelectableChannel;
 import java.util.EventListener;
+import java.util.concurrent.Executor;
 
 /**
  * NIO Selector 管理器
@@ -12,6 +17,91 @@ import java.util.EventListener;
  * @author picongzhi
  */
 public abstract class SelectorManager extends ContainerLifeCycle {
+    /**
+     * 执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 调度器
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * 选择器数量
+     */
+    private final int selectors;
+
+    /**
+     * 从执行器预算中租用选择器线程的契约
+     */
+    private ThreadPoolBudget.Lease lease;
+
+    /**
+     * @param executor  执行器
+     * @param scheduler 调度器
+     * @param selectors 选择器数量，小于等于 0 时根据执行器计算
+     */
+    protected SelectorManager(Executor executor, Scheduler scheduler, int selectors) {
+        if (selectors <= 0) {
+            selectors = defaultSelectors(executor);
+        }
+
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.selectors = selectors;
+    }
+
+    /**
+     * 计算默认的选择器数量
+     *
+     * @param executor 执行器
+     * @return 选择器数量
+     */
+    protected static int defaultSelectors(Executor executor) {
+        if (executor instanceof ThreadPool.SizedThreadPool) {
+            int threads = ((ThreadPool.SizedThreadPool) executor).getMaxThreads();
+            return ProcessorUtils.recommendedSelectors(threads);
+        }
+
+        return Math.max(1, ProcessorUtils.availableProcessors() / 2);
+    }
+
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * 获取选择器数量
+     *
+     * @return 选择器数量
+     */
+    public int getSelectorCount() {
+        return this.selectors;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        // 每个选择器占用一个线程
+        this.lease = ThreadPoolBudget.leaseFrom(getExecutor(), this, this.selectors);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        try {
+            super.doStop();
+        } finally {
+            if (this.lease != null) {
+                this.lease.close();
+            }
+        }
+    }
+
     /**
      * 给连接操作注册服务端通道
      *
@@ -31,6 +121,23 @@ public abstract class SelectorManager extends ContainerLifeCycle {
 
     }
 
+    /**
+     * 端点打开时由 {@link ManagedSelector} 调用
+     *
+     * @param endPoint 端点
+     */
+    public void onEndPointOpened(EndPoint endPoint) {
+        endPoint.onOpen();
+    }
+
+    /**
+     * 端点关闭时由 {@link ManagedSelector} 调用
+     *
+     * @param endPoint 端点
+     */
+    public void onEndPointClosed(EndPoint endPoint) {
+    }
+
     /**
      * {@link SelectorManager} 监听器
      */
@@ -1,7 +1,12 @@
 package com.pcz.simple.jetty.core.io;
 
 import com.pcz.simple.jetty.core.thread.Scheduler;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
@@ -11,10 +16,97 @@ import java.nio.channels.SocketChannel;
  * @author picongzhi
  */
 public class SocketChannelEndPoint extends SelectableChannelEndPoint {
+    private static final Logger LOG = LoggerFactory.getLogger(SocketChannelEndPoint.class);
+
+    /**
+     * 通道
+     */
+    private final SocketChannel socketChannel;
+
     public SocketChannelEndPoint(SocketChannel socketChannel,
                                  ManagedSelector managedSelector,
                                  SelectionKey selectionKey,
                                  Scheduler scheduler) {
+        super(scheduler, socketChannel, managedSelector, selectionKey);
+        this.socketChannel = socketChannel;
+    }
+
+    /**
+     * 获取通道
+     *
+     * @return 通道
+     */
+    public SocketChannel getSocketChannel() {
+        return this.socketChannel;
+    }
+
+    @Override
+    public int fill(ByteBuffer buffer) throws IOException {
+        if (!isOpen()) {
+            return -1;
+        }
+
+        int position = BufferUtils.flipToFill(buffer);
+        int filled;
+        try {
+            filled = this.socketChannel.read(buffer);
+        } finally {
+            BufferUtils.flipToFlush(buffer, position);
+        }
+
+        if (filled < 0) {
+            // 对端关闭了输出
+            shutdownInput();
+        } else {
+            addBytesIn(filled);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("filled {} {}", filled, BufferUtils.toDetailString(buffer));
+        }
+
+        return filled;
+    }
+
+    @Override
+    public boolean flush(ByteBuffer... buffers) throws IOException {
+        long flushed = this.socketChannel.write(buffers);
+        addBytesOut(flushed);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("flushed {} {}", flushed, this);
+        }
+
+        for (ByteBuffer buffer : buffers) {
+            if (!BufferUtils.isEmpty(buffer)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void shutdownOutput() {
+        try {
+            if (this.socketChannel.isOpen()) {
+                this.socketChannel.shutdownOutput();
+            }
+        } catch (IOException e) {
+            LOG.debug("Unable to shutdown output", e);
+        }
+    }
 
+    /**
+     * 关闭输入
+     */
+    private void shutdownInput() {
+        try {
+            if (this.socketChannel.isOpen()) {
+                this.socketChannel.shutdownInput();
+            }
+        } catch (IOException e) {
+            LOG.debug("Unable to shutdown input", e);
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计数统计，记录当前值、峰值和累计增加的总数，无锁
+ *
+ * @author picongzhi
+ */
+public class CounterStatistic {
+    /**
+     * 当前值
+     */
+    private final AtomicLong current = new AtomicLong();
+
+    /**
+     * 峰值
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 累计增加的总数
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        this.total.reset();
+        this.max.set(this.current.get());
+    }
+
+    /**
+     * 增加
+     *
+     * @param delta 增量
+     * @return 增加后的当前值
+     */
+    public long add(long delta) {
+        long value = this.current.addAndGet(delta);
+        if (delta > 0) {
+            this.total.add(delta);
+            updateMax(value);
+        }
+
+        return value;
+    }
+
+    /**
+     * 加一
+     *
+     * @return 增加后的当前值
+     */
+    public long increment() {
+        return add(1);
+    }
+
+    /**
+     * 减一
+     *
+     * @return 减少后的当前值
+     */
+    public long decrement() {
+        return add(-1);
+    }
+
+    /**
+     * 获取当前值
+     *
+     * @return 当前值
+     */
+    public long getCurrent() {
+        return this.current.get();
+    }
+
+    /**
+     * 获取峰值
+     *
+     * @return 峰值
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * 获取累计增加的总数
+     *
+     * @return 累计增加的总数
+     */
+    public long getTotal() {
+        return this.total.sum();
+    }
+
+    /**
+     * CAS 更新峰值
+     *
+     * @param value 新值
+     */
+    private void updateMax(long value) {
+        long max = this.max.get();
+        while (value > max) {
+            if (this.max.compareAndSet(max, value)) {
+                break;
+            }
+
+            max = this.max.get();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{current=%d,max=%d,total=%d}",
+                getClass().getSimpleName(), hashCode(), getCurrent(), getMax(), getTotal());
+    }
+}
@@ -0,0 +1,143 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以 2 的幂为桶边界的直方图，无锁
+ * <p>
+ * 第 0 个桶记录 0，第 n 个桶记录 [2^(n-1), 2^n) 范围内的值，
+ * 百分位数以所在桶的上界近似，相对误差不超过 2 倍
+ *
+ * @author picongzhi
+ */
+public class Histogram {
+    /**
+     * 桶数量，覆盖所有非负的 long
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * 每个桶的计数
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一个值，负数按 0 记录
+     *
+     * @param value 值
+     */
+    public void record(long value) {
+        this.buckets[bucketFor(value)].increment();
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * 获取记录的总数
+     *
+     * @return 记录的总数
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * 获取每个桶的计数快照
+     *
+     * @return 每个桶的计数
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * 获取百分位数的近似值
+     *
+     * @param percentile 百分位，取值 (0, 100]
+     * @return 百分位数所在桶的上界，没有记录时返回 0
+     */
+    public long getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        }
+
+        long[] counts = getCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0D);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += counts[i];
+            if (accumulated >= threshold) {
+                return upperBound(i);
+            }
+        }
+
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * 获取值对应的桶
+     *
+     * @param value 值
+     * @return 桶索引
+     */
+    static int bucketFor(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+
+        return Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * 获取桶的上界（不包含）
+     *
+     * @param bucket 桶索引
+     * @return 上界
+     */
+    static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{count=%d,p50=%d,p99=%d}",
+                getClass().getSimpleName(), hashCode(), getCount(),
+                getPercentile(50), getPercentile(99));
+    }
+}
@@ -0,0 +1,166 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口速率统计，无锁
+ * <p>
+ * 窗口被划分为若干个槽，每个槽是一个 long，高 24 位是槽所属的时间片编号，低 40 位是计数。
+ * 写入时通过一次 CAS 完成"过期清零 + 累加"，读取时只汇总窗口内的时间片。
+ * {@link System#nanoTime()} 可能为负数，时间片编号按 floorDiv、槽下标按 floorMod 计算，跨过 0 时时间片仍然连续
+ *
+ * @author picongzhi
+ */
+public class RateStatistic {
+    /**
+     * 计数所占位数
+     */
+    private static final int VALUE_BITS = 40;
+
+    /**
+     * 计数掩码
+     */
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    /**
+     * 时间片编号掩码
+     */
+    private static final long TAG_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+
+    /**
+     * 窗口长度，单位：ns
+     */
+    private final long windowNanos;
+
+    /**
+     * 每个槽的时间长度，单位：ns
+     */
+    private final long slotNanos;
+
+    /**
+     * 槽
+     */
+    private final AtomicLongArray slots;
+
+    public RateStatistic(long window, TimeUnit unit, int slots) {
+        if (window <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("Invalid window " + window + " or slots " + slots);
+        }
+
+        this.windowNanos = unit.toNanos(window);
+        this.slotNanos = Math.max(1, this.windowNanos / slots);
+        this.slots = new AtomicLongArray(slots);
+    }
+
+    /**
+     * 获取窗口长度
+     *
+     * @param unit 时间单位
+     * @return 窗口长度
+     */
+    public long getWindow(TimeUnit unit) {
+        return unit.convert(this.windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录增量
+     *
+     * @param delta 增量，必须非负
+     */
+    public void add(long delta) {
+        add(delta, System.nanoTime());
+    }
+
+    /**
+     * 记录增量
+     *
+     * @param delta 增量，必须非负
+     * @param now   当前时间戳，{@link System#nanoTime()}
+     */
+    void add(long delta, long now) {
+        if (delta <= 0) {
+            return;
+        }
+
+        long epoch = epoch(now);
+        long tag = epoch & TAG_MASK;
+        int index = (int) Math.floorMod(epoch, (long) this.slots.length());
+
+        while (true) {
+            long current = this.slots.get(index);
+            long value = (current >>> VALUE_BITS) == tag
+                    ? Math.min(VALUE_MASK, (current & VALUE_MASK) + delta)
+                    : Math.min(VALUE_MASK, delta);
+            if (this.slots.compareAndSet(index, current, (tag << VALUE_BITS) | value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取窗口内的累计值
+     *
+     * @return 窗口内的累计值
+     */
+    public long getCount() {
+        return getCount(System.nanoTime());
+    }
+
+    /**
+     * 获取窗口内的累计值
+     *
+     * @param now 当前时间戳，{@link System#nanoTime()}
+     * @return 窗口内的累计值
+     */
+    long getCount(long now) {
+        long epoch = epoch(now);
+        int length = this.slots.length();
+
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            long current = this.slots.get(i);
+            long age = ((epoch & TAG_MASK) - (current >>> VALUE_BITS)) & TAG_MASK;
+            if (age < length) {
+                count += current & VALUE_MASK;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * 获取时间戳所在的时间片编号
+     *
+     * @param now 时间戳，{@link System#nanoTime()}
+     * @return 时间片编号
+     */
+    private long epoch(long now) {
+        return Math.floorDiv(now, this.slotNanos);
+    }
+
+    /**
+     * 获取窗口内的速率
+     *
+     * @param unit 速率的时间单位
+     * @return 每个时间单位的平均值
+     */
+    public double getRate(TimeUnit unit) {
+        return (double) getCount() * unit.toNanos(1) / this.windowNanos;
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (int i = 0; i < this.slots.length(); i++) {
+            this.slots.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{window=%dms,count=%d}",
+                getClass().getSimpleName(), hashCode(), getWindow(TimeUnit.MILLISECONDS), getCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 样本统计，记录样本数、总和、最大值、均值和标准差，无锁
+ *
+ * @author picongzhi
+ */
+public class SampleStatistic {
+    /**
+     * 样本数
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * 样本总和
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * 样本平方和
+     */
+    private final DoubleAdder totalSquares = new DoubleAdder();
+
+    /**
+     * 最大值
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        this.count.reset();
+        this.total.reset();
+        this.totalSquares.reset();
+        this.max.set(0);
+    }
+
+    /**
+     * 记录样本
+     *
+     * @param sample 样本
+     */
+    public void record(long sample) {
+        this.count.increment();
+        this.total.add(sample);
+        this.totalSquares.add((double) sample * sample);
+
+        long max = this.max.get();
+        while (sample > max) {
+            if (this.max.compareAndSet(max, sample)) {
+                break;
+            }
+
+            max = this.max.get();
+        }
+    }
+
+    /**
+     * 获取样本数
+     *
+     * @return 样本数
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * 获取样本总和
+     *
+     * @return 样本总和
+     */
+    public long getTotal() {
+        return this.total.sum();
+    }
+
+    /**
+     * 获取最大值
+     *
+     * @return 最大值
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * 获取均值
+     *
+     * @return 均值
+     */
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? (double) getTotal() / count : 0.0D;
+    }
+
+    /**
+     * 获取方差
+     *
+     * @return 方差
+     */
+    public double getVariance() {
+        long count = getCount();
+        if (count <= 1) {
+            return 0.0D;
+        }
+
+        double mean = getMean();
+        return Math.max(0.0D, (this.totalSquares.sum() - mean * mean * count) / (count - 1));
+    }
+
+    /**
+     * 获取标准差
+     *
+     * @return 标准差
+     */
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{count=%d,mean=%.2f,max=%d,stddev=%.2f}",
+                getClass().getSimpleName(), hashCode(), getCount(), getMean(), getMax(), getStdDev());
+    }
+}
@@ -0,0 +1,148 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口最大值统计，无锁
+ * <p>
+ * 与 {@link RateStatistic} 相同，窗口被划分为若干个槽，每个槽的高 24 位是时间片编号，低 40 位是该时间片内的最大值，
+ * 读取时取窗口内所有时间片的最大值。时间片编号按 floorDiv 计算，{@link System#nanoTime()} 跨过 0 时仍然连续
+ *
+ * @author picongzhi
+ */
+public class WindowedMaxStatistic {
+    /**
+     * 值所占位数
+     */
+    private static final int VALUE_BITS = 40;
+
+    /**
+     * 值掩码
+     */
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    /**
+     * 时间片编号掩码
+     */
+    private static final long TAG_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+
+    /**
+     * 窗口长度，单位：ns
+     */
+    private final long windowNanos;
+
+    /**
+     * 每个槽的时间长度，单位：ns
+     */
+    private final long slotNanos;
+
+    /**
+     * 槽
+     */
+    private final AtomicLongArray slots;
+
+    public WindowedMaxStatistic(long window, TimeUnit unit, int slots) {
+        if (window <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("Invalid window " + window + " or slots " + slots);
+        }
+
+        this.windowNanos = unit.toNanos(window);
+        this.slotNanos = Math.max(1, this.windowNanos / slots);
+        this.slots = new AtomicLongArray(slots);
+    }
+
+    /**
+     * 获取窗口长度
+     *
+     * @param unit 时间单位
+     * @return 窗口长度
+     */
+    public long getWindow(TimeUnit unit) {
+        return unit.convert(this.windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录样本
+     *
+     * @param value 样本，必须非负
+     */
+    public void record(long value) {
+        record(value, System.nanoTime());
+    }
+
+    /**
+     * 记录样本
+     *
+     * @param value 样本，必须非负
+     * @param now   当前时间戳，{@link System#nanoTime()}
+     */
+    void record(long value, long now) {
+        if (value < 0) {
+            return;
+        }
+
+        value = Math.min(VALUE_MASK, value);
+        long epoch = Math.floorDiv(now, this.slotNanos);
+        long tag = epoch & TAG_MASK;
+        int index = (int) Math.floorMod(epoch, (long) this.slots.length());
+
+        while (true) {
+            long current = this.slots.get(index);
+            boolean sameSlot = (current >>> VALUE_BITS) == tag;
+            if (sameSlot && (current & VALUE_MASK) >= value) {
+                return;
+            }
+
+            if (this.slots.compareAndSet(index, current, (tag << VALUE_BITS) | value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取窗口内的最大值
+     *
+     * @return 窗口内的最大值，没有样本时返回 0
+     */
+    public long getMax() {
+        return getMax(System.nanoTime());
+    }
+
+    /**
+     * 获取窗口内的最大值
+     *
+     * @param now 当前时间戳，{@link System#nanoTime()}
+     * @return 窗口内的最大值，没有样本时返回 0
+     */
+    long getMax(long now) {
+        long epoch = Math.floorDiv(now, this.slotNanos);
+        int length = this.slots.length();
+
+        long max = 0;
+        for (int i = 0; i < length; i++) {
+            long current = this.slots.get(i);
+            long age = ((epoch & TAG_MASK) - (current >>> VALUE_BITS)) & TAG_MASK;
+            if (age < length) {
+                max = Math.max(max, current & VALUE_MASK);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (int i = 0; i < this.slots.length(); i++) {
+            this.slots.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{window=%dms,max=%d}",
+                getClass().getSimpleName(), hashCode(), getWindow(TimeUnit.MILLISECONDS), getMax());
+    }
+}
@@ -1,33 +1,144 @@
 package com.pcz.simple.jetty.core.thread;
 
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 自动释放的锁
+ * <p>
+ * 设置系统属性 {@link #INSTRUMENTED_PROPERTY} 为 true 时记录锁竞争统计，见 {@link LockStatistics}。
+ * 未开启时只多一次常量判断，由 JIT 消除
  *
  * @author picongzhi
  */
 public class AutoLock implements AutoCloseable, Serializable {
     private static final long serialVersionUID = -3155935961686229999L;
 
+    /**
+     * 开启锁竞争统计的系统属性
+     */
+    public static final String INSTRUMENTED_PROPERTY = "jetty.autolock.instrumented";
+
+    /**
+     * 持有时间采样率的系统属性，每多少次获取锁采样一次，向上取整到 2 的幂，默认 16
+     */
+    public static final String SAMPLE_RATE_PROPERTY = "jetty.autolock.sampleRate";
+
+    /**
+     * 是否开启锁竞争统计
+     */
+    static final boolean INSTRUMENTED = Boolean.getBoolean(INSTRUMENTED_PROPERTY);
+
+    /**
+     * 持有时间采样掩码
+     */
+    private static final int SAMPLE_MASK;
+
+    static {
+        int rate = Math.max(1, Integer.getInteger(SAMPLE_RATE_PROPERTY, 16));
+        SAMPLE_MASK = (rate == 1 ? 1 : Integer.highestOneBit(rate - 1) << 1) - 1;
+    }
+
     /**
      * 锁
      */
     private final ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * 统计，未开启锁竞争统计时为 null
+     */
+    private final transient LockStatistics statistics;
+
+    /**
+     * 采样的获取锁的时间戳，为 0 时表示本次持有不采样，由锁保护
+     */
+    private transient long lockedAt;
+
+    /**
+     * 未指定名称时，开启锁竞争统计后以创建锁的代码位置作为名称
+     */
+    public AutoLock() {
+        this(null);
+    }
+
+    /**
+     * @param name 锁的名称，用于汇总锁竞争统计
+     */
+    public AutoLock(String name) {
+        this.statistics = INSTRUMENTED ? LockStatistics.of(name == null ? callerName() : name) : null;
+    }
+
     /**
      * 获取锁
      *
      * @return 当前锁
      */
     public AutoLock lock() {
-        this.lock.lock();
+        if (INSTRUMENTED && this.statistics != null) {
+            instrumentedLock();
+        } else {
+            this.lock.lock();
+        }
+
         return this;
     }
 
+    /**
+     * 获取锁并记录统计
+     */
+    private void instrumentedLock() {
+        if (this.lock.tryLock()) {
+            this.statistics.onUncontended();
+        } else {
+            long start = System.nanoTime();
+            this.lock.lock();
+            this.statistics.onContended(System.nanoTime() - start);
+        }
+
+        // 重入时不重新采样
+        if (this.lock.getHoldCount() == 1) {
+            this.lockedAt = (ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) == 0 ? System.nanoTime() : 0;
+        }
+    }
+
+    /**
+     * 释放锁前记录采样的持有时间
+     */
+    private void beforeUnlock() {
+        if (this.lock.getHoldCount() == 1 && this.lockedAt != 0) {
+            this.statistics.onReleased(System.nanoTime() - this.lockedAt);
+            this.lockedAt = 0;
+        }
+    }
+
+    /**
+     * 获取创建锁的代码位置
+     *
+     * @return 代码位置
+     */
+    private static String callerName() {
+        return StackWalker.getInstance()
+                .walk(frames -> frames
+                        .filter(frame -> !isAutoLockFrame(frame.getClassName()))
+                        .findFirst()
+                        .map(frame -> frame.getClassName() + ":" + frame.getLineNumber())
+                        .orElse(AutoLock.class.getName()));
+    }
+
+    /**
+     * 判断是否是 {@link AutoLock} 或其内部类的栈帧，前缀相同的其他类不算
+     *
+     * @param className 类名
+     * @return 是否是 {@link AutoLock} 或其内部类的栈帧
+     */
+    private static boolean isAutoLockFrame(String className) {
+        String name = AutoLock.class.getName();
+        return className.equals(name) || className.startsWith(name + "$");
+    }
+
     /**
      * 判断锁是否被当前线程持有
      *
@@ -57,15 +168,34 @@ public class AutoLock implements AutoCloseable, Serializable {
 
     @Override
     public void close() {
+        if (INSTRUMENTED && this.statistics != null) {
+            beforeUnlock();
+        }
+
         this.lock.unlock();
     }
 
+    /**
+     * 等待 {@link Condition} 时会释放锁，本次持有不再采样
+     */
+    void beforeAwait() {
+        this.lockedAt = 0;
+    }
+
     public static class WithCondition extends AutoLock {
         /**
          * condition
          */
         private final Condition condition = newCondition();
 
+        public WithCondition() {
+            super();
+        }
+
+        public WithCondition(String name) {
+            super(name);
+        }
+
         @Override
         public AutoLock.WithCondition lock() {
             return (WithCondition) super.lock();
@@ -91,6 +221,10 @@ public class AutoLock implements AutoCloseable, Serializable {
          * @throws InterruptedException 中断异常
          */
         public void await() throws InterruptedException {
+            if (INSTRUMENTED) {
+                beforeAwait();
+            }
+
             this.condition.await();
         }
 
@@ -103,6 +237,10 @@ public class AutoLock implements AutoCloseable, Serializable {
          * @throws InterruptedException 中断异常
          */
         public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            if (INSTRUMENTED) {
+                beforeAwait();
+            }
+
             return this.condition.await(time, unit);
         }
     }
@@ -0,0 +1,214 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 基于 CoDel 算法的任务准入策略
+ * <p>
+ * 任务出队时记录其排队时延，时延持续超过目标时延一个完整的间隔后认为线程池过载。
+ * 过载期间新提交的非关键任务被拒绝，或者交给降级处理器，{@link CriticalTask} 和 {@link LongLivedTask} 始终准入。
+ * 保留线程等长期运行任务是线程池自身的任务，交给降级处理器后永远不会执行，其占用的计数也无法回收。
+ * 出队任务的排队时延回落到目标时延以下，或者任务队列已空时解除过载。
+ * <p>
+ * 与只看队列长度相比，短时的突发不会触发拒绝，持续的积压则会被快速拒绝，排队时延的尾部有界
+ *
+ * @author picongzhi
+ */
+public class CoDelAdmissionPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(CoDelAdmissionPolicy.class);
+
+    /**
+     * 排队时延首次超过目标后，一个间隔结束的时间戳，为 0 时表示时延未超过目标
+     */
+    private final AtomicLong firstAboveTime = new AtomicLong();
+
+    /**
+     * 被拒绝的任务数
+     */
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * 进入过载状态的次数
+     */
+    private final LongAdder overloads = new LongAdder();
+
+    /**
+     * 目标时延，单位：ns
+     */
+    private final long targetNanos;
+
+    /**
+     * 间隔，单位：ns
+     */
+    private final long intervalNanos;
+
+    /**
+     * 降级处理器，为 null 时拒绝任务
+     */
+    private volatile Consumer<Runnable> fallback;
+
+    /**
+     * 是否过载
+     */
+    private volatile boolean overloaded;
+
+    public CoDelAdmissionPolicy() {
+        this(5, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param target   目标时延
+     * @param interval 间隔
+     * @param unit     时间单位
+     */
+    public CoDelAdmissionPolicy(long target, long interval, TimeUnit unit) {
+        if (target <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Invalid target " + target + " or interval " + interval);
+        }
+
+        this.targetNanos = unit.toNanos(target);
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    public long getTarget(TimeUnit unit) {
+        return unit.convert(this.targetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getInterval(TimeUnit unit) {
+        return unit.convert(this.intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Consumer<Runnable> getFallback() {
+        return this.fallback;
+    }
+
+    /**
+     * 设置降级处理器，过载时被拒绝的任务在提交线程中交给降级处理器，
+     * 如直接响应 503 并关闭连接
+     *
+     * @param fallback 降级处理器，为 null 时抛出 {@link RejectedExecutionException}
+     */
+    public void setFallback(Consumer<Runnable> fallback) {
+        this.fallback = fallback;
+    }
+
+    public boolean isOverloaded() {
+        return this.overloaded;
+    }
+
+    /**
+     * 获取被拒绝的任务数
+     *
+     * @return 被拒绝的任务数
+     */
+    public long getShedCount() {
+        return this.shed.sum();
+    }
+
+    /**
+     * 获取进入过载状态的次数
+     *
+     * @return 进入过载状态的次数
+     */
+    public long getOverloadCount() {
+        return this.overloads.sum();
+    }
+
+    /**
+     * 判断是否准入任务
+     *
+     * @param job       任务
+     * @param queueSize 当前排队任务数
+     * @return 是否准入
+     */
+    public boolean admit(Runnable job, int queueSize) {
+        if (!this.overloaded || job instanceof CriticalTask || job instanceof LongLivedTask) {
+            return true;
+        }
+
+        if (queueSize <= 0) {
+            // 积压已经清空，不会再有出队的时延样本，在这里解除过载
+            exitOverload();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * 处理未准入的任务
+     *
+     * @param job 任务
+     * @throws RejectedExecutionException 没有降级处理器
+     */
+    public void shed(Runnable job) throws RejectedExecutionException {
+        this.shed.increment();
+
+        Consumer<Runnable> fallback = this.fallback;
+        if (fallback == null) {
+            throw new RejectedExecutionException("Overloaded, shed " + job);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Overloaded, fallback {}", job);
+        }
+        fallback.accept(job);
+    }
+
+    /**
+     * 任务出队时调用
+     *
+     * @param sojournNanos 排队时延
+     * @param now          当前时间戳，{@link System#nanoTime()}
+     */
+    public void onDequeued(long sojournNanos, long now) {
+        if (sojournNanos < this.targetNanos) {
+            this.firstAboveTime.set(0);
+            if (this.overloaded) {
+                exitOverload();
+            }
+            return;
+        }
+
+        long firstAboveTime = this.firstAboveTime.get();
+        if (firstAboveTime == 0) {
+            // 首次超过目标，再观察一个间隔
+            this.firstAboveTime.compareAndSet(0, now + this.intervalNanos);
+        } else if (!this.overloaded && now - firstAboveTime >= 0) {
+            this.overloaded = true;
+            this.overloads.increment();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Overloaded, sojourn {}us {}", TimeUnit.NANOSECONDS.toMicros(sojournNanos), this);
+            }
+        }
+    }
+
+    /**
+     * 解除过载
+     */
+    private void exitOverload() {
+        this.firstAboveTime.set(0);
+        this.overloaded = false;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Overload cleared {}", this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{target=%dms,interval=%dms,overloaded=%b,shed=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getTarget(TimeUnit.MILLISECONDS),
+                getInterval(TimeUnit.MILLISECONDS),
+                this.overloaded,
+                getShedCount());
+    }
+}
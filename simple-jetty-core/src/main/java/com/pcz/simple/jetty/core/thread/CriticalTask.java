@@ -0,0 +1,11 @@
+package com.pcz.simple.jetty.core.thread;
+
+/**
+ * 关键任务标记，如接收器、选择器和生命周期相关的任务
+ * <p>
+ * 线程池过载时关键任务不会被 {@link CoDelAdmissionPolicy} 拒绝
+ *
+ * @author picongzhi
+ */
+public interface CriticalTask extends Runnable {
+}
@@ -0,0 +1,200 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.statistic.SampleStatistic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 锁竞争统计，按锁的名称汇总，同名的锁共享一份统计
+ * <p>
+ * 只有开启 {@link AutoLock#INSTRUMENTED_PROPERTY} 时 {@link AutoLock} 才会记录，
+ * 等待时间在每次竞争时记录，持有时间按 {@link AutoLock#SAMPLE_RATE_PROPERTY} 采样记录，时间单位都是 ns
+ *
+ * @author picongzhi
+ */
+public class LockStatistics {
+    /**
+     * 所有锁的统计
+     */
+    private static final Map<String, LockStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    /**
+     * 按等待时间总和降序，其次按竞争次数降序
+     */
+    private static final Comparator<LockStatistics> WORST_FIRST = Comparator
+            .comparingLong((LockStatistics statistics) -> statistics.getWaitTime().getTotal())
+            .thenComparingLong(LockStatistics::getContended)
+            .reversed();
+
+    /**
+     * 锁的名称
+     */
+    private final String name;
+
+    /**
+     * 无竞争获取的次数
+     */
+    private final LongAdder uncontended = new LongAdder();
+
+    /**
+     * 竞争获取的次数
+     */
+    private final LongAdder contended = new LongAdder();
+
+    /**
+     * 竞争时的等待时间
+     */
+    private final SampleStatistic waitTime = new SampleStatistic();
+
+    /**
+     * 采样的持有时间
+     */
+    private final SampleStatistic holdTime = new SampleStatistic();
+
+    private LockStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取指定名称的锁的统计，不存在时创建
+     *
+     * @param name 锁的名称
+     * @return 统计
+     */
+    static LockStatistics of(String name) {
+        return STATISTICS.computeIfAbsent(name, LockStatistics::new);
+    }
+
+    /**
+     * 无竞争获取锁
+     */
+    void onUncontended() {
+        this.uncontended.increment();
+    }
+
+    /**
+     * 竞争获取锁
+     *
+     * @param waitNanos 等待时间
+     */
+    void onContended(long waitNanos) {
+        this.contended.increment();
+        this.waitTime.record(waitNanos);
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param holdNanos 持有时间
+     */
+    void onReleased(long holdNanos) {
+        this.holdTime.record(holdNanos);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getUncontended() {
+        return this.uncontended.sum();
+    }
+
+    public long getContended() {
+        return this.contended.sum();
+    }
+
+    /**
+     * 获取竞争获取的比例
+     *
+     * @return 竞争获取的比例
+     */
+    public double getContentionRatio() {
+        long contended = getContended();
+        long total = contended + getUncontended();
+        return total == 0 ? 0 : (double) contended / total;
+    }
+
+    public SampleStatistic getWaitTime() {
+        return this.waitTime;
+    }
+
+    public SampleStatistic getHoldTime() {
+        return this.holdTime;
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        this.uncontended.reset();
+        this.contended.reset();
+        this.waitTime.reset();
+        this.holdTime.reset();
+    }
+
+    /**
+     * 获取所有锁的统计
+     *
+     * @return 所有锁的统计
+     */
+    public static List<LockStatistics> getAll() {
+        return new ArrayList<>(STATISTICS.values());
+    }
+
+    /**
+     * 获取竞争最严重的锁的统计
+     *
+     * @param limit 最多返回的个数
+     * @return 按等待时间总和降序排列的统计
+     */
+    public static List<LockStatistics> getWorstOffenders(int limit) {
+        List<LockStatistics> all = getAll();
+        all.removeIf(statistics -> statistics.getContended() == 0);
+        all.sort(WORST_FIRST);
+        return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+    }
+
+    /**
+     * 重置所有锁的统计
+     */
+    public static void resetAll() {
+        STATISTICS.values().forEach(LockStatistics::reset);
+    }
+
+    /**
+     * 输出竞争最严重的锁的统计
+     *
+     * @param limit 最多输出的个数
+     * @return 竞争最严重的锁的统计，每个锁一行，未开启统计时返回空字符串
+     */
+    public static String dump(int limit) {
+        if (!AutoLock.INSTRUMENTED) {
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder("LockStatistics");
+        for (LockStatistics statistics : getWorstOffenders(limit)) {
+            builder.append(System.lineSeparator()).append(" +- ").append(statistics);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{contended=%d/%d,wait.total=%dus,wait.max=%dus,hold.mean=%dus,hold.max=%dus}",
+                this.name,
+                getContended(),
+                getContended() + getUncontended(),
+                TimeUnit.NANOSECONDS.toMicros(this.waitTime.getTotal()),
+                TimeUnit.NANOSECONDS.toMicros(this.waitTime.getMax()),
+                TimeUnit.NANOSECONDS.toMicros((long) this.holdTime.getMean()),
+                TimeUnit.NANOSECONDS.toMicros(this.holdTime.getMax()));
+    }
+}
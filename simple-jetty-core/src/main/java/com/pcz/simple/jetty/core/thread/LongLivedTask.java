@@ -0,0 +1,12 @@
+package com.pcz.simple.jetty.core.thread;
+
+/**
+ * 长期运行任务标记，如接收器循环和保留线程，这类任务按设计会一直占用线程
+ * <p>
+ * {@link QueuedThreadPoolWatchdog} 不把长期运行任务当作卡死的任务，既不告警也不中断，
+ * 也不计入 {@link QueuedThreadPool#getLongRunningThreads()}；线程池过载时也不会被 {@link CoDelAdmissionPolicy} 拒绝
+ *
+ * @author picongzhi
+ */
+public interface LongLivedTask extends Runnable {
+}
@@ -0,0 +1,12 @@
+package com.pcz.simple.jetty.core.thread;
+
+/**
+ * 高优先级任务标记，如选择器更新、空闲超时和关闭连接等内部控制任务
+ * <p>
+ * {@link QueuedThreadPool} 把高优先级任务放入单独的队列，线程优先执行，不必排在请求任务之后。
+ * 高优先级任务也是 {@link CriticalTask}，过载时不会被拒绝
+ *
+ * @author picongzhi
+ */
+public interface PriorityTask extends CriticalTask {
+}
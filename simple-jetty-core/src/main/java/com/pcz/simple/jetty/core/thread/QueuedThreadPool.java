@@ -2,20 +2,35 @@ package com.pcz.simple.jetty.core.thread;
 
 import com.pcz.simple.jetty.core.AtomicBiInteger;
 import com.pcz.simple.jetty.core.BlockingArrayQueue;
+import com.pcz.simple.jetty.core.ProcessorUtils;
 import com.pcz.simple.jetty.core.component.ContainerLifeCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 基于队列的线程池
+ * <p>
+ * 设置了虚拟线程执行器时，通过 {@link #executeBlocking(Runnable)} 提交的可能阻塞的任务（如请求处理）在虚拟线程中执行，
+ * 并发数可以通过 {@link #setMaxVirtualThreadsTasks(int)} 限制；
+ * 通过 {@link #execute(Runnable)} 提交的选择器等非阻塞任务仍然在平台线程中执行
  *
  * @author picongzhi
  */
-public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactory, ThreadPool.SizedThreadPool {
+public class QueuedThreadPool extends ContainerLifeCycle
+        implements ThreadFactory, ThreadPool.SizedThreadPool, TryExecutor, VirtualThreads.Configurable {
     private static final Logger LOG = LoggerFactory.getLogger(QueuedThreadPool.class);
 
     /**
@@ -24,12 +39,18 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     private static final Runnable NOOP = () -> {
     };
 
+    /**
+     * 有高优先级任务时放入普通队列，唤醒阻塞在普通队列上的空闲线程
+     */
+    private static final Runnable PRIORITY_WAKEUP = () -> {
+    };
+
     /**
      * 编码的线程数
      * Hi：总线程数
      * Lo：网络空闲线程数 = 空闲线程数 - 任务队列长度
      */
-    private final AtomicBiInteger counts = new AtomicBiInteger(Integer.MIN_VALUE, 0);
+    private final AtomicBiInteger counts = new AtomicBiInteger.Padded(Integer.MIN_VALUE, 0);
 
     /**
      * 最近的收缩时间戳
@@ -44,13 +65,28 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     /**
      * join 锁
      */
-    private final AutoLock.WithCondition joinLock = new AutoLock.WithCondition();
+    private final AutoLock.WithCondition joinLock = new AutoLock.WithCondition("QueuedThreadPool.joinLock");
 
     /**
      * 任务
      */
     private final BlockingQueue<Runnable> jobs;
 
+    /**
+     * 高优先级任务
+     */
+    private final Queue<Runnable> priorityJobs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 正在执行高优先级任务的线程数
+     */
+    private final AtomicInteger priorityThreads = new AtomicInteger();
+
+    /**
+     * 同时执行高优先级任务的最大线程数，为负数时取最大线程数的一半，其余线程保证留给普通任务
+     */
+    private int maxPriorityThreads = -1;
+
     /**
      * 线程组
      */
@@ -121,13 +157,93 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
      */
     private long stopTimeout;
 
+    /**
+     * 停止时是否处于排空阶段，该阶段线程继续执行队列中剩余的任务
+     */
+    private volatile boolean draining;
+
+    /**
+     * 最近一次停止时未执行的任务
+     */
+    private volatile List<Runnable> unexecutedJobs = Collections.emptyList();
+
     /**
      * 虚拟线程执行器
      */
-    private Executor virtualThreadsExecutor;
+    private volatile Executor virtualThreadsExecutor;
+
+    /**
+     * 虚拟线程执行器是否由线程池创建，由线程池创建的执行器在停止时关闭
+     */
+    private volatile boolean ownVirtualThreadsExecutor;
+
+    /**
+     * 同时在虚拟线程中执行的最大任务数，小于等于 0 时不限制
+     */
+    private volatile int maxVirtualThreadsTasks = -1;
+
+    /**
+     * 限制同时在虚拟线程中执行的任务数的许可，不限制时许可数为 0
+     */
+    private final ResizableSemaphore virtualThreadsPermits = new ResizableSemaphore();
+
+    /**
+     * 调整最大任务数时的锁
+     */
+    private final AutoLock virtualThreadsLock = new AutoLock();
+
+    /**
+     * 等待许可的阻塞任务
+     */
+    private final Queue<Runnable> blockingJobs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 正在虚拟线程中执行任务的线程数
+     */
+    private final AtomicInteger virtualThreadsTasks = new AtomicInteger();
+
+    /**
+     * 线程执行的循环
+     */
+    private final Runnable runner = new Runner();
+
+    /**
+     * 任务统计
+     */
+    private final ThreadPoolStatistics statistics = new ThreadPoolStatistics();
+
+    /**
+     * 是否统计任务，关闭时任务不会被包装，也不会计时
+     */
+    private volatile boolean statisticsEnabled;
+
+    /**
+     * 任务准入策略，为 null 时准入所有任务
+     */
+    private volatile CoDelAdmissionPolicy admissionPolicy;
+
+    /**
+     * 开启的线程数
+     */
+    private final LongAdder threadsStarted = new LongAdder();
+
+    /**
+     * 退出的线程数
+     */
+    private final LongAdder threadsStopped = new LongAdder();
+
+    /**
+     * 每个线程正在执行的任务，平台线程在开启和退出时更新，虚拟线程在执行阻塞任务前后更新
+     */
+    private final Map<Thread, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 执行时间超过阈值的线程数，由 {@link QueuedThreadPoolWatchdog} 更新
+     */
+    private volatile int longRunningThreads;
 
     public QueuedThreadPool() {
-        this(200);
+        this(ProcessorUtils.recommendedMaxThreads());
     }
 
     public QueuedThreadPool(int maxThreads) {
@@ -136,7 +252,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
     public QueuedThreadPool(int maxThreads,
                             int minThreads) {
-        this(maxThreads, maxThreads, 60000);
+        this(maxThreads, minThreads, 60000);
     }
 
     public QueuedThreadPool(int maxThreads,
@@ -194,6 +310,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         setReservedThreads(reservedThreads);
 
         if (queue == null) {
+            // 默认使用两把锁的 BlockingArrayQueue，MpmcArrayBlockingQueue 实测更慢，只作为可选实现
             int capcity = Math.max(this.minThreads, 8) * 1024;
             queue = new BlockingArrayQueue<>(capcity, capcity);
         }
@@ -208,22 +325,372 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
     @Override
     public int getMinThreads() {
-        return 0;
+        return this.minThreads;
     }
 
     @Override
     public void setMinThreads(int threads) {
+        this.minThreads = threads;
+        if (this.minThreads > this.maxThreads) {
+            this.maxThreads = this.minThreads;
+        }
 
+        if (isStarted()) {
+            ensureThreads();
+        }
     }
 
     @Override
     public int getMaxThreads() {
-        return 0;
+        return this.maxThreads;
     }
 
     @Override
     public void setMaxThreads(int threads) {
+        if (this.threadPoolBudget != null) {
+            this.threadPoolBudget.check(threads);
+        }
+
+        this.maxThreads = threads;
+        if (this.minThreads > this.maxThreads) {
+            this.minThreads = this.maxThreads;
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        if (isRunning()) {
+            throw new IllegalStateException(getState());
+        }
+
+        this.name = name;
+    }
+
+    public int getThreadsPriority() {
+        return this.priority;
+    }
+
+    public void setThreadsPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public boolean isDaemon() {
+        return this.daemon;
+    }
+
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    public int getLowThreadsThreshold() {
+        return this.lowThreadsThreshold;
+    }
+
+    public void setLowThreadsThreshold(int lowThreadsThreshold) {
+        this.lowThreadsThreshold = lowThreadsThreshold;
+    }
+
+    /**
+     * 获取当前线程数
+     *
+     * @return 当前线程数
+     */
+    public int getThreads() {
+        int threads = this.counts.getHi();
+        return Math.max(0, threads);
+    }
 
+    /**
+     * 获取空闲线程数
+     *
+     * @return 空闲线程数
+     */
+    public int getIdleThreads() {
+        int idle = this.counts.getLo();
+        return Math.max(0, idle);
+    }
+
+    /**
+     * 获取忙碌线程数
+     *
+     * @return 忙碌线程数
+     */
+    public int getBusyThreads() {
+        return getThreads() - getIdleThreads();
+    }
+
+    /**
+     * 获取等待执行的任务数
+     *
+     * @return 等待执行的任务数
+     */
+    public int getQueueSize() {
+        // 网络空闲线程数为负数时，其绝对值就是等待执行的任务数
+        int idle = this.counts.getLo();
+        return Math.max(0, -idle);
+    }
+
+    /**
+     * 获取可以立即执行任务的线程数，即空闲线程数加上可用的保留线程数
+     *
+     * @return 可以立即执行任务的线程数
+     */
+    public int getReadyThreads() {
+        return getIdleThreads() + getAvailableReservedThreads();
+    }
+
+    /**
+     * 获取可用的保留线程数
+     *
+     * @return 可用的保留线程数
+     */
+    public int getAvailableReservedThreads() {
+        TryExecutor tryExecutor = this.tryExecutor;
+        if (tryExecutor instanceof ReservedThreadExecutor) {
+            return ((ReservedThreadExecutor) tryExecutor).getAvailable();
+        }
+
+        return 0;
+    }
+
+    /**
+     * 获取利用率，即执行任务的线程数与最大线程数之比，等待任务的保留线程不算在内
+     *
+     * @return 利用率，0 到 1 之间
+     */
+    public double getUtilizationRate() {
+        int maxThreads = getMaxThreads();
+        if (maxThreads <= 0) {
+            return 0;
+        }
+
+        int busy = getBusyThreads() - getAvailableReservedThreads();
+        return Math.max(0, Math.min(1, (double) busy / maxThreads));
+    }
+
+    /**
+     * 获取开启过的线程数
+     *
+     * @return 开启过的线程数
+     */
+    public long getThreadsStarted() {
+        return this.threadsStarted.sum();
+    }
+
+    /**
+     * 获取退出的线程数
+     *
+     * @return 退出的线程数
+     */
+    public long getThreadsStopped() {
+        return this.threadsStopped.sum();
+    }
+
+    /**
+     * 获取执行时间超过阈值的线程数，没有 {@link QueuedThreadPoolWatchdog} 时总是 0
+     *
+     * @return 执行时间超过阈值的线程数
+     */
+    public int getLongRunningThreads() {
+        return this.longRunningThreads;
+    }
+
+    void setLongRunningThreads(int longRunningThreads) {
+        this.longRunningThreads = longRunningThreads;
+    }
+
+    /**
+     * 获取每个线程正在执行的任务
+     *
+     * @return 每个线程正在执行的任务
+     */
+    Collection<RunningJob> getRunningJobs() {
+        return this.runningJobs.values();
+    }
+
+    public boolean isStatisticsEnabled() {
+        return this.statisticsEnabled;
+    }
+
+    /**
+     * 开启或关闭任务统计，可以在运行时切换，开启时重置统计
+     *
+     * @param statisticsEnabled 是否统计任务
+     */
+    public void setStatisticsEnabled(boolean statisticsEnabled) {
+        if (statisticsEnabled && !this.statisticsEnabled) {
+            this.statistics.reset();
+        }
+
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    public int getMaxPriorityThreads() {
+        return this.maxPriorityThreads;
+    }
+
+    /**
+     * 设置同时执行高优先级任务的最大线程数，没有普通任务时不受限制
+     *
+     * @param maxPriorityThreads 最大线程数，为负数时取最大线程数的一半
+     */
+    public void setMaxPriorityThreads(int maxPriorityThreads) {
+        this.maxPriorityThreads = maxPriorityThreads;
+    }
+
+    /**
+     * 获取等待执行的高优先级任务数
+     *
+     * @return 等待执行的高优先级任务数
+     */
+    public int getPriorityQueueSize() {
+        return this.priorityJobs.size();
+    }
+
+    @Override
+    public Executor getVirtualThreadsExecutor() {
+        return this.virtualThreadsExecutor;
+    }
+
+    @Override
+    public void setVirtualThreadsExecutor(Executor executor) {
+        this.virtualThreadsExecutor = executor;
+        this.ownVirtualThreadsExecutor = false;
+    }
+
+    /**
+     * 设置是否使用虚拟线程，使用时由线程池创建执行器，并在停止时关闭
+     *
+     * @param useVirtualThreads 是否使用虚拟线程
+     */
+    @Override
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        if (!useVirtualThreads) {
+            setVirtualThreadsExecutor(null);
+            return;
+        }
+
+        Executor executor = newVirtualThreadsExecutor();
+        if (executor == null) {
+            LOG.warn("Virtual threads not supported by {}, using platform threads for {}",
+                    System.getProperty("java.version"), this);
+            return;
+        }
+
+        setVirtualThreadsExecutor(executor);
+        this.ownVirtualThreadsExecutor = true;
+    }
+
+    /**
+     * 创建虚拟线程执行器
+     *
+     * @return 虚拟线程执行器，不支持虚拟线程时返回 null
+     */
+    protected Executor newVirtualThreadsExecutor() {
+        return VirtualThreads.getDefaultVirtualThreadsExecutor();
+    }
+
+    public int getMaxVirtualThreadsTasks() {
+        return this.maxVirtualThreadsTasks;
+    }
+
+    /**
+     * 设置同时在虚拟线程中执行的最大任务数，超出的任务排队等待
+     *
+     * @param maxVirtualThreadsTasks 最大任务数，小于等于 0 时不限制
+     */
+    public void setMaxVirtualThreadsTasks(int maxVirtualThreadsTasks) {
+        try (AutoLock l = this.virtualThreadsLock.lock()) {
+            // 调整许可数而不是替换信号量，正在执行的任务归还的许可仍然计入同一个信号量
+            int previous = Math.max(0, this.maxVirtualThreadsTasks);
+            int limit = Math.max(0, maxVirtualThreadsTasks);
+            if (limit > previous) {
+                this.virtualThreadsPermits.release(limit - previous);
+            } else if (limit < previous) {
+                this.virtualThreadsPermits.reducePermits(previous - limit);
+            }
+
+            this.maxVirtualThreadsTasks = maxVirtualThreadsTasks;
+        }
+
+        // 许可增加或者不再限制时派发等待的任务
+        Executor executor = this.virtualThreadsExecutor;
+        if (executor != null && this.counts.getHi() != Integer.MIN_VALUE) {
+            dispatchBlockingJobs(executor);
+        }
+    }
+
+    /**
+     * 获取正在虚拟线程中执行任务的线程数
+     *
+     * @return 线程数
+     */
+    public int getVirtualThreadsTasks() {
+        return this.virtualThreadsTasks.get();
+    }
+
+    /**
+     * 获取等待许可的阻塞任务数
+     *
+     * @return 任务数
+     */
+    public int getPendingBlockingJobs() {
+        return this.blockingJobs.size();
+    }
+
+    public CoDelAdmissionPolicy getAdmissionPolicy() {
+        return this.admissionPolicy;
+    }
+
+    /**
+     * 设置任务准入策略，可以在运行时切换
+     *
+     * @param admissionPolicy 任务准入策略，为 null 时准入所有任务
+     */
+    public void setAdmissionPolicy(CoDelAdmissionPolicy admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+    }
+
+    /**
+     * 获取任务统计，只有开启统计期间的任务会被记录
+     *
+     * @return 任务统计
+     */
+    public ThreadPoolStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * 判断线程是否不足，即已到最大线程数且空闲线程数不超过低线程阈值
+     *
+     * @return 线程是否不足
+     */
+    public boolean isLowOnThreads() {
+        long counts = this.counts.get();
+        int threads = AtomicBiInteger.getHi(counts);
+        int idle = AtomicBiInteger.getLo(counts);
+        return this.maxThreads - threads + idle <= this.lowThreadsThreshold;
+    }
+
+    /**
+     * 获取最近的收缩时间戳，线程开启时也会更新
+     *
+     * @return 最近的收缩时间戳，{@link System#nanoTime()}
+     */
+    long getLastShrink() {
+        return this.lastShrink.get();
+    }
+
+    /**
+     * 获取任务队列
+     *
+     * @return 任务队列
+     */
+    protected BlockingQueue<Runnable> getQueue() {
+        return this.jobs;
     }
 
     public int getIdleTimeout() {
@@ -266,6 +733,13 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
     @Override
     protected void doStart() throws Exception {
+        // 上次停止时关闭了线程池创建的虚拟线程执行器，重新创建
+        Executor virtualThreadsExecutor = this.virtualThreadsExecutor;
+        if (this.ownVirtualThreadsExecutor && virtualThreadsExecutor instanceof ExecutorService
+                && ((ExecutorService) virtualThreadsExecutor).isShutdown()) {
+            this.virtualThreadsExecutor = newVirtualThreadsExecutor();
+        }
+
         if (this.reservedThreads == 0) {
             this.tryExecutor = TryExecutor.NO_TRY;
         } else {
@@ -280,6 +754,11 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
         super.doStart();
 
+        // 保留线程等组件已租用线程，检查剩余的线程是否足够
+        if (this.threadPoolBudget != null) {
+            this.threadPoolBudget.check(getMaxThreads());
+        }
+
         // 初始化线程
         this.counts.set(0, 0);
 
@@ -291,6 +770,173 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     @Override
     protected void doStop() throws Exception {
         super.doStop();
+
+        removeBean(this.tryExecutor);
+        this.tryExecutor = TryExecutor.NO_TRY;
+
+        // 有停止超时时间时先排空队列中的任务
+        long timeout = this.stopTimeout;
+        this.draining = timeout > 0;
+
+        // 标记线程池已停止，不再接受新任务
+        int threads = this.counts.getAndSetHi(Integer.MIN_VALUE);
+
+        // 唤醒空闲线程
+        for (int i = 0; i < threads; i++) {
+            this.jobs.offer(NOOP);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        if (timeout > 0) {
+            // 用一半的停止超时时间执行队列中剩余的任务
+            joinThreads(deadline - TimeUnit.MILLISECONDS.toNanos(timeout) / 2);
+            this.draining = false;
+
+            // 中断仍在执行任务的线程，用剩余的时间等待退出
+            interruptThreads();
+            joinThreads(deadline);
+
+            for (Thread thread : this.threads) {
+                if (thread != Thread.currentThread()) {
+                    LOG.warn("{} couldn't stop {}", this, thread);
+                }
+            }
+        } else {
+            interruptThreads();
+        }
+
+        shutdownVirtualThreadsExecutor(deadline);
+
+        this.unexecutedJobs = closeUnexecutedJobs();
+    }
+
+    /**
+     * 关闭线程池创建的虚拟线程执行器，在截止时间前等待阻塞任务结束，超时后中断
+     *
+     * @param deadline 截止时间戳，{@link System#nanoTime()}
+     * @throws InterruptedException 中断异常
+     */
+    private void shutdownVirtualThreadsExecutor(long deadline) throws InterruptedException {
+        Executor executor = this.virtualThreadsExecutor;
+        if (!this.ownVirtualThreadsExecutor || !(executor instanceof ExecutorService)) {
+            return;
+        }
+
+        ExecutorService executorService = (ExecutorService) executor;
+        executorService.shutdown();
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || !executorService.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 停止，状态变为 STOPPED 之后唤醒 {@link #join()} 的等待者
+     *
+     * @throws Exception 异常
+     */
+    @Override
+    public void stop() throws Exception {
+        try {
+            super.stop();
+        } finally {
+            try (AutoLock.WithCondition autoLock = this.joinLock.lock()) {
+                autoLock.signalAll();
+            }
+        }
+    }
+
+    /**
+     * 中断除当前线程以外的线程
+     */
+    private void interruptThreads() {
+        for (Thread thread : this.threads) {
+            if (thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 等待除当前线程以外的线程退出
+     *
+     * @param deadline 截止时间戳，{@link System#nanoTime()}
+     * @throws InterruptedException 中断异常
+     */
+    private void joinThreads(long deadline) throws InterruptedException {
+        for (Thread thread : this.threads) {
+            if (thread == Thread.currentThread()) {
+                continue;
+            }
+
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return;
+            }
+
+            thread.join(remaining);
+        }
+    }
+
+    /**
+     * 取出未执行的任务，可关闭的任务关闭，其余的打印告警
+     *
+     * @return 未执行的任务
+     */
+    private List<Runnable> closeUnexecutedJobs() {
+        List<Runnable> unexecuted = new ArrayList<>();
+        Runnable job;
+        while ((job = this.priorityJobs.poll()) != null
+                || (job = this.jobs.poll()) != null
+                || (job = this.blockingJobs.poll()) != null) {
+            if (job == NOOP || job == PRIORITY_WAKEUP) {
+                continue;
+            }
+
+            if (job instanceof TimedJob) {
+                job = ((TimedJob) job).job;
+            }
+            unexecuted.add(job);
+
+            if (job instanceof Closeable) {
+                try {
+                    ((Closeable) job).close();
+                } catch (Throwable e) {
+                    LOG.warn("Unable to close {}", job, e);
+                }
+            } else {
+                LOG.warn("Stopped without executing or closing {}", job);
+            }
+        }
+
+        if (!unexecuted.isEmpty()) {
+            LOG.warn("{} stopped with {} unexecuted jobs", this, unexecuted.size());
+        }
+
+        return unexecuted;
+    }
+
+    /**
+     * 等待线程池停止
+     *
+     * @throws InterruptedException 中断异常
+     */
+    public void join() throws InterruptedException {
+        try (AutoLock.WithCondition autoLock = this.joinLock.lock()) {
+            while (isRunning() || isStopping()) {
+                autoLock.await();
+            }
+        }
+    }
+
+    /**
+     * 获取最近一次停止时未执行的任务
+     *
+     * @return 未执行的任务
+     */
+    public List<Runnable> getUnexecutedJobs() {
+        return this.unexecutedJobs;
     }
 
     /**
@@ -321,17 +967,659 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         }
     }
 
+    /**
+     * 原子地调整线程数和网络空闲线程数
+     *
+     * @param deltaThreads 线程数增量
+     * @param deltaIdle    网络空闲线程数增量
+     * @return 是否调整成功，线程池已停止时返回 false
+     */
+    private boolean addCounts(int deltaThreads, int deltaIdle) {
+        while (true) {
+            long encoded = this.counts.get();
+            int threads = AtomicBiInteger.getHi(encoded);
+            if (threads == Integer.MIN_VALUE) {
+                return false;
+            }
+
+            int idle = AtomicBiInteger.getLo(encoded);
+            if (this.counts.compareAndSet(encoded, threads + deltaThreads, idle + deltaIdle)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 开启线程，调用前必须已经在 {@link #counts} 中计入该线程
+     */
     protected void startThread() {
-        
+        boolean started = false;
+        try {
+            Thread thread = this.threadFactory.newThread(this.runner);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Starting {}", thread);
+            }
+
+            this.threads.add(thread);
+            // 新线程也要等待一个空闲超时周期后才会被收缩
+            this.lastShrink.set(System.nanoTime());
+            thread.start();
+            this.threadsStarted.increment();
+            started = true;
+        } finally {
+            if (!started) {
+                // 回滚线程数和空闲线程数
+                addCounts(-1, -1);
+            }
+        }
     }
 
     @Override
-    public void execute(Runnable command) {
+    public void execute(Runnable job) {
+        boolean statisticsEnabled = this.statisticsEnabled;
+        CoDelAdmissionPolicy admissionPolicy = this.admissionPolicy;
+        if (admissionPolicy != null) {
+            if (!admissionPolicy.admit(job, getQueueSize())) {
+                if (statisticsEnabled) {
+                    this.statistics.onRejected();
+                }
+                admissionPolicy.shed(job);
+                return;
+            }
+        }
+
+        boolean priority = job instanceof PriorityTask;
+        if (statisticsEnabled || admissionPolicy != null) {
+            // 记录入队时间
+            job = new TimedJob(job);
+        }
+
+        // 无锁地决定是直接入队，还是同时开启一个新线程
+        int startThread;
+        int idle;
+        while (true) {
+            long counts = this.counts.get();
+            int threads = AtomicBiInteger.getHi(counts);
+            if (threads == Integer.MIN_VALUE) {
+                if (statisticsEnabled) {
+                    this.statistics.onRejected();
+                }
+                throw new RejectedExecutionException(job.toString());
+            }
+
+            idle = AtomicBiInteger.getLo(counts);
+
+            // 没有空闲线程可以处理该任务且未达最大线程数时开启新线程
+            startThread = (idle <= 0 && threads < this.maxThreads) ? 1 : 0;
+
+            // 任务入队后会被一个空闲线程取走，网络空闲线程数减一
+            if (this.counts.compareAndSet(counts, threads + startThread, idle + startThread - 1)) {
+                break;
+            }
+        }
+
+        if (priority) {
+            this.priorityJobs.offer(job);
+            // 总是放入唤醒标记：其它任务扣减了空闲计数但尚未入队时，计数为 0 也可能有线程阻塞在普通队列上。
+            // 没有线程阻塞等待时标记会被跳过，普通队列已满说明没有线程在阻塞等待
+            this.jobs.offer(PRIORITY_WAKEUP);
+        } else if (!this.jobs.offer(job)) {
+            // 回滚计数
+            if (addCounts(-startThread, 1 - startThread)) {
+                LOG.warn("{} rejected {}", this, job);
+            }
+
+            if (statisticsEnabled) {
+                this.statistics.onRejected();
+            }
+            throw new RejectedExecutionException(job.toString());
+        }
+
+        if (statisticsEnabled) {
+            this.statistics.onQueued(getQueueSize());
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("queue {} startThread={}", job, startThread);
+        }
+
+        if (startThread > 0) {
+            startThread();
+        }
+    }
+
+    /**
+     * 执行可能阻塞的任务，设置了虚拟线程执行器时在虚拟线程中执行，否则同 {@link #execute(Runnable)}
+     * <p>
+     * 与 {@link #execute(Runnable)} 一样经过准入策略和任务统计，执行期间由 {@link QueuedThreadPoolWatchdog} 监控
+     *
+     * @param job 任务
+     * @throws RejectedExecutionException 线程池已停止
+     */
+    public void executeBlocking(Runnable job) {
+        Executor executor = this.virtualThreadsExecutor;
+        if (executor == null) {
+            execute(job);
+            return;
+        }
+
+        boolean statisticsEnabled = this.statisticsEnabled;
+        CoDelAdmissionPolicy admissionPolicy = this.admissionPolicy;
+        if (admissionPolicy != null) {
+            if (!admissionPolicy.admit(job, getQueueSize() + getPendingBlockingJobs())) {
+                if (statisticsEnabled) {
+                    this.statistics.onRejected();
+                }
+                admissionPolicy.shed(job);
+                return;
+            }
+        }
+
+        if (this.counts.getHi() == Integer.MIN_VALUE) {
+            if (statisticsEnabled) {
+                this.statistics.onRejected();
+            }
+            throw new RejectedExecutionException(job.toString());
+        }
+
+        if (statisticsEnabled || admissionPolicy != null) {
+            // 记录入队时间
+            job = new TimedJob(job);
+        }
 
+        if (this.maxVirtualThreadsTasks <= 0) {
+            Runnable blockingJob = job;
+            executor.execute(() -> runBlockingJob(blockingJob));
+        } else {
+            this.blockingJobs.offer(job);
+            dispatchBlockingJobs(executor);
+        }
+
+        if (statisticsEnabled) {
+            this.statistics.onQueued(getPendingBlockingJobs());
+        }
+    }
+
+    /**
+     * 派发等待的阻塞任务，限制并发数时只在有许可时开启虚拟线程，不限制时直接派发
+     *
+     * @param executor 虚拟线程执行器
+     */
+    private void dispatchBlockingJobs(Executor executor) {
+        if (this.maxVirtualThreadsTasks <= 0) {
+            Runnable job;
+            while ((job = this.blockingJobs.poll()) != null) {
+                Runnable blockingJob = job;
+                try {
+                    executor.execute(() -> runBlockingJob(blockingJob));
+                } catch (Throwable e) {
+                    this.blockingJobs.offer(blockingJob);
+                    throw e;
+                }
+            }
+            return;
+        }
+
+        Semaphore permits = this.virtualThreadsPermits;
+        while (!this.blockingJobs.isEmpty() && permits.tryAcquire()) {
+            try {
+                executor.execute(() -> runBlockingJobs(executor));
+            } catch (Throwable e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 在虚拟线程中持有一个许可，依次执行等待的阻塞任务
+     *
+     * @param executor 虚拟线程执行器
+     */
+    private void runBlockingJobs(Executor executor) {
+        try {
+            Runnable job;
+            while ((job = this.blockingJobs.poll()) != null) {
+                runBlockingJob(job);
+            }
+        } finally {
+            this.virtualThreadsPermits.release();
+        }
+
+        // 释放许可前入队的任务可能没有被派发
+        if (!this.blockingJobs.isEmpty() && this.counts.getHi() != Integer.MIN_VALUE) {
+            dispatchBlockingJobs(executor);
+        }
+    }
+
+    /**
+     * 在虚拟线程中执行阻塞任务，执行期间登记在 {@link #runningJobs} 中
+     *
+     * @param job 任务
+     */
+    private void runBlockingJob(Runnable job) {
+        Thread thread = Thread.currentThread();
+        RunningJob running = new RunningJob(thread);
+        this.runningJobs.put(thread, running);
+        this.virtualThreadsTasks.incrementAndGet();
+        running.begin(job);
+        try {
+            if (job instanceof TimedJob) {
+                runTimedJob((TimedJob) job, ((TimedJob) job).job instanceof PriorityTask);
+            } else {
+                runJob(job);
+            }
+        } catch (Throwable e) {
+            LOG.warn("Job failed", e);
+        } finally {
+            running.end();
+            this.virtualThreadsTasks.decrementAndGet();
+            this.runningJobs.remove(thread);
+
+            // 清除任务或者看门狗留下的中断状态
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task) {
+        TryExecutor tryExecutor = this.tryExecutor;
+        return tryExecutor != null && tryExecutor.tryExecute(task);
     }
 
     @Override
-    public Thread newThread(Runnable r) {
-        return null;
+    public Thread newThread(Runnable runnable) {
+        return PrivilegedThreadFactory.newThread(() -> {
+            Thread thread = new Thread(this.threadGroup, runnable);
+            thread.setDaemon(isDaemon());
+            thread.setPriority(getThreadsPriority());
+            thread.setName(this.name + "-" + thread.getId());
+            thread.setContextClassLoader(getClass().getClassLoader());
+            return thread;
+        });
+    }
+
+    /**
+     * 执行任务
+     *
+     * @param job 任务
+     */
+    protected void runJob(Runnable job) {
+        job.run();
+    }
+
+    /**
+     * 线程结束时调用
+     *
+     * @param thread 线程
+     */
+    protected void removeThread(Thread thread) {
+        this.threads.remove(thread);
+    }
+
+    @Override
+    public String toString() {
+        long counts = this.counts.get();
+        int threads = Math.max(0, AtomicBiInteger.getHi(counts));
+        int idle = AtomicBiInteger.getLo(counts);
+        return String.format("%s[%s]@%x{%s,%d<=%d<=%d,i=%d,q=%d}[%s]",
+                getClass().getSimpleName(),
+                this.name,
+                hashCode(),
+                getState(),
+                getMinThreads(),
+                threads,
+                getMaxThreads(),
+                Math.max(0, idle),
+                Math.max(0, -idle),
+                this.tryExecutor);
+    }
+
+    /**
+     * 执行记录了入队时间的任务，统计排队时延和执行时间，并把普通任务的排队时延反馈给准入策略
+     * <p>
+     * 高优先级任务不经过普通队列，排队时延总是很短，反馈给准入策略会让其误以为过载已经结束
+     *
+     * @param timedJob 记录了入队时间的任务
+     * @param priority 是否是高优先级任务
+     */
+    private void runTimedJob(TimedJob timedJob, boolean priority) {
+        long start = System.nanoTime();
+        long wait = start - timedJob.queued;
+
+        CoDelAdmissionPolicy admissionPolicy = this.admissionPolicy;
+        if (admissionPolicy != null && !priority) {
+            admissionPolicy.onDequeued(wait, start);
+        }
+
+        if (!this.statisticsEnabled) {
+            runJob(timedJob.job);
+            return;
+        }
+
+        this.statistics.onDequeued(wait);
+        try {
+            runJob(timedJob.job);
+        } finally {
+            this.statistics.onRun(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录了入队时间的任务，只在开启统计或者设置了准入策略时使用
+     */
+    private static class TimedJob implements Runnable {
+        /**
+         * 任务
+         */
+        private final Runnable job;
+
+        /**
+         * 入队时间戳
+         */
+        private final long queued = System.nanoTime();
+
+        private TimedJob(Runnable job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            this.job.run();
+        }
+
+        @Override
+        public String toString() {
+            return this.job.toString();
+        }
+    }
+
+    /**
+     * 获取同时执行高优先级任务的最大线程数
+     *
+     * @return 同时执行高优先级任务的最大线程数
+     */
+    private int priorityThreadsLimit() {
+        int maxPriorityThreads = this.maxPriorityThreads;
+        if (maxPriorityThreads < 0) {
+            maxPriorityThreads = Math.max(1, this.maxThreads / 2);
+        }
+
+        return maxPriorityThreads;
+    }
+
+    /**
+     * 可以减少许可数的信号量
+     */
+    private static class ResizableSemaphore extends Semaphore {
+        private ResizableSemaphore() {
+            super(0);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * 线程正在执行的任务，每个线程一个，开始和结束执行任务时各有一次 volatile 写
+     */
+    static class RunningJob {
+        /**
+         * 线程
+         */
+        private final Thread thread;
+
+        /**
+         * 任务
+         */
+        private Runnable job;
+
+        /**
+         * 开始执行任务的时间戳，为 0 时表示没有在执行任务
+         */
+        private volatile long started;
+
+        /**
+         * 已报告的开始执行任务的时间戳，只由 {@link QueuedThreadPoolWatchdog} 访问
+         */
+        long reported;
+
+        private RunningJob(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * 开始执行任务
+         *
+         * @param job 任务
+         */
+        private void begin(Runnable job) {
+            this.job = job;
+            long now = System.nanoTime();
+            this.started = now == 0 ? 1 : now;
+        }
+
+        /**
+         * 结束执行任务
+         */
+        private void end() {
+            this.started = 0;
+            this.job = null;
+        }
+
+        Thread getThread() {
+            return this.thread;
+        }
+
+        /**
+         * 获取正在执行的任务，可能与 {@link #getStarted()} 不是同一次执行
+         *
+         * @return 任务
+         */
+        Runnable getJob() {
+            return this.job;
+        }
+
+        /**
+         * 正在执行的任务是否是 {@link LongLivedTask}
+         *
+         * @return 是否是长期运行任务
+         */
+        boolean isLongLived() {
+            Runnable job = this.job;
+            if (job instanceof TimedJob) {
+                job = ((TimedJob) job).job;
+            }
+
+            return job instanceof LongLivedTask;
+        }
+
+        long getStarted() {
+            return this.started;
+        }
+    }
+
+    /**
+     * 线程池中的线程执行的循环，不断从队列中取任务执行，空闲超时后收缩
+     */
+    private class Runner implements Runnable {
+        /**
+         * 空闲时获取任务
+         *
+         * @param idleTimeout 空闲超时时间，单位：ms
+         * @return 任务，超时时返回 null
+         * @throws InterruptedException 中断异常
+         */
+        private Runnable idleJobPoll(long idleTimeout) throws InterruptedException {
+            if (idleTimeout <= 0) {
+                return jobs.take();
+            }
+
+            return jobs.poll(idleTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 获取下一个任务，高优先级任务优先，
+         * 执行高优先级任务的线程数达到上限时先执行普通任务，没有普通任务时不受上限限制
+         *
+         * @return 任务，没有任务时返回 null
+         */
+        private Runnable nextJob() {
+            if (priorityThreads.get() < priorityThreadsLimit()) {
+                Runnable job = priorityJobs.poll();
+                if (job != null) {
+                    return job;
+                }
+            }
+
+            Runnable job = jobs.poll();
+            while (job == PRIORITY_WAKEUP) {
+                job = jobs.poll();
+            }
+
+            return job != null ? job : priorityJobs.poll();
+        }
+
+        /**
+         * 执行任务
+         *
+         * @param running 当前线程正在执行的任务
+         * @param job     任务
+         */
+        private void process(RunningJob running, Runnable job) {
+            boolean priority = job instanceof PriorityTask
+                    || (job instanceof TimedJob && ((TimedJob) job).job instanceof PriorityTask);
+            if (priority) {
+                priorityThreads.incrementAndGet();
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("run {} in {}", job, QueuedThreadPool.this);
+            }
+
+            running.begin(job);
+            try {
+                if (job instanceof TimedJob) {
+                    runTimedJob((TimedJob) job, priority);
+                } else {
+                    runJob(job);
+                }
+            } finally {
+                running.end();
+                if (priority) {
+                    priorityThreads.decrementAndGet();
+                }
+            }
+
+            // 清除任务留下的中断状态
+            Thread.interrupted();
+        }
+
+        /**
+         * 线程池停止时继续执行队列中剩余的任务，直到队列为空或者排空阶段结束
+         *
+         * @param running 当前线程正在执行的任务
+         */
+        private void drain(RunningJob running) {
+            while (draining) {
+                Runnable job = nextJob();
+                if (job == NOOP) {
+                    // 停止后才入队的 NOOP 之前的普通任务已经取完，放回以唤醒其它空闲线程
+                    jobs.offer(NOOP);
+                    job = priorityJobs.poll();
+                }
+
+                if (job == null) {
+                    return;
+                }
+
+                try {
+                    process(running, job);
+                } catch (Throwable t) {
+                    LOG.warn("Job failed", t);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean idle = true;
+            boolean stopping = false;
+            RunningJob running = new RunningJob(Thread.currentThread());
+            runningJobs.put(running.thread, running);
+            try {
+                Runnable job = null;
+                while (true) {
+                    if (job != null) {
+                        // 执行完任务，重新变为空闲
+                        idle = true;
+                        if (!addCounts(0, 1)) {
+                            stopping = true;
+                            break;
+                        }
+                    } else if (counts.getHi() == Integer.MIN_VALUE) {
+                        stopping = true;
+                        break;
+                    }
+
+                    try {
+                        job = nextJob();
+                        if (job == null) {
+                            // 没有任务，先检查是否需要收缩，每个空闲超时周期最多收缩一个线程
+                            long idleTimeout = getIdleTimeout();
+                            if (idleTimeout > 0 && getThreads() > minThreads) {
+                                long last = lastShrink.get();
+                                long now = System.nanoTime();
+                                if (TimeUnit.NANOSECONDS.toMillis(now - last) > idleTimeout
+                                        && lastShrink.compareAndSet(last, now)) {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("shrinking {}", QueuedThreadPool.this);
+                                    }
+                                    break;
+                                }
+                            }
+
+                            job = idleJobPoll(idleTimeout);
+                            if (job == PRIORITY_WAKEUP) {
+                                job = priorityJobs.poll();
+                            }
+                            if (job == null) {
+                                continue;
+                            }
+                        }
+
+                        idle = false;
+                        process(running, job);
+                    } catch (InterruptedException e) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("interrupted {} in {}", job, QueuedThreadPool.this);
+                        }
+                    } catch (Throwable t) {
+                        LOG.warn("Job failed", t);
+                    }
+                }
+
+                if (stopping) {
+                    drain(running);
+                }
+            } finally {
+                Thread thread = Thread.currentThread();
+                runningJobs.remove(thread);
+                removeThread(thread);
+                threadsStopped.increment();
+
+                // 没有执行任务时退出的线程也占着一个空闲计数
+                addCounts(-1, idle ? -1 : 0);
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{} exited for {}", thread, QueuedThreadPool.this);
+                }
+
+                // 收缩的同时可能有任务入队，再次确认线程数是否足够
+                ensureThreads();
+            }
+        }
     }
 }
@@ -0,0 +1,413 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import com.pcz.simple.jetty.core.statistic.Histogram;
+import com.pcz.simple.jetty.core.statistic.SampleStatistic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 根据任务排队时延伸缩 {@link QueuedThreadPool} 的控制器
+ * <p>
+ * 每个采样周期向线程池提交一个探测任务，探测任务从入队到执行的时间即为排队时延，
+ * 只有一个探测任务在途，开销与负载无关。探测任务迟迟未执行时，其已等待的时间作为时延的下界。
+ * <p>
+ * 时延超过目标时按比例提高目标线程数，并通过线程池的最小线程数立即预热线程；
+ * 时延低于目标的一半时逐个降低目标线程数，多出的空闲线程由线程池按空闲超时逐个回收，
+ * 且只有线程池最近一个空闲超时周期内没有回收过线程时才继续降低，避免线程数抖动。
+ * <p>
+ * 目标线程数的范围是启动时线程池的最小线程数到最大线程数，停止时恢复线程池原来的最小线程数。
+ * 作为线程池的 bean 使用：{@code pool.addBean(new QueuedThreadPoolAutoScaler(pool))}
+ *
+ * @author picongzhi
+ */
+public class QueuedThreadPoolAutoScaler extends AbstractLifeCycle {
+    private static final Logger LOG = LoggerFactory.getLogger(QueuedThreadPoolAutoScaler.class);
+
+    /**
+     * 伸缩决策
+     */
+    public enum Decision {
+        /**
+         * 保持
+         */
+        HOLD,
+        /**
+         * 扩容
+         */
+        GROW,
+        /**
+         * 缩容
+         */
+        SHRINK
+    }
+
+    /**
+     * 线程池
+     */
+    private final QueuedThreadPool pool;
+
+    /**
+     * 探测任务的入队时间戳，为 0 时表示没有在途的探测任务
+     */
+    private final AtomicLong probeQueued = new AtomicLong();
+
+    /**
+     * 排队时延统计，单位：ns
+     */
+    private final SampleStatistic queueDelayStats = new SampleStatistic();
+
+    /**
+     * 排队时延分布，单位：ns
+     */
+    private final Histogram queueDelayHistogram = new Histogram();
+
+    /**
+     * 扩容次数
+     */
+    private final LongAdder grows = new LongAdder();
+
+    /**
+     * 缩容次数
+     */
+    private final LongAdder shrinks = new LongAdder();
+
+    /**
+     * 目标排队时延，单位：ns
+     */
+    private long targetQueueDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 采样周期，单位：ns
+     */
+    private long samplePeriodNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 最近一次探测到的排队时延，单位：ns
+     */
+    private volatile long queueDelay;
+
+    /**
+     * 探测任务是否被拒绝，被拒绝说明任务队列已满
+     */
+    private volatile boolean rejected;
+
+    /**
+     * 目标线程数
+     */
+    private volatile int targetThreads;
+
+    /**
+     * 最近一次决策
+     */
+    private volatile Decision lastDecision = Decision.HOLD;
+
+    /**
+     * 启动时线程池的最小线程数，即目标线程数的下限
+     */
+    private int floor;
+
+    /**
+     * 采样线程
+     */
+    private volatile Thread sampler;
+
+    public QueuedThreadPoolAutoScaler(QueuedThreadPool pool) {
+        this.pool = pool;
+    }
+
+    public QueuedThreadPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * 获取目标排队时延
+     *
+     * @param unit 时间单位
+     * @return 目标排队时延
+     */
+    public long getTargetQueueDelay(TimeUnit unit) {
+        return unit.convert(this.targetQueueDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 设置目标排队时延
+     *
+     * @param delay 目标排队时延
+     * @param unit  时间单位
+     */
+    public void setTargetQueueDelay(long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Invalid target queue delay " + delay);
+        }
+
+        this.targetQueueDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * 获取采样周期
+     *
+     * @param unit 时间单位
+     * @return 采样周期
+     */
+    public long getSamplePeriod(TimeUnit unit) {
+        return unit.convert(this.samplePeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 设置采样周期
+     *
+     * @param period 采样周期
+     * @param unit   时间单位
+     */
+    public void setSamplePeriod(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid sample period " + period);
+        }
+
+        this.samplePeriodNanos = unit.toNanos(period);
+    }
+
+    /**
+     * 获取目标线程数
+     *
+     * @return 目标线程数
+     */
+    public int getTargetThreads() {
+        return this.targetThreads;
+    }
+
+    /**
+     * 获取最近一次探测到的排队时延
+     *
+     * @param unit 时间单位
+     * @return 排队时延
+     */
+    public long getQueueDelay(TimeUnit unit) {
+        return unit.convert(this.queueDelay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 获取排队时延统计，单位：ns
+     *
+     * @return 排队时延统计
+     */
+    public SampleStatistic getQueueDelayStats() {
+        return this.queueDelayStats;
+    }
+
+    /**
+     * 获取排队时延分布，单位：ns
+     *
+     * @return 排队时延分布
+     */
+    public Histogram getQueueDelayHistogram() {
+        return this.queueDelayHistogram;
+    }
+
+    public long getGrowCount() {
+        return this.grows.sum();
+    }
+
+    public long getShrinkCount() {
+        return this.shrinks.sum();
+    }
+
+    public Decision getLastDecision() {
+        return this.lastDecision;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        this.floor = this.pool.getMinThreads();
+        this.targetThreads = this.floor;
+        this.probeQueued.set(0);
+        this.queueDelay = 0;
+        this.lastDecision = Decision.HOLD;
+
+        Thread thread = PrivilegedThreadFactory.newThread(() -> {
+            Thread sampler = new Thread(this::sample, this.pool.getName() + "-autoscaler");
+            sampler.setDaemon(true);
+            return sampler;
+        });
+        this.sampler = thread;
+        thread.start();
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        Thread thread = this.sampler;
+        this.sampler = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.NANOSECONDS.toMillis(this.samplePeriodNanos) + 1000);
+        }
+
+        // 恢复线程池原来的最小线程数
+        this.pool.setMinThreads(this.floor);
+    }
+
+    /**
+     * 采样循环
+     */
+    private void sample() {
+        while (this.sampler == Thread.currentThread()) {
+            LockSupport.parkNanos(this, this.samplePeriodNanos);
+            if (this.sampler != Thread.currentThread()) {
+                break;
+            }
+
+            try {
+                probe();
+                adjust();
+            } catch (Throwable e) {
+                LOG.warn("Unable to adjust {}", this, e);
+            }
+        }
+    }
+
+    /**
+     * 没有在途的探测任务时提交一个
+     */
+    private void probe() {
+        if (!this.pool.isRunning()) {
+            return;
+        }
+
+        long queued = System.nanoTime();
+        if (!this.probeQueued.compareAndSet(0, queued)) {
+            return;
+        }
+
+        try {
+            this.pool.execute(new Probe(queued));
+        } catch (RejectedExecutionException e) {
+            // 任务队列已满，按时延超过目标处理
+            this.rejected = true;
+            this.probeQueued.compareAndSet(queued, 0);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Probe rejected by {}", this.pool, e);
+            }
+        }
+    }
+
+    /**
+     * 记录探测到的排队时延
+     *
+     * @param delay 排队时延，单位：ns
+     */
+    private void onProbe(long delay) {
+        this.queueDelay = delay;
+        this.queueDelayStats.record(delay);
+        this.queueDelayHistogram.record(delay);
+    }
+
+    /**
+     * 根据排队时延调整目标线程数
+     */
+    private void adjust() {
+        if (!this.pool.isRunning()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long delay = this.queueDelay;
+        if (this.rejected) {
+            this.rejected = false;
+            delay = Long.MAX_VALUE;
+        }
+
+        // 在途探测任务已等待的时间是时延的下界
+        long queued = this.probeQueued.get();
+        if (queued != 0) {
+            delay = Math.max(delay, now - queued);
+        }
+
+        int ceiling = this.pool.getMaxThreads();
+        int target = Math.max(this.floor, Math.min(ceiling, this.targetThreads));
+        Decision decision = Decision.HOLD;
+
+        if (delay > this.targetQueueDelayNanos) {
+            if (target < ceiling) {
+                target = Math.min(ceiling, target + Math.max(1, target / 4));
+                decision = Decision.GROW;
+            }
+        } else if (delay < this.targetQueueDelayNanos / 2 && target > this.floor) {
+            // 线程池在最近一个空闲超时周期内回收过线程时暂不缩容
+            long idleTimeout = TimeUnit.MILLISECONDS.toNanos(this.pool.getIdleTimeout());
+            if (now - this.pool.getLastShrink() > idleTimeout) {
+                target--;
+                decision = Decision.SHRINK;
+            }
+        }
+
+        this.lastDecision = decision;
+        if (decision == Decision.HOLD) {
+            return;
+        }
+
+        this.targetThreads = target;
+        if (decision == Decision.GROW) {
+            this.grows.increment();
+        } else {
+            this.shrinks.increment();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} delay={}us target={}", decision, TimeUnit.NANOSECONDS.toMicros(delay), target);
+        }
+
+        // 扩容时线程池立即开启线程，缩容时多出的空闲线程按空闲超时逐个回收
+        this.pool.setMinThreads(target);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,target=%d,delay=%dus,targetDelay=%dus,grows=%d,shrinks=%d,last=%s}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                this.targetThreads,
+                TimeUnit.NANOSECONDS.toMicros(this.queueDelay),
+                TimeUnit.NANOSECONDS.toMicros(this.targetQueueDelayNanos),
+                getGrowCount(),
+                getShrinkCount(),
+                this.lastDecision);
+    }
+
+    /**
+     * 探测任务，是 {@link CriticalTask}，线程池过载时也要入队才能测出排队时延，
+     * 否则交给降级处理器后在途标记永远不会清除
+     */
+    private class Probe implements CriticalTask {
+        /**
+         * 入队时间戳
+         */
+        private final long queued;
+
+        private Probe(long queued) {
+            this.queued = queued;
+        }
+
+        @Override
+        public void run() {
+            onProbe(System.nanoTime() - this.queued);
+            probeQueued.compareAndSet(this.queued, 0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x", getClass().getSimpleName(), hashCode());
+        }
+    }
+}
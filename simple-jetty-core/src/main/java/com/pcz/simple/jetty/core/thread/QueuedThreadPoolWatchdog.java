@@ -0,0 +1,252 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link QueuedThreadPool} 的卡死线程检测器
+ * <p>
+ * 线程池的每个线程在开始执行任务时记录开始时间，检测器周期性地扫描所有线程，
+ * 执行时间超过阈值的任务连同线程栈打印告警，每次执行只告警一次，可选地中断该线程。
+ * 执行时间超过阈值的线程数更新到线程池的 {@link QueuedThreadPool#getLongRunningThreads()}。
+ * {@link LongLivedTask} 按设计长期运行，不告警、不中断，也不计数。
+ * <p>
+ * 作为线程池的 bean 使用：{@code pool.addBean(new QueuedThreadPoolWatchdog(pool))}
+ *
+ * @author picongzhi
+ */
+public class QueuedThreadPoolWatchdog extends AbstractLifeCycle {
+    private static final Logger LOG = LoggerFactory.getLogger(QueuedThreadPoolWatchdog.class);
+
+    /**
+     * 线程池
+     */
+    private final QueuedThreadPool pool;
+
+    /**
+     * 告警次数
+     */
+    private final LongAdder reports = new LongAdder();
+
+    /**
+     * 中断次数
+     */
+    private final LongAdder interrupts = new LongAdder();
+
+    /**
+     * 执行时间阈值，单位：ns
+     */
+    private long thresholdNanos = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * 扫描周期，单位：ns
+     */
+    private long periodNanos = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * 是否中断执行时间超过阈值的线程
+     */
+    private boolean interruptStuckThreads;
+
+    /**
+     * 扫描线程
+     */
+    private volatile Thread scanner;
+
+    public QueuedThreadPoolWatchdog(QueuedThreadPool pool) {
+        this.pool = pool;
+    }
+
+    public QueuedThreadPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * 获取执行时间阈值
+     *
+     * @param unit 时间单位
+     * @return 执行时间阈值
+     */
+    public long getThreshold(TimeUnit unit) {
+        return unit.convert(this.thresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 设置执行时间阈值
+     *
+     * @param threshold 执行时间阈值
+     * @param unit      时间单位
+     */
+    public void setThreshold(long threshold, TimeUnit unit) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Invalid threshold " + threshold);
+        }
+
+        this.thresholdNanos = unit.toNanos(threshold);
+    }
+
+    /**
+     * 获取扫描周期
+     *
+     * @param unit 时间单位
+     * @return 扫描周期
+     */
+    public long getPeriod(TimeUnit unit) {
+        return unit.convert(this.periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 设置扫描周期
+     *
+     * @param period 扫描周期
+     * @param unit   时间单位
+     */
+    public void setPeriod(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period " + period);
+        }
+
+        this.periodNanos = unit.toNanos(period);
+    }
+
+    public boolean isInterruptStuckThreads() {
+        return this.interruptStuckThreads;
+    }
+
+    public void setInterruptStuckThreads(boolean interruptStuckThreads) {
+        this.interruptStuckThreads = interruptStuckThreads;
+    }
+
+    public long getReportCount() {
+        return this.reports.sum();
+    }
+
+    public long getInterruptCount() {
+        return this.interrupts.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        Thread thread = PrivilegedThreadFactory.newThread(() -> {
+            Thread scanner = new Thread(this::scan, this.pool.getName() + "-watchdog");
+            scanner.setDaemon(true);
+            return scanner;
+        });
+        this.scanner = thread;
+        thread.start();
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        Thread thread = this.scanner;
+        this.scanner = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.NANOSECONDS.toMillis(this.periodNanos) + 1000);
+        }
+
+        this.pool.setLongRunningThreads(0);
+    }
+
+    /**
+     * 扫描循环
+     */
+    private void scan() {
+        while (this.scanner == Thread.currentThread()) {
+            LockSupport.parkNanos(this, this.periodNanos);
+            if (this.scanner != Thread.currentThread()) {
+                break;
+            }
+
+            try {
+                check();
+            } catch (Throwable e) {
+                LOG.warn("Unable to check {}", this.pool, e);
+            }
+        }
+    }
+
+    /**
+     * 检查所有线程，告警执行时间超过阈值的任务
+     *
+     * @return 执行时间超过阈值的线程数
+     */
+    public int check() {
+        long now = System.nanoTime();
+        int longRunning = 0;
+        for (QueuedThreadPool.RunningJob running : this.pool.getRunningJobs()) {
+            long started = running.getStarted();
+            if (started == 0 || now - started < this.thresholdNanos) {
+                continue;
+            }
+
+            // 接收器、保留线程等按设计长期占用线程，中断它们会破坏服务
+            if (running.isLongLived()) {
+                continue;
+            }
+
+            longRunning++;
+            // 每次执行只告警一次
+            if (running.reported == started) {
+                continue;
+            }
+
+            running.reported = started;
+            report(running, started, now - started);
+        }
+
+        this.pool.setLongRunningThreads(longRunning);
+        return longRunning;
+    }
+
+    /**
+     * 告警执行时间超过阈值的任务，可选地中断线程
+     *
+     * @param running  正在执行的任务
+     * @param started  判定为卡死的那次执行的开始时间戳
+     * @param runNanos 已执行的时间
+     */
+    private void report(QueuedThreadPool.RunningJob running, long started, long runNanos) {
+        Thread thread = running.getThread();
+        this.reports.increment();
+
+        StringBuilder builder = new StringBuilder();
+        for (StackTraceElement element : thread.getStackTrace()) {
+            builder.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+
+        LOG.warn("{} has been running {} for {}ms in {}{}",
+                thread,
+                running.getJob(),
+                TimeUnit.NANOSECONDS.toMillis(runNanos),
+                this.pool,
+                builder);
+
+        // 获取线程栈和打印告警期间任务可能已经结束，线程转而执行其它任务，不能中断
+        if (this.interruptStuckThreads && running.getStarted() == started) {
+            this.interrupts.increment();
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,threshold=%dms,longRunning=%d,reports=%d,interrupts=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                getThreshold(TimeUnit.MILLISECONDS),
+                this.pool.getLongRunningThreads(),
+                getReportCount(),
+                getInterruptCount());
+    }
+}
@@ -1,26 +1,462 @@
 package com.pcz.simple.jetty.core.thread;
 
+import com.pcz.simple.jetty.core.AtomicBiInteger;
+import com.pcz.simple.jetty.core.ProcessorUtils;
 import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 保留的线程执行器
+ * <p>
+ * 保留线程从执行器中借出，在各自的交接槽上先自旋再阻塞地等待任务，
+ * {@link #tryExecute(Runnable)} 直接把任务交给一个保留线程，不经过任务队列。
+ * <p>
+ * 保留线程数随需求伸缩：没有保留线程可用时启动一个新的保留线程，不超过容量；
+ * 保留线程在空闲超时时间内没有收到任务，且这段时间内保留线程一直够用时退出，每个空闲超时周期最多退出一个
  *
  * @author picongzhi
  */
 public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(ReservedThreadExecutor.class);
+
+    /**
+     * 停止保留线程的任务
+     */
+    private static final Runnable STOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public String toString() {
+            return "STOP";
+        }
+    };
+
+    /**
+     * 阻塞前自旋的次数
+     */
+    private static final int SPINS = 256;
+
+    /**
+     * 执行器
+     */
+    private final Executor executor;
+
+    /**
+     * 容量，即最大保留线程数
+     */
+    private final int capacity;
+
+    /**
+     * 等待任务的保留线程，后进先出，最近活跃的线程优先被使用
+     */
+    private final Deque<ReservedThread> stack = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 编码的保留线程数
+     * Hi：正在启动的保留线程数
+     * Lo：等待任务的保留线程数
+     */
+    private final AtomicBiInteger count = new AtomicBiInteger.Padded();
+
+    /**
+     * 最近一次没有保留线程可用的时间戳
+     */
+    private final AtomicLong lastEmpty = new AtomicLong(System.nanoTime());
+
+    /**
+     * 最近一次保留线程退出的时间戳
+     */
+    private final AtomicLong lastShrink = new AtomicLong(System.nanoTime());
+
+    /**
+     * 空闲超时时间，单位：ns
+     */
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * 从执行器预算中租用保留线程的契约
+     */
+    private ThreadPoolBudget.Lease lease;
+
+    /**
+     * @param executor 执行器，保留线程从中借出
+     * @param capacity 容量，为负数时根据 CPU 核数和执行器的最大线程数计算
+     */
     public ReservedThreadExecutor(Executor executor, int capacity) {
+        this.executor = executor;
+        this.capacity = reservedThreads(executor, capacity);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{}", this);
+        }
+    }
+
+    /**
+     * 计算容量
+     *
+     * @param executor 执行器
+     * @param capacity 配置的容量
+     * @return 容量
+     */
+    private static int reservedThreads(Executor executor, int capacity) {
+        if (capacity >= 0) {
+            return capacity;
+        }
+
+        if (executor instanceof ThreadPool.SizedThreadPool) {
+            int threads = ((ThreadPool.SizedThreadPool) executor).getMaxThreads();
+            return ProcessorUtils.recommendedReservedThreads(threads);
+        }
+
+        return ProcessorUtils.availableProcessors();
+    }
+
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * 获取容量
+     *
+     * @return 最大保留线程数
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * 获取可用的保留线程数
+     *
+     * @return 等待任务的保留线程数
+     */
+    public int getAvailable() {
+        return this.count.getLo();
+    }
+
+    /**
+     * 获取正在启动的保留线程数
+     *
+     * @return 正在启动的保留线程数
+     */
+    public int getPending() {
+        return this.count.getHi();
+    }
+
+    /**
+     * 获取空闲超时时间
+     *
+     * @return 空闲超时时间，单位：ms
+     */
+    public long getIdleTimeoutMs() {
+        return TimeUnit.NANOSECONDS.toMillis(this.idleTimeoutNanos);
+    }
+
+    /**
+     * 设置空闲超时时间，小于等于 0 时保留线程不会因空闲退出
+     *
+     * @param idleTime 空闲超时时间
+     * @param unit     时间单位
+     */
+    public void setIdleTimeout(long idleTime, TimeUnit unit) {
+        if (isRunning()) {
+            throw new IllegalStateException(getState());
+        }
+
+        this.idleTimeoutNanos = unit.toNanos(idleTime);
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        this.lease = ThreadPoolBudget.leaseFrom(getExecutor(), this, this.capacity);
+        this.lastEmpty.set(System.nanoTime());
+        this.lastShrink.set(System.nanoTime());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (this.lease != null) {
+            this.lease.close();
+        }
+
+        super.doStop();
+
+        // 唤醒所有保留线程并让其退出，正在启动的保留线程检查到已停止后退出
+        while (true) {
+            ReservedThread thread = this.stack.pollFirst();
+            if (thread == null) {
+                break;
+            }
 
+            addCount(0, -1);
+            thread.offer(STOP);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) throws RejectedExecutionException {
+        this.executor.execute(task);
     }
 
     @Override
     public boolean tryExecute(Runnable task) {
-        return false;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} tryExecute {}", this, task);
+        }
+
+        if (task == null) {
+            return false;
+        }
+
+        ReservedThread thread = this.stack.pollFirst();
+        if (thread == null) {
+            // 保留线程不够用，记录并尝试扩容
+            this.lastEmpty.set(System.nanoTime());
+            startReservedThread();
+            return false;
+        }
+
+        int available = addCount(0, -1);
+        thread.offer(task);
+
+        // 最后一个保留线程被使用后补充一个
+        if (available == 0) {
+            startReservedThread();
+        }
+
+        return true;
+    }
+
+    /**
+     * 更新保留线程数
+     *
+     * @param deltaPending   正在启动的保留线程数的增量
+     * @param deltaAvailable 等待任务的保留线程数的增量
+     * @return 更新后的等待任务的保留线程数
+     */
+    private int addCount(int deltaPending, int deltaAvailable) {
+        while (true) {
+            long encoded = this.count.get();
+            int pending = AtomicBiInteger.getHi(encoded) + deltaPending;
+            int available = AtomicBiInteger.getLo(encoded) + deltaAvailable;
+            if (this.count.compareAndSet(encoded, pending, available)) {
+                return available;
+            }
+        }
+    }
+
+    /**
+     * 在容量范围内启动一个保留线程
+     */
+    private void startReservedThread() {
+        while (true) {
+            long encoded = this.count.get();
+            int pending = AtomicBiInteger.getHi(encoded);
+            int available = AtomicBiInteger.getLo(encoded);
+            if (!isRunning() || pending + available >= this.capacity) {
+                return;
+            }
+
+            if (this.count.compareAndSet(encoded, pending + 1, available)) {
+                break;
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} startReservedThread", this);
+        }
+
+        try {
+            this.executor.execute(new ReservedThread());
+        } catch (RejectedExecutionException e) {
+            addCount(-1, 0);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("ignored", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        long encoded = this.count.get();
+        return String.format("%s@%x{%s,reserved=%d/%d,pending=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                AtomicBiInteger.getLo(encoded),
+                this.capacity,
+                AtomicBiInteger.getHi(encoded));
     }
 
-    public void setIdleTimeout(long timeout, TimeUnit idleTimeout) {
-        
+    /**
+     * 保留线程，在交接槽上等待任务
+     */
+    private class ReservedThread implements LongLivedTask {
+        /**
+         * 执行该任务的线程
+         */
+        private volatile Thread thread;
+
+        /**
+         * 交接槽
+         */
+        private volatile Runnable task;
+
+        /**
+         * 把任务交给该保留线程，调用前必须已将其从栈中移除
+         *
+         * @param task 任务
+         */
+        private void offer(Runnable task) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("{} offer {}", this, task);
+            }
+
+            this.task = task;
+            LockSupport.unpark(this.thread);
+        }
+
+        /**
+         * 等待任务，先自旋再阻塞
+         *
+         * @return 任务，空闲退出时返回 {@link #STOP}
+         */
+        private Runnable reservedWait() {
+            for (int i = 0; i < SPINS; i++) {
+                Runnable task = this.task;
+                if (task != null) {
+                    return take();
+                }
+
+                Thread.onSpinWait();
+            }
+
+            long idleTimeout = idleTimeoutNanos;
+            long deadline = System.nanoTime() + idleTimeout;
+            while (this.task == null) {
+                if (idleTimeout <= 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining > 0) {
+                        LockSupport.parkNanos(this, remaining);
+                    } else if (shrink()) {
+                        return STOP;
+                    } else {
+                        deadline = System.nanoTime() + idleTimeout;
+                    }
+                }
+
+                // 中断只用于唤醒，清除中断标记以免反复空转
+                Thread.interrupted();
+                if (!isRunning() && this.task == null && stack.remove(this)) {
+                    addCount(0, -1);
+                    return STOP;
+                }
+            }
+
+            return take();
+        }
+
+        /**
+         * 取出交接槽中的任务
+         *
+         * @return 任务
+         */
+        private Runnable take() {
+            Runnable task = this.task;
+            this.task = null;
+            return task;
+        }
+
+        /**
+         * 空闲超时后判断是否退出：最近一个空闲超时周期内保留线程一直够用，且本周期内还没有保留线程退出
+         *
+         * @return 是否退出，退出时已将自己从栈中移除
+         */
+        private boolean shrink() {
+            long now = System.nanoTime();
+            if (now - lastEmpty.get() < idleTimeoutNanos) {
+                return false;
+            }
+
+            long last = lastShrink.get();
+            if (now - last < idleTimeoutNanos || !lastShrink.compareAndSet(last, now)) {
+                return false;
+            }
+
+            // 从栈中移除失败说明已被选中，任务即将交接过来
+            if (!stack.remove(this)) {
+                return false;
+            }
+
+            addCount(0, -1);
+            return true;
+        }
+
+        /**
+         * 进入保留状态
+         *
+         * @param starting 是否是刚启动的保留线程
+         * @return 是否成功进入保留状态，已停止或保留线程已满时返回 false
+         */
+        private boolean reserve(boolean starting) {
+            while (true) {
+                long encoded = count.get();
+                int pending = AtomicBiInteger.getHi(encoded) - (starting ? 1 : 0);
+                int available = AtomicBiInteger.getLo(encoded);
+                if (!isRunning() || pending + available >= capacity) {
+                    if (!starting || count.compareAndSet(encoded, pending, available)) {
+                        return false;
+                    }
+                } else if (count.compareAndSet(encoded, pending, available + 1)) {
+                    stack.offerFirst(this);
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            this.thread = Thread.currentThread();
+            try {
+                boolean starting = true;
+                while (reserve(starting)) {
+                    starting = false;
+
+                    Runnable task = reservedWait();
+                    if (task == STOP) {
+                        break;
+                    }
+
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        LOG.warn("Unable to run task", e);
+                    }
+                }
+            } finally {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{} exited", this);
+                }
+                this.thread = null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{thread=%s}",
+                    getClass().getSimpleName(), hashCode(), this.thread);
+        }
     }
 }
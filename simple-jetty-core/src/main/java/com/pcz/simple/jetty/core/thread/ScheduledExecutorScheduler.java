@@ -1,21 +1,375 @@
 package com.pcz.simple.jetty.core.thread;
 
 import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 基于 {@link java.util.concurrent.ScheduledThreadPoolExecutor} 的调度器
+ * <p>
+ * 撤销的任务立即从队列中移除，不会在堆中堆积到到期时间。
+ * 需要反复推迟到期时间的场景（如空闲超时）使用 {@link #newReschedulableTask(Runnable)}，
+ * 同一个任务对象可以反复调度，推迟到期时间时不撤销已调度的任务，到期时再按新的到期时间重新调度
  *
  * @author picongzhi
  */
 public class ScheduledExecutorScheduler extends AbstractLifeCycle implements Scheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledExecutorScheduler.class);
+
+    /**
+     * 未运行时返回的任务
+     */
+    private static final Task NOOP_TASK = () -> false;
+
+    /**
+     * 撤销的任务数
+     */
+    private final LongAdder cancels = new LongAdder();
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 是否 daemon 线程
+     */
+    private final boolean daemon;
+
+    /**
+     * 线程数
+     */
+    private final int threads;
+
+    /**
+     * 执行器
+     */
+    private volatile ScheduledThreadPoolExecutor scheduler;
+
+    public ScheduledExecutorScheduler() {
+        this(null, false);
+    }
+
     public ScheduledExecutorScheduler(String name, boolean daemon) {
-        
+        this(name, daemon, 1);
+    }
+
+    /**
+     * @param name    线程名称前缀
+     * @param daemon  是否 daemon 线程
+     * @param threads 线程数
+     */
+    public ScheduledExecutorScheduler(String name, boolean daemon, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid threads " + threads);
+        }
+
+        this.name = name == null ? "Scheduler-" + hashCode() : name;
+        this.daemon = daemon;
+        this.threads = threads;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean isDaemon() {
+        return this.daemon;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * 获取队列中等待到期的任务数
+     *
+     * @return 任务数
+     */
+    public int getQueueSize() {
+        ScheduledThreadPoolExecutor scheduler = this.scheduler;
+        return scheduler == null ? 0 : scheduler.getQueue().size();
+    }
+
+    /**
+     * 获取撤销的任务数
+     *
+     * @return 撤销的任务数
+     */
+    public long getCancelledCount() {
+        return this.cancels.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(this.threads, runnable ->
+                PrivilegedThreadFactory.newThread(() -> {
+                    Thread thread = new Thread(runnable, this.threads == 1
+                            ? this.name
+                            : this.name + "-" + count.getAndIncrement());
+                    thread.setDaemon(this.daemon);
+                    return thread;
+                }));
+        // 撤销的任务立即从队列中移除
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler = scheduler;
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        ScheduledThreadPoolExecutor scheduler = this.scheduler;
+        this.scheduler = null;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        super.doStop();
     }
 
     @Override
     public Task schedule(Runnable task, long delay, TimeUnit unit) {
-        return null;
+        ScheduledThreadPoolExecutor scheduler = this.scheduler;
+        if (scheduler == null) {
+            return NOOP_TASK;
+        }
+
+        ScheduledFuture<?> future = scheduler.schedule(task, delay, unit);
+        return new ScheduledFutureTask(future);
+    }
+
+    /**
+     * 创建可以反复调度的任务
+     *
+     * @param task 到期时执行的任务
+     * @return 可以反复调度的任务，创建后未调度
+     */
+    public ReschedulableTask newReschedulableTask(Runnable task) {
+        return new ReschedulableTask(task);
+    }
+
+    /**
+     * 撤销 {@link Future}
+     *
+     * @param future {@link Future}
+     * @return 是否撤销成功
+     */
+    private boolean cancel(Future<?> future) {
+        if (!future.cancel(false)) {
+            return false;
+        }
+
+        this.cancels.increment();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,%s,queue=%d,cancelled=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                this.name,
+                getQueueSize(),
+                getCancelledCount());
+    }
+
+    /**
+     * 包装 {@link ScheduledFuture} 的任务
+     */
+    private class ScheduledFutureTask implements Task {
+        /**
+         * {@link ScheduledFuture}
+         */
+        private final ScheduledFuture<?> future;
+
+        private ScheduledFutureTask(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean cancel() {
+            return ScheduledExecutorScheduler.this.cancel(this.future);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), this.future);
+        }
+    }
+
+    /**
+     * 可以反复调度的任务
+     * <p>
+     * 新的到期时间晚于已调度的到期时间时只记录新的到期时间，已调度的任务到期时发现未到新的到期时间则重新调度，
+     * 新的到期时间早于已调度的到期时间时撤销已调度的任务并按新的到期时间调度
+     */
+    public class ReschedulableTask implements Task, Runnable {
+        /**
+         * 到期时执行的任务
+         */
+        private final Runnable task;
+
+        /**
+         * 锁
+         */
+        private final AutoLock lock = new AutoLock();
+
+        /**
+         * 到期时间戳，为 0 时表示未调度，单位：ns
+         */
+        private long deadline;
+
+        /**
+         * 已调度的到期时间戳，单位：ns
+         */
+        private long scheduledAt;
+
+        /**
+         * 已调度的 {@link ScheduledFuture}
+         */
+        private ScheduledFuture<?> future;
+
+        private ReschedulableTask(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * 调度或者修改到期时间
+         *
+         * @param delay 延迟
+         * @param unit  时间单位
+         * @return 是否调度成功，调度器未运行时返回 false
+         */
+        public boolean reschedule(long delay, TimeUnit unit) {
+            long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+            // 0 表示未调度
+            if (deadline == 0) {
+                deadline = 1;
+            }
+
+            ScheduledFuture<?> cancelled = null;
+            try (AutoLock l = this.lock.lock()) {
+                this.deadline = deadline;
+                if (this.future != null && deadline - this.scheduledAt >= 0) {
+                    // 已调度的任务到期时重新调度
+                    return true;
+                }
+
+                cancelled = this.future;
+                this.future = null;
+                if (!schedule(deadline)) {
+                    this.deadline = 0;
+                    return false;
+                }
+            } finally {
+                if (cancelled != null) {
+                    ScheduledExecutorScheduler.this.cancel(cancelled);
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * 判断是否已调度
+         *
+         * @return 是否已调度
+         */
+        public boolean isScheduled() {
+            try (AutoLock l = this.lock.lock()) {
+                return this.deadline != 0;
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            ScheduledFuture<?> future;
+            try (AutoLock l = this.lock.lock()) {
+                if (this.deadline == 0) {
+                    return false;
+                }
+
+                this.deadline = 0;
+                future = this.future;
+                this.future = null;
+            }
+
+            if (future != null) {
+                ScheduledExecutorScheduler.this.cancel(future);
+            }
+
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try (AutoLock l = this.lock.lock()) {
+                long now = System.nanoTime();
+                // 撤销失败的旧任务，已经有更晚的任务被调度
+                if (this.future != null && this.scheduledAt - now > 0) {
+                    return;
+                }
+
+                this.future = null;
+                if (this.deadline == 0) {
+                    return;
+                }
+
+                // 到期时间被推迟，重新调度
+                if (this.deadline - now > 0) {
+                    if (!schedule(this.deadline)) {
+                        this.deadline = 0;
+                    }
+
+                    return;
+                }
+
+                this.deadline = 0;
+            }
+
+            this.task.run();
+        }
+
+        /**
+         * 按到期时间调度，需要持有锁
+         *
+         * @param deadline 到期时间戳
+         * @return 是否调度成功
+         */
+        private boolean schedule(long deadline) {
+            ScheduledThreadPoolExecutor scheduler = ScheduledExecutorScheduler.this.scheduler;
+            if (scheduler == null) {
+                return false;
+            }
+
+            try {
+                this.future = scheduler.schedule(this, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                this.scheduledAt = deadline;
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Unable to schedule {}", this, e);
+                }
+
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), this.task);
+        }
     }
 }
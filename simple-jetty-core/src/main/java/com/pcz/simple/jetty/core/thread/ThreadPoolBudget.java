@@ -1,24 +1,212 @@
 package com.pcz.simple.jetty.core.thread;
 
+import com.pcz.simple.jetty.core.ProcessorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 线程池预算
+ * <p>
+ * 接收器、选择器、保留线程等组件会长期占用线程池中的线程，这些组件启动时从预算中租用线程。
+ * 租用后剩余的线程不足以处理请求时启动失败，剩余的线程少于告警阈值时打印告警
  *
  * @author picongzhi
  */
 public class ThreadPoolBudget {
-    public ThreadPoolBudget(ThreadPool.SizedThreadPool threadPool) {
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadPoolBudget.class);
+
+    /**
+     * 不占用线程的契约
+     */
+    private static final Lease NOOP_LEASE = new Lease() {
+        @Override
+        public int getThreads() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return "NOOP_LEASE";
+        }
+    };
+
+    /**
+     * 线程池
+     */
+    private final ThreadPool.SizedThreadPool threadPool;
+
+    /**
+     * 当前的契约
+     */
+    private final Set<Leased> leases = new CopyOnWriteArraySet<>();
+
+    /**
+     * 是否已经告警过
+     */
+    private final AtomicBoolean warned = new AtomicBoolean();
+
+    /**
+     * 告警阈值，租用后剩余的线程数少于该值时告警
+     */
+    private int warnAt;
 
+    public ThreadPoolBudget(ThreadPool.SizedThreadPool threadPool) {
+        this(threadPool, ProcessorUtils.availableProcessors());
     }
 
-    public static Lease leaseFrom(Executor executor, Object lease, int threads) {
-        return null;
+    /**
+     * @param threadPool 线程池
+     * @param warnAt     告警阈值
+     */
+    public ThreadPoolBudget(ThreadPool.SizedThreadPool threadPool, int warnAt) {
+        this.threadPool = threadPool;
+        this.warnAt = warnAt;
     }
 
     public ThreadPool.SizedThreadPool getSizedThreadPool() {
-        return null;
+        return this.threadPool;
+    }
+
+    public int getWarnAt() {
+        return this.warnAt;
+    }
+
+    public void setWarnAt(int warnAt) {
+        this.warnAt = warnAt;
+    }
+
+    /**
+     * 获取已租用的线程数
+     *
+     * @return 已租用的线程数
+     */
+    public int getLeasedThreads() {
+        int threads = 0;
+        for (Leased lease : this.leases) {
+            threads += lease.getThreads();
+        }
+
+        return threads;
+    }
+
+    /**
+     * 获取当前的契约
+     *
+     * @return 当前的契约
+     */
+    public List<Lease> getLeases() {
+        return new ArrayList<>(this.leases);
+    }
+
+    /**
+     * 清空契约
+     */
+    public void reset() {
+        this.leases.clear();
+        this.warned.set(false);
+    }
+
+    /**
+     * 租用线程，租用后剩余的线程不足时抛出异常且不保留契约
+     *
+     * @param leasee  租用者
+     * @param threads 线程数
+     * @return 契约，关闭时归还线程
+     * @throws IllegalStateException 剩余的线程不足
+     */
+    public Lease leaseTo(Object leasee, int threads) {
+        Leased lease = new Leased(leasee, threads);
+        this.leases.add(lease);
+        try {
+            check(this.threadPool.getMaxThreads());
+            return lease;
+        } catch (IllegalStateException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 检查最大线程数是否满足已租用的线程数
+     *
+     * @param maxThreads 最大线程数
+     * @return 剩余的线程数不少于告警阈值时返回 true
+     * @throws IllegalStateException 租用后没有线程可以处理请求
+     */
+    public boolean check(int maxThreads) throws IllegalStateException {
+        int required = getLeasedThreads();
+        int left = maxThreads - required;
+        if (left <= 0) {
+            LOG.warn("Insufficient threads, leases: {}", this.leases);
+            throw new IllegalStateException(String.format("Insufficient configured threads: required=%d >= max=%d for %s",
+                    required, maxThreads, this.threadPool));
+        }
+
+        if (left < this.warnAt) {
+            if (this.warned.compareAndSet(false, true)) {
+                LOG.warn("Low configured threads: (max={} - required={})={} < warnAt={} for {}, leases: {}",
+                        maxThreads, required, left, this.warnAt, this.threadPool, this.leases);
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * 从执行器的预算中租用线程，执行器没有预算时返回不占用线程的契约
+     *
+     * @param executor 执行器
+     * @param leasee   租用者
+     * @param threads  线程数
+     * @return 契约
+     */
+    public static Lease leaseFrom(Executor executor, Object leasee, int threads) {
+        if (executor instanceof ThreadPool.SizedThreadPool) {
+            ThreadPoolBudget budget = ((ThreadPool.SizedThreadPool) executor).getThreadPoolBudget();
+            if (budget != null) {
+                return budget.leaseTo(leasee, threads);
+            }
+        }
+
+        return NOOP_LEASE;
+    }
+
+    /**
+     * 输出预算和所有契约
+     *
+     * @return 预算和所有契约，每个契约一行
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder(toString());
+        for (Leased lease : this.leases) {
+            builder.append(System.lineSeparator()).append(" +- ").append(lease);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{leased=%d,max=%d,warnAt=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getLeasedThreads(),
+                this.threadPool.getMaxThreads(),
+                this.warnAt);
     }
 
     /**
@@ -32,4 +220,41 @@ public class ThreadPoolBudget {
          */
         int getThreads();
     }
+
+    /**
+     * 预算中的契约
+     */
+    private class Leased implements Lease {
+        /**
+         * 租用者
+         */
+        private final Object leasee;
+
+        /**
+         * 线程数
+         */
+        private final int threads;
+
+        private Leased(Object leasee, int threads) {
+            this.leasee = leasee;
+            this.threads = threads;
+        }
+
+        @Override
+        public int getThreads() {
+            return this.threads;
+        }
+
+        @Override
+        public void close() {
+            leases.remove(this);
+            warned.set(false);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%d threads,%s}",
+                    getClass().getSimpleName(), hashCode(), this.threads, this.leasee);
+        }
+    }
 }
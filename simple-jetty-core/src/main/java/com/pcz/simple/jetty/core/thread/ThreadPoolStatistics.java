@@ -0,0 +1,169 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.statistic.Histogram;
+import com.pcz.simple.jetty.core.statistic.SampleStatistic;
+import com.pcz.simple.jetty.core.statistic.WindowedMaxStatistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池统计，所有计数无锁
+ * <p>
+ * 记录任务的排队时延和执行时间、拒绝的任务数和窗口内的最大排队任务数，时间单位都是 ns
+ *
+ * @author picongzhi
+ */
+public class ThreadPoolStatistics {
+    /**
+     * 排队时延统计
+     */
+    private final SampleStatistic queueWait = new SampleStatistic();
+
+    /**
+     * 排队时延分布
+     */
+    private final Histogram queueWaitHistogram = new Histogram();
+
+    /**
+     * 执行时间统计
+     */
+    private final SampleStatistic runTime = new SampleStatistic();
+
+    /**
+     * 执行时间分布
+     */
+    private final Histogram runTimeHistogram = new Histogram();
+
+    /**
+     * 拒绝的任务数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 窗口内的最大排队任务数
+     */
+    private final WindowedMaxStatistic maxQueueSize;
+
+    /**
+     * 统计开始时间戳
+     */
+    private volatile long start = System.nanoTime();
+
+    public ThreadPoolStatistics() {
+        this(1, TimeUnit.MINUTES, 60);
+    }
+
+    /**
+     * @param window 最大排队任务数的统计窗口
+     * @param unit   时间单位
+     * @param slots  窗口的槽数
+     */
+    public ThreadPoolStatistics(long window, TimeUnit unit, int slots) {
+        this.maxQueueSize = new WindowedMaxStatistic(window, unit, slots);
+    }
+
+    /**
+     * 任务入队
+     *
+     * @param queueSize 入队后的排队任务数
+     */
+    void onQueued(int queueSize) {
+        this.maxQueueSize.record(queueSize);
+    }
+
+    /**
+     * 任务出队
+     *
+     * @param waitNanos 排队时延
+     */
+    void onDequeued(long waitNanos) {
+        this.queueWait.record(waitNanos);
+        this.queueWaitHistogram.record(waitNanos);
+    }
+
+    /**
+     * 任务执行完成
+     *
+     * @param runNanos 执行时间
+     */
+    void onRun(long runNanos) {
+        this.runTime.record(runNanos);
+        this.runTimeHistogram.record(runNanos);
+    }
+
+    /**
+     * 任务被拒绝
+     */
+    void onRejected() {
+        this.rejected.increment();
+    }
+
+    public SampleStatistic getQueueWait() {
+        return this.queueWait;
+    }
+
+    public Histogram getQueueWaitHistogram() {
+        return this.queueWaitHistogram;
+    }
+
+    public SampleStatistic getRunTime() {
+        return this.runTime;
+    }
+
+    public Histogram getRunTimeHistogram() {
+        return this.runTimeHistogram;
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * 获取窗口内的最大排队任务数
+     *
+     * @return 窗口内的最大排队任务数
+     */
+    public long getMaxQueueSize() {
+        return this.maxQueueSize.getMax();
+    }
+
+    /**
+     * 获取统计时长内线程忙碌的比例，即任务执行时间总和除以统计时长和线程数的乘积
+     *
+     * @param threads 线程数
+     * @return 忙碌比例
+     */
+    public double getBusyRatio(int threads) {
+        long elapsed = System.nanoTime() - this.start;
+        if (elapsed <= 0 || threads <= 0) {
+            return 0;
+        }
+
+        return (double) this.runTime.getTotal() / ((double) elapsed * threads);
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        this.queueWait.reset();
+        this.queueWaitHistogram.reset();
+        this.runTime.reset();
+        this.runTimeHistogram.reset();
+        this.rejected.reset();
+        this.maxQueueSize.reset();
+        this.start = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{wait.p99=%dus,run.p99=%dus,rejected=%d,maxQueue=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                TimeUnit.NANOSECONDS.toMicros(this.queueWaitHistogram.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(this.runTimeHistogram.getPercentile(99)),
+                getRejected(),
+                getMaxQueueSize());
+    }
+}
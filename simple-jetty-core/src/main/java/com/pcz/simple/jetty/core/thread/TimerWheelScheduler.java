@@ -0,0 +1,594 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于时间轮的调度器，适合大量短时且多数会被撤销的定时任务，如各种超时
+ * <p>
+ * 时间轮有 2 的幂个槽，每个槽是一个双向链表，一个刻度前进一个槽。
+ * 调度和撤销都只是把任务放入无锁队列，时间轮线程在每个刻度批量把新任务挂到槽上、把撤销的任务从槽上摘除，
+ * 都是 O(1) 的，撤销的任务不会留在槽上直到到期。
+ * <p>
+ * 到期的任务按刻度批量交给执行器，没有执行器时在时间轮线程中执行。
+ * 到期的精度是一个刻度，可以作为 {@link Scheduler} bean 添加到 Server 中，由连接器获取使用
+ *
+ * @author picongzhi
+ */
+public class TimerWheelScheduler extends AbstractLifeCycle implements Scheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(TimerWheelScheduler.class);
+
+    /**
+     * 每个刻度最多挂到槽上的新任务数，避免新任务过多时推迟到期处理
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    /**
+     * 等待挂到槽上的任务
+     */
+    private final Queue<WheelTask> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待从槽上摘除的已撤销任务
+     */
+    private final Queue<WheelTask> cancelled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 未到期也未撤销的任务数
+     */
+    private final AtomicInteger scheduled = new AtomicInteger();
+
+    /**
+     * 到期执行的任务数
+     */
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * 撤销的任务数
+     */
+    private final LongAdder cancels = new LongAdder();
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 是否 daemon 线程
+     */
+    private final boolean daemon;
+
+    /**
+     * 刻度，单位：ns
+     */
+    private final long tickNanos;
+
+    /**
+     * 槽
+     */
+    private final Bucket[] wheel;
+
+    /**
+     * 槽下标掩码
+     */
+    private final int mask;
+
+    /**
+     * 执行到期任务的执行器，为 null 时在时间轮线程中执行
+     */
+    private final Executor executor;
+
+    /**
+     * 启动时间戳，任务的到期时间都相对于该时间
+     */
+    private volatile long startTime;
+
+    /**
+     * 时间轮线程
+     */
+    private volatile Thread thread;
+
+    public TimerWheelScheduler() {
+        this(null, false);
+    }
+
+    public TimerWheelScheduler(String name, boolean daemon) {
+        this(name, daemon, 10, TimeUnit.MILLISECONDS, 512, null);
+    }
+
+    /**
+     * @param name      时间轮线程名称
+     * @param daemon    是否 daemon 线程
+     * @param tick      刻度，即到期的精度
+     * @param unit      刻度的时间单位
+     * @param wheelSize 槽数，向上取整到 2 的幂
+     * @param executor  执行到期任务的执行器，为 null 时在时间轮线程中执行
+     */
+    public TimerWheelScheduler(String name, boolean daemon, long tick, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Invalid tick " + tick);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid wheel size " + wheelSize);
+        }
+
+        this.name = name == null ? "TimerWheelScheduler-" + Integer.toHexString(hashCode()) : name;
+        this.daemon = daemon;
+        this.tickNanos = unit.toNanos(tick);
+
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 获取刻度
+     *
+     * @param unit 时间单位
+     * @return 刻度
+     */
+    public long getTick(TimeUnit unit) {
+        return unit.convert(this.tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 获取槽数
+     *
+     * @return 槽数
+     */
+    public int getWheelSize() {
+        return this.wheel.length;
+    }
+
+    /**
+     * 获取未到期也未撤销的任务数
+     *
+     * @return 任务数
+     */
+    public int getScheduledCount() {
+        return this.scheduled.get();
+    }
+
+    /**
+     * 获取到期执行的任务数
+     *
+     * @return 到期执行的任务数
+     */
+    public long getExpiredCount() {
+        return this.expired.sum();
+    }
+
+    /**
+     * 获取撤销的任务数
+     *
+     * @return 撤销的任务数
+     */
+    public long getCancelledCount() {
+        return this.cancels.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        this.startTime = System.nanoTime();
+        Thread thread = PrivilegedThreadFactory.newThread(() -> {
+            Thread worker = new Thread(new Worker(), this.name);
+            worker.setDaemon(this.daemon);
+            return worker;
+        });
+        this.thread = thread;
+        thread.start();
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        Thread thread = this.thread;
+        this.thread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread()) {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(this.tickNanos) + 1000);
+                if (thread.isAlive()) {
+                    // 在时间轮线程中执行的到期任务没有返回，中断后不再等待
+                    LOG.warn("{} interrupting {}", this, thread);
+                    thread.interrupt();
+                }
+            }
+        }
+
+        // 丢弃未到期的任务
+        WheelTask task;
+        while ((task = this.pending.poll()) != null) {
+            task.state.set(WheelTask.CANCELLED);
+        }
+        this.cancelled.clear();
+        for (Bucket bucket : this.wheel) {
+            bucket.clear();
+        }
+        this.scheduled.set(0);
+
+        super.doStop();
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!isRunning()) {
+            throw new RejectedExecutionException(this + " not running");
+        }
+
+        long deadline = System.nanoTime() - this.startTime + Math.max(0, unit.toNanos(delay));
+        // 防止溢出
+        if (deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+
+        WheelTask wheelTask = new WheelTask(task, deadline);
+        this.scheduled.incrementAndGet();
+        this.pending.offer(wheelTask);
+        return wheelTask;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,%s,tick=%dms,wheel=%d,scheduled=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                this.name,
+                getTick(TimeUnit.MILLISECONDS),
+                this.wheel.length,
+                getScheduledCount());
+    }
+
+    /**
+     * 执行一批到期任务
+     *
+     * @param batch 到期任务
+     */
+    private void runBatch(List<WheelTask> batch) {
+        for (WheelTask task : batch) {
+            try {
+                task.task.run();
+            } catch (Throwable e) {
+                LOG.warn("Error running timer task {}", task.task, e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮线程
+     */
+    private class Worker implements Runnable {
+        /**
+         * 当前刻度
+         */
+        private long tick;
+
+        @Override
+        public void run() {
+            while (thread == Thread.currentThread()) {
+                long deadline = waitForNextTick();
+                if (thread != Thread.currentThread()) {
+                    break;
+                }
+
+                unlinkCancelled();
+                transferPending();
+
+                Bucket bucket = wheel[(int) (this.tick & mask)];
+                List<WheelTask> batch = bucket.expire(deadline);
+                this.tick++;
+
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            }
+        }
+
+        /**
+         * 等待下一个刻度
+         *
+         * @return 下一个刻度相对于启动时间的时间戳
+         */
+        private long waitForNextTick() {
+            long deadline = tickNanos * (this.tick + 1);
+            while (thread == Thread.currentThread()) {
+                long remaining = deadline - (System.nanoTime() - startTime);
+                if (remaining <= 0) {
+                    break;
+                }
+
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            return deadline;
+        }
+
+        /**
+         * 把已撤销的任务从槽上摘除
+         */
+        private void unlinkCancelled() {
+            WheelTask task;
+            while ((task = cancelled.poll()) != null) {
+                if (task.bucket != null) {
+                    task.bucket.remove(task);
+                }
+            }
+        }
+
+        /**
+         * 把新任务挂到槽上
+         */
+        private void transferPending() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                WheelTask task = pending.poll();
+                if (task == null) {
+                    return;
+                }
+
+                if (task.state.get() == WheelTask.CANCELLED) {
+                    continue;
+                }
+
+                // 已经过期的任务放到当前刻度
+                long ticks = Math.max(task.deadline / tickNanos, this.tick);
+                task.rounds = (ticks - this.tick) / wheel.length;
+                wheel[(int) (ticks & mask)].add(task);
+            }
+        }
+
+        /**
+         * 派发一批到期任务
+         *
+         * @param batch 到期任务
+         */
+        private void dispatch(List<WheelTask> batch) {
+            expired.add(batch.size());
+            if (executor == null) {
+                runBatch(batch);
+                return;
+            }
+
+            try {
+                executor.execute(new ExpiredBatch(batch));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Timer tasks rejected by {}, running in {}", executor, thread, e);
+                runBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * 槽，只由时间轮线程访问
+     */
+    private static class Bucket {
+        /**
+         * 头节点
+         */
+        private WheelTask head;
+
+        /**
+         * 尾节点
+         */
+        private WheelTask tail;
+
+        /**
+         * 挂上任务
+         *
+         * @param task 任务
+         */
+        private void add(WheelTask task) {
+            task.bucket = this;
+            if (this.head == null) {
+                this.head = this.tail = task;
+            } else {
+                this.tail.next = task;
+                task.prev = this.tail;
+                this.tail = task;
+            }
+        }
+
+        /**
+         * 摘除任务
+         *
+         * @param task 任务
+         */
+        private void remove(WheelTask task) {
+            WheelTask next = task.next;
+            if (task.prev != null) {
+                task.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = task.prev;
+            }
+
+            if (task == this.head) {
+                this.head = next;
+            }
+            if (task == this.tail) {
+                this.tail = task.prev;
+            }
+
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        /**
+         * 摘除到期的任务，其余任务的轮数减一
+         *
+         * @param deadline 当前刻度的时间戳
+         * @return 到期的任务
+         */
+        private List<WheelTask> expire(long deadline) {
+            List<WheelTask> batch = new ArrayList<>();
+            WheelTask task = this.head;
+            while (task != null) {
+                WheelTask next = task.next;
+                if (task.rounds <= 0 && task.deadline <= deadline) {
+                    remove(task);
+                    if (task.expire()) {
+                        batch.add(task);
+                    }
+                } else if (task.rounds > 0) {
+                    task.rounds--;
+                }
+
+                task = next;
+            }
+
+            return batch;
+        }
+
+        /**
+         * 清空
+         */
+        private void clear() {
+            WheelTask task = this.head;
+            while (task != null) {
+                WheelTask next = task.next;
+                task.state.set(WheelTask.CANCELLED);
+                remove(task);
+                task = next;
+            }
+        }
+    }
+
+    /**
+     * 一批到期任务，超时等控制任务不应排在请求任务之后，作为高优先级任务交给执行器
+     */
+    private class ExpiredBatch implements PriorityTask {
+        /**
+         * 到期任务
+         */
+        private final List<WheelTask> batch;
+
+        private ExpiredBatch(List<WheelTask> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            runBatch(this.batch);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%d}", getClass().getSimpleName(), hashCode(), this.batch.size());
+        }
+    }
+
+    /**
+     * 时间轮上的任务
+     */
+    private class WheelTask implements Task {
+        /**
+         * 状态：等待到期
+         */
+        private static final int WAITING = 0;
+
+        /**
+         * 状态：已撤销
+         */
+        private static final int CANCELLED = 1;
+
+        /**
+         * 状态：已到期
+         */
+        private static final int EXPIRED = 2;
+
+        /**
+         * 状态
+         */
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * 任务
+         */
+        private final Runnable task;
+
+        /**
+         * 到期时间，相对于启动时间，单位：ns
+         */
+        private final long deadline;
+
+        /**
+         * 剩余轮数，只由时间轮线程访问
+         */
+        private long rounds;
+
+        /**
+         * 所在的槽，只由时间轮线程访问
+         */
+        private Bucket bucket;
+
+        /**
+         * 前一个任务
+         */
+        private WheelTask prev;
+
+        /**
+         * 后一个任务
+         */
+        private WheelTask next;
+
+        private WheelTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!this.state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+
+            scheduled.decrementAndGet();
+            cancels.increment();
+            // 由时间轮线程从槽上摘除，尚未挂到槽上的任务在挂上之前被跳过
+            cancelled.offer(this);
+            return true;
+        }
+
+        /**
+         * 标记为已到期
+         *
+         * @return 是否标记成功，已撤销时返回 false
+         */
+        private boolean expire() {
+            if (!this.state.compareAndSet(WAITING, EXPIRED)) {
+                return false;
+            }
+
+            scheduled.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s,deadline=%dms}",
+                    getClass().getSimpleName(), hashCode(), this.task, TimeUnit.NANOSECONDS.toMillis(this.deadline));
+        }
+    }
+}
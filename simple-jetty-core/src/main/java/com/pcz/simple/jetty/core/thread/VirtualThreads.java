@@ -0,0 +1,167 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具
+ * <p>
+ * 编译目标是 JDK 16，虚拟线程的 API 都通过反射访问，运行在不支持虚拟线程的 JDK 上时
+ * {@link #areSupported()} 返回 false，其它方法退化为平台线程的行为
+ *
+ * @author picongzhi
+ */
+public class VirtualThreads {
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = probe();
+
+    /**
+     * {@code Thread.isVirtual()}
+     */
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 探测是否支持虚拟线程，预览特性未开启时不支持
+     *
+     * @return {@code Executors.newVirtualThreadPerTaskExecutor()}，不支持时返回 null
+     */
+    private static Method probe() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // 预览特性未开启时调用抛出 UnsupportedOperationException
+            Object executor = method.invoke(null);
+            if (executor instanceof AutoCloseable) {
+                ((AutoCloseable) executor).close();
+            }
+
+            return method;
+        } catch (Throwable e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Virtual threads not supported", e);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * 获取 {@code Thread.isVirtual()}
+     *
+     * @return {@code Thread.isVirtual()}，不支持虚拟线程时返回 null
+     */
+    private static Method isVirtualMethod() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            return null;
+        }
+
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 判断当前 JDK 是否支持虚拟线程
+     *
+     * @return 是否支持虚拟线程
+     */
+    public static boolean areSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     *
+     * @return 执行器，不支持虚拟线程时返回 null
+     */
+    public static Executor getDefaultVirtualThreadsExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            return null;
+        }
+
+        try {
+            return (Executor) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (Throwable e) {
+            LOG.warn("Unable to create virtual threads executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * 判断当前线程是否是虚拟线程
+     *
+     * @return 是否是虚拟线程
+     */
+    public static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 可以配置虚拟线程执行器的组件
+     */
+    public interface Configurable {
+        /**
+         * 获取虚拟线程执行器
+         *
+         * @return 虚拟线程执行器，为 null 时不使用虚拟线程
+         */
+        Executor getVirtualThreadsExecutor();
+
+        /**
+         * 设置虚拟线程执行器
+         *
+         * @param executor 虚拟线程执行器，为 null 时不使用虚拟线程
+         */
+        void setVirtualThreadsExecutor(Executor executor);
+
+        /**
+         * 判断是否使用虚拟线程
+         *
+         * @return 是否使用虚拟线程
+         */
+        default boolean isUseVirtualThreads() {
+            return getVirtualThreadsExecutor() != null;
+        }
+
+        /**
+         * 设置是否使用默认的虚拟线程执行器，不支持虚拟线程时忽略
+         *
+         * @param useVirtualThreads 是否使用虚拟线程
+         */
+        default void setUseVirtualThreads(boolean useVirtualThreads) {
+            if (!useVirtualThreads) {
+                setVirtualThreadsExecutor(null);
+                return;
+            }
+
+            Executor executor = getDefaultVirtualThreadsExecutor();
+            if (executor == null) {
+                LOG.warn("Virtual threads not supported by {}, using platform threads for {}",
+                        System.getProperty("java.version"), this);
+                return;
+            }
+
+            setVirtualThreadsExecutor(executor);
+        }
+    }
+}
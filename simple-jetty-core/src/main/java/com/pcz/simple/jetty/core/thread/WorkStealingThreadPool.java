@@ -0,0 +1,940 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.ProcessorUtils;
+import com.pcz.simple.jetty.core.component.ContainerLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 工作窃取的线程池
+ * <p>
+ * 每个工作线程有自己的双端队列，池内线程提交的任务放入自己的队列头部，
+ * 池外线程提交的任务放入共享的提交队列。工作线程优先从自己的队列头部取任务，
+ * 其次是提交队列，最后从随机选择的其他工作线程的队列尾部窃取最早的任务。
+ * <p>
+ * 适合 CPU 密集的任务，本地执行的任务缓存友好，且不会在单个共享队列上竞争。
+ * 有工作线程正在寻找任务时，新任务由它取走，提交者不再唤醒或开启其他工作线程。
+ * 可以通过 {@code new Server(ThreadPool)} 替换 {@link QueuedThreadPool}
+ *
+ * @author picongzhi
+ */
+public class WorkStealingThreadPool extends ContainerLifeCycle implements ThreadFactory, ThreadPool.SizedThreadPool {
+    private static final Logger LOG = LoggerFactory.getLogger(WorkStealingThreadPool.class);
+
+    /**
+     * 当前线程所属的工作线程
+     */
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+    /**
+     * 池外线程提交的任务
+     */
+    private final Queue<Runnable> submissions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 空闲的工作线程，后进先出。
+     * 工作线程自己结束空闲时不从中删除，只清除空闲标记，唤醒者弹出时跳过已不空闲的工作线程
+     */
+    private final Deque<Worker> idleWorkers = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 空闲的工作线程数
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * 正在寻找任务的工作线程数，即刚开启或被唤醒、尚未找到任务也尚未再次空闲的工作线程
+     */
+    private final AtomicInteger searching = new AtomicInteger();
+
+    /**
+     * 线程数
+     */
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /**
+     * 池外提交的排队任务数
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * 最近的收缩时间戳
+     */
+    private final AtomicLong lastShrink = new AtomicLong();
+
+    /**
+     * 窃取的任务数
+     */
+    private final LongAdder steals = new LongAdder();
+
+    /**
+     * 工作线程槽，长度为最大线程数
+     */
+    private volatile AtomicReferenceArray<Worker> workers;
+
+    /**
+     * 名称
+     */
+    private String name = "wstp" + hashCode();
+
+    /**
+     * 最小线程数
+     */
+    private int minThreads;
+
+    /**
+     * 最大线程数
+     */
+    private int maxThreads;
+
+    /**
+     * 空闲时间，单位：ms
+     */
+    private int idleTimeout;
+
+    /**
+     * 停止超时时间，单位：ms
+     */
+    private long stopTimeout = 5000;
+
+    /**
+     * 是否 daemon 线程
+     */
+    private boolean daemon;
+
+    /**
+     * 线程池预算
+     */
+    private ThreadPoolBudget threadPoolBudget;
+
+    /**
+     * 停止时是否处于排空阶段，该阶段工作线程继续执行队列中剩余的任务
+     */
+    private volatile boolean draining;
+
+    /**
+     * 最近一次停止时未执行的任务
+     */
+    private volatile List<Runnable> unexecutedJobs = Collections.emptyList();
+
+    public WorkStealingThreadPool() {
+        this(Math.max(8, ProcessorUtils.availableProcessors() * 2));
+    }
+
+    public WorkStealingThreadPool(int maxThreads) {
+        this(maxThreads, Math.min(ProcessorUtils.availableProcessors(), maxThreads), 60000);
+    }
+
+    public WorkStealingThreadPool(int maxThreads, int minThreads, int idleTimeout) {
+        if (maxThreads < minThreads) {
+            throw new IllegalArgumentException(
+                    "Max threads (" + maxThreads + ") less than min threads (" + minThreads + ")");
+        }
+
+        setMinThreads(minThreads);
+        setMaxThreads(maxThreads);
+        setIdleTimeout(idleTimeout);
+        setThreadPoolBudget(new ThreadPoolBudget(this));
+    }
+
+    @Override
+    public int getMinThreads() {
+        return this.minThreads;
+    }
+
+    @Override
+    public void setMinThreads(int threads) {
+        this.minThreads = threads;
+        if (this.minThreads > this.maxThreads) {
+            this.maxThreads = this.minThreads;
+        }
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return this.maxThreads;
+    }
+
+    /**
+     * 设置最大线程数，工作线程槽在启动时分配，运行期间不能修改
+     *
+     * @param threads 最大线程数
+     */
+    @Override
+    public void setMaxThreads(int threads) {
+        if (isRunning()) {
+            throw new IllegalStateException(getState());
+        }
+
+        if (this.threadPoolBudget != null) {
+            this.threadPoolBudget.check(threads);
+        }
+
+        this.maxThreads = threads;
+        if (this.minThreads > this.maxThreads) {
+            this.minThreads = this.maxThreads;
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        if (isRunning()) {
+            throw new IllegalStateException(getState());
+        }
+
+        this.name = name;
+    }
+
+    public int getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getStopTimeout() {
+        return this.stopTimeout;
+    }
+
+    public void setStopTimeout(long stopTimeout) {
+        this.stopTimeout = stopTimeout;
+    }
+
+    public boolean isDaemon() {
+        return this.daemon;
+    }
+
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    @Override
+    public ThreadPoolBudget getThreadPoolBudget() {
+        return this.threadPoolBudget;
+    }
+
+    public void setThreadPoolBudget(ThreadPoolBudget threadPoolBudget) {
+        if (threadPoolBudget != null && threadPoolBudget.getSizedThreadPool() != this) {
+            throw new IllegalArgumentException();
+        }
+
+        updateBean(this.threadPoolBudget, threadPoolBudget);
+        this.threadPoolBudget = threadPoolBudget;
+    }
+
+    /**
+     * 获取当前线程数
+     *
+     * @return 当前线程数
+     */
+    public int getThreads() {
+        return this.threads.get();
+    }
+
+    /**
+     * 获取空闲线程数
+     *
+     * @return 空闲线程数
+     */
+    public int getIdleThreads() {
+        return this.idleCount.get();
+    }
+
+    /**
+     * 获取等待执行的任务数，包括提交队列和各个工作线程的队列
+     *
+     * @return 等待执行的任务数
+     */
+    public int getQueueSize() {
+        int size = this.queued.get();
+        AtomicReferenceArray<Worker> workers = this.workers;
+        if (workers != null) {
+            for (int i = 0; i < workers.length(); i++) {
+                Worker worker = workers.get(i);
+                if (worker != null) {
+                    size += worker.size.get();
+                }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * 获取窃取的任务数
+     *
+     * @return 窃取的任务数
+     */
+    public long getStealCount() {
+        return this.steals.sum();
+    }
+
+    /**
+     * 获取最近一次停止时未执行的任务
+     *
+     * @return 未执行的任务
+     */
+    public List<Runnable> getUnexecutedJobs() {
+        return this.unexecutedJobs;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (this.maxThreads <= 0) {
+            throw new IllegalStateException("Invalid max threads " + this.maxThreads);
+        }
+
+        this.workers = new AtomicReferenceArray<>(this.maxThreads);
+        this.lastShrink.set(System.nanoTime());
+        this.searching.set(0);
+
+        super.doStart();
+
+        if (this.threadPoolBudget != null) {
+            this.threadPoolBudget.check(getMaxThreads());
+        }
+
+        for (int i = 0; i < this.minThreads; i++) {
+            startWorker();
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        // 有停止超时时间时先排空队列中的任务
+        long timeout = this.stopTimeout;
+        this.draining = timeout > 0;
+
+        AtomicReferenceArray<Worker> workers = this.workers;
+        if (timeout > 0) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+            // 唤醒空闲的工作线程，用一半的停止超时时间执行队列中剩余的任务
+            wakeWorkers(workers, false);
+            joinWorkers(workers, deadline - TimeUnit.MILLISECONDS.toNanos(timeout) / 2);
+            this.draining = false;
+
+            // 中断仍在执行任务的工作线程，用剩余的时间等待退出
+            wakeWorkers(workers, true);
+            joinWorkers(workers, deadline);
+
+            for (int i = 0; i < workers.length(); i++) {
+                Worker worker = workers.get(i);
+                Thread thread = worker == null ? null : worker.thread;
+                if (thread != null && thread != Thread.currentThread() && thread.isAlive()) {
+                    LOG.warn("{} couldn't stop {}", this, thread);
+                }
+            }
+        } else {
+            wakeWorkers(workers, true);
+        }
+
+        this.unexecutedJobs = closeUnexecutedJobs(workers);
+
+        this.idleWorkers.clear();
+        this.idleCount.set(0);
+    }
+
+    /**
+     * 唤醒除当前线程以外的工作线程
+     *
+     * @param workers   工作线程槽
+     * @param interrupt 是否同时中断
+     */
+    private static void wakeWorkers(AtomicReferenceArray<Worker> workers, boolean interrupt) {
+        for (int i = 0; i < workers.length(); i++) {
+            Worker worker = workers.get(i);
+            Thread thread = worker == null ? null : worker.thread;
+            if (thread != null && thread != Thread.currentThread()) {
+                if (interrupt) {
+                    thread.interrupt();
+                }
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * 等待除当前线程以外的工作线程退出
+     *
+     * @param workers  工作线程槽
+     * @param deadline 截止时间戳，{@link System#nanoTime()}
+     * @throws InterruptedException 中断异常
+     */
+    private static void joinWorkers(AtomicReferenceArray<Worker> workers, long deadline) throws InterruptedException {
+        for (int i = 0; i < workers.length(); i++) {
+            Worker worker = workers.get(i);
+            Thread thread = worker == null ? null : worker.thread;
+            if (thread == null || thread == Thread.currentThread()) {
+                continue;
+            }
+
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return;
+            }
+
+            thread.join(remaining);
+        }
+    }
+
+    /**
+     * 取出未执行的任务，可关闭的任务关闭，其余的打印告警
+     *
+     * @param workers 工作线程槽
+     * @return 未执行的任务
+     */
+    private List<Runnable> closeUnexecutedJobs(AtomicReferenceArray<Worker> workers) {
+        List<Runnable> unexecuted = new ArrayList<>();
+        Runnable job;
+        while ((job = pollSubmission()) != null) {
+            unexecuted.add(job);
+        }
+        for (int i = 0; i < workers.length(); i++) {
+            Worker worker = workers.get(i);
+            if (worker != null) {
+                while ((job = worker.poll()) != null) {
+                    unexecuted.add(job);
+                }
+            }
+        }
+
+        for (Runnable unexecutedJob : unexecuted) {
+            if (unexecutedJob instanceof Closeable) {
+                try {
+                    ((Closeable) unexecutedJob).close();
+                } catch (Throwable e) {
+                    LOG.warn("Unable to close {}", unexecutedJob, e);
+                }
+            } else {
+                LOG.warn("Stopped without executing or closing {}", unexecutedJob);
+            }
+        }
+
+        if (!unexecuted.isEmpty()) {
+            LOG.warn("{} stopped with {} unexecuted jobs", this, unexecuted.size());
+        }
+
+        return unexecuted;
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        if (!isRunning()) {
+            throw new RejectedExecutionException(job.toString());
+        }
+
+        Worker worker = this.currentWorker.get();
+        if (worker != null && worker.getPool() == this) {
+            // 池内提交，放入当前工作线程的队列
+            worker.push(job);
+        } else {
+            this.queued.incrementAndGet();
+            this.submissions.offer(job);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("queue {} local={}", job, worker != null);
+        }
+
+        signalWork();
+    }
+
+    /**
+     * 有新任务时，如果没有正在寻找任务的工作线程，唤醒一个空闲工作线程，没有空闲工作线程时开启一个新的。
+     * 正在寻找任务的工作线程在空闲前会再检查一次队列，所以不会遗漏任务
+     */
+    private void signalWork() {
+        if (this.searching.get() > 0) {
+            return;
+        }
+
+        if (!wakeIdleWorker()) {
+            startWorker();
+        }
+    }
+
+    /**
+     * 唤醒最近空闲的工作线程，被唤醒的工作线程计入正在寻找任务的工作线程
+     *
+     * @return 是否唤醒成功，没有空闲工作线程时返回 false
+     */
+    private boolean wakeIdleWorker() {
+        Worker worker;
+        while ((worker = this.idleWorkers.pollFirst()) != null) {
+            worker.stacked.set(false);
+
+            // 先计数，被唤醒的工作线程找到任务后才会减少
+            this.searching.incrementAndGet();
+            if (worker.idle.compareAndSet(true, false)) {
+                this.idleCount.decrementAndGet();
+                LockSupport.unpark(worker.thread);
+                return true;
+            }
+            this.searching.decrementAndGet();
+        }
+
+        return false;
+    }
+
+    /**
+     * 判断是否有等待执行的任务，找到一个即返回
+     *
+     * @return 是否有等待执行的任务
+     */
+    private boolean hasQueuedJobs() {
+        if (this.queued.get() > 0) {
+            return true;
+        }
+
+        AtomicReferenceArray<Worker> workers = this.workers;
+        for (int i = 0; i < workers.length(); i++) {
+            Worker worker = workers.get(i);
+            if (worker != null && worker.size.get() > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 在空闲的槽中开启一个工作线程
+     *
+     * @return 是否开启成功，已达最大线程数时返回 false
+     */
+    private boolean startWorker() {
+        while (true) {
+            int threads = this.threads.get();
+            if (threads >= this.maxThreads) {
+                return false;
+            }
+
+            if (this.threads.compareAndSet(threads, threads + 1)) {
+                break;
+            }
+        }
+
+        // 新开启的工作线程计入正在寻找任务的工作线程
+        this.searching.incrementAndGet();
+
+        AtomicReferenceArray<Worker> workers = this.workers;
+        boolean started = false;
+        try {
+            for (int i = 0; i < workers.length(); i++) {
+                if (workers.get(i) != null) {
+                    continue;
+                }
+
+                Worker worker = new Worker(i);
+                if (workers.compareAndSet(i, null, worker)) {
+                    worker.thread = newThread(worker);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Starting {}", worker.thread);
+                    }
+
+                    // 新线程也要等待一个空闲超时周期后才会被收缩
+                    this.lastShrink.set(System.nanoTime());
+                    try {
+                        worker.thread.start();
+                    } catch (Throwable e) {
+                        workers.set(i, null);
+                        throw e;
+                    }
+                    started = true;
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            if (!started) {
+                this.searching.decrementAndGet();
+                this.threads.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return PrivilegedThreadFactory.newThread(() -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(isDaemon());
+            thread.setName(this.name + "-" + thread.getId());
+            thread.setContextClassLoader(getClass().getClassLoader());
+            return thread;
+        });
+    }
+
+    /**
+     * 取出池外提交的任务
+     *
+     * @return 任务，没有时返回 null
+     */
+    private Runnable pollSubmission() {
+        Runnable job = this.submissions.poll();
+        if (job != null) {
+            this.queued.decrementAndGet();
+        }
+
+        return job;
+    }
+
+    /**
+     * 从随机选择的其他工作线程窃取任务
+     *
+     * @param thief 窃取者
+     * @return 任务，没有可窃取的任务时返回 null
+     */
+    private Runnable trySteal(Worker thief) {
+        AtomicReferenceArray<Worker> workers = this.workers;
+        int length = workers.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            Worker victim = workers.get((start + i) % length);
+            if (victim == null || victim == thief) {
+                continue;
+            }
+
+            Runnable job = victim.steal();
+            if (job != null) {
+                this.steals.increment();
+                return job;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]@%x{%s,%d<=%d<=%d,i=%d,q=%d,s=%d}",
+                getClass().getSimpleName(),
+                this.name,
+                hashCode(),
+                getState(),
+                getMinThreads(),
+                getThreads(),
+                getMaxThreads(),
+                getIdleThreads(),
+                getQueueSize(),
+                getStealCount());
+    }
+
+    /**
+     * 工作线程，拥有自己的任务队列
+     */
+    private class Worker implements Runnable {
+        /**
+         * 槽下标
+         */
+        private final int index;
+
+        /**
+         * 任务队列，所有者从头部存取，窃取者从尾部取
+         */
+        private final Deque<Runnable> deque = new ConcurrentLinkedDeque<>();
+
+        /**
+         * 任务队列长度
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * 是否空闲，唤醒者和工作线程自己都通过 CAS 清除，成功的一方负责减少空闲线程数
+         */
+        private final AtomicBoolean idle = new AtomicBoolean();
+
+        /**
+         * 是否在空闲栈中，避免反复空闲超时时重复入栈
+         */
+        private final AtomicBoolean stacked = new AtomicBoolean();
+
+        /**
+         * 是否计入正在寻找任务的工作线程，只由工作线程自己读写
+         */
+        private boolean searching = true;
+
+        /**
+         * 线程
+         */
+        private volatile Thread thread;
+
+        private Worker(int index) {
+            this.index = index;
+        }
+
+        private WorkStealingThreadPool getPool() {
+            return WorkStealingThreadPool.this;
+        }
+
+        /**
+         * 所有者放入任务
+         *
+         * @param job 任务
+         */
+        private void push(Runnable job) {
+            this.size.incrementAndGet();
+            this.deque.offerFirst(job);
+        }
+
+        /**
+         * 所有者取出最新的任务
+         *
+         * @return 任务
+         */
+        private Runnable poll() {
+            Runnable job = this.deque.pollFirst();
+            if (job != null) {
+                this.size.decrementAndGet();
+            }
+
+            return job;
+        }
+
+        /**
+         * 窃取者取出最早的任务
+         *
+         * @return 任务
+         */
+        private Runnable steal() {
+            if (this.size.get() <= 0) {
+                return null;
+            }
+
+            Runnable job = this.deque.pollLast();
+            if (job != null) {
+                this.size.decrementAndGet();
+            }
+
+            return job;
+        }
+
+        /**
+         * 依次从自己的队列、提交队列和其他工作线程获取任务
+         *
+         * @return 任务，没有时返回 null
+         */
+        private Runnable findJob() {
+            Runnable job = poll();
+            if (job == null) {
+                job = pollSubmission();
+            }
+            if (job == null) {
+                job = trySteal(this);
+            }
+
+            return job;
+        }
+
+        /**
+         * 空闲等待任务
+         *
+         * @return 任务，空闲超时可以退出或者线程池停止时返回 null
+         */
+        private Runnable idleWait() {
+            long idleTimeout = TimeUnit.MILLISECONDS.toNanos(getIdleTimeout());
+            while (isRunning()) {
+                // 先不再寻找任务，再登记为空闲并检查任务，与提交者的入队再检查配合，避免丢失唤醒
+                stopSearching(false);
+                registerIdle();
+                Runnable job = findJob();
+                if (job != null) {
+                    if (!unregisterIdle()) {
+                        // 已被唤醒者认领，唤醒者为自己计了数
+                        this.searching = true;
+                    }
+                    stopSearching(true);
+                    return job;
+                }
+
+                if (idleTimeout > 0) {
+                    LockSupport.parkNanos(this, idleTimeout);
+                } else {
+                    LockSupport.park(this);
+                }
+                Thread.interrupted();
+
+                if (unregisterIdle()) {
+                    // 不是被唤醒者唤醒的
+                    if (idleTimeout > 0 && shrink()) {
+                        return null;
+                    }
+                } else {
+                    this.searching = true;
+                }
+
+                job = findJob();
+                if (job != null) {
+                    stopSearching(true);
+                    return job;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * 登记为空闲，不在空闲栈中时入栈
+         */
+        private void registerIdle() {
+            idleCount.incrementAndGet();
+            this.idle.set(true);
+            if (this.stacked.compareAndSet(false, true)) {
+                idleWorkers.offerFirst(this);
+            }
+        }
+
+        /**
+         * 结束空闲，空闲栈中的记录留给唤醒者跳过
+         *
+         * @return 是否由自己结束，false 表示已被唤醒者认领
+         */
+        private boolean unregisterIdle() {
+            if (this.idle.compareAndSet(true, false)) {
+                idleCount.decrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * 不再寻找任务。最后一个寻找任务的工作线程找到任务时，如果还有排队的任务，
+         * 继续唤醒一个工作线程，避免寻找期间入队而没有唤醒的任务等待
+         *
+         * @param found 是否找到了任务
+         */
+        private void stopSearching(boolean found) {
+            if (!this.searching) {
+                return;
+            }
+
+            this.searching = false;
+            if (WorkStealingThreadPool.this.searching.decrementAndGet() == 0
+                    && found && isRunning() && hasQueuedJobs()) {
+                signalWork();
+            }
+        }
+
+        /**
+         * 判断空闲的工作线程是否可以退出，每个空闲超时周期最多收缩一个线程
+         *
+         * @return 是否退出
+         */
+        private boolean shrink() {
+            if (getThreads() <= getMinThreads()) {
+                return false;
+            }
+
+            long last = lastShrink.get();
+            long now = System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(now - last) > getIdleTimeout()
+                    && lastShrink.compareAndSet(last, now);
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            try {
+                while (isRunning()) {
+                    Runnable job = findJob();
+                    if (job == null) {
+                        job = idleWait();
+                        if (job == null) {
+                            break;
+                        }
+                    } else {
+                        stopSearching(true);
+                    }
+
+                    runJob(job);
+                }
+
+                // 线程池停止时继续执行队列中剩余的任务，直到队列为空或者排空阶段结束
+                while (draining) {
+                    Runnable job = findJob();
+                    if (job == null) {
+                        break;
+                    }
+
+                    runJob(job);
+                }
+            } finally {
+                currentWorker.remove();
+                stopSearching(false);
+                unregisterIdle();
+
+                // 只有所有者会放入任务，退出前把剩余的任务转给提交队列
+                Runnable job;
+                while ((job = poll()) != null) {
+                    queued.incrementAndGet();
+                    submissions.offer(job);
+                }
+
+                workers.compareAndSet(this.index, this, null);
+                threads.decrementAndGet();
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{} exited for {}", this.thread, WorkStealingThreadPool.this);
+                }
+
+                // 收缩的同时可能有任务入队，再次确认是否有线程处理
+                if (isRunning() && getQueueSize() > 0) {
+                    signalWork();
+                }
+            }
+        }
+
+        /**
+         * 执行任务
+         *
+         * @param job 任务
+         */
+        private void runJob(Runnable job) {
+            try {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("run {} in {}", job, WorkStealingThreadPool.this);
+                }
+
+                job.run();
+            } catch (Throwable t) {
+                LOG.warn("Job failed", t);
+            } finally {
+                // 清除任务留下的中断状态
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{index=%d,size=%d,thread=%s}",
+                    getClass().getSimpleName(), hashCode(), this.index, this.size.get(), this.thread);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.pcz.simple.jetty.core.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteBuffer} 工具类
+ * <p>
+ * 缓存默认处于 flush 模式：position 到 limit 之间是有效内容。
+ * 需要写入时通过 {@link #flipToFill(ByteBuffer)} 切换到 fill 模式，
+ * 写入完成后通过 {@link #flipToFlush(ByteBuffer, int)} 切换回 flush 模式。
+ *
+ * @author picongzhi
+ */
+public class BufferUtils {
+    /**
+     * 空缓存
+     */
+    public static final ByteBuffer EMPTY_BUFFER = ByteBuffer.wrap(new byte[0]);
+
+    private BufferUtils() {
+    }
+
+    /**
+     * 分配堆缓存，处于 flush 模式
+     *
+     * @param capacity 容量
+     * @return 缓存
+     */
+    public static ByteBuffer allocate(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.limit(0);
+        return buffer;
+    }
+
+    /**
+     * 分配直接缓存，处于 flush 模式
+     *
+     * @param capacity 容量
+     * @return 缓存
+     */
+    public static ByteBuffer allocateDirect(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        buffer.limit(0);
+        return buffer;
+    }
+
+    /**
+     * 清空缓存，处于 flush 模式
+     *
+     * @param buffer 缓存
+     */
+    public static void clear(ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.position(0);
+            buffer.limit(0);
+        }
+    }
+
+    /**
+     * 清空缓存，处于 fill 模式
+     *
+     * @param buffer 缓存
+     */
+    public static void clearToFill(ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.position(0);
+            buffer.limit(buffer.capacity());
+        }
+    }
+
+    /**
+     * 切换到 fill 模式
+     *
+     * @param buffer 缓存
+     * @return 切换前的 position，用于 {@link #flipToFlush(ByteBuffer, int)}
+     */
+    public static int flipToFill(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        // 没有内容，直接从头开始写
+        if (position == limit) {
+            buffer.position(0);
+            buffer.limit(buffer.capacity());
+            return 0;
+        }
+
+        // 尾部已满，压缩内容
+        int capacity = buffer.capacity();
+        if (limit == capacity) {
+            buffer.compact();
+            return 0;
+        }
+
+        buffer.position(limit);
+        buffer.limit(capacity);
+        return position;
+    }
+
+    /**
+     * 切换到 flush 模式
+     *
+     * @param buffer   缓存
+     * @param position {@link #flipToFill(ByteBuffer)} 返回的 position
+     */
+    public static void flipToFlush(ByteBuffer buffer, int position) {
+        buffer.limit(buffer.position());
+        buffer.position(position);
+    }
+
+    /**
+     * 判断缓存是否为空
+     *
+     * @param buffer 缓存
+     * @return 是否为空
+     */
+    public static boolean isEmpty(ByteBuffer buffer) {
+        return buffer == null || buffer.remaining() == 0;
+    }
+
+    /**
+     * 判断缓存是否有内容
+     *
+     * @param buffer 缓存
+     * @return 是否有内容
+     */
+    public static boolean hasContent(ByteBuffer buffer) {
+        return buffer != null && buffer.remaining() > 0;
+    }
+
+    /**
+     * 判断缓存是否已满
+     *
+     * @param buffer 缓存
+     * @return 是否已满
+     */
+    public static boolean isFull(ByteBuffer buffer) {
+        return buffer != null && buffer.limit() == buffer.capacity();
+    }
+
+    /**
+     * 获取缓存的内容长度
+     *
+     * @param buffer 缓存
+     * @return 内容长度
+     */
+    public static int length(ByteBuffer buffer) {
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    /**
+     * 获取缓存的剩余可写空间
+     *
+     * @param buffer 缓存
+     * @return 剩余可写空间
+     */
+    public static int space(ByteBuffer buffer) {
+        if (buffer == null) {
+            return 0;
+        }
+
+        return buffer.capacity() - buffer.limit();
+    }
+
+    /**
+     * 将 {@code from} 的内容尽可能追加到 {@code to}
+     *
+     * @param to   目标缓存，flush 模式
+     * @param from 源缓存，flush 模式
+     * @return 追加的字节数
+     */
+    public static int append(ByteBuffer to, ByteBuffer from) {
+        int position = flipToFill(to);
+        try {
+            int remaining = from.remaining();
+            if (remaining <= to.remaining()) {
+                to.put(from);
+                return remaining;
+            }
+
+            // 只追加能放下的部分
+            int length = to.remaining();
+            ByteBuffer slice = from.slice();
+            slice.limit(length);
+            to.put(slice);
+            from.position(from.position() + length);
+            return length;
+        } finally {
+            flipToFlush(to, position);
+        }
+    }
+
+    /**
+     * 将字节数组的内容追加到缓存
+     *
+     * @param to     目标缓存，flush 模式
+     * @param bytes  字节数组
+     * @param offset 偏移量
+     * @param length 长度
+     */
+    public static void append(ByteBuffer to, byte[] bytes, int offset, int length) {
+        int position = flipToFill(to);
+        try {
+            to.put(bytes, offset, length);
+        } finally {
+            flipToFlush(to, position);
+        }
+    }
+
+    /**
+     * 将缓存内容转为 ISO-8859-1 字符串，不修改缓存
+     *
+     * @param buffer 缓存
+     * @return 字符串
+     */
+    public static String toString(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.slice().get(bytes);
+
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i] = (char) (bytes[i] & 0xFF);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * 缓存的简要描述
+     *
+     * @param buffer 缓存
+     * @return 简要描述
+     */
+    public static String toDetailString(ByteBuffer buffer) {
+        if (buffer == null) {
+            return "null";
+        }
+
+        return String.format("%s@%x[p=%d,l=%d,c=%d,r=%d]",
+                buffer.getClass().getSimpleName(),
+                System.identityHashCode(buffer),
+                buffer.position(),
+                buffer.limit(),
+                buffer.capacity(),
+                buffer.remaining());
+    }
+}
@@ -6,4 +6,5 @@ module simple.jetty.core {
     exports com.pcz.simple.jetty.core.component;
     exports com.pcz.simple.jetty.core.io;
     exports com.pcz.simple.jetty.core.util;
+    exports com.pcz.simple.jetty.core.statistic;
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.pcz.simple.jetty.core;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AtomicBiIntegerTest {
+    @Test
+    public void should_encode_negative_halves_independently() {
+        long encoded = AtomicBiInteger.encode(-1, -2);
+
+        Assertions.assertThat(AtomicBiInteger.getHi(encoded)).isEqualTo(-1);
+        Assertions.assertThat(AtomicBiInteger.getLo(encoded)).isEqualTo(-2);
+
+        encoded = AtomicBiInteger.encode(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        Assertions.assertThat(AtomicBiInteger.getHi(encoded)).isEqualTo(Integer.MIN_VALUE);
+        Assertions.assertThat(AtomicBiInteger.getLo(encoded)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void should_not_carry_lo_overflow_into_hi() {
+        long encoded = AtomicBiInteger.encode(AtomicBiInteger.encode(5, -1), 0, 1);
+        Assertions.assertThat(AtomicBiInteger.getHi(encoded)).isEqualTo(5);
+        Assertions.assertThat(AtomicBiInteger.getLo(encoded)).isEqualTo(0);
+
+        encoded = AtomicBiInteger.encode(AtomicBiInteger.encode(5, 0), 0, -1);
+        Assertions.assertThat(AtomicBiInteger.getHi(encoded)).isEqualTo(5);
+        Assertions.assertThat(AtomicBiInteger.getLo(encoded)).isEqualTo(-1);
+    }
+
+    @Test
+    public void should_replace_one_half_and_keep_the_other() {
+        long encoded = AtomicBiInteger.encode(-3, -4);
+
+        long hi = AtomicBiInteger.encodeHi(encoded, 7);
+        Assertions.assertThat(AtomicBiInteger.getHi(hi)).isEqualTo(7);
+        Assertions.assertThat(AtomicBiInteger.getLo(hi)).isEqualTo(-4);
+
+        long lo = AtomicBiInteger.encodeLo(encoded, 8);
+        Assertions.assertThat(AtomicBiInteger.getHi(lo)).isEqualTo(-3);
+        Assertions.assertThat(AtomicBiInteger.getLo(lo)).isEqualTo(8);
+    }
+
+    @Test
+    public void should_update_halves() {
+        AtomicBiInteger value = new AtomicBiInteger(1, -1);
+
+        Assertions.assertThat(value.addAndGetHi(2)).isEqualTo(3);
+        Assertions.assertThat(value.addAndGetLo(-2)).isEqualTo(-3);
+        value.add(-4, 4);
+        Assertions.assertThat(value.getHi()).isEqualTo(-1);
+        Assertions.assertThat(value.getLo()).isEqualTo(1);
+
+        Assertions.assertThat(value.getAndSetHi(10)).isEqualTo(-1);
+        Assertions.assertThat(value.getAndSetLo(20)).isEqualTo(1);
+        Assertions.assertThat(value.toString()).isEqualTo("10|20");
+    }
+
+    @Test
+    public void should_compare_and_set_both_halves() {
+        AtomicBiInteger value = new AtomicBiInteger(1, 2);
+
+        Assertions.assertThat(value.compareAndSet(1, 3, 0, 4)).isFalse();
+        Assertions.assertThat(value.compareAndSet(1, 3, 2, 4)).isTrue();
+        Assertions.assertThat(value.compareAndSet(AtomicBiInteger.encode(3, 5), 6, 7)).isFalse();
+        Assertions.assertThat(value.compareAndSet(value.get(), 6, 7)).isTrue();
+
+        Assertions.assertThat(value.getHi()).isEqualTo(6);
+        Assertions.assertThat(value.getLo()).isEqualTo(7);
+    }
+
+    @Test
+    public void should_keep_halves_consistent_under_concurrent_add() throws Exception {
+        AtomicBiInteger value = new AtomicBiInteger.Padded(0, 0);
+        int threads = 4;
+        int iterations = 100_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                for (int j = 0; j < iterations; j++) {
+                    value.add(1, -1);
+                    value.addAndGetHi(1);
+                    value.addAndGetLo(-1);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assertions.assertThat(value.getHi()).isEqualTo(2 * threads * iterations);
+        Assertions.assertThat(value.getLo()).isEqualTo(-2 * threads * iterations);
+    }
+}
@@ -0,0 +1,111 @@
+package com.pcz.simple.jetty.core;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ProcessorUtilsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void should_reject_configured_processors_less_than_one() {
+        String previous = System.getProperty(ProcessorUtils.AVAILABLE_PROCESSORS);
+        try {
+            System.setProperty(ProcessorUtils.AVAILABLE_PROCESSORS, "0");
+            Assertions.assertThat(ProcessorUtils.configuredProcessors()).isNull();
+
+            System.setProperty(ProcessorUtils.AVAILABLE_PROCESSORS, "-2");
+            Assertions.assertThat(ProcessorUtils.configuredProcessors()).isNull();
+
+            System.setProperty(ProcessorUtils.AVAILABLE_PROCESSORS, " 3 ");
+            Assertions.assertThat(ProcessorUtils.configuredProcessors()).isEqualTo(3);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(ProcessorUtils.AVAILABLE_PROCESSORS);
+            } else {
+                System.setProperty(ProcessorUtils.AVAILABLE_PROCESSORS, previous);
+            }
+        }
+    }
+
+    @Test
+    public void should_take_smallest_quota_along_own_cgroup_v2_path() throws IOException {
+        Path root = this.dir.resolve("cgroup");
+        write(root.resolve("a/cpu.max"), "150000 100000");
+        write(root.resolve("a/b/cpu.max"), "max 100000");
+        write(root.resolve("other/cpu.max"), "50000 100000");
+        Path self = write(this.dir.resolve("self"), "0::/a/b\n");
+
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(1.5);
+    }
+
+    @Test
+    public void should_fall_back_to_mount_when_own_cgroup_is_not_visible() throws IOException {
+        Path root = this.dir.resolve("cgroup");
+        write(root.resolve("cpu.max"), "200000 100000");
+        write(root.resolve("cpuset.cpus.effective"), "0-7");
+        Path self = write(this.dir.resolve("self"), "0::/docker/abc\n");
+
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(2.0);
+    }
+
+    @Test
+    public void should_not_escape_mount() throws IOException {
+        Path root = this.dir.resolve("cgroup");
+        write(root.resolve("cpu.max"), "max 100000");
+        write(this.dir.resolve("cpu.max"), "100000 100000");
+        Path self = write(this.dir.resolve("self"), "0::/..\n");
+
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void should_read_own_cpuset_in_cgroup_v2() throws IOException {
+        Path root = this.dir.resolve("cgroup");
+        write(root.resolve("cpuset.cpus.effective"), "0-15");
+        write(root.resolve("pod/cpuset.cpus.effective"), "2-3");
+        Path self = write(this.dir.resolve("self"), "0::/pod\n");
+
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(2.0);
+    }
+
+    @Test
+    public void should_read_own_cgroup_v1_controllers() throws IOException {
+        Path root = this.dir.resolve("cgroup");
+        write(root.resolve("cpu/kubepods/pod/cpu.cfs_quota_us"), "250000");
+        write(root.resolve("cpu/kubepods/pod/cpu.cfs_period_us"), "100000");
+        write(root.resolve("cpu/kubepods/cpu.cfs_quota_us"), "-1");
+        write(root.resolve("cpu/kubepods/cpu.cfs_period_us"), "100000");
+        write(root.resolve("cpuset/kubepods/pod/cpuset.cpus"), "0-1");
+        Path self = write(this.dir.resolve("self"),
+                "4:cpu,cpuacct:/kubepods/pod\n3:cpuset:/kubepods/pod\n1:name=systemd:/\n");
+
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(2.0);
+
+        write(root.resolve("cpuset/kubepods/pod/cpuset.cpus"), "0-7");
+        Assertions.assertThat(ProcessorUtils.cgroupCpuLimit(root, self)).isEqualTo(2.5);
+    }
+
+    @Test
+    public void should_parse_cgroup_paths() {
+        String cgroups = "12:cpu,cpuacct:/a\n3:cpuset:/b\n0::/c\n";
+
+        Assertions.assertThat(ProcessorUtils.cgroupPath(cgroups, "cpu")).isEqualTo("/a");
+        Assertions.assertThat(ProcessorUtils.cgroupPath(cgroups, "cpuacct")).isEqualTo("/a");
+        Assertions.assertThat(ProcessorUtils.cgroupPath(cgroups, "cpuset")).isEqualTo("/b");
+        Assertions.assertThat(ProcessorUtils.cgroupPath(cgroups, "")).isEqualTo("/c");
+        Assertions.assertThat(ProcessorUtils.cgroupPath(cgroups, "memory")).isNull();
+    }
+
+    private static Path write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+}
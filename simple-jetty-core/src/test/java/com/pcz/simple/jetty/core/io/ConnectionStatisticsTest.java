@@ -0,0 +1,81 @@
+package com.pcz.simple.jetty.core.io;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionStatisticsTest {
+    @Test
+    public void should_not_count_connection_opened_before_start() throws Exception {
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        EndPoint before = newEndPoint(1, 1);
+        statistics.onOpened(before);
+
+        statistics.start();
+        EndPoint after = newEndPoint(1, 1);
+        statistics.onOpened(after);
+        statistics.onClosed(before);
+
+        Assertions.assertThat(statistics.getConnections()).isEqualTo(1);
+        Assertions.assertThat(statistics.getConnectionsClosed()).isEqualTo(0);
+        Assertions.assertThat(statistics.getMessagesIn()).isEqualTo(0);
+
+        statistics.onClosed(after);
+        Assertions.assertThat(statistics.getConnections()).isEqualTo(0);
+        Assertions.assertThat(statistics.getConnectionsClosed()).isEqualTo(1);
+        Assertions.assertThat(statistics.getMessagesIn()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_keep_counting_open_connections_across_restart() throws Exception {
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        statistics.start();
+        EndPoint endPoint = newEndPoint(1, 1);
+        statistics.onOpened(endPoint);
+
+        statistics.stop();
+        statistics.start();
+        Assertions.assertThat(statistics.getConnections()).isEqualTo(1);
+
+        statistics.onClosed(endPoint);
+        Assertions.assertThat(statistics.getConnections()).isEqualTo(0);
+        Assertions.assertThat(statistics.getMessagesIn()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_record_messages_per_connection() throws Exception {
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        statistics.start();
+        for (int i = 1; i <= 100; i++) {
+            EndPoint endPoint = newEndPoint(i, 2 * i);
+            statistics.onOpened(endPoint);
+            statistics.onClosed(endPoint);
+        }
+
+        Assertions.assertThat(statistics.getMessagesOut()).isEqualTo(10100);
+        Assertions.assertThat(statistics.getMessagesOutPerConnectionMax()).isEqualTo(200);
+        Assertions.assertThat(statistics.getMessagesOutPerConnectionPercentile(50))
+                .isGreaterThan(statistics.getMessagesInPerConnectionPercentile(50));
+        Assertions.assertThat(statistics.getMessagesOutPerConnectionPercentile(100))
+                .isGreaterThan(statistics.getMessagesOutPerConnectionPercentile(50));
+    }
+
+    private static EndPoint newEndPoint(long messagesIn, long messagesOut) {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(null);
+        endPoint.setConnection(new AbstractConnection(endPoint, Runnable::run) {
+            @Override
+            public void onFillable() {
+            }
+
+            @Override
+            public long getMessagesIn() {
+                return messagesIn;
+            }
+
+            @Override
+            public long getMessagesOut() {
+                return messagesOut;
+            }
+        });
+        return endPoint;
+    }
+}
@@ -0,0 +1,70 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateStatisticTest {
+    private static final long SLOT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RateStatistic statistic = new RateStatistic(10, TimeUnit.MILLISECONDS, 10);
+
+    @Test
+    public void should_count_within_window() {
+        long now = 1000 * SLOT;
+        this.statistic.add(5, now);
+        this.statistic.add(3, now + SLOT);
+        this.statistic.add(4, now + SLOT);
+
+        Assertions.assertThat(this.statistic.getCount(now + 2 * SLOT)).isEqualTo(12);
+        Assertions.assertThat(this.statistic.getCount(now + 10 * SLOT)).isEqualTo(7);
+        Assertions.assertThat(this.statistic.getCount(now + 11 * SLOT)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_restart_count_in_reused_slot() {
+        long now = 1000 * SLOT;
+        this.statistic.add(9, now);
+
+        // 一个窗口之后落在同一个槽
+        this.statistic.add(1, now + 10 * SLOT);
+
+        Assertions.assertThat(this.statistic.getCount(now + 10 * SLOT)).isEqualTo(1);
+    }
+
+    @Test
+    public void should_count_across_zero_nano_time() {
+        this.statistic.add(2, -SLOT / 2);
+        this.statistic.add(3, SLOT / 2);
+
+        Assertions.assertThat(this.statistic.getCount(SLOT / 2)).isEqualTo(5);
+        Assertions.assertThat(this.statistic.getCount(9 * SLOT + SLOT / 2)).isEqualTo(3);
+    }
+
+    @Test
+    public void should_count_across_tag_wraparound() {
+        // 时间片编号只保留低 24 位
+        long last = ((1L << 24) - 1) * SLOT;
+        this.statistic.add(8, last);
+        this.statistic.add(2, last + SLOT);
+
+        Assertions.assertThat(this.statistic.getCount(last + SLOT)).isEqualTo(10);
+        Assertions.assertThat(this.statistic.getCount(last + 10 * SLOT)).isEqualTo(2);
+        Assertions.assertThat(this.statistic.getCount(last + 11 * SLOT)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_compute_rate_over_window() {
+        RateStatistic statistic = new RateStatistic(1, TimeUnit.MINUTES, 60);
+        statistic.add(120);
+        statistic.add(0);
+        statistic.add(-5);
+
+        Assertions.assertThat(statistic.getRate(TimeUnit.MINUTES)).isEqualTo(120.0);
+        Assertions.assertThat(statistic.getRate(TimeUnit.SECONDS)).isEqualTo(2.0);
+
+        statistic.reset();
+        Assertions.assertThat(statistic.getCount()).isEqualTo(0);
+    }
+}
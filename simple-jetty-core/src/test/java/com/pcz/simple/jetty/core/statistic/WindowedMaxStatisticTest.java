@@ -0,0 +1,69 @@
+package com.pcz.simple.jetty.core.statistic;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class WindowedMaxStatisticTest {
+    private static final long SLOT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final WindowedMaxStatistic statistic = new WindowedMaxStatistic(10, TimeUnit.MILLISECONDS, 10);
+
+    @Test
+    public void should_keep_max_within_window() {
+        long now = 1000 * SLOT;
+        this.statistic.record(5, now);
+        this.statistic.record(3, now + SLOT);
+        this.statistic.record(4, now + SLOT);
+
+        Assertions.assertThat(this.statistic.getMax(now + 2 * SLOT)).isEqualTo(5);
+        Assertions.assertThat(this.statistic.getMax(now + 10 * SLOT)).isEqualTo(4);
+        Assertions.assertThat(this.statistic.getMax(now + 11 * SLOT)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_replace_expired_value_in_reused_slot() {
+        long now = 1000 * SLOT;
+        this.statistic.record(9, now);
+
+        // 一个窗口之后落在同一个槽
+        this.statistic.record(1, now + 10 * SLOT);
+
+        Assertions.assertThat(this.statistic.getMax(now + 10 * SLOT)).isEqualTo(1);
+    }
+
+    @Test
+    public void should_expire_across_zero_nano_time() {
+        // floorDiv 时位于第 -10 个时间片，截断除法会错算为第 -9 个
+        this.statistic.record(7, -9 * SLOT - SLOT / 2);
+
+        Assertions.assertThat(this.statistic.getMax(-SLOT / 2)).isEqualTo(7);
+        Assertions.assertThat(this.statistic.getMax(SLOT / 2)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_keep_max_across_tag_wraparound() {
+        // 时间片编号只保留低 24 位
+        long last = ((1L << 24) - 1) * SLOT;
+        this.statistic.record(8, last);
+        this.statistic.record(2, last + SLOT);
+
+        Assertions.assertThat(this.statistic.getMax(last + SLOT)).isEqualTo(8);
+        Assertions.assertThat(this.statistic.getMax(last + 10 * SLOT)).isEqualTo(2);
+        Assertions.assertThat(this.statistic.getMax(last + 11 * SLOT)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_ignore_negative_and_cap_large_values() {
+        long now = 1000 * SLOT;
+        this.statistic.record(-1, now);
+        Assertions.assertThat(this.statistic.getMax(now)).isEqualTo(0);
+
+        this.statistic.record(Long.MAX_VALUE, now);
+        Assertions.assertThat(this.statistic.getMax(now)).isEqualTo((1L << 40) - 1);
+
+        this.statistic.reset();
+        Assertions.assertThat(this.statistic.getMax(now)).isEqualTo(0);
+    }
+}
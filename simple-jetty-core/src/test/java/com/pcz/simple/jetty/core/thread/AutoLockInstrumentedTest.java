@@ -0,0 +1,101 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 需要开启 {@link AutoLock#INSTRUMENTED_PROPERTY} 并把 {@link AutoLock#SAMPLE_RATE_PROPERTY} 设置为 1，
+ * 由单独的 surefire execution 运行
+ */
+public class AutoLockInstrumentedTest {
+    @BeforeAll
+    public static void beforeAll() {
+        Assumptions.assumeTrue(AutoLock.INSTRUMENTED, "requires -D" + AutoLock.INSTRUMENTED_PROPERTY + "=true");
+    }
+
+    @Test
+    public void should_count_uncontended_acquisitions_and_sample_hold_time() {
+        AutoLock lock = new AutoLock("uncontended");
+        for (int i = 0; i < 10; i++) {
+            try (AutoLock l = lock.lock()) {
+                // 重入时只计数，不重新采样
+                try (AutoLock r = lock.lock()) {
+                    Assertions.assertThat(r.isHeldByCurrentThread()).isTrue();
+                }
+            }
+        }
+
+        LockStatistics statistics = LockStatistics.of("uncontended");
+        Assertions.assertThat(statistics.getUncontended()).isEqualTo(20);
+        Assertions.assertThat(statistics.getContended()).isEqualTo(0);
+        Assertions.assertThat(statistics.getContentionRatio()).isEqualTo(0);
+        Assertions.assertThat(statistics.getHoldTime().getCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void should_record_wait_time_when_contended() throws Exception {
+        AutoLock lock = new AutoLock("contended");
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter;
+        try (AutoLock l = lock.lock()) {
+            waiter = new Thread(() -> {
+                try (AutoLock w = lock.lock()) {
+                    acquired.countDown();
+                }
+            });
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (waiter.getState() != Thread.State.WAITING) {
+                Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+                Thread.sleep(1);
+            }
+            Thread.sleep(20);
+        }
+        Assertions.assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+
+        LockStatistics statistics = LockStatistics.of("contended");
+        Assertions.assertThat(statistics.getContended()).isEqualTo(1);
+        Assertions.assertThat(statistics.getUncontended()).isEqualTo(1);
+        Assertions.assertThat(statistics.getContentionRatio()).isEqualTo(0.5);
+        Assertions.assertThat(statistics.getWaitTime().getMax()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        Assertions.assertThat(LockStatistics.getWorstOffenders(Integer.MAX_VALUE)).contains(statistics);
+        Assertions.assertThat(LockStatistics.dump(Integer.MAX_VALUE)).contains("contended{contended=1/2");
+    }
+
+    @Test
+    public void should_not_sample_hold_time_across_condition_await() throws Exception {
+        AutoLock.WithCondition lock = new AutoLock.WithCondition("condition");
+        try (AutoLock.WithCondition l = lock.lock()) {
+            l.await(10, TimeUnit.MILLISECONDS);
+        }
+
+        LockStatistics statistics = LockStatistics.of("condition");
+        Assertions.assertThat(statistics.getUncontended()).isEqualTo(1);
+        Assertions.assertThat(statistics.getHoldTime().getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_share_statistics_by_name_and_default_to_creation_site() {
+        AutoLock first = new AutoLock("shared");
+        AutoLock second = new AutoLock("shared");
+        first.lock().close();
+        second.lock().close();
+        Assertions.assertThat(LockStatistics.of("shared").getUncontended()).isEqualTo(2);
+
+        AutoLock unnamed = new AutoLock();
+        unnamed.lock().close();
+        Assertions.assertThat(LockStatistics.getAll())
+                .filteredOn(statistics -> statistics.getName().startsWith(getClass().getName() + ":"))
+                .hasSize(1)
+                .allSatisfy(statistics -> Assertions.assertThat(statistics.getUncontended()).isEqualTo(1));
+
+        LockStatistics.of("shared").reset();
+        Assertions.assertThat(LockStatistics.of("shared").getUncontended()).isEqualTo(0);
+    }
+}
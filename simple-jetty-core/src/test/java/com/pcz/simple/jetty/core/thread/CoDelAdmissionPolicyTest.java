@@ -0,0 +1,177 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class CoDelAdmissionPolicyTest {
+    @Test
+    public void should_enter_overload_after_a_full_interval_above_target() {
+        CoDelAdmissionPolicy policy = new CoDelAdmissionPolicy(5, 100, TimeUnit.MILLISECONDS);
+        long now = System.nanoTime();
+        long sojourn = TimeUnit.MILLISECONDS.toNanos(10);
+
+        policy.onDequeued(sojourn, now);
+        Assertions.assertThat(policy.isOverloaded()).isFalse();
+
+        policy.onDequeued(sojourn, now + TimeUnit.MILLISECONDS.toNanos(50));
+        Assertions.assertThat(policy.isOverloaded()).isFalse();
+
+        policy.onDequeued(sojourn, now + TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertThat(policy.isOverloaded()).isTrue();
+        Assertions.assertThat(policy.getOverloadCount()).isEqualTo(1);
+
+        policy.onDequeued(0, now + TimeUnit.MILLISECONDS.toNanos(101));
+        Assertions.assertThat(policy.isOverloaded()).isFalse();
+    }
+
+    @Test
+    public void should_admit_critical_and_long_lived_tasks_when_overloaded() {
+        CoDelAdmissionPolicy policy = overloaded();
+        CriticalTask critical = () -> {
+        };
+        LongLivedTask longLived = () -> {
+        };
+
+        Assertions.assertThat(policy.admit(() -> {
+        }, 10)).isFalse();
+        Assertions.assertThat(policy.admit(critical, 10)).isTrue();
+        Assertions.assertThat(policy.admit(longLived, 10)).isTrue();
+        Assertions.assertThat(policy.isOverloaded()).isTrue();
+    }
+
+    @Test
+    public void should_clear_overload_when_queue_is_empty() {
+        CoDelAdmissionPolicy policy = overloaded();
+
+        Assertions.assertThat(policy.admit(() -> {
+        }, 0)).isTrue();
+        Assertions.assertThat(policy.isOverloaded()).isFalse();
+    }
+
+    @Test
+    public void should_shed_to_fallback_or_reject() {
+        CoDelAdmissionPolicy policy = overloaded();
+        Runnable job = () -> {
+        };
+
+        Assertions.assertThatThrownBy(() -> policy.shed(job))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        List<Runnable> fallen = new CopyOnWriteArrayList<>();
+        policy.setFallback(fallen::add);
+        policy.shed(job);
+
+        Assertions.assertThat(fallen).containsExactly(job);
+        Assertions.assertThat(policy.getShedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_start_reserved_thread_when_overloaded_with_fallback() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(2, 2);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(pool, 1);
+        try {
+            saturate(pool, release);
+
+            List<Runnable> fallen = new CopyOnWriteArrayList<>();
+            CoDelAdmissionPolicy policy = overloaded();
+            policy.setFallback(fallen::add);
+            pool.setAdmissionPolicy(policy);
+
+            reserved.start();
+            Assertions.assertThat(reserved.tryExecute(() -> {
+            })).isFalse();
+
+            Assertions.assertThat(fallen).isEmpty();
+            Assertions.assertThat(reserved.getPending()).isEqualTo(1);
+
+            release.countDown();
+            await(() -> reserved.getAvailable() == 1);
+            Assertions.assertThat(reserved.getPending()).isEqualTo(0);
+        } finally {
+            release.countDown();
+            reserved.stop();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_keep_probing_when_overloaded_with_fallback() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(2, 2);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        QueuedThreadPoolAutoScaler scaler = new QueuedThreadPoolAutoScaler(pool);
+        scaler.setSamplePeriod(10, TimeUnit.MILLISECONDS);
+        try {
+            saturate(pool, release);
+
+            List<Runnable> fallen = new CopyOnWriteArrayList<>();
+            CoDelAdmissionPolicy policy = overloaded();
+            policy.setFallback(fallen::add);
+            pool.setAdmissionPolicy(policy);
+
+            scaler.start();
+            Thread.sleep(100);
+            Assertions.assertThat(fallen).isEmpty();
+            Assertions.assertThat(scaler.getQueueDelay(TimeUnit.MILLISECONDS)).isEqualTo(0);
+
+            release.countDown();
+            await(() -> scaler.getQueueDelayStats().getCount() > 0);
+            // 后续的探测可能已经覆盖了最近一次时延，使用最大值判断被阻塞的探测
+            Assertions.assertThat(scaler.getQueueDelayStats().getMax()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        } finally {
+            release.countDown();
+            scaler.stop();
+            pool.stop();
+        }
+    }
+
+    /**
+     * 让线程池的所有线程阻塞，并留下一个排队的任务，使过载状态不会因队列为空而解除
+     */
+    private static void saturate(QueuedThreadPool pool, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(pool.getMaxThreads());
+        for (int i = 0; i < pool.getMaxThreads(); i++) {
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        pool.execute(() -> {
+        });
+        Assertions.assertThat(pool.getQueueSize()).isEqualTo(1);
+    }
+
+    private static CoDelAdmissionPolicy overloaded() {
+        CoDelAdmissionPolicy policy = new CoDelAdmissionPolicy(5, 100, TimeUnit.MILLISECONDS);
+        long now = System.nanoTime();
+        long sojourn = TimeUnit.MILLISECONDS.toNanos(10);
+        policy.onDequeued(sojourn, now);
+        policy.onDequeued(sojourn, now + TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertThat(policy.isOverloaded()).isTrue();
+        return policy;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class QueuedThreadPoolAutoScalerTest {
+    private QueuedThreadPool pool;
+
+    private QueuedThreadPoolAutoScaler scaler;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void before() throws Exception {
+        this.pool = new QueuedThreadPool(8, 1);
+        this.pool.setReservedThreads(0);
+        this.pool.setIdleTimeout(20);
+        this.pool.start();
+        this.scaler = new QueuedThreadPoolAutoScaler(this.pool);
+        this.scaler.setSamplePeriod(5, TimeUnit.MILLISECONDS);
+        this.scaler.setTargetQueueDelay(5, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        this.release.countDown();
+        this.scaler.stop();
+        this.pool.stop();
+    }
+
+    @Test
+    public void should_hold_when_queue_delay_is_low() throws Exception {
+        // 目标时延远大于调度抖动
+        this.scaler.setTargetQueueDelay(1, TimeUnit.SECONDS);
+        this.scaler.start();
+
+        await(() -> this.scaler.getQueueDelayStats().getCount() >= 5);
+
+        Assertions.assertThat(this.scaler.getGrowCount()).isEqualTo(0);
+        Assertions.assertThat(this.scaler.getTargetThreads()).isEqualTo(1);
+        Assertions.assertThat(this.pool.getMinThreads()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_grow_while_probe_is_stuck_and_shrink_after_release() throws Exception {
+        saturate();
+        this.scaler.start();
+
+        // 探测任务排在阻塞的任务之后，已等待的时间超过目标后逐步扩容到最大线程数
+        // 目标线程数先于线程池的最小线程数更新
+        await(() -> this.pool.getMinThreads() == this.pool.getMaxThreads());
+        Assertions.assertThat(this.scaler.getTargetThreads()).isEqualTo(this.pool.getMaxThreads());
+        Assertions.assertThat(this.scaler.getGrowCount()).isGreaterThan(0);
+
+        this.release.countDown();
+        await(() -> this.scaler.getTargetThreads() == 1);
+        Assertions.assertThat(this.scaler.getShrinkCount()).isEqualTo(this.pool.getMaxThreads() - 1);
+        Assertions.assertThat(this.scaler.getQueueDelayStats().getMax())
+                .isGreaterThan(TimeUnit.MILLISECONDS.toNanos(5));
+        await(() -> this.pool.getThreads() == 1);
+    }
+
+    @Test
+    public void should_restore_min_threads_when_stopped() throws Exception {
+        saturate();
+        this.scaler.start();
+        await(() -> this.scaler.getGrowCount() > 0);
+        Assertions.assertThat(this.pool.getMinThreads()).isGreaterThan(1);
+
+        this.scaler.stop();
+
+        Assertions.assertThat(this.pool.getMinThreads()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_reject_invalid_settings() {
+        Assertions.assertThatThrownBy(() -> this.scaler.setTargetQueueDelay(0, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> this.scaler.setSamplePeriod(-1, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 让线程池的所有线程阻塞，之后的任务都要排队
+     */
+    private void saturate() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(this.pool.getMaxThreads());
+        for (int i = 0; i < this.pool.getMaxThreads(); i++) {
+            this.pool.execute(() -> {
+                started.countDown();
+                try {
+                    this.release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.pcz.simple.jetty.core.thread;
+
+import com.pcz.simple.jetty.core.BlockingArrayQueue;
+import com.pcz.simple.jetty.core.component.AbstractLifeCycle;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+public class QueuedThreadPoolTest {
+    @Test
+    public void should_join_until_stopped() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setReservedThreads(0);
+        pool.start();
+
+        // 停止时排空正在执行的任务，使线程池在 STOPPING 状态停留一段时间
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> {
+            started.countDown();
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        });
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<String> joinedState = new AtomicReference<>();
+        Thread joiner = new Thread(() -> {
+            try {
+                pool.join();
+                joinedState.set(pool.getState());
+            } catch (InterruptedException ignored) {
+            }
+        });
+        joiner.start();
+
+        Thread.sleep(50);
+        Assertions.assertThat(joiner.isAlive()).isTrue();
+
+        pool.stop();
+        joiner.join(5000);
+
+        Assertions.assertThat(joiner.isAlive()).isFalse();
+        Assertions.assertThat(joinedState.get()).isEqualTo(AbstractLifeCycle.STOPPED);
+    }
+
+    @Test
+    public void should_start_thread_only_when_no_idle_thread() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            await(() -> pool.getIdleThreads() == 1);
+            Assertions.assertThat(pool.getThreads()).isEqualTo(1);
+
+            // 空闲线程取走任务，不开启新线程
+            CountDownLatch first = new CountDownLatch(1);
+            pool.execute(() -> {
+                first.countDown();
+                await(release);
+            });
+            Assertions.assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(pool.getThreads()).isEqualTo(1);
+            Assertions.assertThat(pool.getIdleThreads()).isEqualTo(0);
+
+            // 没有空闲线程时开启新线程
+            CountDownLatch second = new CountDownLatch(1);
+            pool.execute(() -> {
+                second.countDown();
+                await(release);
+            });
+            Assertions.assertThat(second.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(pool.getThreads()).isEqualTo(2);
+            Assertions.assertThat(pool.getQueueSize()).isEqualTo(0);
+
+            release.countDown();
+            await(() -> pool.getIdleThreads() == 2);
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_queue_jobs_when_all_threads_busy() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(2, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    await(release);
+                });
+            }
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            AtomicInteger ran = new AtomicInteger();
+            for (int i = 0; i < 3; i++) {
+                pool.execute(ran::incrementAndGet);
+            }
+            Assertions.assertThat(pool.getThreads()).isEqualTo(2);
+            Assertions.assertThat(pool.getQueueSize()).isEqualTo(3);
+            Assertions.assertThat(pool.getIdleThreads()).isEqualTo(0);
+
+            release.countDown();
+            await(() -> ran.get() == 3);
+            await(() -> pool.getIdleThreads() == 2);
+            Assertions.assertThat(pool.getQueueSize()).isEqualTo(0);
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_shrink_one_thread_per_idle_timeout_to_min() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 1, 50);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(4);
+            for (int i = 0; i < 4; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    await(release);
+                });
+            }
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(pool.getThreads()).isEqualTo(4);
+
+            long begin = System.nanoTime();
+            release.countDown();
+            await(() -> pool.getThreads() == 1);
+
+            // 每个空闲超时周期最多收缩一个线程
+            Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)).isGreaterThanOrEqualTo(100);
+            Assertions.assertThat(pool.getIdleThreads()).isEqualTo(1);
+
+            CountDownLatch ran = new CountDownLatch(1);
+            pool.execute(ran::countDown);
+            Assertions.assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_keep_counts_consistent_under_concurrent_execute() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(8, 2, 20);
+        pool.setReservedThreads(0);
+        pool.start();
+        try {
+            int submitters = 8;
+            int jobs = 2000;
+            AtomicInteger ran = new AtomicInteger();
+            List<Thread> threads = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < submitters; i++) {
+                Thread thread = new Thread(() -> {
+                    for (int j = 0; j < jobs; j++) {
+                        pool.execute(ran::incrementAndGet);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join(5000);
+            }
+
+            await(() -> ran.get() == submitters * jobs);
+            await(() -> pool.getIdleThreads() == pool.getThreads());
+            Assertions.assertThat(pool.getQueueSize()).isEqualTo(0);
+            Assertions.assertThat(pool.getThreads()).isBetween(2, 8);
+
+            // 空闲后收缩到最小线程数
+            await(() -> pool.getThreads() == 2);
+            Assertions.assertThat(pool.getIdleThreads()).isEqualTo(2);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_apply_admission_policy_and_statistics_to_blocking_jobs() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setReservedThreads(0);
+        pool.setVirtualThreadsExecutor(executor);
+        pool.setMaxVirtualThreadsTasks(1);
+        pool.setStatisticsEnabled(true);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            pool.executeBlocking(() -> {
+                started.countDown();
+                await(release);
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            AtomicInteger ran = new AtomicInteger();
+            pool.executeBlocking(ran::incrementAndGet);
+            Assertions.assertThat(pool.getPendingBlockingJobs()).isEqualTo(1);
+
+            List<Runnable> fallen = new CopyOnWriteArrayList<>();
+            CoDelAdmissionPolicy policy = overloaded();
+            policy.setFallback(fallen::add);
+            pool.setAdmissionPolicy(policy);
+
+            Runnable shed = ran::incrementAndGet;
+            pool.executeBlocking(shed);
+            Assertions.assertThat(fallen).containsExactly(shed);
+            Assertions.assertThat(pool.getStatistics().getRejected()).isEqualTo(1);
+
+            release.countDown();
+            await(() -> ran.get() == 1 && pool.getStatistics().getRunTime().getCount() == 2);
+            Assertions.assertThat(pool.getStatistics().getQueueWait().getCount()).isEqualTo(2);
+            Assertions.assertThat(pool.getStatistics().getMaxQueueSize()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            pool.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_watch_blocking_jobs() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setReservedThreads(0);
+        pool.setVirtualThreadsExecutor(executor);
+        pool.start();
+        QueuedThreadPoolWatchdog watchdog = new QueuedThreadPoolWatchdog(pool);
+        watchdog.setThreshold(10, TimeUnit.MILLISECONDS);
+        watchdog.setInterruptStuckThreads(true);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            pool.executeBlocking(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(pool.getVirtualThreadsTasks()).isEqualTo(1);
+
+            Thread.sleep(50);
+            Assertions.assertThat(watchdog.check()).isEqualTo(1);
+            Assertions.assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(watchdog.getInterruptCount()).isEqualTo(1);
+
+            await(() -> pool.getVirtualThreadsTasks() == 0);
+            Assertions.assertThat(watchdog.check()).isEqualTo(0);
+        } finally {
+            pool.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_resize_virtual_threads_permits_while_held() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setReservedThreads(0);
+        pool.setVirtualThreadsExecutor(executor);
+        pool.setMaxVirtualThreadsTasks(1);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            Runnable blocking = () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await(release);
+                running.decrementAndGet();
+            };
+
+            pool.executeBlocking(blocking);
+            pool.executeBlocking(blocking);
+            await(() -> running.get() == 1);
+            Assertions.assertThat(pool.getPendingBlockingJobs()).isEqualTo(1);
+
+            // 扩容时持有许可的任务仍在执行，等待的任务立即拿到新增的许可
+            pool.setMaxVirtualThreadsTasks(2);
+            await(() -> running.get() == 2);
+
+            // 缩容后归还的许可不会超出新的上限
+            pool.setMaxVirtualThreadsTasks(1);
+            release.countDown();
+            await(() -> running.get() == 0);
+
+            CountDownLatch release2 = new CountDownLatch(1);
+            maxRunning.set(0);
+            for (int i = 0; i < 3; i++) {
+                pool.executeBlocking(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    await(release2);
+                    running.decrementAndGet();
+                });
+            }
+            await(() -> running.get() == 1);
+            Thread.sleep(50);
+            Assertions.assertThat(maxRunning.get()).isEqualTo(1);
+            Assertions.assertThat(pool.getPendingBlockingJobs()).isEqualTo(2);
+
+            // 不再限制时等待的任务直接派发
+            pool.setMaxVirtualThreadsTasks(0);
+            await(() -> running.get() == 3);
+            release2.countDown();
+            await(() -> running.get() == 0);
+        } finally {
+            release.countDown();
+            pool.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_shutdown_own_virtual_threads_executor_when_stopped() throws Exception {
+        List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2) {
+            @Override
+            protected Executor newVirtualThreadsExecutor() {
+                ExecutorService executor = Executors.newCachedThreadPool();
+                executors.add(executor);
+                return executor;
+            }
+        };
+        pool.setReservedThreads(0);
+        pool.setStopTimeout(1000);
+        pool.setUseVirtualThreads(true);
+        pool.start();
+
+        CountDownLatch ran = new CountDownLatch(1);
+        pool.executeBlocking(ran::countDown);
+        Assertions.assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+
+        pool.stop();
+        Assertions.assertThat(executors).hasSize(1);
+        Assertions.assertThat(executors.get(0).isTerminated()).isTrue();
+
+        // 重新启动时创建新的执行器
+        pool.start();
+        try {
+            Assertions.assertThat(executors).hasSize(2);
+            Assertions.assertThat(pool.getVirtualThreadsExecutor()).isSameAs(executors.get(1));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_not_shutdown_external_virtual_threads_executor() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setReservedThreads(0);
+        pool.setVirtualThreadsExecutor(executor);
+        pool.start();
+        pool.stop();
+
+        Assertions.assertThat(executor.isShutdown()).isFalse();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_run_priority_job_ahead_of_backlog() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            pool.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String name = "job" + i;
+                pool.execute(() -> order.add(name));
+            }
+            pool.execute((PriorityTask) () -> order.add("priority"));
+            Assertions.assertThat(pool.getPriorityQueueSize()).isEqualTo(1);
+
+            release.countDown();
+            await(() -> order.size() == 4);
+            Assertions.assertThat(order).containsExactly("priority", "job0", "job1", "job2");
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_run_timer_expiry_ahead_of_backlog() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        TimerWheelScheduler scheduler = new TimerWheelScheduler("timer", true, 1, TimeUnit.MILLISECONDS, 64, pool);
+        scheduler.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            pool.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String name = "job" + i;
+                pool.execute(() -> order.add(name));
+            }
+            scheduler.schedule(() -> order.add("timeout"), 1, TimeUnit.MILLISECONDS);
+            await(() -> pool.getPriorityQueueSize() == 1);
+
+            release.countDown();
+            await(() -> order.size() == 4);
+            Assertions.assertThat(order).containsExactly("timeout", "job0", "job1", "job2");
+        } finally {
+            release.countDown();
+            scheduler.stop();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_wake_idle_thread_for_priority_job() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(2, 2);
+        pool.setReservedThreads(0);
+        pool.start();
+        try {
+            await(() -> pool.getIdleThreads() == 2);
+
+            CountDownLatch ran = new CountDownLatch(1);
+            pool.execute((PriorityTask) ran::countDown);
+            Assertions.assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+            await(() -> pool.getIdleThreads() == 2);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_use_blocking_array_queue_by_default() {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+
+        Assertions.assertThat(pool.getQueue()).isInstanceOf(BlockingArrayQueue.class);
+    }
+
+    private static CoDelAdmissionPolicy overloaded() {
+        CoDelAdmissionPolicy policy = new CoDelAdmissionPolicy(5, 100, TimeUnit.MILLISECONDS);
+        long now = System.nanoTime();
+        long sojourn = TimeUnit.MILLISECONDS.toNanos(10);
+        policy.onDequeued(sojourn, now);
+        policy.onDequeued(sojourn, now + TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertThat(policy.isOverloaded()).isTrue();
+        return policy;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
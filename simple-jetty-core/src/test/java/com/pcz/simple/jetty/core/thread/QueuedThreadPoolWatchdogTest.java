@@ -0,0 +1,102 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class QueuedThreadPoolWatchdogTest {
+    @Test
+    public void should_interrupt_stuck_thread() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        QueuedThreadPoolWatchdog watchdog = new QueuedThreadPoolWatchdog(pool);
+        watchdog.setThreshold(10, TimeUnit.MILLISECONDS);
+        watchdog.setInterruptStuckThreads(true);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(50);
+
+            Assertions.assertThat(watchdog.check()).isEqualTo(1);
+            Assertions.assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(watchdog.getInterruptCount()).isEqualTo(1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_not_interrupt_next_job_when_stuck_job_ends_during_report() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setReservedThreads(0);
+        pool.start();
+        QueuedThreadPoolWatchdog watchdog = new QueuedThreadPoolWatchdog(pool);
+        watchdog.setThreshold(10, TimeUnit.MILLISECONDS);
+        watchdog.setInterruptStuckThreads(true);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch nextStarted = new CountDownLatch(1);
+            AtomicBoolean finish = new AtomicBoolean();
+            AtomicBoolean nextInterrupted = new AtomicBoolean();
+            CountDownLatch nextDone = new CountDownLatch(1);
+
+            // 告警时格式化任务会调用 toString，此时结束任务并等待线程开始执行下一个任务
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    while (!finish.get()) {
+                        Thread.onSpinWait();
+                    }
+                }
+
+                @Override
+                public String toString() {
+                    finish.set(true);
+                    try {
+                        nextStarted.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                    return "stuck";
+                }
+            });
+            pool.execute(() -> {
+                nextStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    nextInterrupted.set(true);
+                }
+                nextDone.countDown();
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(50);
+
+            Assertions.assertThat(watchdog.check()).isEqualTo(1);
+            Assertions.assertThat(nextStarted.getCount()).isEqualTo(0);
+
+            release.countDown();
+            Assertions.assertThat(nextDone.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(nextInterrupted.get()).isFalse();
+            Assertions.assertThat(watchdog.getReportCount()).isEqualTo(1);
+            Assertions.assertThat(watchdog.getInterruptCount()).isEqualTo(0);
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+public class ReservedThreadExecutorTest {
+    private QueuedThreadPool pool;
+
+    @BeforeEach
+    public void before() throws Exception {
+        this.pool = new QueuedThreadPool(8, 2);
+        this.pool.setReservedThreads(0);
+        this.pool.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        this.pool.stop();
+    }
+
+    @Test
+    public void should_lease_capacity_from_budget_while_running() throws Exception {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 3);
+        ThreadPoolBudget budget = this.pool.getThreadPoolBudget();
+        int leased = budget.getLeasedThreads();
+
+        reserved.start();
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(leased + 3);
+
+        reserved.stop();
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(leased);
+    }
+
+    @Test
+    public void should_fail_to_start_when_budget_is_exhausted() {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 8);
+
+        Assertions.assertThatThrownBy(reserved::start).isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(this.pool.getThreadPoolBudget().getLeases()).isEmpty();
+    }
+
+    @Test
+    public void should_start_reserved_thread_on_demand_and_hand_off_task() throws Exception {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 2);
+        reserved.start();
+        try {
+            Assertions.assertThat(reserved.getAvailable()).isEqualTo(0);
+
+            // 没有保留线程时失败，同时启动一个保留线程
+            Assertions.assertThat(reserved.tryExecute(() -> {
+            })).isFalse();
+            await(() -> reserved.getAvailable() == 1);
+            Assertions.assertThat(reserved.getPending()).isEqualTo(0);
+
+            AtomicReference<Thread> ran = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            Assertions.assertThat(reserved.tryExecute(() -> {
+                ran.set(Thread.currentThread());
+                done.countDown();
+            })).isTrue();
+            Assertions.assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(ran.get().getName()).startsWith(this.pool.getName());
+
+            // 最后一个保留线程被使用后补充，执行完任务的线程也重新保留
+            await(() -> reserved.getAvailable() == 2);
+        } finally {
+            reserved.stop();
+        }
+    }
+
+    @Test
+    public void should_not_exceed_capacity() throws Exception {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 2);
+        reserved.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                reserved.tryExecute(() -> {
+                });
+                Assertions.assertThat(reserved.getAvailable() + reserved.getPending()).isLessThanOrEqualTo(2);
+            }
+            await(() -> reserved.getAvailable() == 2);
+            Assertions.assertThat(reserved.getPending()).isEqualTo(0);
+        } finally {
+            reserved.stop();
+        }
+    }
+
+    @Test
+    public void should_release_idle_reserved_threads() throws Exception {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 2);
+        reserved.setIdleTimeout(50, TimeUnit.MILLISECONDS);
+        reserved.start();
+        try {
+            reserved.tryExecute(() -> {
+            });
+            reserved.tryExecute(() -> {
+            });
+            await(() -> reserved.getAvailable() >= 1);
+
+            await(() -> reserved.getAvailable() == 0 && reserved.getPending() == 0);
+        } finally {
+            reserved.stop();
+        }
+    }
+
+    @Test
+    public void should_return_reserved_threads_to_pool_when_stopped() throws Exception {
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(this.pool, 2);
+        reserved.start();
+        reserved.tryExecute(() -> {
+        });
+        await(() -> reserved.getAvailable() == 1);
+
+        reserved.stop();
+
+        Assertions.assertThat(reserved.getAvailable()).isEqualTo(0);
+        Assertions.assertThat(reserved.tryExecute(() -> {
+        })).isFalse();
+        await(() -> this.pool.getIdleThreads() == this.pool.getThreads());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class ScheduledExecutorSchedulerTest {
+    private ScheduledExecutorScheduler scheduler;
+
+    @BeforeEach
+    public void before() throws Exception {
+        this.scheduler = new ScheduledExecutorScheduler("scheduler", true);
+        this.scheduler.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        this.scheduler.stop();
+    }
+
+    @Test
+    public void should_remove_cancelled_task_from_queue() {
+        Scheduler.Task task = this.scheduler.schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(1);
+
+        Assertions.assertThat(task.cancel()).isTrue();
+        Assertions.assertThat(task.cancel()).isFalse();
+
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(0);
+        Assertions.assertThat(this.scheduler.getCancelledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_postpone_reschedulable_task_without_queueing_more() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledExecutorScheduler.ReschedulableTask task = this.scheduler.newReschedulableTask(runs::incrementAndGet);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThat(task.reschedule(50, TimeUnit.MILLISECONDS)).isTrue();
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(1);
+        Assertions.assertThat(task.isScheduled()).isTrue();
+
+        await(() -> runs.get() == 1);
+        // 最后一次推迟后的 50ms 才到期
+        Assertions.assertThat(System.nanoTime() - begin).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(140));
+        Assertions.assertThat(task.isScheduled()).isFalse();
+        Assertions.assertThat(this.scheduler.getCancelledCount()).isEqualTo(0);
+
+        Thread.sleep(100);
+        Assertions.assertThat(runs.get()).isEqualTo(1);
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_advance_reschedulable_task_to_earlier_deadline() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledExecutorScheduler.ReschedulableTask task = this.scheduler.newReschedulableTask(runs::incrementAndGet);
+
+        task.reschedule(1, TimeUnit.HOURS);
+        task.reschedule(10, TimeUnit.MILLISECONDS);
+
+        await(() -> runs.get() == 1);
+        Assertions.assertThat(this.scheduler.getCancelledCount()).isEqualTo(1);
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_cancel_and_reuse_reschedulable_task() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledExecutorScheduler.ReschedulableTask task = this.scheduler.newReschedulableTask(runs::incrementAndGet);
+
+        task.reschedule(20, TimeUnit.MILLISECONDS);
+        Assertions.assertThat(task.cancel()).isTrue();
+        Assertions.assertThat(task.cancel()).isFalse();
+        Assertions.assertThat(task.isScheduled()).isFalse();
+        Assertions.assertThat(this.scheduler.getQueueSize()).isEqualTo(0);
+
+        Thread.sleep(50);
+        Assertions.assertThat(runs.get()).isEqualTo(0);
+
+        Assertions.assertThat(task.reschedule(10, TimeUnit.MILLISECONDS)).isTrue();
+        await(() -> runs.get() == 1);
+    }
+
+    @Test
+    public void should_not_schedule_when_stopped() throws Exception {
+        ScheduledExecutorScheduler.ReschedulableTask task = this.scheduler.newReschedulableTask(() -> {
+        });
+        this.scheduler.stop();
+
+        Assertions.assertThat(task.reschedule(10, TimeUnit.MILLISECONDS)).isFalse();
+        Assertions.assertThat(task.isScheduled()).isFalse();
+        Assertions.assertThat(this.scheduler.schedule(() -> {
+        }, 10, TimeUnit.MILLISECONDS).cancel()).isFalse();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
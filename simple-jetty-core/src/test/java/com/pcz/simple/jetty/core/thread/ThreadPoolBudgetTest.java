@@ -0,0 +1,103 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+
+public class ThreadPoolBudgetTest {
+    @Test
+    public void should_lease_and_return_threads() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(10, 2);
+        ThreadPoolBudget budget = new ThreadPoolBudget(pool, 2);
+
+        ThreadPoolBudget.Lease acceptors = budget.leaseTo("acceptors", 3);
+        ThreadPoolBudget.Lease selectors = budget.leaseTo("selectors", 4);
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(7);
+        Assertions.assertThat(budget.getLeases()).containsExactlyInAnyOrder(acceptors, selectors);
+
+        acceptors.close();
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(4);
+        Assertions.assertThat(budget.getLeases()).containsExactly(selectors);
+
+        selectors.close();
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_reject_lease_leaving_no_threads() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(10, 2);
+        ThreadPoolBudget budget = new ThreadPoolBudget(pool, 2);
+        budget.leaseTo("acceptors", 4);
+
+        Assertions.assertThatThrownBy(() -> budget.leaseTo("selectors", 6))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("required=10 >= max=10");
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(4);
+    }
+
+    @Test
+    public void should_report_low_threads_below_warn_at() {
+        QueuedThreadPool pool = new QueuedThreadPool(10, 2);
+        ThreadPoolBudget budget = new ThreadPoolBudget(pool, 4);
+        budget.leaseTo("acceptors", 6);
+
+        Assertions.assertThat(budget.check(10)).isTrue();
+        Assertions.assertThat(budget.check(9)).isFalse();
+        Assertions.assertThatThrownBy(() -> budget.check(6)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void should_reject_max_threads_below_leased_threads() {
+        QueuedThreadPool pool = new QueuedThreadPool(10, 2);
+        pool.getThreadPoolBudget().leaseTo("acceptors", 4);
+
+        Assertions.assertThatThrownBy(() -> pool.setMaxThreads(4)).isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(pool.getMaxThreads()).isEqualTo(10);
+
+        pool.setMaxThreads(5);
+        Assertions.assertThat(pool.getMaxThreads()).isEqualTo(5);
+    }
+
+    @Test
+    public void should_check_capacity_when_pool_starts() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(8, 2);
+        pool.setReservedThreads(2);
+        ThreadPoolBudget budget = pool.getThreadPoolBudget();
+        budget.leaseTo("acceptors", 6);
+
+        // 保留线程启动时租用的线程使剩余的线程不足
+        Assertions.assertThatThrownBy(pool::start).isInstanceOf(IllegalStateException.class);
+        pool.stop();
+
+        budget.reset();
+        budget.leaseTo("acceptors", 5);
+        pool.start();
+        try {
+            Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(7);
+        } finally {
+            pool.stop();
+        }
+        Assertions.assertThat(budget.getLeasedThreads()).isEqualTo(5);
+    }
+
+    @Test
+    public void should_lease_nothing_from_unsized_executor() {
+        Executor executor = Runnable::run;
+
+        ThreadPoolBudget.Lease lease = ThreadPoolBudget.leaseFrom(executor, "acceptors", 4);
+
+        Assertions.assertThat(lease.getThreads()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_lease_from_sized_thread_pool() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(10, 2);
+
+        ThreadPoolBudget.Lease lease = ThreadPoolBudget.leaseFrom(pool, "acceptors", 4);
+        Assertions.assertThat(pool.getThreadPoolBudget().getLeasedThreads()).isEqualTo(4);
+
+        lease.close();
+        Assertions.assertThat(pool.getThreadPoolBudget().getLeasedThreads()).isEqualTo(0);
+    }
+}
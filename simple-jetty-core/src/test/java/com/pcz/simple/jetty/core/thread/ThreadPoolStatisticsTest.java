@@ -0,0 +1,68 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ThreadPoolStatisticsTest {
+    @Test
+    public void should_record_queue_and_run_times() {
+        ThreadPoolStatistics statistics = new ThreadPoolStatistics();
+        statistics.onQueued(3);
+        statistics.onQueued(7);
+        statistics.onQueued(1);
+        statistics.onDequeued(TimeUnit.MILLISECONDS.toNanos(2));
+        statistics.onRun(TimeUnit.MILLISECONDS.toNanos(5));
+        statistics.onRejected();
+
+        Assertions.assertThat(statistics.getMaxQueueSize()).isEqualTo(7);
+        Assertions.assertThat(statistics.getQueueWait().getCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getRunTime().getTotal()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        Assertions.assertThat(statistics.getRejected()).isEqualTo(1);
+        Assertions.assertThat(statistics.getBusyRatio(1)).isGreaterThan(0);
+        Assertions.assertThat(statistics.getBusyRatio(0)).isEqualTo(0);
+
+        statistics.reset();
+
+        Assertions.assertThat(statistics.getMaxQueueSize()).isEqualTo(0);
+        Assertions.assertThat(statistics.getQueueWait().getCount()).isEqualTo(0);
+        Assertions.assertThat(statistics.getRunTime().getCount()).isEqualTo(0);
+        Assertions.assertThat(statistics.getRejected()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_record_jobs_run_by_pool() throws Exception {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setReservedThreads(0);
+        pool.setStatisticsEnabled(true);
+        pool.start();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(3);
+            pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            });
+            pool.execute(done::countDown);
+            pool.execute(done::countDown);
+            release.countDown();
+            Assertions.assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+            ThreadPoolStatistics statistics = pool.getStatistics();
+            Assertions.assertThat(statistics.getMaxQueueSize()).isGreaterThanOrEqualTo(2);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (statistics.getRunTime().getCount() < 3) {
+                Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+                Thread.sleep(1);
+            }
+            Assertions.assertThat(statistics.getQueueWait().getCount()).isEqualTo(3);
+        } finally {
+            pool.stop();
+        }
+    }
+}
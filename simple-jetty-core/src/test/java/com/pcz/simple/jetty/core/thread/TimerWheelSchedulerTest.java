@@ -0,0 +1,100 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+public class TimerWheelSchedulerTest {
+    @Test
+    public void should_expire_task_after_several_wheel_rounds() throws Exception {
+        TimerWheelScheduler scheduler = new TimerWheelScheduler("timer", true, 1, TimeUnit.MILLISECONDS, 8, null);
+        scheduler.start();
+        try {
+            AtomicLong expiredAt = new AtomicLong();
+            long begin = System.nanoTime();
+            // 延迟超过一圈时间轮
+            scheduler.schedule(() -> expiredAt.set(System.nanoTime()), 30, TimeUnit.MILLISECONDS);
+            Assertions.assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+            await(() -> expiredAt.get() != 0);
+            Assertions.assertThat(expiredAt.get() - begin).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+            Assertions.assertThat(scheduler.getScheduledCount()).isEqualTo(0);
+            Assertions.assertThat(scheduler.getExpiredCount()).isEqualTo(1);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void should_reschedule_by_cancelling_and_scheduling_again() throws Exception {
+        TimerWheelScheduler scheduler = new TimerWheelScheduler("timer", true, 1, TimeUnit.MILLISECONDS, 64, null);
+        scheduler.start();
+        try {
+            AtomicInteger first = new AtomicInteger();
+            AtomicInteger second = new AtomicInteger();
+            Scheduler.Task task = scheduler.schedule(first::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+
+            Assertions.assertThat(task.cancel()).isTrue();
+            Assertions.assertThat(task.cancel()).isFalse();
+            Assertions.assertThat(scheduler.getScheduledCount()).isEqualTo(0);
+            Assertions.assertThat(scheduler.getCancelledCount()).isEqualTo(1);
+
+            Scheduler.Task rescheduled = scheduler.schedule(second::incrementAndGet, 40, TimeUnit.MILLISECONDS);
+            await(() -> second.get() == 1);
+
+            Assertions.assertThat(first.get()).isEqualTo(0);
+            Assertions.assertThat(rescheduled.cancel()).isFalse();
+            Assertions.assertThat(scheduler.getExpiredCount()).isEqualTo(1);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void should_reject_when_not_running() {
+        TimerWheelScheduler scheduler = new TimerWheelScheduler();
+
+        Assertions.assertThatThrownBy(() -> scheduler.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void should_interrupt_blocked_timer_thread_when_stopping() throws Exception {
+        TimerWheelScheduler scheduler = new TimerWheelScheduler("timer", true, 1, TimeUnit.MILLISECONDS, 64, null);
+        scheduler.start();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long begin = System.nanoTime();
+        scheduler.stop();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Assertions.assertThat(elapsed).isLessThan(5000);
+        Assertions.assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(scheduler.isStopped()).isTrue();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+}
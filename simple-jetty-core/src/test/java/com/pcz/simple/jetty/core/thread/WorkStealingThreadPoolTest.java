@@ -0,0 +1,196 @@
+package com.pcz.simple.jetty.core.thread;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+public class WorkStealingThreadPoolTest {
+    @Test
+    public void should_steal_local_job_from_blocked_worker() throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool(4, 2, 60000);
+        pool.start();
+        try {
+            AtomicReference<Thread> parent = new AtomicReference<>();
+            AtomicReference<Thread> child = new AtomicReference<>();
+            CountDownLatch childDone = new CountDownLatch(1);
+            CountDownLatch parentDone = new CountDownLatch(1);
+
+            pool.execute(() -> {
+                parent.set(Thread.currentThread());
+                // 池内提交放入当前工作线程的队列，当前工作线程阻塞，只能被其他工作线程窃取
+                pool.execute(() -> {
+                    child.set(Thread.currentThread());
+                    childDone.countDown();
+                });
+                try {
+                    if (childDone.await(5, TimeUnit.SECONDS)) {
+                        parentDone.countDown();
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            });
+
+            Assertions.assertThat(parentDone.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(child.get()).isNotSameAs(parent.get());
+            Assertions.assertThat(pool.getStealCount()).isGreaterThanOrEqualTo(1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_count_idle_workers() throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool(4, 2, 60000);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            await(() -> pool.getIdleThreads() == 2);
+
+            CountDownLatch started = new CountDownLatch(1);
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            await(() -> pool.getIdleThreads() == 1);
+            Assertions.assertThat(pool.getThreads()).isEqualTo(2);
+
+            release.countDown();
+            await(() -> pool.getIdleThreads() == 2);
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_shrink_to_min_threads_when_idle() throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool(4, 1, 50);
+        pool.start();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(4);
+            for (int i = 0; i < 4; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                });
+            }
+            Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(pool.getThreads()).isEqualTo(4);
+
+            release.countDown();
+            await(() -> pool.getThreads() == 1);
+            Assertions.assertThat(pool.getIdleThreads()).isEqualTo(1);
+
+            // 收缩后仍然可以执行任务
+            CountDownLatch ran = new CountDownLatch(1);
+            pool.execute(ran::countDown);
+            Assertions.assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void should_run_queued_jobs_when_stopping() throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool(1, 1, 60000);
+        pool.start();
+
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            pool.execute(ran::incrementAndGet);
+        }
+        Assertions.assertThat(pool.getQueueSize()).isEqualTo(5);
+
+        pool.stop();
+
+        Assertions.assertThat(ran.get()).isEqualTo(5);
+        Assertions.assertThat(pool.getUnexecutedJobs()).isEmpty();
+    }
+
+    @Test
+    public void should_close_jobs_left_after_stop_timeout() throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool(1, 1, 60000);
+        pool.setStopTimeout(200);
+        pool.start();
+
+        // 忽略中断的任务，使排空阶段无法结束
+        AtomicBoolean release = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> {
+            started.countDown();
+            while (!release.get()) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Runnable> closed = new CopyOnWriteArrayList<>();
+        ClosableJob job = new ClosableJob(closed);
+        pool.execute(job);
+
+        try {
+            pool.stop();
+
+            Assertions.assertThat(pool.getUnexecutedJobs()).containsExactly(job);
+            Assertions.assertThat(closed).containsExactly(job);
+        } finally {
+            release.set(true);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.nanoTime() - deadline).isLessThan(0);
+            Thread.sleep(1);
+        }
+    }
+
+    private static class ClosableJob implements Runnable, Closeable {
+        private final List<Runnable> closed;
+
+        private ClosableJob(List<Runnable> closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public void close() {
+            this.closed.add(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.pcz.simple.jetty.http;
+
+/**
+ * 错误的 HTTP 消息，携带应该响应的状态码
+ *
+ * @author picongzhi
+ */
+public class BadMessageException extends RuntimeException {
+    /**
+     * 状态码
+     */
+    private final int code;
+
+    /**
+     * 原因
+     */
+    private final String reason;
+
+    public BadMessageException() {
+        this(HttpStatus.BAD_REQUEST_400, null);
+    }
+
+    public BadMessageException(String reason) {
+        this(HttpStatus.BAD_REQUEST_400, reason);
+    }
+
+    public BadMessageException(int code, String reason) {
+        super(code + ": " + reason);
+        this.code = code;
+        this.reason = reason;
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+
+    public String getReason() {
+        return this.reason;
+    }
+}
@@ -16,17 +16,25 @@ public class HttpField {
     /**
      * 字段名
      */
-    private String name;
+    private final String name;
 
     /**
      * 字段值
      */
     private final String value;
 
+    public HttpField(HttpHeader header, String value) {
+        this(header, null, value);
+    }
+
+    public HttpField(String name, String value) {
+        this(null, name, value);
+    }
+
     public HttpField(HttpHeader header, String name, String value) {
         this.header = header;
 
-        if (this.header != null || name == null) {
+        if (this.header != null && name == null) {
             this.name = this.header.asString();
         } else {
             this.name = Objects.requireNonNull(name, "name");
@@ -35,6 +43,24 @@ public class HttpField {
         this.value = value;
     }
 
+    /**
+     * 获取字段名
+     *
+     * @return 字段名
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 获取字段值
+     *
+     * @return 字段值
+     */
+    public String getValue() {
+        return this.value;
+    }
+
     /**
      * 获取 {@code long} 类型的值
      *
@@ -52,4 +78,19 @@ public class HttpField {
     public HttpHeader getHeader() {
         return this.header;
     }
+
+    /**
+     * 判断字段名是否是 {@code name}，不区分大小写
+     *
+     * @param name 字段名
+     * @return 字段名是否是 {@code name}
+     */
+    public boolean is(String name) {
+        return this.name.equalsIgnoreCase(name);
+    }
+
+    @Override
+    public String toString() {
+        return this.name + ": " + (this.value == null ? "" : this.value);
+    }
 }
@@ -1,6 +1,8 @@
 package com.pcz.simple.jetty.http;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * HTTP 字段集合
@@ -8,6 +10,11 @@ import java.util.Iterator;
  * @author picongzhi
  */
 public interface HttpFields extends Iterable<HttpField> {
+    /**
+     * 空的 {@link HttpFields}
+     */
+    Immutable EMPTY = new Immutable(new HttpField[0]);
+
     /**
      * 转 {@link Immutable}
      *
@@ -15,6 +22,21 @@ public interface HttpFields extends Iterable<HttpField> {
      */
     Immutable asImmutable();
 
+    /**
+     * 获取字段数
+     *
+     * @return 字段数
+     */
+    int size();
+
+    /**
+     * 获取指定位置的字段
+     *
+     * @param index 位置
+     * @return 字段
+     */
+    HttpField getField(int index);
+
     default long getLongField(HttpHeader header) throws NumberFormatException {
         HttpField field = getField(header);
         return field == null
@@ -38,18 +60,283 @@ public interface HttpFields extends Iterable<HttpField> {
         return null;
     }
 
+    /**
+     * 获取指定名称的 {@link HttpField}，不区分大小写
+     *
+     * @param name 字段名
+     * @return {@link HttpField}
+     */
+    default HttpField getField(String name) {
+        for (HttpField field : this) {
+            if (field.is(name)) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 获取指定 {@link HttpHeader} 类型的字段值
+     *
+     * @param header {@link HttpHeader}
+     * @return 字段值，不存在时返回 null
+     */
+    default String get(HttpHeader header) {
+        HttpField field = getField(header);
+        return field == null ? null : field.getValue();
+    }
+
+    /**
+     * 创建可变的 {@link HttpFields}
+     *
+     * @return {@link Mutable}
+     */
+    static Mutable build() {
+        return new Mutable();
+    }
+
+    /**
+     * 可变的 {@link HttpFields}，用于构建响应头
+     */
+    class Mutable implements HttpFields {
+        /**
+         * 字段
+         */
+        private HttpField[] fields = new HttpField[16];
+
+        /**
+         * 字段数
+         */
+        private int size;
+
+        /**
+         * 添加字段
+         *
+         * @param field 字段
+         * @return this
+         */
+        public Mutable add(HttpField field) {
+            if (field != null) {
+                if (this.size == this.fields.length) {
+                    this.fields = Arrays.copyOf(this.fields, this.size * 2);
+                }
+                this.fields[this.size++] = field;
+            }
+
+            return this;
+        }
+
+        /**
+         * 添加字段
+         *
+         * @param header {@link HttpHeader}
+         * @param value  字段值
+         * @return this
+         */
+        public Mutable add(HttpHeader header, String value) {
+            return add(new HttpField(header, value));
+        }
+
+        /**
+         * 添加字段
+         *
+         * @param name  字段名
+         * @param value 字段值
+         * @return this
+         */
+        public Mutable add(String name, String value) {
+            return add(new HttpField(name, value));
+        }
+
+        /**
+         * 设置字段，替换同名的字段
+         *
+         * @param field 字段
+         * @return this
+         */
+        public Mutable put(HttpField field) {
+            if (field.getHeader() != null) {
+                remove(field.getHeader());
+            } else {
+                remove(field.getName());
+            }
+
+            return add(field);
+        }
+
+        /**
+         * 设置字段，替换同名的字段
+         *
+         * @param header {@link HttpHeader}
+         * @param value  字段值
+         * @return this
+         */
+        public Mutable put(HttpHeader header, String value) {
+            return put(new HttpField(header, value));
+        }
+
+        /**
+         * 删除指定 {@link HttpHeader} 类型的字段
+         *
+         * @param header {@link HttpHeader}
+         * @return this
+         */
+        public Mutable remove(HttpHeader header) {
+            int j = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (this.fields[i].getHeader() != header) {
+                    this.fields[j++] = this.fields[i];
+                }
+            }
+            Arrays.fill(this.fields, j, this.size, null);
+            this.size = j;
+
+            return this;
+        }
+
+        /**
+         * 删除指定名称的字段，不区分大小写
+         *
+         * @param name 字段名
+         * @return this
+         */
+        public Mutable remove(String name) {
+            int j = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!this.fields[i].is(name)) {
+                    this.fields[j++] = this.fields[i];
+                }
+            }
+            Arrays.fill(this.fields, j, this.size, null);
+            this.size = j;
+
+            return this;
+        }
+
+        /**
+         * 清空
+         */
+        public void clear() {
+            Arrays.fill(this.fields, 0, this.size, null);
+            this.size = 0;
+        }
+
+        @Override
+        public Immutable asImmutable() {
+            return new Immutable(Arrays.copyOf(this.fields, this.size));
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public HttpField getField(int index) {
+            if (index >= this.size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return this.fields[index];
+        }
+
+        @Override
+        public Iterator<HttpField> iterator() {
+            return new Iterator<>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return this.index < Mutable.this.size;
+                }
+
+                @Override
+                public HttpField next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return Mutable.this.fields[this.index++];
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x%s",
+                    getClass().getSimpleName(),
+                    hashCode(),
+                    Arrays.toString(Arrays.copyOf(this.fields, this.size)));
+        }
+    }
+
     /**
      * 不可变的 {@link HttpFields}
      */
     class Immutable implements HttpFields {
+        /**
+         * 字段
+         */
+        private final HttpField[] fields;
+
+        public Immutable(HttpField[] fields) {
+            this.fields = fields;
+        }
+
         @Override
         public Immutable asImmutable() {
             return this;
         }
 
         @Override
-        public Iterator<HttpField> iterator() {
+        public int size() {
+            return this.fields.length;
+        }
+
+        @Override
+        public HttpField getField(int index) {
+            return this.fields[index];
+        }
+
+        @Override
+        public HttpField getField(HttpHeader header) {
+            for (HttpField field : this.fields) {
+                if (field.getHeader() == header) {
+                    return field;
+                }
+            }
+
             return null;
         }
+
+        @Override
+        public Iterator<HttpField> iterator() {
+            return new Iterator<>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return this.index < Immutable.this.fields.length;
+                }
+
+                @Override
+                public HttpField next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return Immutable.this.fields[this.index++];
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x%s",
+                    getClass().getSimpleName(),
+                    hashCode(),
+                    Arrays.toString(this.fields));
+        }
     }
 }
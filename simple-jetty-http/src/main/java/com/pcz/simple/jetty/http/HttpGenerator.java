@@ -1,12 +1,630 @@
 package com.pcz.simple.jetty.http;
 
+import com.pcz.simple.jetty.core.util.BufferUtils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Http 生成器
+ * <p>
+ * 把响应的状态行、header 和内容的帧（Content-Length 或者 chunked）直接写入调用方提供的缓冲区，
+ * 缓冲区通常从 {@link com.pcz.simple.jetty.core.io.ByteBufferPool} 获取，处于 flush 模式。
+ * 状态行、Server header 和常用的字段都预先编码成字节数组，生成一个典型的响应头基本只是若干次
+ * {@link ByteBuffer#put(byte[])}；{@link PreEncodedHttpField} 同样直接拷贝，
+ * 其它字段只编码字段值。
+ * <p>
+ * 不是线程安全的，每个连接一个实例，一个响应生成完成后调用 {@link #reset()} 生成下一个响应
  *
  * @author picongzhi
  */
 public class HttpGenerator {
+    /**
+     * chunk 缓冲区的最小容量，能容纳 "\r\n" + 8 位十六进制长度 + "\r\n"
+     */
+    public static final int CHUNK_SIZE = 12;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    private static final byte[] CRLF_LAST_CHUNK = {'\r', '\n', '0', '\r', '\n', '\r', '\n'};
+
+    private static final PreEncodedHttpField CONNECTION_CLOSE =
+            new PreEncodedHttpField(HttpHeader.CONNECTION, "close");
+    private static final PreEncodedHttpField TRANSFER_ENCODING_CHUNKED =
+            new PreEncodedHttpField(HttpHeader.TRANSFER_ENCODING, "chunked");
+    private static final PreEncodedHttpField CONTENT_LENGTH_0 =
+            new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, "0");
+
+    /**
+     * 预编码的状态行的状态码范围上限
+     */
+    private static final int MAX_PRE_ENCODED_STATUS = 600;
+
+    /**
+     * 预编码的 HTTP/1.1 状态行，按状态码索引，未知的状态码为 null
+     */
+    private static final byte[][] STATUS_LINES_1_1 = preEncodeStatusLines(HttpVersion.HTTP_1_1);
+
+    /**
+     * 预编码的 HTTP/1.0 状态行，按状态码索引，未知的状态码为 null
+     */
+    private static final byte[][] STATUS_LINES_1_0 = preEncodeStatusLines(HttpVersion.HTTP_1_0);
+
+    /**
+     * 预编码的 Server header，为 null 时不发送
+     */
+    private static volatile byte[] serverHeader;
+
+    /**
+     * 当前状态
+     */
+    private State state = State.START;
+
+    /**
+     * 是否是 chunked 编码
+     */
+    private boolean chunking;
+
+    /**
+     * 是否已经发送过 chunk
+     */
+    private boolean chunked;
+
+    /**
+     * 是否不发送内容，HEAD 请求或者 1xx、204、304 响应
+     */
+    private boolean noContent;
+
+    /**
+     * 响应之后连接是否可以复用
+     */
+    private boolean persistent = true;
+
+    /**
+     * 响应的内容长度，未知时为 -1
+     */
+    private long contentLength = -1;
+
+    /**
+     * 已经生成的内容字节数
+     */
+    private long contentPrepared;
+
+    /**
+     * 设置 Server header 的值，为 null 或者空白时不发送 Server header
+     *
+     * @param serverVersion 服务器版本
+     */
     public static void setJettyVersion(String serverVersion) {
-        // TODO: 实现
+        serverHeader = serverVersion == null || serverVersion.isBlank()
+                ? null
+                : (HttpHeader.SERVER.asString() + ": " + serverVersion + "\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 预编码状态行
+     *
+     * @param version HTTP 版本
+     * @return 按状态码索引的状态行
+     */
+    private static byte[][] preEncodeStatusLines(HttpVersion version) {
+        byte[][] lines = new byte[MAX_PRE_ENCODED_STATUS][];
+        for (int status = 100; status < MAX_PRE_ENCODED_STATUS; status++) {
+            String reason = HttpStatus.getMessage(status);
+            if (reason.equals(Integer.toString(status))) {
+                continue;
+            }
+
+            lines[status] = (version.asString() + " " + status + " " + reason + "\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        return lines;
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * 判断是否还没有生成响应头
+     *
+     * @return 是否还没有生成响应头
+     */
+    public boolean isStart() {
+        return this.state == State.START;
+    }
+
+    /**
+     * 判断响应头是否已经生成
+     *
+     * @return 响应头是否已经生成
+     */
+    public boolean isCommitted() {
+        return this.state != State.START;
+    }
+
+    /**
+     * 判断响应是否已经生成完成
+     *
+     * @return 响应是否已经生成完成
+     */
+    public boolean isEnd() {
+        return this.state == State.END;
+    }
+
+    /**
+     * 判断是否是 chunked 编码
+     *
+     * @return 是否是 chunked 编码
+     */
+    public boolean isChunking() {
+        return this.chunking;
+    }
+
+    /**
+     * 判断响应之后连接是否可以复用
+     *
+     * @return 响应之后连接是否可以复用
+     */
+    public boolean isPersistent() {
+        return this.persistent;
+    }
+
+    /**
+     * 设置响应之后连接是否可以复用，需要在 {@link #generateHeader} 之前调用，
+     * 为 false 时会发送 {@code Connection: close}
+     *
+     * @param persistent 连接是否可以复用
+     */
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * 获取已经生成的内容字节数
+     *
+     * @return 已经生成的内容字节数
+     */
+    public long getContentPrepared() {
+        return this.contentPrepared;
+    }
+
+    /**
+     * 重置，准备生成下一个响应
+     */
+    public void reset() {
+        this.state = State.START;
+        this.chunking = false;
+        this.chunked = false;
+        this.noContent = false;
+        this.persistent = true;
+        this.contentLength = -1;
+        this.contentPrepared = 0;
+    }
+
+    /**
+     * 生成响应头
+     * <p>
+     * 内容长度未知时：{@code last} 为 true 则使用 {@code content} 的长度作为 Content-Length，
+     * 否则 HTTP/1.1 使用 chunked 编码，HTTP/1.0 通过关闭连接结束内容。
+     * chunked 编码时第一个 chunk 的长度行也写入 {@code header}，调用方依次写出 {@code header} 和 {@code content}
+     *
+     * @param info    响应元数据
+     * @param head    是否是 HEAD 请求的响应，是时调用方不写出内容
+     * @param content 第一块内容，可以为 null
+     * @param last    是否是最后一块内容
+     * @param header  响应头缓冲区，处于 flush 模式
+     * @return 是否生成成功，缓冲区空间不足时返回 false 且缓冲区和状态不变，调用方换更大的缓冲区重试
+     */
+    public boolean generateHeader(MetaData.Response info, boolean head, ByteBuffer content, boolean last,
+                                  ByteBuffer header) {
+        if (this.state != State.START) {
+            throw new IllegalStateException("Already committed " + this);
+        }
+
+        HttpVersion version = info.getHttpVersion() == null ? HttpVersion.HTTP_1_1 : info.getHttpVersion();
+        if (version != HttpVersion.HTTP_1_1 && version != HttpVersion.HTTP_1_0) {
+            throw new IllegalArgumentException("Unsupported version " + version);
+        }
+
+        boolean persistent = this.persistent;
+        int position = BufferUtils.flipToFill(header);
+        int start = header.position();
+        try {
+            HttpFields fields = info.getFields();
+            prepareConnection(fields, version);
+            prepareContentFraming(info, head, content, last, version);
+
+            putStatusLine(header, version, info.getStatus(), info.getReason());
+
+            boolean server = false;
+            if (fields != null) {
+                for (int i = 0, size = fields.size(); i < size; i++) {
+                    HttpField field = fields.getField(i);
+                    HttpHeader name = field.getHeader();
+                    if (name == HttpHeader.CONTENT_LENGTH || name == HttpHeader.TRANSFER_ENCODING) {
+                        // 由生成器负责
+                        continue;
+                    }
+                    if (name == HttpHeader.CONNECTION && !this.persistent) {
+                        // 统一发送 Connection: close
+                        continue;
+                    }
+                    server |= name == HttpHeader.SERVER;
+                    putField(header, field);
+                }
+            }
+
+            putContentFraming(header);
+
+            if (!this.persistent) {
+                CONNECTION_CLOSE.putTo(header);
+            }
+
+            byte[] serverHeader = HttpGenerator.serverHeader;
+            if (serverHeader != null && !server) {
+                header.put(serverHeader);
+            }
+
+            header.put(CRLF);
+
+            // 第一个 chunk 的长度行
+            if (this.chunking && BufferUtils.hasContent(content)) {
+                putHexInt(header, content.remaining());
+                header.put(CRLF);
+                this.chunked = true;
+            }
+        } catch (BufferOverflowException e) {
+            header.position(start);
+            BufferUtils.flipToFlush(header, position);
+            reset();
+            this.persistent = persistent;
+            return false;
+        }
+        BufferUtils.flipToFlush(header, position);
+
+        this.state = State.COMMITTED;
+        prepareContent(content);
+        if (last) {
+            complete();
+        }
+
+        return true;
+    }
+
+    /**
+     * 生成响应头之后的内容的帧
+     * <p>
+     * chunked 编码时 chunk 的长度行写入 {@code chunk}，调用方依次写出 {@code chunk} 和 {@code content}。
+     * chunked 编码的最后一块内容不为空时，结束块只能在内容之后发送，此时返回 false，
+     * 调用方写出之后再以空内容和 {@code last} 为 true 调用一次
+     *
+     * @param content 内容，可以为 null
+     * @param last    是否是最后一块内容
+     * @param chunk   chunk 缓冲区，处于 flush 模式，容量至少为 {@link #CHUNK_SIZE}
+     * @return 响应是否已经生成完成
+     */
+    public boolean generateContent(ByteBuffer content, boolean last, ByteBuffer chunk) {
+        if (this.state == State.START) {
+            throw new IllegalStateException("Not committed " + this);
+        }
+        if (this.state == State.END) {
+            if (BufferUtils.hasContent(content)) {
+                throw new IllegalStateException("Content after end " + this);
+            }
+            return true;
+        }
+
+        boolean hasContent = BufferUtils.hasContent(content);
+        if (this.chunking) {
+            int position = BufferUtils.flipToFill(chunk);
+            if (hasContent) {
+                if (this.chunked) {
+                    chunk.put(CRLF);
+                }
+                putHexInt(chunk, content.remaining());
+                chunk.put(CRLF);
+                this.chunked = true;
+            } else if (last) {
+                chunk.put(this.chunked ? CRLF_LAST_CHUNK : LAST_CHUNK);
+            }
+            BufferUtils.flipToFlush(chunk, position);
+
+            prepareContent(content);
+            if (last && !hasContent) {
+                this.state = State.END;
+            }
+            return this.state == State.END;
+        }
+
+        prepareContent(content);
+        if (last) {
+            complete();
+        }
+        return this.state == State.END;
+    }
+
+    /**
+     * 写入状态行，已知状态码且使用默认原因短语时直接拷贝预编码的状态行
+     *
+     * @param header  缓冲区，处于 fill 模式
+     * @param version HTTP 版本
+     * @param status  状态码
+     * @param reason  原因短语，可以为 null
+     */
+    private static void putStatusLine(ByteBuffer header, HttpVersion version, int status, String reason) {
+        if (status < 100 || status > 999) {
+            throw new IllegalArgumentException("Invalid status " + status);
+        }
+
+        if (reason == null && status < MAX_PRE_ENCODED_STATUS) {
+            byte[] line = version == HttpVersion.HTTP_1_1 ? STATUS_LINES_1_1[status] : STATUS_LINES_1_0[status];
+            if (line != null) {
+                header.put(line);
+                return;
+            }
+        }
+
+        header.put(version.toBytes());
+        header.put((byte) ' ');
+        header.put((byte) ('0' + status / 100));
+        header.put((byte) ('0' + status / 10 % 10));
+        header.put((byte) ('0' + status % 10));
+        header.put((byte) ' ');
+        putSanitized(header, reason == null ? HttpStatus.getMessage(status) : reason);
+        header.put(CRLF);
+    }
+
+    /**
+     * 根据 Connection 字段和 HTTP 版本判断连接是否可以复用
+     * HTTP/1.1 默认复用，HTTP/1.0 需要显式的 {@code Connection: keep-alive}
+     *
+     * @param fields  字段
+     * @param version HTTP 版本
+     */
+    private void prepareConnection(HttpFields fields, HttpVersion version) {
+        boolean close = false;
+        boolean keepAlive = false;
+        if (fields != null) {
+            for (int i = 0, size = fields.size(); i < size; i++) {
+                HttpField field = fields.getField(i);
+                if (field.getHeader() == HttpHeader.CONNECTION) {
+                    close |= containsToken(field.getValue(), "close");
+                    keepAlive |= containsToken(field.getValue(), "keep-alive");
+                }
+            }
+        }
+
+        if (close || (version == HttpVersion.HTTP_1_0 && !keepAlive)) {
+            this.persistent = false;
+        }
+    }
+
+    /**
+     * 写入字段
+     *
+     * @param header 缓冲区，处于 fill 模式
+     * @param field  字段
+     */
+    private static void putField(ByteBuffer header, HttpField field) {
+        if (field instanceof PreEncodedHttpField) {
+            ((PreEncodedHttpField) field).putTo(header);
+            return;
+        }
+
+        if (field.getHeader() != null) {
+            header.put(field.getHeader().getBytesColonSpace());
+        } else {
+            putSanitized(header, field.getName());
+            header.put((byte) ':');
+            header.put((byte) ' ');
+        }
+        putSanitized(header, field.getValue());
+        header.put(CRLF);
+    }
+
+    /**
+     * 确定内容的帧：Content-Length、chunked 或者通过关闭连接结束内容
+     *
+     * @param info    响应元数据
+     * @param head    是否是 HEAD 请求的响应
+     * @param content 第一块内容
+     * @param last    是否是最后一块内容
+     * @param version HTTP 版本
+     */
+    private void prepareContentFraming(MetaData.Response info, boolean head, ByteBuffer content, boolean last,
+                                       HttpVersion version) {
+        if (HttpStatus.hasNoBody(info.getStatus())) {
+            // 1xx、204、304 不能有内容和内容的帧
+            this.noContent = true;
+            this.contentLength = -1;
+            return;
+        }
+
+        this.noContent = head;
+        long contentLength = info.getContentLength();
+        if (contentLength < 0 && last) {
+            contentLength = BufferUtils.length(content);
+        }
+        this.contentLength = contentLength;
+
+        if (contentLength >= 0 || head) {
+            // HEAD 请求的响应没有内容，长度未知时不需要帧
+            return;
+        }
+
+        if (version == HttpVersion.HTTP_1_1) {
+            this.chunking = true;
+        } else {
+            this.persistent = false;
+        }
+    }
+
+    /**
+     * 写入内容的帧
+     *
+     * @param header 缓冲区，处于 fill 模式
+     */
+    private void putContentFraming(ByteBuffer header) {
+        if (this.contentLength == 0) {
+            CONTENT_LENGTH_0.putTo(header);
+        } else if (this.contentLength > 0) {
+            header.put(HttpHeader.CONTENT_LENGTH.getBytesColonSpace());
+            putDecLong(header, this.contentLength);
+            header.put(CRLF);
+        } else if (this.chunking) {
+            TRANSFER_ENCODING_CHUNKED.putTo(header);
+        }
+    }
+
+    /**
+     * 统计生成的内容，超过 Content-Length 时抛出异常，不发送内容时忽略
+     *
+     * @param content 内容
+     */
+    private void prepareContent(ByteBuffer content) {
+        int length = BufferUtils.length(content);
+        if (length == 0 || this.noContent) {
+            return;
+        }
+
+        this.contentPrepared += length;
+        if (this.contentLength >= 0 && this.contentPrepared > this.contentLength) {
+            throw new IllegalStateException("Content exceeds Content-Length " + this);
+        }
+    }
+
+    /**
+     * 非 chunked 编码的最后一块内容，内容不足 Content-Length 时连接不能复用
+     */
+    private void complete() {
+        if (this.chunking) {
+            return;
+        }
+
+        if (!this.noContent && this.contentLength >= 0 && this.contentPrepared < this.contentLength) {
+            this.persistent = false;
+        }
+        this.state = State.END;
+    }
+
+    /**
+     * 判断逗号分隔的字段值中是否包含 {@code token}，不区分大小写，不创建对象
+     *
+     * @param value 字段值
+     * @param token token
+     * @return 是否包含 {@code token}
+     */
+    private static boolean containsToken(String value, String token) {
+        if (value == null) {
+            return false;
+        }
+
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && (value.charAt(i) == ' ' || value.charAt(i) == '\t' || value.charAt(i) == ',')) {
+                i++;
+            }
+            int start = i;
+            while (i < length && value.charAt(i) != ',') {
+                i++;
+            }
+            int end = i;
+            while (end > start && (value.charAt(end - 1) == ' ' || value.charAt(end - 1) == '\t')) {
+                end--;
+            }
+            if (end - start == token.length() && value.regionMatches(true, start, token, 0, token.length())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 写入字符串，CR 和 LF 替换为空格防止响应头注入，非 ISO-8859-1 字符替换为 '?'
+     *
+     * @param buffer 缓冲区，处于 fill 模式
+     * @param str    字符串
+     */
+    private static void putSanitized(ByteBuffer buffer, String str) {
+        if (str == null) {
+            return;
+        }
+
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c == '\r' || c == '\n') {
+                buffer.put((byte) ' ');
+            } else if (c > 0xFF) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) c);
+            }
+        }
+    }
+
+    /**
+     * 写入十进制数，不创建字符串
+     *
+     * @param buffer 缓冲区，处于 fill 模式
+     * @param n      非负数
+     */
+    private static void putDecLong(ByteBuffer buffer, long n) {
+        if (n == 0) {
+            buffer.put((byte) '0');
+            return;
+        }
+
+        long divisor = 1;
+        while (n / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buffer.put((byte) ('0' + n / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * 写入十六进制数，不创建字符串
+     *
+     * @param buffer 缓冲区，处于 fill 模式
+     * @param n      正数
+     */
+    private static void putHexInt(ByteBuffer buffer, int n) {
+        int shift = 28;
+        while (shift > 0 && (n >>> shift) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            int digit = (n >>> shift) & 0xF;
+            buffer.put((byte) (digit < 10 ? '0' + digit : 'A' + digit - 10));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{s=%s,chunking=%b,persistent=%b,cl=%d,prepared=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                this.state,
+                this.chunking,
+                this.persistent,
+                this.contentLength,
+                this.contentPrepared);
+    }
+
+    /**
+     * 生成状态
+     */
+    public enum State {
+        START,
+        COMMITTED,
+        END
     }
 }
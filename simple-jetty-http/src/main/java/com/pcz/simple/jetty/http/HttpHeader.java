@@ -1,23 +1,222 @@
 package com.pcz.simple.jetty.http;
 
+import com.pcz.simple.jetty.core.util.StringUtils;
+
 /**
  * HTTP header
  *
  * @author picongzhi
  */
 public enum HttpHeader {
+    /**
+     * Connection
+     */
+    CONNECTION("Connection"),
+    /**
+     * Cache-Control
+     */
+    CACHE_CONTROL("Cache-Control"),
+    /**
+     * Date
+     */
+    DATE("Date"),
+    /**
+     * Pragma
+     */
+    PRAGMA("Pragma"),
+    /**
+     * Trailer
+     */
+    TRAILER("Trailer"),
+    /**
+     * Transfer-Encoding
+     */
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    /**
+     * Upgrade
+     */
+    UPGRADE("Upgrade"),
+    /**
+     * Via
+     */
+    VIA("Via"),
+    /**
+     * Keep-Alive
+     */
+    KEEP_ALIVE("Keep-Alive"),
+    /**
+     * Content-Encoding
+     */
+    CONTENT_ENCODING("Content-Encoding"),
+    /**
+     * Content-Language
+     */
+    CONTENT_LANGUAGE("Content-Language"),
     /**
      * Content-Length
      */
-    CONTENT_LENGTH("Content-Length");
+    CONTENT_LENGTH("Content-Length"),
+    /**
+     * Content-Type
+     */
+    CONTENT_TYPE("Content-Type"),
+    /**
+     * Expires
+     */
+    EXPIRES("Expires"),
+    /**
+     * Last-Modified
+     */
+    LAST_MODIFIED("Last-Modified"),
+    /**
+     * Accept
+     */
+    ACCEPT("Accept"),
+    /**
+     * Accept-Charset
+     */
+    ACCEPT_CHARSET("Accept-Charset"),
+    /**
+     * Accept-Encoding
+     */
+    ACCEPT_ENCODING("Accept-Encoding"),
+    /**
+     * Accept-Language
+     */
+    ACCEPT_LANGUAGE("Accept-Language"),
+    /**
+     * Authorization
+     */
+    AUTHORIZATION("Authorization"),
+    /**
+     * Expect
+     */
+    EXPECT("Expect"),
+    /**
+     * Forwarded
+     */
+    FORWARDED("Forwarded"),
+    /**
+     * Host
+     */
+    HOST("Host"),
+    /**
+     * If-Match
+     */
+    IF_MATCH("If-Match"),
+    /**
+     * If-Modified-Since
+     */
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    /**
+     * If-None-Match
+     */
+    IF_NONE_MATCH("If-None-Match"),
+    /**
+     * Origin
+     */
+    ORIGIN("Origin"),
+    /**
+     * Range
+     */
+    RANGE("Range"),
+    /**
+     * Referer
+     */
+    REFERER("Referer"),
+    /**
+     * TE
+     */
+    TE("TE"),
+    /**
+     * User-Agent
+     */
+    USER_AGENT("User-Agent"),
+    /**
+     * X-Forwarded-For
+     */
+    X_FORWARDED_FOR("X-Forwarded-For"),
+    /**
+     * X-Forwarded-Proto
+     */
+    X_FORWARDED_PROTO("X-Forwarded-Proto"),
+    /**
+     * X-Requested-With
+     */
+    X_REQUESTED_WITH("X-Requested-With"),
+    /**
+     * Cookie
+     */
+    COOKIE("Cookie"),
+    /**
+     * Accept-Ranges
+     */
+    ACCEPT_RANGES("Accept-Ranges"),
+    /**
+     * ETag
+     */
+    ETAG("ETag"),
+    /**
+     * Location
+     */
+    LOCATION("Location"),
+    /**
+     * Server
+     */
+    SERVER("Server"),
+    /**
+     * Set-Cookie
+     */
+    SET_COOKIE("Set-Cookie"),
+    /**
+     * Vary
+     */
+    VARY("Vary"),
+    /**
+     * WWW-Authenticate
+     */
+    WWW_AUTHENTICATE("WWW-Authenticate");
+
+    /**
+     * 按名称查找的开放寻址哈希表，容量是 2 的幂
+     */
+    private static final HttpHeader[] TABLE = new HttpHeader[256];
+
+    static {
+        for (HttpHeader header : values()) {
+            int index = hash(header.lowerCaseBytes, 0, header.lowerCaseBytes.length) & (TABLE.length - 1);
+            while (TABLE[index] != null) {
+                index = (index + 1) & (TABLE.length - 1);
+            }
+            TABLE[index] = header;
+        }
+    }
 
     /**
      * header 字符串
      */
     private final String string;
 
+    /**
+     * header 字节数组
+     */
+    private final byte[] bytes;
+
+    /**
+     * 小写的 header 字节数组
+     */
+    private final byte[] lowerCaseBytes;
+
+    /**
+     * 预编码的 "header: " 字节数组，用于生成响应头
+     */
+    private final byte[] bytesColonSpace;
+
     HttpHeader(String string) {
         this.string = string;
+        this.bytes = StringUtils.getBytes(string);
+        this.bytesColonSpace = StringUtils.getBytes(string + ": ");
+        this.lowerCaseBytes = StringUtils.getBytes(StringUtils.asciiToLowerCase(string));
     }
 
     /**
@@ -28,4 +227,101 @@ public enum HttpHeader {
     public String asString() {
         return this.string;
     }
+
+    /**
+     * 转字节数组
+     *
+     * @return 字节数组
+     */
+    public byte[] getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * 获取预编码的 "header: " 字节数组
+     *
+     * @return "header: " 字节数组
+     */
+    public byte[] getBytesColonSpace() {
+        return this.bytesColonSpace;
+    }
+
+    /**
+     * 判断输入的 {@code str} 是否是当前 header，不区分大小写
+     *
+     * @param str 输入 {@code str}
+     * @return 是否是当前 header
+     */
+    public boolean is(String str) {
+        return this.string.equalsIgnoreCase(str);
+    }
+
+    @Override
+    public String toString() {
+        return this.string;
+    }
+
+    /**
+     * 按字节查找 header，不区分大小写，不创建对象
+     * <p>
+     * 通过 {@code b | 0x20} 转小写比较，调用方需要保证输入的字节都是 RFC 7230 中的 tchar，
+     * 否则控制字符可能被误判为 '-' 或者数字
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return header，不是已知 header 时返回 null
+     */
+    public static HttpHeader lookup(byte[] bytes, int offset, int length) {
+        int index = hash(bytes, offset, length) & (TABLE.length - 1);
+        HttpHeader header;
+        while ((header = TABLE[index]) != null) {
+            if (header.matches(bytes, offset, length)) {
+                return header;
+            }
+            index = (index + 1) & (TABLE.length - 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * 判断输入的字节是否是当前 header，不区分大小写
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否是当前 header
+     */
+    private boolean matches(byte[] bytes, int offset, int length) {
+        byte[] expected = this.lowerCaseBytes;
+        if (expected.length != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if ((bytes[offset + i] | 0x20) != expected[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 计算不区分大小写的哈希值
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 哈希值
+     */
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (bytes[offset + i] | 0x20);
+        }
+
+        return hash ^ (hash >>> 16);
+    }
 }
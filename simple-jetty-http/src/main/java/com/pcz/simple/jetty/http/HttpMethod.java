@@ -0,0 +1,117 @@
+package com.pcz.simple.jetty.http;
+
+import com.pcz.simple.jetty.core.util.StringUtils;
+
+/**
+ * HTTP 方法
+ *
+ * @author picongzhi
+ */
+public enum HttpMethod {
+    GET,
+    POST,
+    HEAD,
+    PUT,
+    OPTIONS,
+    DELETE,
+    TRACE,
+    CONNECT,
+    MOVE,
+    PROXY,
+    PRI,
+    PATCH;
+
+    /**
+     * 按首字节分组的方法，用于按字节查找
+     */
+    private static final HttpMethod[][] BY_FIRST_BYTE = new HttpMethod[128][];
+
+    static {
+        for (HttpMethod method : values()) {
+            int first = method.bytes[0];
+            HttpMethod[] methods = BY_FIRST_BYTE[first];
+            if (methods == null) {
+                methods = new HttpMethod[]{method};
+            } else {
+                HttpMethod[] grown = new HttpMethod[methods.length + 1];
+                System.arraycopy(methods, 0, grown, 0, methods.length);
+                grown[methods.length] = method;
+                methods = grown;
+            }
+            BY_FIRST_BYTE[first] = methods;
+        }
+    }
+
+    /**
+     * 方法字节数组
+     */
+    private final byte[] bytes;
+
+    HttpMethod() {
+        this.bytes = StringUtils.getBytes(name());
+    }
+
+    /**
+     * 转字节数组
+     *
+     * @return 字节数组
+     */
+    public byte[] toBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * 判断输入的 {@code str} 是否是当前方法，区分大小写
+     *
+     * @param str 输入 {@code str}
+     * @return 是否是当前方法
+     */
+    public boolean is(String str) {
+        return name().equals(str);
+    }
+
+    /**
+     * 转字符串
+     *
+     * @return 方法字符串
+     */
+    public String asString() {
+        return name();
+    }
+
+    /**
+     * 按字节查找方法，区分大小写，不创建对象
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 方法，不是已知方法时返回 null
+     */
+    public static HttpMethod lookup(byte[] bytes, int offset, int length) {
+        if (length <= 0 || bytes[offset] < 0) {
+            return null;
+        }
+
+        HttpMethod[] methods = BY_FIRST_BYTE[bytes[offset]];
+        if (methods == null) {
+            return null;
+        }
+
+        for (HttpMethod method : methods) {
+            byte[] expected = method.bytes;
+            if (expected.length != length) {
+                continue;
+            }
+
+            int i = 1;
+            while (i < length && bytes[offset + i] == expected[i]) {
+                i++;
+            }
+            if (i == length) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+}
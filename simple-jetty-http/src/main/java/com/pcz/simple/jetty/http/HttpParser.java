@@ -0,0 +1,1075 @@
+package com.pcz.simple.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HTTP/1.1 请求解析器
+ * <p>
+ * 增量解析：每次调用 {@link #parseNext(ByteBuffer)} 消费缓冲区中能消费的字节，数据不完整时
+ * 状态保存在解析器中，下次读到数据后继续解析，不需要调用方拼接缓冲区。
+ * <p>
+ * 解析过程尽量不创建对象：请求行和 header 的字节先拷贝到可复用的 {@link #token} 中，
+ * 方法、版本和常用的 header 名通过字节查找得到枚举，常用的 header 字段（如 {@code Connection: keep-alive}）
+ * 直接复用缓存的 {@link HttpField}，只有需要保留的 URI、未知的 header 名和字段值才会创建字符串。
+ * 内容通过临时调整缓冲区的 limit 交给 {@link RequestHandler#content(ByteBuffer)}，不创建切片。
+ * <p>
+ * 不是线程安全的，每个连接一个实例，一个请求解析完成后调用 {@link #reset()} 解析下一个请求
+ *
+ * @author picongzhi
+ */
+public class HttpParser {
+    /**
+     * 默认的请求行和 header 的最大字节数
+     */
+    public static final int DEFAULT_MAX_HEADER_BYTES = 8192;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SPACE = ' ';
+    private static final byte TAB = '\t';
+    private static final byte COLON = ':';
+    private static final byte SEMI_COLON = ';';
+
+    /**
+     * 需要更多数据
+     */
+    private static final int NEED_MORE = -1;
+
+    /**
+     * 小写的 chunked
+     */
+    private static final byte[] CHUNKED = "chunked".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * RFC 7230 中的 tchar
+     */
+    private static final boolean[] TCHAR = new boolean[256];
+
+    /**
+     * 十六进制字符对应的值，不是十六进制字符时为 -1
+     */
+    private static final byte[] HEX = new byte[256];
+
+    /**
+     * 按 {@link HttpHeader} 序号索引的常用字段缓存
+     */
+    private static final HttpField[][] CACHE = new HttpField[HttpHeader.values().length][];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            TCHAR[c] = true;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            TCHAR[c] = true;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            TCHAR[c] = true;
+        }
+        for (char c : "!#$%&'*+-.^_`|~".toCharArray()) {
+            TCHAR[c] = true;
+        }
+
+        Arrays.fill(HEX, (byte) -1);
+        for (int c = '0'; c <= '9'; c++) {
+            HEX[c] = (byte) (c - '0');
+        }
+        for (int c = 'a'; c <= 'f'; c++) {
+            HEX[c] = (byte) (c - 'a' + 10);
+            HEX[c - 'a' + 'A'] = (byte) (c - 'a' + 10);
+        }
+
+        cache(HttpHeader.CONNECTION, "close", "keep-alive", "Keep-Alive", "Upgrade");
+        cache(HttpHeader.ACCEPT, "*/*", "application/json", "text/html",
+                "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+                "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8");
+        cache(HttpHeader.ACCEPT_ENCODING, "gzip", "gzip, deflate", "gzip, deflate, br",
+                "gzip, deflate, br, zstd", "identity");
+        cache(HttpHeader.ACCEPT_LANGUAGE, "en", "en-US", "en-US,en;q=0.5", "en-US,en;q=0.9");
+        cache(HttpHeader.CACHE_CONTROL, "no-cache", "max-age=0", "no-store");
+        cache(HttpHeader.PRAGMA, "no-cache");
+        cache(HttpHeader.CONTENT_LENGTH, "0");
+        cache(HttpHeader.CONTENT_TYPE, "application/json", "application/x-www-form-urlencoded",
+                "application/octet-stream", "text/plain", "text/plain;charset=UTF-8", "text/html");
+        cache(HttpHeader.TRANSFER_ENCODING, "chunked");
+        cache(HttpHeader.EXPECT, "100-continue");
+        cache(HttpHeader.UPGRADE, "websocket", "h2c");
+        cache(HttpHeader.X_REQUESTED_WITH, "XMLHttpRequest");
+    }
+
+    /**
+     * 请求处理器
+     */
+    private final RequestHandler handler;
+
+    /**
+     * 请求行和 header 的最大字节数
+     */
+    private final int maxHeaderBytes;
+
+    /**
+     * 当前状态
+     */
+    private State state = State.START;
+
+    /**
+     * 是否读到 EOF
+     */
+    private boolean eof;
+
+    /**
+     * 是否读到 CR，等待 LF
+     */
+    private boolean cr;
+
+    /**
+     * 可复用的 token 缓冲区，请求行的各部分和 header 的名、值依次拷贝到这里
+     */
+    private byte[] token = new byte[256];
+
+    /**
+     * token 的长度
+     */
+    private int tokenLength;
+
+    /**
+     * header 名的长度，header 值紧跟在名之后
+     */
+    private int nameLength;
+
+    /**
+     * header 值去掉尾部空白后的结束位置
+     */
+    private int valueEnd;
+
+    /**
+     * 已经消费的请求行和 header 的字节数
+     */
+    private int headerBytes;
+
+    /**
+     * 请求方法
+     */
+    private String method;
+
+    /**
+     * 请求 URI
+     */
+    private String uri;
+
+    /**
+     * HTTP 版本
+     */
+    private HttpVersion version;
+
+    /**
+     * 可复用的 header 字段数组，请求头解析完成后拷贝到 {@link MetaData}
+     */
+    private HttpField[] fields = new HttpField[16];
+
+    /**
+     * header 字段数
+     */
+    private int fieldCount;
+
+    /**
+     * 是否有 Host 字段
+     */
+    private boolean host;
+
+    /**
+     * Content-Length，没有时为 -1
+     */
+    private long contentLength;
+
+    /**
+     * 已经消费的内容字节数
+     */
+    private long contentPosition;
+
+    /**
+     * 是否有 Transfer-Encoding
+     */
+    private boolean transferEncoding;
+
+    /**
+     * 是否是 chunked 编码，即目前为止所有 Transfer-Encoding 合并后的最后一个编码是 chunked
+     */
+    private boolean chunked;
+
+    /**
+     * 当前 chunk 的长度
+     */
+    private long chunkLength;
+
+    /**
+     * 当前 chunk 长度的十六进制位数
+     */
+    private int chunkDigits;
+
+    /**
+     * 当前 chunk 已经消费的字节数
+     */
+    private long chunkPosition;
+
+    public HttpParser(RequestHandler handler) {
+        this(handler, DEFAULT_MAX_HEADER_BYTES);
+    }
+
+    public HttpParser(RequestHandler handler, int maxHeaderBytes) {
+        if (maxHeaderBytes <= 0) {
+            throw new IllegalArgumentException("Invalid maxHeaderBytes " + maxHeaderBytes);
+        }
+
+        this.handler = handler;
+        this.maxHeaderBytes = maxHeaderBytes;
+        reset();
+    }
+
+    /**
+     * 缓存常用的字段
+     *
+     * @param header {@link HttpHeader}
+     * @param values 字段值
+     */
+    private static void cache(HttpHeader header, String... values) {
+        HttpField[] fields = new HttpField[values.length];
+        for (int i = 0; i < values.length; i++) {
+            fields[i] = new HttpField(header, values[i]);
+        }
+        CACHE[header.ordinal()] = fields;
+    }
+
+    public RequestHandler getHandler() {
+        return this.handler;
+    }
+
+    public int getMaxHeaderBytes() {
+        return this.maxHeaderBytes;
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * 判断是否在等待新的请求
+     *
+     * @return 是否在等待新的请求
+     */
+    public boolean isStart() {
+        return this.state == State.START;
+    }
+
+    /**
+     * 判断当前请求是否已经解析完成
+     *
+     * @return 当前请求是否已经解析完成
+     */
+    public boolean isComplete() {
+        return this.state == State.END;
+    }
+
+    /**
+     * 判断解析器是否已经关闭
+     *
+     * @return 解析器是否已经关闭
+     */
+    public boolean isClosed() {
+        return this.state == State.CLOSED;
+    }
+
+    /**
+     * 判断当前请求是否是 chunked 编码
+     *
+     * @return 当前请求是否是 chunked 编码
+     */
+    public boolean isChunking() {
+        return this.chunked;
+    }
+
+    /**
+     * 获取当前请求的 Content-Length
+     *
+     * @return Content-Length，没有时返回 -1
+     */
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
+    /**
+     * 标记读到 EOF，缓冲区中剩余的字节消费完之后，根据当前状态结束解析
+     */
+    public void atEOF() {
+        this.eof = true;
+    }
+
+    /**
+     * 重置，准备解析下一个请求，已经读到 EOF 时直接关闭
+     */
+    public void reset() {
+        this.state = this.eof ? State.CLOSED : State.START;
+        this.cr = false;
+        this.tokenLength = 0;
+        this.nameLength = 0;
+        this.valueEnd = 0;
+        this.headerBytes = 0;
+        this.method = null;
+        this.uri = null;
+        this.version = null;
+        Arrays.fill(this.fields, 0, this.fieldCount, null);
+        this.fieldCount = 0;
+        this.host = false;
+        this.contentLength = -1;
+        this.contentPosition = 0;
+        this.transferEncoding = false;
+        this.chunked = false;
+        this.chunkLength = 0;
+        this.chunkDigits = 0;
+        this.chunkPosition = 0;
+    }
+
+    /**
+     * 关闭解析器，之后的字节都会被丢弃
+     */
+    public void close() {
+        this.state = State.CLOSED;
+    }
+
+    /**
+     * 解析缓冲区中的字节，可以多次调用，每次从上次停下的位置继续
+     *
+     * @param buffer 待解析的缓冲区
+     * @return 是否需要调用方处理，即处理器的回调返回了 true
+     */
+    public boolean parseNext(ByteBuffer buffer) {
+        try {
+            if (this.state.ordinal() < State.CONTENT.ordinal() && parseHeaders(buffer)) {
+                return true;
+            }
+
+            if (this.state.ordinal() >= State.CONTENT.ordinal()
+                    && this.state.ordinal() < State.END.ordinal()
+                    && parseContent(buffer)) {
+                return true;
+            }
+
+            if (this.state == State.CLOSED) {
+                buffer.position(buffer.limit());
+            }
+
+            if (this.eof && !buffer.hasRemaining()) {
+                parseEOF();
+            }
+
+            return false;
+        } catch (BadMessageException e) {
+            buffer.position(buffer.limit());
+            badMessage(e);
+            return false;
+        }
+    }
+
+    /**
+     * 解析请求行和 header
+     *
+     * @param buffer 缓冲区
+     * @return 是否需要调用方处理
+     */
+    private boolean parseHeaders(ByteBuffer buffer) {
+        while (this.state.ordinal() < State.CONTENT.ordinal() && buffer.hasRemaining()) {
+            int position = buffer.position();
+            int ch = next(buffer);
+            this.headerBytes += buffer.position() - position;
+            if (this.headerBytes > this.maxHeaderBytes) {
+                if (this.state == State.URI) {
+                    throw new BadMessageException(HttpStatus.URI_TOO_LONG_414, null);
+                }
+                throw new BadMessageException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE_431, null);
+            }
+            if (ch == NEED_MORE) {
+                break;
+            }
+
+            switch (this.state) {
+                case START:
+                    // 忽略请求行之前的空行
+                    if (ch == LF) {
+                        break;
+                    }
+                    this.state = State.METHOD;
+                    parseMethod(ch);
+                    break;
+                case METHOD:
+                    parseMethod(ch);
+                    break;
+                case URI:
+                    parseUri(ch);
+                    break;
+                case REQUEST_VERSION:
+                    parseVersion(ch);
+                    break;
+                case HEADER:
+                    if (ch == LF) {
+                        return headerComplete();
+                    }
+                    if (ch == SPACE || ch == TAB) {
+                        throw new BadMessageException("Header folding");
+                    }
+                    this.state = State.HEADER_NAME;
+                    parseHeaderName(ch);
+                    break;
+                case HEADER_NAME:
+                    parseHeaderName(ch);
+                    break;
+                case HEADER_VALUE:
+                    parseHeaderValue(ch);
+                    break;
+                default:
+                    throw new IllegalStateException(this.state.toString());
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 解析请求方法
+     *
+     * @param ch 字符
+     */
+    private void parseMethod(int ch) {
+        if (ch == SPACE) {
+            if (this.tokenLength == 0) {
+                throw new BadMessageException("No method");
+            }
+
+            HttpMethod httpMethod = HttpMethod.lookup(this.token, 0, this.tokenLength);
+            this.method = httpMethod == null
+                    ? new String(this.token, 0, this.tokenLength, StandardCharsets.US_ASCII)
+                    : httpMethod.asString();
+            this.tokenLength = 0;
+            this.state = State.URI;
+            return;
+        }
+
+        if (!TCHAR[ch]) {
+            throw new BadMessageException("Illegal character in method");
+        }
+        append(ch);
+    }
+
+    /**
+     * 解析请求 URI
+     *
+     * @param ch 字符
+     */
+    private void parseUri(int ch) {
+        if (ch == SPACE) {
+            if (this.tokenLength == 0) {
+                throw new BadMessageException("No URI");
+            }
+
+            this.uri = new String(this.token, 0, this.tokenLength, StandardCharsets.US_ASCII);
+            this.tokenLength = 0;
+            this.state = State.REQUEST_VERSION;
+            return;
+        }
+
+        if (ch == LF) {
+            throw new BadMessageException(HttpStatus.HTTP_VERSION_NOT_SUPPORTED_505, "HTTP/0.9 not supported");
+        }
+        if (ch <= SPACE || ch >= 0x7F) {
+            throw new BadMessageException("Illegal character in URI");
+        }
+        append(ch);
+    }
+
+    /**
+     * 解析请求行中的 HTTP 版本
+     *
+     * @param ch 字符
+     */
+    private void parseVersion(int ch) {
+        if (ch == LF) {
+            HttpVersion httpVersion = HttpVersion.lookup(this.token, 0, this.tokenLength);
+            if (httpVersion != HttpVersion.HTTP_1_1 && httpVersion != HttpVersion.HTTP_1_0) {
+                throw new BadMessageException(HttpStatus.HTTP_VERSION_NOT_SUPPORTED_505, "Unknown version");
+            }
+
+            this.version = httpVersion;
+            this.tokenLength = 0;
+            this.state = State.HEADER;
+            this.handler.startRequest(this.method, this.uri, this.version);
+            return;
+        }
+
+        if (ch <= SPACE || ch >= 0x7F) {
+            throw new BadMessageException("Illegal character in version");
+        }
+        append(ch);
+    }
+
+    /**
+     * 解析 header 名
+     *
+     * @param ch 字符
+     */
+    private void parseHeaderName(int ch) {
+        if (ch == COLON) {
+            if (this.tokenLength == 0) {
+                throw new BadMessageException("No header name");
+            }
+
+            this.nameLength = this.tokenLength;
+            this.valueEnd = this.tokenLength;
+            this.state = State.HEADER_VALUE;
+            return;
+        }
+
+        if (ch == LF) {
+            throw new BadMessageException("No colon");
+        }
+        if (!TCHAR[ch]) {
+            throw new BadMessageException("Illegal character in header name");
+        }
+        append(ch);
+    }
+
+    /**
+     * 解析 header 值，忽略首尾的空白
+     *
+     * @param ch 字符
+     */
+    private void parseHeaderValue(int ch) {
+        if (ch == LF) {
+            parsedHeader();
+            this.tokenLength = 0;
+            this.state = State.HEADER;
+            return;
+        }
+
+        if (ch == SPACE || ch == TAB) {
+            if (this.tokenLength > this.nameLength) {
+                append(ch);
+            }
+            return;
+        }
+
+        // VCHAR 和 obs-text
+        if (ch < SPACE || ch == 0x7F) {
+            throw new BadMessageException("Illegal character in header value");
+        }
+        append(ch);
+        this.valueEnd = this.tokenLength;
+    }
+
+    /**
+     * 一个 header 字段解析完成
+     */
+    private void parsedHeader() {
+        HttpHeader header = HttpHeader.lookup(this.token, 0, this.nameLength);
+        int valueLength = this.valueEnd - this.nameLength;
+
+        if (header != null) {
+            switch (header) {
+                case CONTENT_LENGTH:
+                    parseContentLength(valueLength);
+                    break;
+                case TRANSFER_ENCODING:
+                    parseTransferEncoding();
+                    break;
+                case HOST:
+                    if (this.host) {
+                        throw new BadMessageException("Duplicate Host");
+                    }
+                    this.host = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        HttpField field = header == null ? null : cached(header, this.token, this.nameLength, valueLength);
+        if (field == null) {
+            String name = header == null
+                    ? new String(this.token, 0, this.nameLength, StandardCharsets.US_ASCII)
+                    : header.asString();
+            String value = new String(this.token, this.nameLength, valueLength, StandardCharsets.ISO_8859_1);
+            field = new HttpField(header, name, value);
+        }
+
+        if (this.fieldCount == this.fields.length) {
+            this.fields = Arrays.copyOf(this.fields, this.fields.length * 2);
+        }
+        this.fields[this.fieldCount++] = field;
+        this.handler.parsedHeader(field);
+    }
+
+    /**
+     * 从字节中解析 Content-Length，不创建字符串
+     *
+     * @param valueLength 值的长度
+     */
+    private void parseContentLength(int valueLength) {
+        if (valueLength == 0) {
+            throw new BadMessageException("Invalid Content-Length");
+        }
+
+        long length = 0;
+        for (int i = this.nameLength; i < this.valueEnd; i++) {
+            int digit = this.token[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new BadMessageException("Invalid Content-Length");
+            }
+            if (length > (Long.MAX_VALUE - digit) / 10) {
+                throw new BadMessageException(HttpStatus.PAYLOAD_TOO_LARGE_413, "Content-Length too large");
+            }
+            length = length * 10 + digit;
+        }
+
+        // 值相同的重复 Content-Length 也拒绝，避免与前置代理对请求边界的理解不一致
+        if (this.contentLength >= 0) {
+            throw new BadMessageException("Duplicate Content-Length");
+        }
+        this.contentLength = length;
+    }
+
+    /**
+     * 解析 Transfer-Encoding，多个 Transfer-Encoding 按出现的顺序合并为一个编码列表，
+     * chunked 必须是列表中的最后一个编码，且只能出现一次，在所有 header 解析完成时检查
+     */
+    private void parseTransferEncoding() {
+        this.transferEncoding = true;
+
+        int i = this.nameLength;
+        while (i < this.valueEnd) {
+            byte b = this.token[i];
+            if (b == ',' || b == SPACE || b == TAB) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            while (i < this.valueEnd && this.token[i] != ',') {
+                i++;
+            }
+            int end = i;
+            while (end > start && (this.token[end - 1] == SPACE || this.token[end - 1] == TAB)) {
+                end--;
+            }
+
+            // chunked 之后还有编码
+            if (this.chunked) {
+                throw new BadMessageException("Bad Transfer-Encoding, chunked not last");
+            }
+            this.chunked = end - start == CHUNKED.length && equalsIgnoreCase(this.token, start, CHUNKED);
+        }
+    }
+
+    /**
+     * 所有 header 解析完成
+     *
+     * @return 是否需要调用方处理
+     */
+    private boolean headerComplete() {
+        if (this.transferEncoding && this.contentLength >= 0) {
+            throw new BadMessageException("Transfer-Encoding and Content-Length");
+        }
+        if (this.transferEncoding && !this.chunked) {
+            throw new BadMessageException("Bad Transfer-Encoding, chunked not last");
+        }
+        if (this.version == HttpVersion.HTTP_1_1 && !this.host) {
+            throw new BadMessageException("No Host");
+        }
+
+        HttpFields.Immutable fields = this.fieldCount == 0
+                ? HttpFields.EMPTY
+                : new HttpFields.Immutable(Arrays.copyOf(this.fields, this.fieldCount));
+        long length = this.chunked ? -1 : Math.max(0, this.contentLength);
+        MetaData.Request request = new MetaData.Request(this.method, this.uri, this.version, fields, length);
+
+        if (this.chunked) {
+            this.state = State.CHUNK_SIZE;
+        } else if (length > 0) {
+            this.state = State.CONTENT;
+        } else {
+            this.state = State.END;
+        }
+
+        boolean handle = this.handler.headerComplete(request);
+        if (this.state == State.END) {
+            handle |= this.handler.messageComplete();
+        }
+        return handle;
+    }
+
+    /**
+     * 解析内容
+     *
+     * @param buffer 缓冲区
+     * @return 是否需要调用方处理
+     */
+    private boolean parseContent(ByteBuffer buffer) {
+        while (this.state.ordinal() < State.END.ordinal() && buffer.hasRemaining()) {
+            switch (this.state) {
+                case CONTENT: {
+                    long remaining = this.contentLength - this.contentPosition;
+                    int length = (int) Math.min(remaining, buffer.remaining());
+                    this.contentPosition += length;
+                    boolean handle = content(buffer, length);
+                    if (this.contentPosition == this.contentLength) {
+                        this.state = State.END;
+                        handle |= this.handler.messageComplete();
+                    }
+                    if (handle) {
+                        return true;
+                    }
+                    break;
+                }
+                case CHUNK: {
+                    long remaining = this.chunkLength - this.chunkPosition;
+                    int length = (int) Math.min(remaining, buffer.remaining());
+                    this.chunkPosition += length;
+                    if (this.chunkPosition == this.chunkLength) {
+                        this.state = State.CHUNK_END;
+                    }
+                    if (content(buffer, length)) {
+                        return true;
+                    }
+                    break;
+                }
+                default: {
+                    int ch = next(buffer);
+                    if (ch == NEED_MORE) {
+                        break;
+                    }
+                    if (parseChunkLine(ch)) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 解析 chunk 的长度行、结束符和 trailer，trailer 不保留
+     *
+     * @param ch 字符
+     * @return 是否需要调用方处理
+     */
+    private boolean parseChunkLine(int ch) {
+        switch (this.state) {
+            case CHUNK_SIZE:
+                if (ch == LF) {
+                    chunkSize();
+                } else if (ch == SEMI_COLON || ch == SPACE || ch == TAB) {
+                    this.state = State.CHUNK_PARAMS;
+                } else {
+                    int digit = HEX[ch];
+                    if (digit < 0) {
+                        throw new BadMessageException("Bad chunk size");
+                    }
+                    if (++this.chunkDigits > 15) {
+                        throw new BadMessageException(HttpStatus.PAYLOAD_TOO_LARGE_413, "Chunk too large");
+                    }
+                    this.chunkLength = this.chunkLength * 16 + digit;
+                }
+                return false;
+            case CHUNK_PARAMS:
+                if (ch == LF) {
+                    chunkSize();
+                }
+                return false;
+            case CHUNK_END:
+                if (ch != LF) {
+                    throw new BadMessageException("Bad chunk end");
+                }
+                this.state = State.CHUNK_SIZE;
+                this.chunkLength = 0;
+                return false;
+            case TRAILER:
+                if (ch == LF) {
+                    this.state = State.END;
+                    return this.handler.messageComplete();
+                }
+                this.state = State.TRAILER_LINE;
+                trailerByte();
+                return false;
+            case TRAILER_LINE:
+                if (ch == LF) {
+                    this.state = State.TRAILER;
+                }
+                trailerByte();
+                return false;
+            default:
+                throw new IllegalStateException(this.state.toString());
+        }
+    }
+
+    /**
+     * chunk 的长度行解析完成
+     */
+    private void chunkSize() {
+        if (this.chunkDigits == 0) {
+            throw new BadMessageException("Bad chunk size");
+        }
+
+        this.state = this.chunkLength == 0 ? State.TRAILER : State.CHUNK;
+        this.headerBytes = 0;
+        this.chunkDigits = 0;
+        this.chunkPosition = 0;
+    }
+
+    /**
+     * 统计 trailer 的字节数
+     */
+    private void trailerByte() {
+        if (++this.headerBytes > this.maxHeaderBytes) {
+            throw new BadMessageException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE_431, "Trailer too large");
+        }
+    }
+
+    /**
+     * 把缓冲区中接下来的 {@code length} 个字节交给处理器
+     * 回调期间临时调整缓冲区的 limit，回调返回后缓冲区的位置移动到内容之后
+     *
+     * @param buffer 缓冲区
+     * @param length 内容长度
+     * @return 是否需要调用方处理
+     */
+    private boolean content(ByteBuffer buffer, int length) {
+        int limit = buffer.limit();
+        int end = buffer.position() + length;
+        buffer.limit(end);
+        try {
+            return this.handler.content(buffer);
+        } finally {
+            buffer.limit(limit);
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * 读到 EOF 且缓冲区已经消费完
+     */
+    private void parseEOF() {
+        switch (this.state) {
+            case START:
+            case END:
+                this.state = State.CLOSED;
+                break;
+            case CLOSED:
+                break;
+            case CONTENT:
+            case CHUNK_SIZE:
+            case CHUNK_PARAMS:
+            case CHUNK:
+            case CHUNK_END:
+            case TRAILER:
+            case TRAILER_LINE:
+                this.state = State.CLOSED;
+                this.handler.earlyEOF();
+                break;
+            default:
+                badMessage(new BadMessageException("Early EOF"));
+                break;
+        }
+    }
+
+    /**
+     * 错误的消息，关闭解析器并通知处理器
+     *
+     * @param failure 错误
+     */
+    private void badMessage(BadMessageException failure) {
+        this.state = State.CLOSED;
+        this.handler.badMessage(failure);
+    }
+
+    /**
+     * 读取下一个字符，CRLF 和单独的 LF 都返回 LF
+     *
+     * @param buffer 缓冲区
+     * @return 字符，CR 在缓冲区末尾时返回 {@link #NEED_MORE}
+     */
+    private int next(ByteBuffer buffer) {
+        byte b = buffer.get();
+        if (this.cr) {
+            this.cr = false;
+            if (b != LF) {
+                throw new BadMessageException("Bad EOL");
+            }
+            return LF;
+        }
+
+        if (b == CR) {
+            if (!buffer.hasRemaining()) {
+                this.cr = true;
+                return NEED_MORE;
+            }
+            if (buffer.get() != LF) {
+                throw new BadMessageException("Bad EOL");
+            }
+            return LF;
+        }
+
+        return b & 0xFF;
+    }
+
+    /**
+     * 追加字符到 token
+     *
+     * @param ch 字符
+     */
+    private void append(int ch) {
+        if (this.tokenLength == this.token.length) {
+            this.token = Arrays.copyOf(this.token, Math.min(this.token.length * 2, this.maxHeaderBytes));
+        }
+        this.token[this.tokenLength++] = (byte) ch;
+    }
+
+    /**
+     * 查找缓存的字段
+     *
+     * @param header {@link HttpHeader}
+     * @param bytes  字节数组
+     * @param offset 值的起始位置
+     * @param length 值的长度
+     * @return 缓存的字段，没有时返回 null
+     */
+    private static HttpField cached(HttpHeader header, byte[] bytes, int offset, int length) {
+        HttpField[] fields = CACHE[header.ordinal()];
+        if (fields == null) {
+            return null;
+        }
+
+        for (HttpField field : fields) {
+            String value = field.getValue();
+            if (value.length() != length) {
+                continue;
+            }
+
+            int i = 0;
+            while (i < length && bytes[offset + i] == value.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 不区分大小写比较字节
+     *
+     * @param bytes    字节数组
+     * @param offset   起始位置
+     * @param expected 期望的小写字节
+     * @return 是否相等
+     */
+    private static boolean equalsIgnoreCase(byte[] bytes, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if ((bytes[offset + i] | 0x20) != expected[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{s=%s,cl=%d,chunked=%b}",
+                getClass().getSimpleName(),
+                hashCode(),
+                this.state,
+                this.contentLength,
+                this.chunked);
+    }
+
+    /**
+     * 解析状态
+     */
+    public enum State {
+        START,
+        METHOD,
+        URI,
+        REQUEST_VERSION,
+        HEADER,
+        HEADER_NAME,
+        HEADER_VALUE,
+        CONTENT,
+        CHUNK_SIZE,
+        CHUNK_PARAMS,
+        CHUNK,
+        CHUNK_END,
+        TRAILER,
+        TRAILER_LINE,
+        END,
+        CLOSED
+    }
+
+    /**
+     * 请求处理器，回调返回 true 时 {@link #parseNext(ByteBuffer)} 立即返回
+     */
+    public interface RequestHandler {
+        /**
+         * 请求行解析完成
+         *
+         * @param method  请求方法
+         * @param uri     请求 URI
+         * @param version HTTP 版本
+         */
+        void startRequest(String method, String uri, HttpVersion version);
+
+        /**
+         * 一个 header 字段解析完成
+         *
+         * @param field header 字段
+         */
+        void parsedHeader(HttpField field);
+
+        /**
+         * 所有 header 解析完成
+         *
+         * @param request 请求元数据
+         * @return 是否需要 {@link #parseNext(ByteBuffer)} 立即返回
+         */
+        boolean headerComplete(MetaData.Request request);
+
+        /**
+         * 解析到内容，缓冲区只在回调期间有效，需要保留时要拷贝
+         *
+         * @param content 内容
+         * @return 是否需要 {@link #parseNext(ByteBuffer)} 立即返回
+         */
+        boolean content(ByteBuffer content);
+
+        /**
+         * 请求解析完成
+         *
+         * @return 是否需要 {@link #parseNext(ByteBuffer)} 立即返回
+         */
+        boolean messageComplete();
+
+        /**
+         * 错误的请求，解析器已经关闭
+         *
+         * @param failure 错误
+         */
+        void badMessage(BadMessageException failure);
+
+        /**
+         * 内容读完之前 EOF
+         */
+        default void earlyEOF() {
+        }
+    }
+}
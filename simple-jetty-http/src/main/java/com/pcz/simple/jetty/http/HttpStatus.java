@@ -0,0 +1,145 @@
+package com.pcz.simple.jetty.http;
+
+/**
+ * HTTP 状态码
+ *
+ * @author picongzhi
+ */
+public class HttpStatus {
+    public static final int CONTINUE_100 = 100;
+    public static final int SWITCHING_PROTOCOLS_101 = 101;
+
+    public static final int OK_200 = 200;
+    public static final int CREATED_201 = 201;
+    public static final int ACCEPTED_202 = 202;
+    public static final int NO_CONTENT_204 = 204;
+    public static final int PARTIAL_CONTENT_206 = 206;
+
+    public static final int MOVED_PERMANENTLY_301 = 301;
+    public static final int FOUND_302 = 302;
+    public static final int SEE_OTHER_303 = 303;
+    public static final int NOT_MODIFIED_304 = 304;
+    public static final int TEMPORARY_REDIRECT_307 = 307;
+    public static final int PERMANENT_REDIRECT_308 = 308;
+
+    public static final int BAD_REQUEST_400 = 400;
+    public static final int UNAUTHORIZED_401 = 401;
+    public static final int FORBIDDEN_403 = 403;
+    public static final int NOT_FOUND_404 = 404;
+    public static final int METHOD_NOT_ALLOWED_405 = 405;
+    public static final int REQUEST_TIMEOUT_408 = 408;
+    public static final int CONFLICT_409 = 409;
+    public static final int LENGTH_REQUIRED_411 = 411;
+    public static final int PAYLOAD_TOO_LARGE_413 = 413;
+    public static final int URI_TOO_LONG_414 = 414;
+    public static final int UNSUPPORTED_MEDIA_TYPE_415 = 415;
+    public static final int EXPECTATION_FAILED_417 = 417;
+    public static final int TOO_MANY_REQUESTS_429 = 429;
+    public static final int REQUEST_HEADER_FIELDS_TOO_LARGE_431 = 431;
+
+    public static final int INTERNAL_SERVER_ERROR_500 = 500;
+    public static final int NOT_IMPLEMENTED_501 = 501;
+    public static final int BAD_GATEWAY_502 = 502;
+    public static final int SERVICE_UNAVAILABLE_503 = 503;
+    public static final int GATEWAY_TIMEOUT_504 = 504;
+    public static final int HTTP_VERSION_NOT_SUPPORTED_505 = 505;
+
+    /**
+     * 获取状态码的原因短语
+     *
+     * @param code 状态码
+     * @return 原因短语，未知的状态码返回状态码本身
+     */
+    public static String getMessage(int code) {
+        switch (code) {
+            case CONTINUE_100:
+                return "Continue";
+            case SWITCHING_PROTOCOLS_101:
+                return "Switching Protocols";
+            case OK_200:
+                return "OK";
+            case CREATED_201:
+                return "Created";
+            case ACCEPTED_202:
+                return "Accepted";
+            case NO_CONTENT_204:
+                return "No Content";
+            case PARTIAL_CONTENT_206:
+                return "Partial Content";
+            case MOVED_PERMANENTLY_301:
+                return "Moved Permanently";
+            case FOUND_302:
+                return "Found";
+            case SEE_OTHER_303:
+                return "See Other";
+            case NOT_MODIFIED_304:
+                return "Not Modified";
+            case TEMPORARY_REDIRECT_307:
+                return "Temporary Redirect";
+            case PERMANENT_REDIRECT_308:
+                return "Permanent Redirect";
+            case BAD_REQUEST_400:
+                return "Bad Request";
+            case UNAUTHORIZED_401:
+                return "Unauthorized";
+            case FORBIDDEN_403:
+                return "Forbidden";
+            case NOT_FOUND_404:
+                return "Not Found";
+            case METHOD_NOT_ALLOWED_405:
+                return "Method Not Allowed";
+            case REQUEST_TIMEOUT_408:
+                return "Request Timeout";
+            case CONFLICT_409:
+                return "Conflict";
+            case LENGTH_REQUIRED_411:
+                return "Length Required";
+            case PAYLOAD_TOO_LARGE_413:
+                return "Payload Too Large";
+            case URI_TOO_LONG_414:
+                return "URI Too Long";
+            case UNSUPPORTED_MEDIA_TYPE_415:
+                return "Unsupported Media Type";
+            case EXPECTATION_FAILED_417:
+                return "Expectation Failed";
+            case TOO_MANY_REQUESTS_429:
+                return "Too Many Requests";
+            case REQUEST_HEADER_FIELDS_TOO_LARGE_431:
+                return "Request Header Fields Too Large";
+            case INTERNAL_SERVER_ERROR_500:
+                return "Server Error";
+            case NOT_IMPLEMENTED_501:
+                return "Not Implemented";
+            case BAD_GATEWAY_502:
+                return "Bad Gateway";
+            case SERVICE_UNAVAILABLE_503:
+                return "Service Unavailable";
+            case GATEWAY_TIMEOUT_504:
+                return "Gateway Timeout";
+            case HTTP_VERSION_NOT_SUPPORTED_505:
+                return "HTTP Version Not Supported";
+            default:
+                return Integer.toString(code);
+        }
+    }
+
+    /**
+     * 判断是否是 1xx 状态码
+     *
+     * @param code 状态码
+     * @return 是否是 1xx 状态码
+     */
+    public static boolean isInformational(int code) {
+        return code >= 100 && code < 200;
+    }
+
+    /**
+     * 判断响应是否不能有响应体，即 1xx、204 和 304
+     *
+     * @param code 状态码
+     * @return 响应是否不能有响应体
+     */
+    public static boolean hasNoBody(int code) {
+        return isInformational(code) || code == NO_CONTENT_204 || code == NOT_MODIFIED_304;
+    }
+}
@@ -31,6 +31,11 @@ public enum HttpVersion {
      */
     HTTP_3("HTTP/3.0", 30);
 
+    /**
+     * 所有版本，避免 {@link #values()} 每次复制数组
+     */
+    private static final HttpVersion[] VALUES = values();
+
     /**
      * 版本字符串
      */
@@ -108,4 +113,34 @@ public enum HttpVersion {
     public String toString() {
         return this.string;
     }
+
+    /**
+     * 按字节查找版本，区分大小写，不创建对象
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 版本，不是已知版本时返回 null
+     */
+    public static HttpVersion lookup(byte[] bytes, int offset, int length) {
+        // 版本都是 HTTP/x.y 的形式，前缀相同时只需比较 x 和 y
+        if (length != 8
+                || bytes[offset] != 'H'
+                || bytes[offset + 1] != 'T'
+                || bytes[offset + 2] != 'T'
+                || bytes[offset + 3] != 'P'
+                || bytes[offset + 4] != '/'
+                || bytes[offset + 6] != '.') {
+            return null;
+        }
+
+        for (HttpVersion version : VALUES) {
+            byte[] expected = version.bytes;
+            if (bytes[offset + 5] == expected[5] && bytes[offset + 7] == expected[7]) {
+                return version;
+            }
+        }
+
+        return null;
+    }
 }
@@ -1,5 +1,6 @@
 package com.pcz.simple.jetty.http;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.function.Supplier;
 
@@ -48,8 +49,154 @@ public class MetaData implements Iterable<HttpField> {
         this.trailerSupplier = trailerSupplier;
     }
 
+    /**
+     * 获取 HTTP 版本
+     *
+     * @return HTTP 版本
+     */
+    public HttpVersion getHttpVersion() {
+        return this.version;
+    }
+
+    /**
+     * 获取 HTTP 字段
+     *
+     * @return HTTP 字段
+     */
+    public HttpFields getFields() {
+        return this.fields;
+    }
+
+    /**
+     * 获取内容长度
+     *
+     * @return 内容长度，未知时返回 -1
+     */
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
     @Override
     public Iterator<HttpField> iterator() {
-        return null;
+        return this.fields == null
+                ? Collections.emptyIterator()
+                : this.fields.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s,contentLength=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                this.version,
+                this.contentLength);
+    }
+
+    /**
+     * 请求元数据
+     */
+    public static class Request extends MetaData {
+        /**
+         * 请求方法
+         */
+        private final String method;
+
+        /**
+         * 请求 URI
+         */
+        private final String uri;
+
+        public Request(String method, String uri, HttpVersion version, HttpFields fields, long contentLength) {
+            super(version, fields, contentLength);
+            this.method = method;
+            this.uri = uri;
+        }
+
+        /**
+         * 获取请求方法
+         *
+         * @return 请求方法
+         */
+        public String getMethod() {
+            return this.method;
+        }
+
+        /**
+         * 获取请求 URI
+         *
+         * @return 请求 URI
+         */
+        public String getUri() {
+            return this.uri;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s %s %s,contentLength=%d}",
+                    getClass().getSimpleName(),
+                    hashCode(),
+                    this.method,
+                    this.uri,
+                    getHttpVersion(),
+                    getContentLength());
+        }
+    }
+
+    /**
+     * 响应元数据
+     */
+    public static class Response extends MetaData {
+        /**
+         * 状态码
+         */
+        private final int status;
+
+        /**
+         * 原因短语
+         */
+        private final String reason;
+
+        public Response(HttpVersion version, int status, HttpFields fields) {
+            this(version, status, null, fields, -1);
+        }
+
+        public Response(HttpVersion version, int status, HttpFields fields, long contentLength) {
+            this(version, status, null, fields, contentLength);
+        }
+
+        public Response(HttpVersion version, int status, String reason, HttpFields fields, long contentLength) {
+            super(version, fields, contentLength);
+            this.status = status;
+            this.reason = reason;
+        }
+
+        /**
+         * 获取状态码
+         *
+         * @return 状态码
+         */
+        public int getStatus() {
+            return this.status;
+        }
+
+        /**
+         * 获取原因短语
+         *
+         * @return 原因短语，为 null 时使用状态码默认的原因短语
+         */
+        public String getReason() {
+            return this.reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x{%s %d %s,contentLength=%d}",
+                    getClass().getSimpleName(),
+                    hashCode(),
+                    getHttpVersion(),
+                    this.status,
+                    this.reason,
+                    getContentLength());
+        }
     }
 }
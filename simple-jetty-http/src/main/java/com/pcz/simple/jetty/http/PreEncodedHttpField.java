@@ -0,0 +1,51 @@
+package com.pcz.simple.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预编码的 HTTP 字段
+ * <p>
+ * 创建时把 "name: value\r\n" 编码成字节数组，{@link HttpGenerator} 生成响应头时直接拷贝，
+ * 适合作为常量反复使用的字段，如 {@code Content-Type: application/json}
+ *
+ * @author picongzhi
+ */
+public class PreEncodedHttpField extends HttpField {
+    /**
+     * 编码后的字段，包括结尾的 CRLF
+     */
+    private final byte[] encoded;
+
+    public PreEncodedHttpField(HttpHeader header, String value) {
+        this(header, null, value);
+    }
+
+    public PreEncodedHttpField(String name, String value) {
+        this(null, name, value);
+    }
+
+    public PreEncodedHttpField(HttpHeader header, String name, String value) {
+        super(header, name, value);
+        this.encoded = (getName() + ": " + (value == null ? "" : value) + "\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 写入编码后的字段
+     *
+     * @param buffer 缓冲区，处于 fill 模式
+     */
+    public void putTo(ByteBuffer buffer) {
+        buffer.put(this.encoded);
+    }
+
+    /**
+     * 获取编码后的字段长度
+     *
+     * @return 编码后的字段长度
+     */
+    public int getEncodedLength() {
+        return this.encoded.length;
+    }
+}
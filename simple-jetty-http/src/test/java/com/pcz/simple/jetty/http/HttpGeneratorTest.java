@@ -0,0 +1,251 @@
+package com.pcz.simple.jetty.http;
+
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HttpGeneratorTest {
+    @Test
+    public void should_generate_fixed_length_response() {
+        HttpGenerator generator = new HttpGenerator();
+        HttpFields fields = new HttpFields.Mutable().add(HttpHeader.CONTENT_TYPE, "text/plain");
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        boolean generated = generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, fields, 5),
+                false, toBuffer("hello"), true, header);
+
+        Assertions.assertThat(generated).isTrue();
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isEnd()).isTrue();
+        Assertions.assertThat(generator.isPersistent()).isTrue();
+    }
+
+    @Test
+    public void should_use_last_content_length_when_length_unknown() {
+        HttpGenerator generator = new HttpGenerator();
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.NOT_FOUND_404, HttpFields.EMPTY),
+                false, toBuffer("not found"), true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 404 Not Found\r\n" +
+                "Content-Length: 9\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isChunking()).isFalse();
+    }
+
+    @Test
+    public void should_generate_chunked_response() {
+        HttpGenerator generator = new HttpGenerator();
+        ByteBuffer header = BufferUtils.allocate(256);
+        ByteBuffer first = toBuffer("hello");
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, HttpFields.EMPTY),
+                false, first, false, header);
+
+        Assertions.assertThat(generator.isChunking()).isTrue();
+        StringBuilder wire = new StringBuilder(BufferUtils.toString(header)).append(BufferUtils.toString(first));
+
+        ByteBuffer second = toBuffer("world!");
+        ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+        Assertions.assertThat(generator.generateContent(second, false, chunk)).isFalse();
+        wire.append(BufferUtils.toString(chunk)).append(BufferUtils.toString(second));
+
+        ByteBuffer third = toBuffer("0123456789abcdef");
+        chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+        Assertions.assertThat(generator.generateContent(third, true, chunk)).isFalse();
+        wire.append(BufferUtils.toString(chunk)).append(BufferUtils.toString(third));
+
+        chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+        Assertions.assertThat(generator.generateContent(null, true, chunk)).isTrue();
+        wire.append(BufferUtils.toString(chunk));
+
+        Assertions.assertThat(wire.toString()).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "5\r\nhello" +
+                "\r\n6\r\nworld!" +
+                "\r\n10\r\n0123456789abcdef" +
+                "\r\n0\r\n\r\n");
+        Assertions.assertThat(generator.isEnd()).isTrue();
+        Assertions.assertThat(generator.isPersistent()).isTrue();
+        Assertions.assertThat(generator.getContentPrepared()).isEqualTo(27);
+    }
+
+    @Test
+    public void should_close_http_1_0_response_without_length() {
+        HttpGenerator generator = new HttpGenerator();
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_0, HttpStatus.OK_200, HttpFields.EMPTY),
+                false, toBuffer("hello"), false, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.0 200 OK\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isChunking()).isFalse();
+        Assertions.assertThat(generator.isPersistent()).isFalse();
+
+        ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+        Assertions.assertThat(generator.generateContent(toBuffer(" world"), true, chunk)).isTrue();
+        Assertions.assertThat(chunk.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void should_keep_http_1_0_connection_alive_when_requested() {
+        HttpGenerator generator = new HttpGenerator();
+        HttpFields fields = new HttpFields.Mutable().add(HttpHeader.CONNECTION, "keep-alive");
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_0, HttpStatus.OK_200, fields, 0),
+                false, null, true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.0 200 OK\r\n" +
+                "Connection: keep-alive\r\n" +
+                "Content-Length: 0\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isPersistent()).isTrue();
+    }
+
+    @Test
+    public void should_generate_not_modified_without_framing() {
+        HttpGenerator generator = new HttpGenerator();
+        HttpFields fields = new HttpFields.Mutable()
+                .add(HttpHeader.CONTENT_LENGTH, "10")
+                .add(HttpHeader.TRANSFER_ENCODING, "chunked");
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.NOT_MODIFIED_304, fields, -1),
+                false, null, true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 304 Not Modified\r\n\r\n");
+        Assertions.assertThat(generator.isEnd()).isTrue();
+        Assertions.assertThat(generator.isPersistent()).isTrue();
+    }
+
+    @Test
+    public void should_generate_head_response_with_length_and_no_content() {
+        HttpGenerator generator = new HttpGenerator();
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, HttpFields.EMPTY, 100),
+                true, null, true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 100\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isEnd()).isTrue();
+        Assertions.assertThat(generator.isPersistent()).isTrue();
+        Assertions.assertThat(generator.getContentPrepared()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_sanitize_custom_reason_and_fields() {
+        HttpGenerator generator = new HttpGenerator();
+        HttpFields fields = new HttpFields.Mutable().add("X-Custom", "a\r\nSet-Cookie: b");
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, "Fine\r\nX: y", fields, 0),
+                false, null, true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 Fine  X: y\r\n" +
+                "X-Custom: a  Set-Cookie: b\r\n" +
+                "Content-Length: 0\r\n" +
+                "\r\n");
+    }
+
+    @Test
+    public void should_send_connection_close_once() {
+        HttpGenerator generator = new HttpGenerator();
+        HttpFields fields = new HttpFields.Mutable().add(HttpHeader.CONNECTION, "close");
+        ByteBuffer header = BufferUtils.allocate(256);
+
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, fields, 0),
+                false, null, true, header);
+
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 0\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        Assertions.assertThat(generator.isPersistent()).isFalse();
+    }
+
+    @Test
+    public void should_send_pre_encoded_server_header() {
+        HttpGenerator.setJettyVersion("simple-jetty");
+        try {
+            HttpGenerator generator = new HttpGenerator();
+            HttpFields fields = new HttpFields.Mutable()
+                    .add(new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, "application/json"));
+            ByteBuffer header = BufferUtils.allocate(256);
+
+            generator.generateHeader(
+                    new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, fields, 2),
+                    false, toBuffer("{}"), true, header);
+
+            Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Content-Length: 2\r\n" +
+                    "Server: simple-jetty\r\n" +
+                    "\r\n");
+        } finally {
+            HttpGenerator.setJettyVersion(null);
+        }
+    }
+
+    @Test
+    public void should_roll_back_when_header_buffer_overflows() {
+        HttpGenerator generator = new HttpGenerator();
+        generator.setPersistent(false);
+        HttpFields fields = new HttpFields.Mutable().add(HttpHeader.CONTENT_TYPE, "text/plain");
+        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, fields, 5);
+
+        ByteBuffer small = BufferUtils.allocate(32);
+        BufferUtils.append(small, "prefix".getBytes(StandardCharsets.ISO_8859_1), 0, 6);
+        Assertions.assertThat(generator.generateHeader(response, false, toBuffer("hello"), true, small)).isFalse();
+
+        Assertions.assertThat(BufferUtils.toString(small)).isEqualTo("prefix");
+        Assertions.assertThat(generator.isStart()).isTrue();
+        Assertions.assertThat(generator.isPersistent()).isFalse();
+
+        ByteBuffer header = BufferUtils.allocate(256);
+        Assertions.assertThat(generator.generateHeader(response, false, toBuffer("hello"), true, header)).isTrue();
+        Assertions.assertThat(BufferUtils.toString(header)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Length: 5\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+    }
+
+    @Test
+    public void should_reject_content_beyond_content_length() {
+        HttpGenerator generator = new HttpGenerator();
+        ByteBuffer header = BufferUtils.allocate(256);
+        generator.generateHeader(
+                new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, HttpFields.EMPTY, 3),
+                false, toBuffer("abc"), false, header);
+
+        ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+        Assertions.assertThatThrownBy(() -> generator.generateContent(toBuffer("d"), true, chunk))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static ByteBuffer toBuffer(String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
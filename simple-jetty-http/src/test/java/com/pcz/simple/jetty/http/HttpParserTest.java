@@ -0,0 +1,353 @@
+package com.pcz.simple.jetty.http;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class HttpParserTest {
+    private static final String[] REQUESTS = {
+            "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n",
+            "GET /index.html?q=1 HTTP/1.1\r\n" +
+                    "Host: www.example.com\r\n" +
+                    "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0\r\n" +
+                    "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n" +
+                    "Accept-Language: en-US,en;q=0.5\r\n" +
+                    "Accept-Encoding: gzip, deflate, br\r\n" +
+                    "Connection: keep-alive\r\n" +
+                    "Cache-Control: max-age=0\r\n" +
+                    "\r\n",
+            "POST /form HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\nhello world",
+            "POST /chunked HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                    "5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: done\r\n\r\n",
+            "GET /legacy HTTP/1.0\n\n",
+            "PURGE /cache HTTP/1.1\r\nHost: localhost\r\nX-Custom:   spaced value  \r\n\r\n",
+            "GET / HTTP/1.1\r\nHost: localhost\r\n: empty\r\n\r\n",
+            "GET / HTTP/1.1\r\nHost: localhost\r\nX-Folded: a\r\n b\r\n\r\n",
+            "GET / HTTP/1.1\r\nAccept: */*\r\n\r\n",
+            "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n",
+            "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n",
+            "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n",
+            "GET /\r\n\r\n",
+            "GET / HTTP/2.0\r\nHost: localhost\r\n\r\n",
+            "GET / HTTP/1.1\r\nHost: localhost\rX\r\n\r\n",
+            "G(T / HTTP/1.1\r\nHost: localhost\r\n\r\n",
+    };
+
+    @Test
+    public void should_parse_request_line_and_headers() {
+        Recorder recorder = parse(REQUESTS[1]);
+
+        Assertions.assertThat(recorder.request.getMethod()).isEqualTo("GET");
+        Assertions.assertThat(recorder.request.getUri()).isEqualTo("/index.html?q=1");
+        Assertions.assertThat(recorder.request.getHttpVersion()).isEqualTo(HttpVersion.HTTP_1_1);
+        Assertions.assertThat(recorder.request.getFields().size()).isEqualTo(7);
+        Assertions.assertThat(recorder.request.getFields().getField(HttpHeader.CONNECTION).getValue())
+                .isEqualTo("keep-alive");
+        Assertions.assertThat(recorder.events).endsWith("messageComplete");
+    }
+
+    @Test
+    public void should_parse_content_length_body() {
+        Recorder recorder = parse(REQUESTS[2]);
+
+        Assertions.assertThat(recorder.request.getContentLength()).isEqualTo(11);
+        Assertions.assertThat(recorder.content.toString()).isEqualTo("hello world");
+        Assertions.assertThat(recorder.events).endsWith("messageComplete");
+    }
+
+    @Test
+    public void should_parse_chunked_body_and_discard_trailers() {
+        Recorder recorder = parse(REQUESTS[3]);
+
+        Assertions.assertThat(recorder.request.getContentLength()).isEqualTo(-1);
+        Assertions.assertThat(recorder.content.toString()).isEqualTo("hello world");
+        Assertions.assertThat(recorder.events).endsWith("messageComplete");
+    }
+
+    @Test
+    public void should_trim_header_value_whitespace() {
+        Recorder recorder = parse(REQUESTS[5]);
+
+        Assertions.assertThat(recorder.request.getMethod()).isEqualTo("PURGE");
+        Assertions.assertThat(recorder.events).contains("header X-Custom=spaced value");
+    }
+
+    @Test
+    public void should_reject_empty_header_name() {
+        BadMessageException failure = parse(REQUESTS[6]).failure;
+
+        Assertions.assertThat(failure.getCode()).isEqualTo(HttpStatus.BAD_REQUEST_400);
+        Assertions.assertThat(failure.getReason()).isEqualTo("No header name");
+    }
+
+    @Test
+    public void should_reject_malformed_requests() {
+        Assertions.assertThat(parse(REQUESTS[7]).failure.getReason()).isEqualTo("Header folding");
+        Assertions.assertThat(parse(REQUESTS[8]).failure.getReason()).isEqualTo("No Host");
+        Assertions.assertThat(parse(REQUESTS[9]).failure.getReason()).isEqualTo("Duplicate Content-Length");
+        Assertions.assertThat(parse(REQUESTS[10]).failure.getReason()).isEqualTo("Transfer-Encoding and Content-Length");
+        Assertions.assertThat(parse(REQUESTS[11]).failure.getReason()).isEqualTo("Bad chunk size");
+        Assertions.assertThat(parse(REQUESTS[12]).failure.getCode()).isEqualTo(HttpStatus.HTTP_VERSION_NOT_SUPPORTED_505);
+        Assertions.assertThat(parse(REQUESTS[13]).failure.getCode()).isEqualTo(HttpStatus.HTTP_VERSION_NOT_SUPPORTED_505);
+        Assertions.assertThat(parse(REQUESTS[14]).failure.getReason()).isEqualTo("Bad EOL");
+        Assertions.assertThat(parse(REQUESTS[15]).failure.getReason()).isEqualTo("Illegal character in method");
+    }
+
+    @Test
+    public void should_reject_duplicate_content_length_with_same_value() {
+        Recorder recorder = parse("POST / HTTP/1.1\r\nHost: localhost\r\n" +
+                "Content-Length: 5\r\nContent-Length: 5\r\n\r\nhello");
+
+        Assertions.assertThat(recorder.failure.getReason()).isEqualTo("Duplicate Content-Length");
+        Assertions.assertThat(recorder.request).isNull();
+    }
+
+    @Test
+    public void should_combine_split_transfer_encoding_headers() {
+        Recorder recorder = parse("POST / HTTP/1.1\r\nHost: localhost\r\n" +
+                "Transfer-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                "5\r\nhello\r\n0\r\n\r\n");
+
+        Assertions.assertThat(recorder.failure).isNull();
+        Assertions.assertThat(recorder.request.getContentLength()).isEqualTo(-1);
+        Assertions.assertThat(recorder.content.toString()).isEqualTo("hello");
+        Assertions.assertThat(recorder.events).endsWith("messageComplete");
+    }
+
+    @Test
+    public void should_reject_transfer_encoding_without_final_chunked() {
+        String prefix = "POST / HTTP/1.1\r\nHost: localhost\r\n";
+        String reason = "Bad Transfer-Encoding, chunked not last";
+
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: gzip\r\n\r\n").failure.getReason())
+                .isEqualTo(reason);
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: chunked\r\nTransfer-Encoding: gzip\r\n\r\n")
+                .failure.getReason()).isEqualTo(reason);
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: chunked, gzip\r\n\r\n").failure.getReason())
+                .isEqualTo(reason);
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: chunked, chunked\r\n\r\n").failure.getReason())
+                .isEqualTo(reason);
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: xchunked\r\n\r\n").failure.getReason())
+                .isEqualTo(reason);
+        Assertions.assertThat(parse(prefix + "Transfer-Encoding: gzip\r\nContent-Length: 5\r\n\r\n")
+                .failure.getReason()).isEqualTo("Transfer-Encoding and Content-Length");
+    }
+
+    @Test
+    public void should_reject_too_large_headers() {
+        String request = "GET / HTTP/1.1\r\nHost: localhost\r\nX-Large: " + "x".repeat(256) + "\r\n\r\n";
+        Recorder recorder = new Recorder();
+        HttpParser parser = new HttpParser(recorder, 128);
+        parser.parseNext(toBuffer(request));
+
+        Assertions.assertThat(recorder.failure.getCode()).isEqualTo(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE_431);
+        Assertions.assertThat(parser.isClosed()).isTrue();
+    }
+
+    @Test
+    public void should_report_early_eof_in_content() {
+        Recorder recorder = new Recorder();
+        HttpParser parser = new HttpParser(recorder);
+        parser.parseNext(toBuffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\nhello"));
+        parser.atEOF();
+        parser.parseNext(toBuffer(""));
+
+        Assertions.assertThat(recorder.events).endsWith("earlyEOF");
+        Assertions.assertThat(parser.isClosed()).isTrue();
+    }
+
+    @Test
+    public void should_parse_same_at_every_split_point() {
+        for (String request : REQUESTS) {
+            byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+            List<String> expected = parse(request).result();
+
+            for (int split = 0; split <= bytes.length; split++) {
+                Recorder recorder = new Recorder();
+                HttpParser parser = new HttpParser(recorder);
+                feed(parser, ByteBuffer.wrap(bytes, 0, split));
+                feed(parser, ByteBuffer.wrap(bytes, split, bytes.length - split));
+
+                Assertions.assertThat(recorder.result()).as("%s split at %d", request, split).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void should_parse_same_byte_by_byte() {
+        for (String request : REQUESTS) {
+            byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+            List<String> expected = parse(request).result();
+
+            Recorder recorder = new Recorder();
+            HttpParser parser = new HttpParser(recorder);
+            for (int i = 0; i < bytes.length; i++) {
+                feed(parser, ByteBuffer.wrap(bytes, i, 1));
+            }
+
+            Assertions.assertThat(recorder.result()).as(request).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void should_parse_same_at_random_split_points() {
+        Random random = new Random(49);
+        for (String request : REQUESTS) {
+            byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+            List<String> expected = parse(request).result();
+
+            for (int i = 0; i < 200; i++) {
+                Recorder recorder = new Recorder();
+                HttpParser parser = new HttpParser(recorder);
+                int position = 0;
+                while (position < bytes.length) {
+                    int length = 1 + random.nextInt(bytes.length - position);
+                    feed(parser, ByteBuffer.wrap(bytes, position, length));
+                    position += length;
+                }
+
+                Assertions.assertThat(recorder.result()).as(request).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void should_never_throw_on_random_bytes() {
+        Random random = new Random(49);
+        byte[] alphabet = "GET POST / HTTP/1.1\r\n:Host;chunked0123456789abcdef \t\u0000\u007f\u00ff"
+                .getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < 5000; i++) {
+            byte[] bytes = new byte[random.nextInt(256)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = random.nextBoolean()
+                        ? alphabet[random.nextInt(alphabet.length)]
+                        : (byte) random.nextInt(256);
+            }
+
+            Recorder recorder = new Recorder();
+            HttpParser parser = new HttpParser(recorder);
+            feed(parser, ByteBuffer.wrap(bytes));
+            parser.atEOF();
+            parser.parseNext(ByteBuffer.allocate(0));
+
+            Assertions.assertThat(parser.isClosed()).isTrue();
+        }
+    }
+
+    @Test
+    public void should_reuse_cached_fields_and_constants() {
+        Recorder first = parse(REQUESTS[1]);
+        Recorder second = parse(REQUESTS[1]);
+
+        // 方法、版本和常用的字段不随请求创建
+        Assertions.assertThat(second.request.getMethod()).isSameAs(first.request.getMethod());
+        for (HttpHeader header : new HttpHeader[]{HttpHeader.ACCEPT, HttpHeader.ACCEPT_LANGUAGE,
+                HttpHeader.ACCEPT_ENCODING, HttpHeader.CONNECTION, HttpHeader.CACHE_CONTROL}) {
+            Assertions.assertThat(second.request.getFields().getField(header))
+                    .isSameAs(first.request.getFields().getField(header));
+        }
+
+        // 只有需要保留的值才会创建
+        Assertions.assertThat(second.request.getFields().getField(HttpHeader.HOST))
+                .isNotSameAs(first.request.getFields().getField(HttpHeader.HOST));
+    }
+
+    @Test
+    public void should_parse_next_request_after_reset() {
+        Recorder recorder = new Recorder();
+        HttpParser parser = new HttpParser(recorder);
+        ByteBuffer buffer = toBuffer(REQUESTS[0] + REQUESTS[2]);
+
+        parser.parseNext(buffer);
+        Assertions.assertThat(parser.isComplete()).isTrue();
+        Assertions.assertThat(recorder.request.getUri()).isEqualTo("/");
+
+        parser.reset();
+        parser.parseNext(buffer);
+        Assertions.assertThat(parser.isComplete()).isTrue();
+        Assertions.assertThat(recorder.request.getUri()).isEqualTo("/form");
+        Assertions.assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    private static Recorder parse(String request) {
+        Recorder recorder = new Recorder();
+        feed(new HttpParser(recorder), toBuffer(request));
+        return recorder;
+    }
+
+    private static void feed(HttpParser parser, ByteBuffer buffer) {
+        while (buffer.hasRemaining() && !parser.isComplete() && !parser.isClosed()) {
+            parser.parseNext(buffer);
+        }
+    }
+
+    private static ByteBuffer toBuffer(String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static class Recorder implements HttpParser.RequestHandler {
+        private final List<String> events = new ArrayList<>();
+
+        private final StringBuilder content = new StringBuilder();
+
+        private MetaData.Request request;
+
+        private BadMessageException failure;
+
+        @Override
+        public void startRequest(String method, String uri, HttpVersion version) {
+            this.events.add("startRequest " + method + " " + uri + " " + version);
+        }
+
+        @Override
+        public void parsedHeader(HttpField field) {
+            this.events.add("header " + field.getName() + "=" + field.getValue());
+        }
+
+        @Override
+        public boolean headerComplete(MetaData.Request request) {
+            this.request = request;
+            this.events.add("headerComplete " + request.getContentLength());
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer content) {
+            while (content.hasRemaining()) {
+                this.content.append((char) (content.get() & 0xFF));
+            }
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete() {
+            this.events.add("messageComplete");
+            return false;
+        }
+
+        @Override
+        public void badMessage(BadMessageException failure) {
+            this.failure = failure;
+            this.events.add("badMessage " + failure.getCode() + " " + failure.getReason());
+        }
+
+        @Override
+        public void earlyEOF() {
+            this.events.add("earlyEOF");
+        }
+
+        /**
+         * 内容在不同的切分下分成不同的片段，汇总后比较
+         */
+        private List<String> result() {
+            List<String> result = new ArrayList<>(this.events);
+            result.add("content " + this.content);
+            return result;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.pcz.simple.jetty.server;
 
 import com.pcz.simple.jetty.core.component.ContainerLifeCycle;
+import com.pcz.simple.jetty.core.io.AbstractConnection;
+import com.pcz.simple.jetty.core.io.EndPoint;
 
 import java.util.List;
 
@@ -53,6 +55,21 @@ public abstract class AbstractConnectionFactory extends ContainerLifeCycle imple
         this.inputBufferSize = inputBufferSize;
     }
 
+    /**
+     * 使用当前工厂的配置初始化新创建的连接
+     *
+     * @param connection 连接
+     * @param connector  连接器
+     * @param endPoint   端点
+     * @param <T>        连接类型
+     * @return 连接
+     */
+    protected <T extends AbstractConnection> T configure(T connection, Connector connector, EndPoint endPoint) {
+        connection.setInputBufferSize(getInputBufferSize());
+        connection.setInputBufferPool(connector.getByteBufferPool().asRetainableByteBufferPool());
+        return connection;
+    }
+
     public static ConnectionFactory[] getFactories(SslConnectionFactory.Server sslConnectionFactory,
                                                    ConnectionFactory... connectionFactories) {
         return null;
@@ -4,10 +4,14 @@ import com.pcz.simple.jetty.core.ProcessorUtils;
 import com.pcz.simple.jetty.core.component.Container;
 import com.pcz.simple.jetty.core.component.ContainerLifeCycle;
 import com.pcz.simple.jetty.core.component.Graceful;
+import com.pcz.simple.jetty.core.io.AbstractConnection;
 import com.pcz.simple.jetty.core.io.ByteBufferPool;
+import com.pcz.simple.jetty.core.io.Connection;
 import com.pcz.simple.jetty.core.io.EndPoint;
 import com.pcz.simple.jetty.core.io.LogarithmicArrayByteBufferPool;
 import com.pcz.simple.jetty.core.thread.AutoLock;
+import com.pcz.simple.jetty.core.thread.CriticalTask;
+import com.pcz.simple.jetty.core.thread.LongLivedTask;
 import com.pcz.simple.jetty.core.thread.ScheduledExecutorScheduler;
 import com.pcz.simple.jetty.core.thread.Scheduler;
 import com.pcz.simple.jetty.core.thread.ThreadPoolBudget;
@@ -35,7 +39,7 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
     /**
      * 锁
      */
-    private final AutoLock lock = new AutoLock();
+    private final AutoLock lock = new AutoLock("AbstractConnector.lock");
 
     /**
      * setAccepting {@link Condition}
@@ -92,6 +96,11 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
      */
     private HttpChannel.Listener httpChannelListener = HttpChannel.NOOP_LISTENER;
 
+    /**
+     * 端点监听器，在端点打开和关闭时回调
+     */
+    private volatile List<EndPoint.Listener> endPointListeners = Collections.emptyList();
+
     /**
      * 连接空闲超时时间
      */
@@ -186,6 +195,11 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
                     AbstractConnector.this.httpChannelListener =
                             new HttpChannelListeners(getBeans(HttpChannel.Listener.class));
                 }
+
+                if (child instanceof EndPoint.Listener) {
+                    AbstractConnector.this.endPointListeners =
+                            List.copyOf(getBeans(EndPoint.Listener.class));
+                }
             }
 
             @Override
@@ -194,6 +208,11 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
                     AbstractConnector.this.httpChannelListener =
                             new HttpChannelListeners(getBeans(HttpChannel.Listener.class));
                 }
+
+                if (child instanceof EndPoint.Listener) {
+                    AbstractConnector.this.endPointListeners =
+                            List.copyOf(getBeans(EndPoint.Listener.class));
+                }
             }
         });
 
@@ -205,7 +224,7 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         // 初始化接收器线程
         int cores = ProcessorUtils.availableProcessors();
         if (acceptors < 0) {
-            acceptors = Math.max(1, Math.max(4, cores / 8));
+            acceptors = ProcessorUtils.recommendedAcceptors();
         }
 
         if (acceptors > cores) {
@@ -524,6 +543,14 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
      */
     protected void onEndPointOpened(EndPoint endPoint) {
         this.endPoints.add(endPoint);
+
+        for (EndPoint.Listener listener : this.endPointListeners) {
+            try {
+                listener.onOpened(endPoint);
+            } catch (Throwable t) {
+                LOG.warn("Failure while notifying listener {}", listener, t);
+            }
+        }
     }
 
     /**
@@ -534,6 +561,14 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
     protected void onEndPointClosed(EndPoint endPoint) {
         this.endPoints.remove(endPoint);
 
+        for (EndPoint.Listener listener : this.endPointListeners) {
+            try {
+                listener.onClosed(endPoint);
+            } catch (Throwable t) {
+                LOG.warn("Failure while notifying listener {}", listener, t);
+            }
+        }
+
         // 检查关闭
         Shutdown shutdown = this.shutdown;
         if (shutdown != null) {
@@ -541,6 +576,24 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         }
     }
 
+    /**
+     * 获取空闲连接持有的输入缓存数量，即等待读取时缓存中仍有未消费数据的连接数
+     *
+     * @return 空闲连接持有的输入缓存数量
+     */
+    public int getIdleHeldInputBuffers() {
+        int count = 0;
+        for (EndPoint endPoint : this.endPoints) {
+            Connection connection = endPoint.getConnection();
+            if (connection instanceof AbstractConnection &&
+                    ((AbstractConnection) connection).isHoldingIdleInputBuffer()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -808,7 +861,7 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
     /**
      * 接收器
      */
-    private class Acceptor implements Runnable {
+    private class Acceptor implements CriticalTask, LongLivedTask {
         /**
          * id
          */
@@ -828,6 +881,11 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
             final Thread thread = Thread.currentThread();
             String name = thread.getName();
 
+            // 记录接收器线程，停止时中断阻塞在 accept 中的线程
+            try (AutoLock autoLock = lock.lock()) {
+                acceptors[id] = thread;
+            }
+
             // 设置线程名
             this.name = String.format("%s-acceptor-%s@%x-%s",
                     thread.getName(), this.id, hashCode(), AbstractConnector.this.toString());
@@ -0,0 +1,316 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.io.AbstractConnection;
+import com.pcz.simple.jetty.core.io.ByteBufferPool;
+import com.pcz.simple.jetty.core.io.Connection;
+import com.pcz.simple.jetty.core.io.EndPoint;
+import com.pcz.simple.jetty.core.io.RetainableByteBuffer;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 协议检测的连接工厂
+ * <p>
+ * 在同一个端口上支持多种协议：先读取连接的前几个字节，依次交给 {@link ConnectionFactory.Detecting} 识别，
+ * 识别成功后升级到对应的连接；都不识别时升级到连接器中排在当前工厂之后的协议（通常是 HTTP/1.1）。
+ * 读取的字节存放在缓存池的缓存中，升级时直接移交给新连接，不做拷贝。
+ * 目标工厂无法创建连接时释放缓存并关闭端点。
+ * 目前只有 HTTP/1.1 有连接实现，{@link SslConnectionFactory} 尚不创建连接，h2c 的连接工厂需要由使用者提供
+ *
+ * @author picongzhi
+ */
+public class DetectorConnectionFactory extends AbstractConnectionFactory implements ConnectionFactory.Detecting {
+    private static final Logger LOG = LoggerFactory.getLogger(DetectorConnectionFactory.class);
+
+    /**
+     * 可检测的连接工厂
+     */
+    private final List<ConnectionFactory.Detecting> detectingConnectionFactories;
+
+    public DetectorConnectionFactory(ConnectionFactory.Detecting... detectingConnectionFactories) {
+        super(toProtocolString(detectingConnectionFactories));
+
+        this.detectingConnectionFactories = Arrays.asList(detectingConnectionFactories);
+        for (ConnectionFactory.Detecting detectingConnectionFactory : detectingConnectionFactories) {
+            addBean(detectingConnectionFactory);
+        }
+    }
+
+    /**
+     * 获取可检测的连接工厂
+     *
+     * @return 可检测的连接工厂
+     */
+    public List<ConnectionFactory.Detecting> getDetectingConnectionFactories() {
+        return this.detectingConnectionFactories;
+    }
+
+    /**
+     * 任意一个工厂识别即识别，任意一个工厂需要更多字节即需要更多字节
+     *
+     * @param buffer 缓存
+     * @return 检测结果
+     */
+    @Override
+    public Detection detect(ByteBuffer buffer) {
+        boolean needMoreBytes = false;
+        for (ConnectionFactory.Detecting detectingConnectionFactory : this.detectingConnectionFactories) {
+            Detection detection = detectingConnectionFactory.detect(buffer);
+            if (detection == Detection.RECOGNIZED) {
+                return Detection.RECOGNIZED;
+            }
+
+            needMoreBytes |= detection == Detection.NEED_MORE_BYTES;
+        }
+
+        return needMoreBytes ? Detection.NEED_MORE_BYTES : Detection.NOT_RECOGNIZED;
+    }
+
+    @Override
+    public Connection newConnection(Connector connector, EndPoint endPoint) {
+        return configure(new DetectorConnection(endPoint, connector), connector, endPoint);
+    }
+
+    /**
+     * 都不识别时调用，默认升级到连接器中排在当前工厂之后的协议
+     *
+     * @param connector 连接器
+     * @param endPoint  端点
+     * @param buffer    已读取的数据
+     */
+    protected void nextProtocol(Connector connector, EndPoint endPoint, ByteBuffer buffer) {
+        String nextProtocol = findNextProtocol(connector, getProtocol());
+        ConnectionFactory connectionFactory = nextProtocol == null
+                ? null
+                : connector.getConnectionFactory(nextProtocol);
+        if (connectionFactory == null) {
+            throw new IllegalStateException("Cannot find protocol '" + nextProtocol + "' after '" +
+                    getProtocol() + "' in " + connector);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Detector {} not recognizing bytes, upgrading to {}", getProtocol(), nextProtocol);
+        }
+
+        upgradeToConnectionFactory(connectionFactory, connector, endPoint, buffer);
+    }
+
+    /**
+     * 使用指定的连接工厂创建新连接并升级
+     *
+     * @param connectionFactory 连接工厂
+     * @param connector         连接器
+     * @param endPoint          端点
+     * @param buffer            已读取的数据
+     */
+    protected static void upgradeToConnectionFactory(ConnectionFactory connectionFactory,
+                                                     Connector connector,
+                                                     EndPoint endPoint,
+                                                     ByteBuffer buffer) {
+        Connection nextConnection = connectionFactory.newConnection(connector, endPoint);
+        if (nextConnection == null) {
+            throw new IllegalStateException("Cannot upgrade: " + connectionFactory + " created no connection");
+        }
+
+        // 升级前校验，避免数据移交之后才失败
+        if (BufferUtils.hasContent(buffer) && !(nextConnection instanceof Connection.UpgradeTo)) {
+            throw new IllegalStateException("Cannot upgrade: " + nextConnection + " has no Connection.UpgradeTo interface");
+        }
+
+        endPoint.upgrade(nextConnection);
+    }
+
+    /**
+     * 查找连接器中排在当前协议之后的协议
+     *
+     * @param connector       连接器
+     * @param currentProtocol 当前协议
+     * @return 下一个协议，没有时返回 null
+     */
+    protected static String findNextProtocol(Connector connector, String currentProtocol) {
+        for (Iterator<String> iterator = connector.getProtocols().iterator(); iterator.hasNext(); ) {
+            String protocol = iterator.next();
+            if (currentProtocol.equalsIgnoreCase(protocol)) {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 生成协议字符串，形如 [SSL|h2c]
+     *
+     * @param detectingConnectionFactories 可检测的连接工厂
+     * @return 协议字符串
+     */
+    private static String toProtocolString(ConnectionFactory.Detecting... detectingConnectionFactories) {
+        if (detectingConnectionFactories.length == 0) {
+            throw new IllegalArgumentException("At least one detecting instance is required");
+        }
+
+        return Arrays.stream(detectingConnectionFactories)
+                .map(ConnectionFactory::getProtocol)
+                .collect(Collectors.joining("|", "[", "]"));
+    }
+
+    /**
+     * 检测连接
+     */
+    private class DetectorConnection extends AbstractConnection
+            implements Connection.UpgradeFrom, Connection.UpgradeTo {
+        /**
+         * 连接器
+         */
+        private final Connector connector;
+
+        /**
+         * 缓存池
+         */
+        private final ByteBufferPool byteBufferPool;
+
+        private DetectorConnection(EndPoint endPoint, Connector connector) {
+            super(endPoint, connector.getExecutor());
+            this.connector = connector;
+            this.byteBufferPool = connector.getByteBufferPool();
+        }
+
+        @Override
+        public void onUpgradeTo(ByteBuffer buffer) {
+            if (BufferUtils.isEmpty(buffer)) {
+                return;
+            }
+
+            // 直接接管上一个连接的缓存
+            RetainableByteBuffer inputBuffer = getInputBuffer();
+            if (inputBuffer == null || inputBuffer.isEmpty()) {
+                setInputBuffer(new RetainableByteBuffer(buffer,
+                        retained -> this.byteBufferPool.release(retained.getBuffer())));
+                return;
+            }
+
+            BufferUtils.append(inputBuffer.getBuffer(), buffer);
+            this.byteBufferPool.release(buffer);
+        }
+
+        @Override
+        public ByteBuffer onUpgradeFrom() {
+            if (releaseInputBufferIfEmpty()) {
+                return null;
+            }
+
+            // 所有权随缓存一起转移，不再通过引用计数释放
+            return takeInputBuffer().getBuffer();
+        }
+
+        @Override
+        public void onOpen() {
+            super.onOpen();
+
+            if (!detectAndUpgrade()) {
+                fillInterested();
+            }
+        }
+
+        @Override
+        public void onFillable() {
+            try {
+                ByteBuffer buffer = acquireInputBuffer().getBuffer();
+                while (BufferUtils.space(buffer) > 0) {
+                    int filled = getEndPoint().fill(buffer);
+                    if (filled < 0) {
+                        releaseAndClose();
+                        return;
+                    }
+
+                    if (filled == 0) {
+                        fillInterested();
+                        return;
+                    }
+
+                    if (detectAndUpgrade()) {
+                        return;
+                    }
+                }
+
+                // 缓存已满仍然需要更多字节
+                LOG.warn("Detector {} failed to detect upgrade target on {} for {}",
+                        getProtocol(), DetectorConnectionFactory.this.detectingConnectionFactories, this);
+                releaseAndClose();
+            } catch (Throwable t) {
+                LOG.warn("Detector {} error for {}", getProtocol(), this, t);
+                releaseAndClose();
+            }
+        }
+
+        /**
+         * 检测并升级，升级失败时释放缓存并关闭端点
+         *
+         * @return 是否已升级或已关闭
+         */
+        private boolean detectAndUpgrade() {
+            RetainableByteBuffer inputBuffer = getInputBuffer();
+            if (inputBuffer == null || inputBuffer.isEmpty()) {
+                return false;
+            }
+
+            try {
+                return upgrade(inputBuffer.getBuffer());
+            } catch (Throwable t) {
+                LOG.warn("Detector {} failed to upgrade {}: {}", getProtocol(), this, t.toString());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Upgrade failure", t);
+                }
+
+                releaseAndClose();
+                return true;
+            }
+        }
+
+        /**
+         * 依次检测，识别时升级到识别的协议，都不识别时升级到下一个协议
+         *
+         * @param buffer 已读取的数据
+         * @return 是否已升级
+         */
+        private boolean upgrade(ByteBuffer buffer) {
+            boolean notRecognized = true;
+            for (ConnectionFactory.Detecting detectingConnectionFactory :
+                    DetectorConnectionFactory.this.detectingConnectionFactories) {
+                Detection detection = detectingConnectionFactory.detect(buffer);
+                if (detection == Detection.RECOGNIZED) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Detector {} recognized bytes using {}", getProtocol(), detectingConnectionFactory);
+                    }
+
+                    upgradeToConnectionFactory(detectingConnectionFactory, this.connector, getEndPoint(), buffer);
+                    return true;
+                }
+
+                notRecognized &= detection == Detection.NOT_RECOGNIZED;
+            }
+
+            if (notRecognized) {
+                nextProtocol(this.connector, getEndPoint(), buffer);
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * 释放缓存并关闭端点
+         */
+        private void releaseAndClose() {
+            releaseInputBuffer();
+            getEndPoint().close();
+        }
+    }
+}
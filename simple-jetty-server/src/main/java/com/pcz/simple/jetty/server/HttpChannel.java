@@ -1,22 +1,121 @@
 package com.pcz.simple.jetty.server;
 
+import com.pcz.simple.jetty.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.EventListener;
 
 /**
- * HTTP 通道
+ * HTTP 通道，持有一个连接上当前处理的请求和响应，把请求交给服务器的处理器链
+ * <p>
+ * 没有处理器处理的请求响应 404，处理器抛出异常时响应 500
  *
  * @author picongzhi
  */
 public class HttpChannel implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(HttpChannel.class);
+
     /**
      * 空的监听器
      */
     public static Listener NOOP_LISTENER = new Listener() {
     };
 
+    /**
+     * 连接器
+     */
+    private final Connector connector;
+
+    /**
+     * HTTP 配置
+     */
+    private final HttpConfiguration httpConfiguration;
+
+    /**
+     * 请求
+     */
+    private final Request request;
+
+    /**
+     * 响应
+     */
+    private final Response response;
+
+    public HttpChannel(Connector connector, HttpConfiguration httpConfiguration) {
+        this.connector = connector;
+        this.httpConfiguration = httpConfiguration;
+        this.request = new Request(this);
+        this.response = new Response(this);
+    }
+
+    public Connector getConnector() {
+        return this.connector;
+    }
+
+    public Server getServer() {
+        return this.connector.getServer();
+    }
+
+    public HttpConfiguration getHttpConfiguration() {
+        return this.httpConfiguration;
+    }
+
+    public Request getRequest() {
+        return this.request;
+    }
+
+    public Response getResponse() {
+        return this.response;
+    }
+
+    /**
+     * 处理请求，返回时响应已经完整地写入 {@link Response}
+     */
     @Override
     public void run() {
+        handle();
+    }
+
+    /**
+     * 处理请求，返回时响应已经完整地写入 {@link Response}
+     */
+    public void handle() {
+        Request request = this.request;
+        Response response = this.response;
+        try {
+            Server server = getServer();
+            if (server != null) {
+                server.handle(request.getPathInfo(), request, request, response);
+            }
+
+            if (!request.isHandled() && !response.isCommitted()) {
+                response.sendError(HttpStatus.NOT_FOUND_404);
+            }
+        } catch (Throwable t) {
+            LOG.warn("Failed to handle {}", request, t);
+
+            if (!response.isCommitted()) {
+                try {
+                    response.sendError(HttpStatus.INTERNAL_SERVER_ERROR_500);
+                } catch (Throwable x) {
+                    t.addSuppressed(x);
+                }
+            }
+        }
+    }
 
+    /**
+     * 回收，准备处理同一连接上的下一个请求
+     */
+    public void recycle() {
+        this.request.recycle();
+        this.response.recycle();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), this.request);
     }
 
     /**
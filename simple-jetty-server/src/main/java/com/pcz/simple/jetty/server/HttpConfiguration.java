@@ -13,6 +13,32 @@ public class HttpConfiguration {
      */
     public static final String SERVER_VERSION = "Jetty(" + Jetty.VERSION + ")";
 
+    /**
+     * 请求行和请求头的最大字节数
+     */
+    private int requestHeaderSize = 8192;
+
+    /**
+     * 响应头的最大字节数
+     */
+    private int responseHeaderSize = 8192;
+
+    public int getRequestHeaderSize() {
+        return this.requestHeaderSize;
+    }
+
+    public void setRequestHeaderSize(int requestHeaderSize) {
+        this.requestHeaderSize = requestHeaderSize;
+    }
+
+    public int getResponseHeaderSize() {
+        return this.responseHeaderSize;
+    }
+
+    public void setResponseHeaderSize(int responseHeaderSize) {
+        this.responseHeaderSize = responseHeaderSize;
+    }
+
     public boolean isUseInputDirectByteBuffers() {
         return false;
     }
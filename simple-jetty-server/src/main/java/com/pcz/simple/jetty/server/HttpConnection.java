@@ -0,0 +1,429 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.io.AbstractConnection;
+import com.pcz.simple.jetty.core.io.ByteBufferPool;
+import com.pcz.simple.jetty.core.io.Connection;
+import com.pcz.simple.jetty.core.io.EndPoint;
+import com.pcz.simple.jetty.core.io.RetainableByteBuffer;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.core.util.StringUtils;
+import com.pcz.simple.jetty.http.BadMessageException;
+import com.pcz.simple.jetty.http.HttpField;
+import com.pcz.simple.jetty.http.HttpFields;
+import com.pcz.simple.jetty.http.HttpGenerator;
+import com.pcz.simple.jetty.http.HttpHeader;
+import com.pcz.simple.jetty.http.HttpParser;
+import com.pcz.simple.jetty.http.HttpStatus;
+import com.pcz.simple.jetty.http.HttpVersion;
+import com.pcz.simple.jetty.http.MetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP/1.1 连接
+ * <p>
+ * 通过 {@link HttpParser} 解析请求，请求（包括内容）解析完成后交给 {@link HttpChannel} 同步处理，
+ * 处理器返回后由 {@link HttpGenerator} 生成响应头，和缓存在内存中的响应内容一起写出。
+ * 连接可以复用时继续解析同一个缓存中的下一个请求（pipelining），否则关闭输出并关闭端点。
+ * 错误的请求响应对应的状态码并关闭连接
+ *
+ * @author picongzhi
+ */
+public class HttpConnection extends AbstractConnection implements Connection.UpgradeTo {
+    private static final Logger LOG = LoggerFactory.getLogger(HttpConnection.class);
+
+    /**
+     * 写出未完成时的重试间隔，{@link EndPoint} 没有写兴趣，只能等待后重试
+     */
+    private static final long FLUSH_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * HTTP 配置
+     */
+    private final HttpConfiguration httpConfiguration;
+
+    /**
+     * 连接器
+     */
+    private final Connector connector;
+
+    /**
+     * 缓存池
+     */
+    private final ByteBufferPool byteBufferPool;
+
+    /**
+     * HTTP 通道
+     */
+    private final HttpChannel channel;
+
+    /**
+     * 请求解析器
+     */
+    private final HttpParser parser;
+
+    /**
+     * 响应生成器
+     */
+    private final HttpGenerator generator = new HttpGenerator();
+
+    /**
+     * 输出是否使用直接缓存
+     */
+    private final boolean useOutputDirectByteBuffers;
+
+    /**
+     * 当前请求的解析错误，处理后清空
+     */
+    private BadMessageException failure;
+
+    /**
+     * 已接收的请求数
+     */
+    private volatile long messagesIn;
+
+    /**
+     * 已发送的响应数
+     */
+    private volatile long messagesOut;
+
+    public HttpConnection(HttpConfiguration httpConfiguration,
+                          Connector connector,
+                          EndPoint endPoint,
+                          boolean useOutputDirectByteBuffers) {
+        super(endPoint, connector.getExecutor());
+        this.httpConfiguration = httpConfiguration;
+        this.connector = connector;
+        this.byteBufferPool = connector.getByteBufferPool();
+        this.channel = new HttpChannel(connector, httpConfiguration);
+        this.parser = new HttpParser(new RequestHandler(), httpConfiguration.getRequestHeaderSize());
+        this.useOutputDirectByteBuffers = useOutputDirectByteBuffers;
+    }
+
+    public HttpConfiguration getHttpConfiguration() {
+        return this.httpConfiguration;
+    }
+
+    public Connector getConnector() {
+        return this.connector;
+    }
+
+    public HttpChannel getHttpChannel() {
+        return this.channel;
+    }
+
+    public HttpParser getParser() {
+        return this.parser;
+    }
+
+    public HttpGenerator getGenerator() {
+        return this.generator;
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return this.messagesIn;
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return this.messagesOut;
+    }
+
+    @Override
+    public void onUpgradeTo(ByteBuffer buffer) {
+        if (BufferUtils.isEmpty(buffer)) {
+            return;
+        }
+
+        // 直接接管上一个连接的缓存
+        RetainableByteBuffer inputBuffer = getInputBuffer();
+        if (inputBuffer == null || inputBuffer.isEmpty()) {
+            setInputBuffer(new RetainableByteBuffer(buffer,
+                    retained -> this.byteBufferPool.release(retained.getBuffer())));
+            return;
+        }
+
+        BufferUtils.append(inputBuffer.getBuffer(), buffer);
+        this.byteBufferPool.release(buffer);
+    }
+
+    @Override
+    public void onOpen() {
+        super.onOpen();
+
+        // 升级时上一个连接已经读取的数据
+        RetainableByteBuffer inputBuffer = getInputBuffer();
+        if (inputBuffer != null && inputBuffer.hasRemaining()) {
+            onFillable();
+        } else {
+            fillInterested();
+        }
+    }
+
+    @Override
+    public void onFillable() {
+        try {
+            while (getEndPoint().isOpen()) {
+                ByteBuffer buffer = acquireInputBuffer().getBuffer();
+
+                if (this.parser.parseNext(buffer)) {
+                    if (!handleRequest()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                if (this.failure != null) {
+                    sendBadMessage();
+                    return;
+                }
+
+                if (this.parser.isClosed()) {
+                    releaseAndClose();
+                    return;
+                }
+
+                // 解析器消费完缓存中的字节才需要更多数据
+                BufferUtils.clear(buffer);
+                int filled = getEndPoint().fill(buffer);
+                if (filled == 0) {
+                    fillInterested();
+                    return;
+                }
+
+                if (filled < 0) {
+                    // 下一轮解析时根据解析器的状态结束
+                    this.parser.atEOF();
+                }
+            }
+
+            releaseInputBuffer();
+        } catch (Throwable t) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Failed to fill {}", this, t);
+            }
+
+            getEndPoint().close(t);
+        }
+    }
+
+    /**
+     * 处理解析完成的请求并写出响应
+     *
+     * @return 连接是否可以继续处理下一个请求
+     * @throws IOException IO 异常
+     */
+    private boolean handleRequest() throws IOException {
+        Request request = this.channel.getRequest();
+        Response response = this.channel.getResponse();
+        MetaData.Request metaData = request.getMetaData();
+        HttpVersion version = metaData.getHttpVersion() == HttpVersion.HTTP_1_0
+                ? HttpVersion.HTTP_1_0
+                : HttpVersion.HTTP_1_1;
+
+        this.channel.handle();
+
+        // 响应的连接语义跟随请求，生成器只根据响应的 Connection 字段判断是否复用连接
+        HttpFields.Mutable fields = response.getHttpFields();
+        if (isCloseRequested(metaData.getFields())) {
+            fields.put(HttpHeader.CONNECTION, "close");
+        } else if (version == HttpVersion.HTTP_1_0 && isKeepAliveRequested(metaData.getFields())) {
+            fields.put(HttpHeader.CONNECTION, "keep-alive");
+        }
+
+        MetaData.Response info = response.commit(version);
+        writeResponse(info, request.isHead(), response.getContent());
+
+        boolean persistent = this.generator.isPersistent() && !this.parser.isClosed();
+        this.parser.reset();
+        this.generator.reset();
+        this.channel.recycle();
+
+        if (!persistent || this.parser.isClosed()) {
+            getEndPoint().shutdownOutput();
+            releaseAndClose();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * 响应错误的请求并关闭连接
+     *
+     * @throws IOException IO 异常
+     */
+    private void sendBadMessage() throws IOException {
+        BadMessageException failure = this.failure;
+        this.failure = null;
+
+        int code = failure.getCode();
+        String reason = failure.getReason();
+        HttpFields.Mutable fields = new HttpFields.Mutable()
+                .add(HttpHeader.CONTENT_TYPE, "text/plain;charset=ISO-8859-1")
+                .add(HttpHeader.CONNECTION, "close");
+        ByteBuffer content = ByteBuffer.wrap(StringUtils.getBytes(reason == null ? HttpStatus.getMessage(code) : reason));
+
+        this.generator.reset();
+        writeResponse(new MetaData.Response(HttpVersion.HTTP_1_1, code, reason, fields, content.remaining()),
+                false, content);
+
+        getEndPoint().shutdownOutput();
+        releaseAndClose();
+    }
+
+    /**
+     * 生成响应头并和内容一起写出。响应头超过 {@link HttpConfiguration#getResponseHeaderSize()} 时改为响应 500
+     *
+     * @param info    响应元数据
+     * @param head    是否是 HEAD 请求的响应
+     * @param content 响应内容
+     * @throws IOException IO 异常
+     */
+    private void writeResponse(MetaData.Response info, boolean head, ByteBuffer content) throws IOException {
+        ByteBuffer header = this.byteBufferPool.acquire(this.httpConfiguration.getResponseHeaderSize(),
+                this.useOutputDirectByteBuffers);
+        try {
+            BufferUtils.clear(header);
+            if (!this.generator.generateHeader(info, head, content, true, header)) {
+                LOG.warn("Response header too large for {}", this);
+
+                content = BufferUtils.EMPTY_BUFFER;
+                HttpFields fields = new HttpFields.Mutable().add(HttpHeader.CONNECTION, "close");
+                this.generator.generateHeader(new MetaData.Response(info.getHttpVersion(),
+                        HttpStatus.INTERNAL_SERVER_ERROR_500, fields, 0), head, content, true, header);
+            }
+
+            flush(header, head ? BufferUtils.EMPTY_BUFFER : content);
+            this.messagesOut++;
+        } finally {
+            this.byteBufferPool.release(header);
+        }
+    }
+
+    /**
+     * 阻塞写出所有缓存
+     *
+     * @param buffers 缓存，处于 flush 模式
+     * @throws IOException IO 异常
+     */
+    private void flush(ByteBuffer... buffers) throws IOException {
+        EndPoint endPoint = getEndPoint();
+        while (!endPoint.flush(buffers)) {
+            LockSupport.parkNanos(FLUSH_RETRY_NANOS);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Interrupted while flushing " + this);
+            }
+        }
+    }
+
+    /**
+     * 释放缓存并关闭端点
+     */
+    private void releaseAndClose() {
+        releaseInputBuffer();
+        getEndPoint().close();
+    }
+
+    /**
+     * 判断请求是否要求关闭连接
+     *
+     * @param fields 请求头
+     * @return 是否要求关闭连接
+     */
+    private static boolean isCloseRequested(HttpFields fields) {
+        return containsConnectionToken(fields, "close");
+    }
+
+    /**
+     * 判断请求是否要求保持连接
+     *
+     * @param fields 请求头
+     * @return 是否要求保持连接
+     */
+    private static boolean isKeepAliveRequested(HttpFields fields) {
+        return containsConnectionToken(fields, "keep-alive");
+    }
+
+    /**
+     * 判断 Connection 字段是否包含指定的选项，不区分大小写
+     *
+     * @param fields 请求头
+     * @param token  选项
+     * @return 是否包含
+     */
+    private static boolean containsConnectionToken(HttpFields fields, String token) {
+        for (HttpField field : fields) {
+            if (field.getHeader() != HttpHeader.CONNECTION || field.getValue() == null) {
+                continue;
+            }
+
+            for (String value : field.getValue().split(",")) {
+                if (value.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x::%s{%s}",
+                getClass().getSimpleName(), hashCode(), getEndPoint(), this.parser.getState());
+    }
+
+    /**
+     * 把解析结果填充到 {@link HttpChannel} 的请求中，请求解析完成时让解析器返回
+     */
+    private class RequestHandler implements HttpParser.RequestHandler {
+        @Override
+        public void startRequest(String method, String uri, HttpVersion version) {
+        }
+
+        @Override
+        public void parsedHeader(HttpField field) {
+        }
+
+        @Override
+        public boolean headerComplete(MetaData.Request request) {
+            HttpConnection.this.channel.getRequest().setMetaData(request);
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer content) {
+            HttpConnection.this.channel.getRequest().addContent(content);
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete() {
+            HttpConnection.this.messagesIn++;
+            return true;
+        }
+
+        @Override
+        public void badMessage(BadMessageException failure) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Bad message on {}", HttpConnection.this, failure);
+            }
+
+            HttpConnection.this.failure = failure;
+        }
+
+        @Override
+        public void earlyEOF() {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Early EOF on {}", HttpConnection.this);
+            }
+        }
+    }
+}
@@ -75,6 +75,9 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
 
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint) {
-        return null;
+        HttpConnection connection = new HttpConnection(this.httpConfiguration, connector, endPoint,
+                isUseOutputDirectByteBuffers());
+        connection.setUseInputDirectByteBuffers(isUseInputDirectByteBuffers());
+        return configure(connection, connector, endPoint);
     }
 }
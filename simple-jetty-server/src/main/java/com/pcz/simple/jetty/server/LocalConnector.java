@@ -0,0 +1,212 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.io.ByteArrayEndPoint;
+import com.pcz.simple.jetty.core.io.ByteBufferPool;
+import com.pcz.simple.jetty.core.io.Connection;
+import com.pcz.simple.jetty.core.thread.Scheduler;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.core.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 进程内的连接器，端点基于内存，不经过网络
+ * <p>
+ * 连接同样由默认的 {@link ConnectionFactory} 创建，
+ * 可以在没有网络开销的情况下测试和压测完整的服务端处理流程
+ *
+ * @author picongzhi
+ */
+public class LocalConnector extends AbstractConnector {
+    /**
+     * 待接收的端点
+     */
+    private final BlockingQueue<LocalEndPoint> connects = new LinkedBlockingQueue<>();
+
+    public LocalConnector(Server server) {
+        this(server, null, null, null, -1, new HttpConnectionFactory());
+    }
+
+    public LocalConnector(Server server, ConnectionFactory... connectionFactories) {
+        this(server, null, null, null, -1, connectionFactories);
+    }
+
+    public LocalConnector(Server server,
+                          Executor executor,
+                          Scheduler scheduler,
+                          ByteBufferPool byteBufferPool,
+                          int acceptors,
+                          ConnectionFactory... connectionFactories) {
+        super(server, executor, scheduler, byteBufferPool, Math.max(1, acceptors), connectionFactories);
+        setIdleTimeout(30000);
+    }
+
+    @Override
+    public Object getTransport() {
+        return this;
+    }
+
+    /**
+     * 创建一个端点，由接收器异步接收并创建连接
+     *
+     * @return 端点
+     */
+    public LocalEndPoint connect() {
+        LocalEndPoint endPoint = new LocalEndPoint();
+        this.connects.add(endPoint);
+        return endPoint;
+    }
+
+    /**
+     * 异步执行请求，请求数据写入后立即返回
+     *
+     * @param rawRequest 原始请求
+     * @return 端点，通过端点获取响应
+     */
+    public LocalEndPoint executeRequest(ByteBuffer rawRequest) {
+        LocalEndPoint endPoint = connect();
+        endPoint.addInput(rawRequest);
+        return endPoint;
+    }
+
+    /**
+     * 异步执行请求，请求数据写入后立即返回
+     *
+     * @param rawRequest 原始请求，ISO-8859-1 编码
+     * @return 端点，通过端点获取响应
+     */
+    public LocalEndPoint executeRequest(String rawRequest) {
+        return executeRequest(ByteBuffer.wrap(StringUtils.getBytes(rawRequest)));
+    }
+
+    /**
+     * 异步获取响应，请求写入后关闭输入，连接关闭输出或关闭时完成
+     *
+     * @param rawRequest 原始请求
+     * @return 响应
+     */
+    public CompletableFuture<ByteBuffer> getResponseAsync(ByteBuffer rawRequest) {
+        LocalEndPoint endPoint = executeRequest(rawRequest);
+        endPoint.addInputEOF();
+        return endPoint.getResponse();
+    }
+
+    /**
+     * 同步获取响应，请求写入后关闭输入，等待连接关闭输出或关闭
+     *
+     * @param rawRequest 原始请求
+     * @param time       超时时间
+     * @param unit       时间单位
+     * @return 响应，超时时返回已经写出的部分
+     * @throws Exception 异常
+     */
+    public ByteBuffer getResponse(ByteBuffer rawRequest, long time, TimeUnit unit) throws Exception {
+        LocalEndPoint endPoint = executeRequest(rawRequest);
+        endPoint.addInputEOF();
+        try {
+            return endPoint.getResponse().get(time, unit);
+        } catch (TimeoutException e) {
+            return endPoint.takeResponse();
+        }
+    }
+
+    /**
+     * 同步获取响应
+     *
+     * @param rawRequest 原始请求，ISO-8859-1 编码
+     * @param time       超时时间
+     * @param unit       时间单位
+     * @return 响应，ISO-8859-1 解码
+     * @throws Exception 异常
+     */
+    public String getResponse(String rawRequest, long time, TimeUnit unit) throws Exception {
+        ByteBuffer rawResponse = getResponse(ByteBuffer.wrap(StringUtils.getBytes(rawRequest)), time, unit);
+        return BufferUtils.toString(rawResponse);
+    }
+
+    @Override
+    protected void accept(int acceptorId) throws IOException, InterruptedException {
+        LocalEndPoint endPoint = this.connects.take();
+
+        Connection connection = getDefaultConnectionFactory().newConnection(this, endPoint);
+        if (connection == null) {
+            endPoint.close(new IllegalStateException("No connection from " + getDefaultConnectionFactory()));
+            return;
+        }
+
+        endPoint.setConnection(connection);
+        endPoint.onOpen();
+        onEndPointOpened(endPoint);
+        connection.onOpen();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        // 关闭未被接收的端点
+        LocalEndPoint endPoint;
+        while ((endPoint = this.connects.poll()) != null) {
+            endPoint.close();
+        }
+    }
+
+    /**
+     * {@link LocalConnector} 的端点
+     */
+    public class LocalEndPoint extends ByteArrayEndPoint {
+        /**
+         * 响应，输出关闭或端点关闭时完成
+         */
+        private final CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+
+        public LocalEndPoint() {
+            super(LocalConnector.this.getScheduler(), LocalConnector.this.getExecutor());
+            setIdleTimeout(LocalConnector.this.getIdleTimeout());
+        }
+
+        /**
+         * 获取响应
+         *
+         * @return 输出关闭或端点关闭时完成的响应
+         */
+        public CompletableFuture<ByteBuffer> getResponse() {
+            return this.response;
+        }
+
+        /**
+         * 取出已写出的响应数据
+         *
+         * @return 响应数据
+         */
+        public ByteBuffer takeResponse() {
+            return takeOutput();
+        }
+
+        @Override
+        public void shutdownOutput() {
+            super.shutdownOutput();
+            this.response.complete(takeOutput());
+        }
+
+        @Override
+        public void onClose(Throwable cause) {
+            try {
+                super.onClose(cause);
+            } finally {
+                // 没有创建连接的端点不曾通知打开
+                if (getConnection() != null) {
+                    onEndPointClosed(this);
+                }
+                this.response.complete(takeOutput());
+            }
+        }
+    }
+}
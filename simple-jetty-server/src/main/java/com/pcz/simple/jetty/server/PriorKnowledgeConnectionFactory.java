@@ -0,0 +1,71 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.io.Connection;
+import com.pcz.simple.jetty.core.io.EndPoint;
+import com.pcz.simple.jetty.core.util.StringUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HTTP/2 prior knowledge 检测的连接工厂
+ * <p>
+ * 识别明文 HTTP/2 的连接前言，识别成功后由连接器中的下一个协议（默认 h2c）创建连接，
+ * 配合 {@link DetectorConnectionFactory} 使用。
+ * 目前还没有 h2c 的连接工厂，需要由使用者添加到连接器中，否则识别后连接会被关闭
+ *
+ * @author picongzhi
+ */
+public class PriorKnowledgeConnectionFactory extends AbstractConnectionFactory implements ConnectionFactory.Detecting {
+    /**
+     * HTTP/2 连接前言
+     */
+    private static final byte[] PREFACE = StringUtils.getBytes("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+
+    /**
+     * 下一个协议
+     */
+    private final String nextProtocol;
+
+    public PriorKnowledgeConnectionFactory() {
+        this("h2c");
+    }
+
+    public PriorKnowledgeConnectionFactory(String nextProtocol) {
+        super("h2c-prior-knowledge");
+        this.nextProtocol = nextProtocol;
+    }
+
+    /**
+     * 获取下一个协议
+     *
+     * @return 下一个协议
+     */
+    public String getNextProtocol() {
+        return this.nextProtocol;
+    }
+
+    @Override
+    public Detection detect(ByteBuffer buffer) {
+        int position = buffer.position();
+        int length = Math.min(buffer.remaining(), PREFACE.length);
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(position + i) != PREFACE[i]) {
+                return Detection.NOT_RECOGNIZED;
+            }
+        }
+
+        return length == PREFACE.length
+                ? Detection.RECOGNIZED
+                : Detection.NEED_MORE_BYTES;
+    }
+
+    @Override
+    public Connection newConnection(Connector connector, EndPoint endPoint) {
+        ConnectionFactory connectionFactory = connector.getConnectionFactory(this.nextProtocol);
+        if (connectionFactory == null) {
+            throw new IllegalStateException("No protocol factory for '" + this.nextProtocol + "' in " + connector);
+        }
+
+        return connectionFactory.newConnection(connector, endPoint);
+    }
+}
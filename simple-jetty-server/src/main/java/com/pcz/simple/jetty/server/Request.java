@@ -1,9 +1,863 @@
 package com.pcz.simple.jetty.server;
 
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.http.HttpField;
+import com.pcz.simple.jetty.http.HttpFields;
+import com.pcz.simple.jetty.http.HttpHeader;
+import com.pcz.simple.jetty.http.HttpMethod;
+import com.pcz.simple.jetty.http.MetaData;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * 处理请求
+ * 请求，由 {@link HttpChannel} 根据解析出的 {@link MetaData.Request} 填充，连接复用时回收
+ * <p>
+ * 请求内容在请求解析完成后一次性交给处理器，参数来自查询字符串和
+ * {@code application/x-www-form-urlencoded} 的请求体。
+ * 会话、认证、异步、文件上传和协议升级尚未实现
  *
  * @author picongzhi
  */
-public class Request {
+public class Request implements HttpServletRequest {
+    /**
+     * 表单的内容类型
+     */
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    /**
+     * 所属的 HTTP 通道
+     */
+    private final HttpChannel channel;
+
+    /**
+     * 属性
+     */
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    /**
+     * 请求内容
+     */
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    /**
+     * 请求元数据
+     */
+    private MetaData.Request metaData;
+
+    /**
+     * 未解码的路径
+     */
+    private String requestURI;
+
+    /**
+     * 查询字符串
+     */
+    private String queryString;
+
+    /**
+     * 字符编码
+     */
+    private String characterEncoding;
+
+    /**
+     * 参数，第一次访问时解析
+     */
+    private Map<String, String[]> parameters;
+
+    /**
+     * 是否已通过 {@link #getInputStream()} 或 {@link #getReader()} 读取内容
+     */
+    private Object contentReader;
+
+    /**
+     * 是否已处理
+     */
+    private boolean handled;
+
+    public Request(HttpChannel channel) {
+        this.channel = channel;
+    }
+
+    public HttpChannel getHttpChannel() {
+        return this.channel;
+    }
+
+    public MetaData.Request getMetaData() {
+        return this.metaData;
+    }
+
+    /**
+     * 设置请求元数据，拆分出路径和查询字符串
+     *
+     * @param metaData 请求元数据
+     */
+    public void setMetaData(MetaData.Request metaData) {
+        this.metaData = metaData;
+
+        String uri = metaData.getUri();
+        // absolute-form，去掉 scheme 和 authority
+        int scheme = uri.indexOf("://");
+        if (scheme > 0 && uri.indexOf('/') > scheme) {
+            int path = uri.indexOf('/', scheme + 3);
+            uri = path < 0 ? "/" : uri.substring(path);
+        }
+
+        int query = uri.indexOf('?');
+        this.requestURI = query < 0 ? uri : uri.substring(0, query);
+        this.queryString = query < 0 ? null : uri.substring(query + 1);
+    }
+
+    /**
+     * 获取请求头
+     *
+     * @return 请求头
+     */
+    public HttpFields getHttpFields() {
+        return this.metaData == null ? HttpFields.EMPTY : this.metaData.getFields();
+    }
+
+    /**
+     * 追加请求内容
+     *
+     * @param buffer 内容，处于 flush 模式
+     */
+    public void addContent(ByteBuffer buffer) {
+        int length = BufferUtils.length(buffer);
+        if (buffer.hasArray()) {
+            this.content.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        this.content.write(bytes, 0, length);
+    }
+
+    public boolean isHandled() {
+        return this.handled;
+    }
+
+    /**
+     * 设置是否已处理，没有处理器处理的请求响应 404
+     *
+     * @param handled 是否已处理
+     */
+    public void setHandled(boolean handled) {
+        this.handled = handled;
+    }
+
+    /**
+     * 判断是否是 HEAD 请求
+     *
+     * @return 是否是 HEAD 请求
+     */
+    public boolean isHead() {
+        return HttpMethod.HEAD.is(getMethod());
+    }
+
+    /**
+     * 回收，准备处理同一连接上的下一个请求
+     */
+    public void recycle() {
+        this.metaData = null;
+        this.requestURI = null;
+        this.queryString = null;
+        this.characterEncoding = null;
+        this.parameters = null;
+        this.contentReader = null;
+        this.handled = false;
+        this.attributes.clear();
+        this.content.reset();
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        List<Cookie> cookies = new ArrayList<>();
+        for (HttpField field : getHttpFields()) {
+            if (field.getHeader() != HttpHeader.COOKIE) {
+                continue;
+            }
+
+            for (String pair : field.getValue().split(";")) {
+                int equals = pair.indexOf('=');
+                if (equals <= 0) {
+                    continue;
+                }
+
+                try {
+                    cookies.add(new Cookie(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim()));
+                } catch (IllegalArgumentException ignored) {
+                    // 非法的 cookie 名
+                }
+            }
+        }
+
+        return cookies.isEmpty() ? null : cookies.toArray(new Cookie[0]);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cannot convert date: " + value, e);
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        HttpField field = getHttpFields().getField(name);
+        return field == null ? null : field.getValue();
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = new ArrayList<>();
+        for (HttpField field : getHttpFields()) {
+            if (field.is(name)) {
+                values.add(field.getValue());
+            }
+        }
+
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (HttpField field : getHttpFields()) {
+            names.add(field.getName());
+        }
+
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public String getMethod() {
+        return this.metaData == null ? null : this.metaData.getMethod();
+    }
+
+    @Override
+    public String getPathInfo() {
+        return this.requestURI == null ? null : decodePath(this.requestURI);
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getQueryString() {
+        return this.queryString;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return this.requestURI;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer(getScheme()).append("://").append(getServerName());
+        int port = getServerPort();
+        if (port > 0 && port != 80) {
+            url.append(':').append(port);
+        }
+
+        return url.append(this.requestURI);
+    }
+
+    @Override
+    public String getServletPath() {
+        return "";
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new IllegalStateException("No SessionManager");
+        }
+
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("No session");
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws IOException, ServletException {
+        throw new ServletException("Authentication not supported");
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Authentication not supported");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+    }
+
+    @Override
+    public Collection<Part> getParts() throws IOException, ServletException {
+        throw new ServletException("Multipart not supported");
+    }
+
+    @Override
+    public Part getPart(String name) throws IOException, ServletException {
+        throw new ServletException("Multipart not supported");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws IOException, ServletException {
+        throw new ServletException("Upgrade not supported");
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return this.attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(this.attributes.keySet());
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        if (this.characterEncoding == null) {
+            this.characterEncoding = charsetFrom(getContentType());
+        }
+
+        return this.characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String encoding) throws UnsupportedEncodingException {
+        if (this.contentReader != null) {
+            return;
+        }
+
+        try {
+            Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+
+        this.characterEncoding = encoding;
+    }
+
+    @Override
+    public int getContentLength() {
+        long length = getContentLengthLong();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        if (this.metaData == null) {
+            return -1;
+        }
+
+        // chunked 请求在解析完成后才知道长度
+        long length = this.metaData.getContentLength();
+        return length >= 0 ? length : this.content.size();
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(HttpHeader.CONTENT_TYPE.asString());
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (this.contentReader instanceof BufferedReader) {
+            throw new IllegalStateException("READER");
+        }
+
+        if (this.contentReader == null) {
+            this.contentReader = new Input(this.content.toByteArray());
+        }
+
+        return (ServletInputStream) this.contentReader;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (this.contentReader instanceof ServletInputStream) {
+            throw new IllegalStateException("STREAMED");
+        }
+
+        if (this.contentReader == null) {
+            this.contentReader = new BufferedReader(new InputStreamReader(
+                    new ByteArrayInputStream(this.content.toByteArray()), charset()));
+        }
+
+        return (BufferedReader) this.contentReader;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (this.parameters == null) {
+            Map<String, List<String>> parameters = new LinkedHashMap<>();
+            decodeForm(this.queryString, StandardCharsets.UTF_8, parameters);
+
+            String contentType = getContentType();
+            if (contentType != null && contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0,
+                    FORM_CONTENT_TYPE.length()) && this.contentReader == null) {
+                decodeForm(this.content.toString(charset()), charset(), parameters);
+            }
+
+            Map<String, String[]> map = new LinkedHashMap<>();
+            parameters.forEach((name, values) -> map.put(name, values.toArray(new String[0])));
+            this.parameters = Collections.unmodifiableMap(map);
+        }
+
+        return this.parameters;
+    }
+
+    @Override
+    public String getProtocol() {
+        return this.metaData == null ? null : this.metaData.getHttpVersion().asString();
+    }
+
+    @Override
+    public String getScheme() {
+        return "http";
+    }
+
+    @Override
+    public String getServerName() {
+        String host = getHeader(HttpHeader.HOST.asString());
+        if (host == null) {
+            return getLocalName();
+        }
+
+        // IPv6 字面量
+        if (host.startsWith("[")) {
+            int end = host.indexOf(']');
+            return end < 0 ? host : host.substring(0, end + 1);
+        }
+
+        int colon = host.indexOf(':');
+        return colon < 0 ? host : host.substring(0, colon);
+    }
+
+    @Override
+    public int getServerPort() {
+        String host = getHeader(HttpHeader.HOST.asString());
+        if (host != null) {
+            int colon = host.lastIndexOf(':');
+            if (colon > host.lastIndexOf(']')) {
+                try {
+                    return Integer.parseInt(host.substring(colon + 1));
+                } catch (NumberFormatException ignored) {
+                    // 非法的端口
+                }
+            }
+        }
+
+        return getLocalPort();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return null;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+
+        this.attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        this.attributes.remove(name);
+    }
+
+    @Override
+    public Locale getLocale() {
+        String language = getHeader(HttpHeader.ACCEPT_LANGUAGE.asString());
+        if (language == null) {
+            return Locale.getDefault();
+        }
+
+        int end = language.indexOf(',');
+        String first = end < 0 ? language : language.substring(0, end);
+        int q = first.indexOf(';');
+        return Locale.forLanguageTag((q < 0 ? first : first.substring(0, q)).trim());
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(List.of(getLocale()));
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return 0;
+    }
+
+    @Override
+    public String getLocalName() {
+        Connector connector = this.channel.getConnector();
+        if (connector instanceof NetworkConnector) {
+            return ((NetworkConnector) connector).getHost();
+        }
+
+        return null;
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return getLocalName();
+    }
+
+    @Override
+    public int getLocalPort() {
+        Connector connector = this.channel.getConnector();
+        if (connector instanceof NetworkConnector) {
+            return ((NetworkConnector) connector).getLocalPort();
+        }
+
+        return 0;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public AsyncContext startAsync() throws IllegalStateException {
+        throw new IllegalStateException("Async not supported");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest request, ServletResponse response) throws IllegalStateException {
+        throw new IllegalStateException("Async not supported");
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("Async not started");
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%s %s}",
+                getClass().getSimpleName(), hashCode(), getMethod(), this.requestURI);
+    }
+
+    /**
+     * 获取请求内容的字符集，默认 ISO-8859-1
+     *
+     * @return 字符集
+     */
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        if (encoding == null) {
+            return StandardCharsets.ISO_8859_1;
+        }
+
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedCharsetException(encoding);
+        }
+    }
+
+    /**
+     * 从内容类型中取出字符集
+     *
+     * @param contentType 内容类型
+     * @return 字符集，没有时返回 null
+     */
+    static String charsetFrom(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                String charset = trimmed.substring(8).trim();
+                if (charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\"")) {
+                    charset = charset.substring(1, charset.length() - 1);
+                }
+                return charset;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 解码 {@code application/x-www-form-urlencoded} 格式的参数
+     *
+     * @param form       参数字符串
+     * @param charset    字符集
+     * @param parameters 解码出的参数
+     */
+    private static void decodeForm(String form, Charset charset, Map<String, List<String>> parameters) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            int equals = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), charset);
+                String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), charset);
+                parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+            } catch (IllegalArgumentException ignored) {
+                // 非法的百分号编码，忽略该参数
+            }
+        }
+    }
+
+    /**
+     * 按 UTF-8 解码路径中的百分号编码，{@code +} 不解码为空格
+     *
+     * @param path 路径
+     * @return 解码后的路径
+     */
+    private static String decodePath(String path) {
+        if (path.indexOf('%') < 0) {
+            return path;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '%' && i + 2 < path.length()) {
+                int hi = Character.digit(path.charAt(i + 1), 16);
+                int lo = Character.digit(path.charAt(i + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    bytes.write((hi << 4) + lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            bytes.write(c);
+        }
+
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 基于内存的请求内容输入流
+     */
+    private static class Input extends ServletInputStream {
+        /**
+         * 内容
+         */
+        private final ByteArrayInputStream content;
+
+        private Input(byte[] content) {
+            this.content = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() {
+            return this.content.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            return this.content.read(bytes, offset, length);
+        }
+
+        @Override
+        public int available() {
+            return this.content.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return this.content.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Async not supported");
+        }
+    }
 }
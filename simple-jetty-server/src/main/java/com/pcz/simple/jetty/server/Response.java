@@ -0,0 +1,621 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.util.StringUtils;
+import com.pcz.simple.jetty.http.HttpField;
+import com.pcz.simple.jetty.http.HttpFields;
+import com.pcz.simple.jetty.http.HttpHeader;
+import com.pcz.simple.jetty.http.HttpStatus;
+import com.pcz.simple.jetty.http.HttpVersion;
+import com.pcz.simple.jetty.http.MetaData;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 响应
+ * <p>
+ * 内容先写入内存，处理器返回后由 {@link HttpConnection} 一次性生成响应头并写出，
+ * 因此 {@link #isCommitted()} 在处理期间总是返回 false，{@link #flushBuffer()} 不会提前写出
+ *
+ * @author picongzhi
+ */
+public class Response implements HttpServletResponse {
+    /**
+     * 默认的字符编码
+     */
+    private static final String DEFAULT_CHARACTER_ENCODING = "ISO-8859-1";
+
+    /**
+     * 所属的 HTTP 通道
+     */
+    private final HttpChannel channel;
+
+    /**
+     * 响应头
+     */
+    private final HttpFields.Mutable fields = new HttpFields.Mutable();
+
+    /**
+     * 响应内容
+     */
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    /**
+     * 响应内容输出流
+     */
+    private final Output output = new Output();
+
+    /**
+     * 状态码
+     */
+    private int status = HttpStatus.OK_200;
+
+    /**
+     * 原因短语，为 null 时使用状态码的默认短语
+     */
+    private String reason;
+
+    /**
+     * 不带字符集的内容类型
+     */
+    private String mimeType;
+
+    /**
+     * 字符编码
+     */
+    private String characterEncoding;
+
+    /**
+     * 语言
+     */
+    private Locale locale;
+
+    /**
+     * 写出器，{@link #getWriter()} 时创建
+     */
+    private PrintWriter writer;
+
+    /**
+     * 是否已获取输出流
+     */
+    private boolean streaming;
+
+    /**
+     * 缓存大小，只用于 {@link #getBufferSize()}
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * 是否已提交
+     */
+    private boolean committed;
+
+    public Response(HttpChannel channel) {
+        this.channel = channel;
+    }
+
+    public HttpChannel getHttpChannel() {
+        return this.channel;
+    }
+
+    /**
+     * 获取响应头
+     *
+     * @return 响应头
+     */
+    public HttpFields.Mutable getHttpFields() {
+        return this.fields;
+    }
+
+    /**
+     * 获取原因短语
+     *
+     * @return 原因短语，为 null 时使用状态码的默认短语
+     */
+    public String getReason() {
+        return this.reason;
+    }
+
+    /**
+     * 生成响应元数据，并标记为已提交
+     *
+     * @param version HTTP 版本
+     * @return 响应元数据
+     */
+    public MetaData.Response commit(HttpVersion version) {
+        closeOutput();
+        this.committed = true;
+        return new MetaData.Response(version, this.status, this.reason, this.fields, this.content.size());
+    }
+
+    /**
+     * 获取响应内容，处理器返回后调用
+     *
+     * @return 响应内容，处于 flush 模式
+     */
+    public ByteBuffer getContent() {
+        closeOutput();
+        return ByteBuffer.wrap(this.content.toByteArray());
+    }
+
+    /**
+     * 回收，准备处理同一连接上的下一个请求
+     */
+    public void recycle() {
+        this.fields.clear();
+        this.content.reset();
+        this.status = HttpStatus.OK_200;
+        this.reason = null;
+        this.mimeType = null;
+        this.characterEncoding = null;
+        this.locale = null;
+        this.writer = null;
+        this.streaming = false;
+        this.committed = false;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        StringBuilder builder = new StringBuilder(cookie.getName()).append('=').append(cookie.getValue());
+        if (cookie.getPath() != null) {
+            builder.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getDomain() != null) {
+            builder.append("; Domain=").append(cookie.getDomain());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            builder.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        if (cookie.getSecure()) {
+            builder.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            builder.append("; HttpOnly");
+        }
+
+        addHeader(HttpHeader.SET_COOKIE.asString(), builder.toString());
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return this.fields.getField(name) != null;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        checkNotCommitted();
+
+        resetBuffer();
+        this.fields.clear();
+        this.writer = null;
+        this.streaming = false;
+        setStatus(status);
+        this.reason = message;
+
+        if (!HttpStatus.hasNoBody(status)) {
+            setContentType("text/plain;charset=ISO-8859-1");
+            this.content.write(StringUtils.getBytes(message == null ? HttpStatus.getMessage(status) : message));
+        }
+
+        this.channel.getRequest().setHandled(true);
+        this.committed = true;
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        sendError(status, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        checkNotCommitted();
+
+        resetBuffer();
+        setStatus(HttpStatus.FOUND_302);
+        setHeader(HttpHeader.LOCATION.asString(), location);
+
+        this.channel.getRequest().setHandled(true);
+        this.committed = true;
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (this.committed) {
+            return;
+        }
+
+        if (HttpHeader.CONTENT_TYPE.is(name)) {
+            setContentType(value);
+            return;
+        }
+
+        if (value == null) {
+            this.fields.remove(name);
+            return;
+        }
+
+        this.fields.put(toField(name, value));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (this.committed || value == null) {
+            return;
+        }
+
+        if (HttpHeader.CONTENT_TYPE.is(name)) {
+            setContentType(value);
+            return;
+        }
+
+        this.fields.add(toField(name, value));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setStatus(int status) {
+        if (status <= 0) {
+            throw new IllegalArgumentException("Invalid status " + status);
+        }
+
+        if (!this.committed) {
+            this.status = status;
+            this.reason = null;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int status, String reason) {
+        setStatus(status);
+        if (!this.committed) {
+            this.reason = reason;
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        HttpField field = this.fields.getField(name);
+        return field == null ? null : field.getValue();
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = new ArrayList<>();
+        for (HttpField field : this.fields) {
+            if (field.is(name)) {
+                values.add(field.getValue());
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (HttpField field : this.fields) {
+            names.add(field.getName());
+        }
+
+        return names;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return this.characterEncoding == null ? DEFAULT_CHARACTER_ENCODING : this.characterEncoding;
+    }
+
+    @Override
+    public String getContentType() {
+        if (this.mimeType == null) {
+            return null;
+        }
+
+        return this.characterEncoding == null
+                ? this.mimeType
+                : this.mimeType + ";charset=" + this.characterEncoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (this.writer != null) {
+            throw new IllegalStateException("WRITER");
+        }
+
+        this.streaming = true;
+        return this.output;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (this.streaming) {
+            throw new IllegalStateException("STREAM");
+        }
+
+        if (this.writer == null) {
+            Charset charset;
+            try {
+                charset = Charset.forName(getCharacterEncoding());
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                throw new UnsupportedEncodingException(getCharacterEncoding());
+            }
+
+            // 设置了内容类型但没有字符集时，把实际使用的字符集告诉客户端
+            if (this.characterEncoding == null) {
+                this.characterEncoding = charset.name();
+                updateContentType();
+            }
+            this.writer = new PrintWriter(new OutputStreamWriter(this.output, charset));
+        }
+
+        return this.writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String encoding) {
+        if (this.committed || this.writer != null) {
+            return;
+        }
+
+        this.characterEncoding = encoding;
+        updateContentType();
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    /**
+     * 内容长度由写出的内容决定，这里只校验不超过写出的内容
+     *
+     * @param length 内容长度
+     */
+    @Override
+    public void setContentLengthLong(long length) {
+        if (length >= 0 && length < this.content.size()) {
+            throw new IllegalArgumentException("Content-Length " + length + " < written " + this.content.size());
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (this.committed) {
+            return;
+        }
+
+        if (type == null) {
+            this.mimeType = null;
+            if (this.writer == null) {
+                this.characterEncoding = null;
+            }
+            this.fields.remove(HttpHeader.CONTENT_TYPE);
+            return;
+        }
+
+        int semicolon = type.indexOf(';');
+        this.mimeType = (semicolon < 0 ? type : type.substring(0, semicolon)).trim();
+        String charset = Request.charsetFrom(type);
+        if (charset != null && this.writer == null) {
+            this.characterEncoding = charset;
+        }
+        updateContentType();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        if (this.content.size() > 0) {
+            throw new IllegalStateException("Content written");
+        }
+
+        this.bufferSize = size;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        checkNotCommitted();
+
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        this.content.reset();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return this.committed;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+
+        this.fields.clear();
+        this.status = HttpStatus.OK_200;
+        this.reason = null;
+        this.mimeType = null;
+        this.characterEncoding = null;
+        this.locale = null;
+        this.writer = null;
+        this.streaming = false;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        if (this.committed || locale == null) {
+            return;
+        }
+
+        this.locale = locale;
+        setHeader(HttpHeader.CONTENT_LANGUAGE.asString(), locale.toLanguageTag());
+    }
+
+    @Override
+    public Locale getLocale() {
+        return this.locale == null ? Locale.getDefault() : this.locale;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x{%d %s}",
+                getClass().getSimpleName(), hashCode(), this.status, this.reason);
+    }
+
+    /**
+     * 刷新写出器中缓存的字符
+     */
+    private void closeOutput() {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * 校验未提交
+     */
+    private void checkNotCommitted() {
+        if (this.committed) {
+            throw new IllegalStateException("Committed");
+        }
+    }
+
+    /**
+     * 根据 MIME 类型和字符编码更新 Content-Type 字段
+     */
+    private void updateContentType() {
+        String contentType = getContentType();
+        if (contentType == null) {
+            this.fields.remove(HttpHeader.CONTENT_TYPE);
+            return;
+        }
+
+        this.fields.put(HttpHeader.CONTENT_TYPE, contentType);
+    }
+
+    /**
+     * 创建字段，已知的字段名关联到 {@link HttpHeader}，使生成器能够识别 Connection 等字段
+     *
+     * @param name  字段名
+     * @param value 字段值
+     * @return 字段
+     */
+    private static HttpField toField(String name, String value) {
+        byte[] bytes = StringUtils.getBytes(name);
+        HttpHeader header = HttpHeader.lookup(bytes, 0, bytes.length);
+        return new HttpField(header, name, value);
+    }
+
+    /**
+     * 按 RFC 1123 格式化日期
+     *
+     * @param date 日期，毫秒
+     * @return 格式化后的日期
+     */
+    private static String formatDate(long date) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+
+    /**
+     * 写入内存的响应内容输出流
+     */
+    private class Output extends ServletOutputStream {
+        @Override
+        public void write(int b) {
+            Response.this.content.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            Response.this.content.write(bytes, offset, length);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Async not supported");
+        }
+    }
+}
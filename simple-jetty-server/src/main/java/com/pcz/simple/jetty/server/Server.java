@@ -6,9 +6,11 @@ import com.pcz.simple.jetty.core.MultiException;
 import com.pcz.simple.jetty.core.Uptime;
 import com.pcz.simple.jetty.core.component.AttributeContainerMap;
 import com.pcz.simple.jetty.core.component.LifeCycle;
+import com.pcz.simple.jetty.core.thread.LockStatistics;
 import com.pcz.simple.jetty.core.thread.QueuedThreadPool;
 import com.pcz.simple.jetty.core.thread.ShutdownThread;
 import com.pcz.simple.jetty.core.thread.ThreadPool;
+import com.pcz.simple.jetty.core.thread.ThreadPoolBudget;
 import com.pcz.simple.jetty.server.handler.ErrorHandler;
 import com.pcz.simple.jetty.server.handler.HandlerWrapper;
 import org.slf4j.Logger;
@@ -27,6 +29,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class Server extends HandlerWrapper {
     private static final Logger LOG = LoggerFactory.getLogger(Server.class);
 
+    /**
+     * dump 时输出的竞争最严重的锁的个数
+     */
+    private static final int DUMP_WORST_LOCKS = 10;
+
     /**
      * 连接器
      */
@@ -261,6 +268,34 @@ public class Server extends HandlerWrapper {
         super.doStop();
     }
 
+    /**
+     * 输出服务器状态，包括连接器、线程池及其预算，开启锁竞争统计时还包括竞争最严重的锁
+     *
+     * @return 服务器状态
+     */
+    public String dump() {
+        String separator = System.lineSeparator();
+        StringBuilder builder = new StringBuilder(toString());
+        for (Connector connector : this.connectors) {
+            builder.append(separator).append(" +- ").append(connector);
+        }
+
+        builder.append(separator).append(" +- ").append(this.threadPool);
+        if (this.threadPool instanceof ThreadPool.SizedThreadPool) {
+            ThreadPoolBudget budget = ((ThreadPool.SizedThreadPool) this.threadPool).getThreadPoolBudget();
+            if (budget != null) {
+                builder.append(separator).append(" +- ").append(budget.dump());
+            }
+        }
+
+        String locks = LockStatistics.dump(DUMP_WORST_LOCKS);
+        if (!locks.isEmpty()) {
+            builder.append(separator).append(" +- ").append(locks);
+        }
+
+        return builder.toString();
+    }
+
     /**
      * 获取版本
      *
@@ -2,7 +2,10 @@ package com.pcz.simple.jetty.server;
 
 import com.pcz.simple.jetty.core.IO;
 import com.pcz.simple.jetty.core.io.ByteBufferPool;
+import com.pcz.simple.jetty.core.io.EndPoint;
 import com.pcz.simple.jetty.core.io.ManagedSelector;
+import com.pcz.simple.jetty.core.io.NetworkTrafficListener;
+import com.pcz.simple.jetty.core.io.NetworkTrafficSocketChannelEndPoint;
 import com.pcz.simple.jetty.core.io.SelectorManager;
 import com.pcz.simple.jetty.core.io.SocketChannelEndPoint;
 import com.pcz.simple.jetty.core.thread.Scheduler;
@@ -16,7 +19,10 @@ import java.nio.channels.Channel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.Collections;
 import java.util.EventListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -81,6 +87,11 @@ public class ServerConnector extends AbstractNetworkConnector {
      */
     private volatile int acceptedSendBufferSize = -1;
 
+    /**
+     * 网络流量监听器
+     */
+    private final List<NetworkTrafficListener> networkTrafficListeners = new CopyOnWriteArrayList<>();
+
     public ServerConnector(Server server) {
         this(server, null, null, null, -1, -1, new HttpConnectionFactory());
     }
@@ -412,13 +423,43 @@ public class ServerConnector extends AbstractNetworkConnector {
                                                 ManagedSelector managedSelector,
                                                 SelectionKey selectionKey)
             throws IOException {
-        SocketChannelEndPoint endPoint = new SocketChannelEndPoint(
-                socketChannel, managedSelector, selectionKey, getScheduler());
+        // 没有监听器时使用普通端点，读写路径上没有任何判断
+        SocketChannelEndPoint endPoint = this.networkTrafficListeners.isEmpty()
+                ? new SocketChannelEndPoint(socketChannel, managedSelector, selectionKey, getScheduler())
+                : new NetworkTrafficSocketChannelEndPoint(socketChannel, managedSelector, selectionKey,
+                getScheduler(), this.networkTrafficListeners);
         endPoint.setIdleTimeout(getIdleTimeout());
 
         return endPoint;
     }
 
+    /**
+     * 添加网络流量监听器，只对之后接收的连接生效
+     *
+     * @param listener 网络流量监听器
+     */
+    public void addNetworkTrafficListener(NetworkTrafficListener listener) {
+        this.networkTrafficListeners.add(listener);
+    }
+
+    /**
+     * 移除网络流量监听器
+     *
+     * @param listener 网络流量监听器
+     */
+    public void removeNetworkTrafficListener(NetworkTrafficListener listener) {
+        this.networkTrafficListeners.remove(listener);
+    }
+
+    /**
+     * 获取网络流量监听器
+     *
+     * @return 网络流量监听器
+     */
+    public List<NetworkTrafficListener> getNetworkTrafficListeners() {
+        return Collections.unmodifiableList(this.networkTrafficListeners);
+    }
+
     @Override
     public void setAccepting(boolean accepting) {
         super.setAccepting(accepting);
@@ -561,6 +602,19 @@ public class ServerConnector extends AbstractNetworkConnector {
      */
     protected class ServerConnectorManager extends SelectorManager {
         public ServerConnectorManager(Executor executor, Scheduler scheduler, int selectors) {
+            super(executor, scheduler, selectors);
+        }
+
+        @Override
+        public void onEndPointOpened(EndPoint endPoint) {
+            super.onEndPointOpened(endPoint);
+            ServerConnector.this.onEndPointOpened(endPoint);
+        }
+
+        @Override
+        public void onEndPointClosed(EndPoint endPoint) {
+            ServerConnector.this.onEndPointClosed(endPoint);
+            super.onEndPointClosed(endPoint);
         }
     }
 }
@@ -27,7 +27,7 @@ public class ShutdownMonitor {
     /**
      * 锁
      */
-    private final AutoLock.WithCondition lock = new AutoLock.WithCondition();
+    private final AutoLock.WithCondition lock = new AutoLock.WithCondition("ShutdownMonitor.lock");
 
     /**
      * 生命周期对象
@@ -2,9 +2,9 @@ package com.pcz.simple.jetty.server;
 
 import com.pcz.simple.jetty.core.io.Connection;
 import com.pcz.simple.jetty.core.io.EndPoint;
+import com.pcz.simple.jetty.http.HttpVersion;
 
 import java.nio.ByteBuffer;
-import java.util.List;
 
 /**
  * SSL 连接工厂
@@ -14,24 +14,68 @@ import java.util.List;
 public class SslConnectionFactory
         extends AbstractConnectionFactory
         implements ConnectionFactory.Detecting, ConnectionFactory.Configuring {
-    @Override
-    public String getProtocol() {
-        return null;
+    /**
+     * TLS 告警帧类型
+     */
+    private static final int TLS_ALERT_FRAME_TYPE = 0x15;
+
+    /**
+     * TLS 握手帧类型
+     */
+    private static final int TLS_HANDSHAKE_FRAME_TYPE = 0x16;
+
+    /**
+     * TLS 主版本号
+     */
+    private static final int TLS_MAJOR_VERSION = 3;
+
+    /**
+     * 下一个协议
+     */
+    private final String nextProtocol;
+
+    public SslConnectionFactory() {
+        this(HttpVersion.HTTP_1_1.asString());
     }
 
-    @Override
-    public List<String> getProtocols() {
-        return null;
+    public SslConnectionFactory(String nextProtocol) {
+        super("SSL");
+        this.nextProtocol = nextProtocol;
     }
 
+    /**
+     * 尚未实现，总是返回 null，{@link DetectorConnectionFactory} 升级到该协议时会关闭连接
+     *
+     * @param connector 连接器
+     * @param endPoint  端点
+     * @return null
+     */
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint) {
         return null;
     }
 
+    /**
+     * 通过 TLS 记录头识别：第一个字节是握手或告警帧类型，第二个字节是主版本号
+     *
+     * @param buffer 缓存
+     * @return 检测结果
+     */
     @Override
     public Detection detect(ByteBuffer buffer) {
-        return null;
+        if (buffer.remaining() < 2) {
+            return Detection.NEED_MORE_BYTES;
+        }
+
+        int position = buffer.position();
+        int tlsProtocol = buffer.get(position);
+        int tlsVersion = buffer.get(position + 1);
+        if ((tlsProtocol == TLS_HANDSHAKE_FRAME_TYPE || tlsProtocol == TLS_ALERT_FRAME_TYPE)
+                && tlsVersion == TLS_MAJOR_VERSION) {
+            return Detection.RECOGNIZED;
+        }
+
+        return Detection.NOT_RECOGNIZED;
     }
 
     @Override
@@ -40,10 +84,10 @@ public class SslConnectionFactory
     }
 
     public String getNextProtocol() {
-        return null;
+        return this.nextProtocol;
     }
 
     public static class Server extends SslConnectionFactory {
-        
+
     }
 }
@@ -0,0 +1,145 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.io.AbstractConnection;
+import com.pcz.simple.jetty.core.io.Connection;
+import com.pcz.simple.jetty.core.io.EndPoint;
+import com.pcz.simple.jetty.core.thread.ThreadPool;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.core.util.StringUtils;
+import com.pcz.simple.jetty.server.handler.AbstractHandler;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+public class DetectorConnectionFactoryTest {
+    private static final String PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+
+    private Server server;
+
+    private LocalConnector connector;
+
+    @BeforeEach
+    public void before() throws Exception {
+        this.server = new Server((ThreadPool) null);
+        this.connector = new LocalConnector(this.server,
+                new DetectorConnectionFactory(new SslConnectionFactory(), new PriorKnowledgeConnectionFactory()),
+                new HttpConnectionFactory(),
+                new RecordingConnectionFactory("h2c"));
+        this.server.setConnectors(new Connector[]{this.connector});
+        this.server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.getOutputStream().write(StringUtils.getBytes("handled " + target));
+            }
+        });
+        this.server.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        this.server.stop();
+    }
+
+    @Test
+    public void should_fall_back_to_http_1_1_when_not_recognized() throws Exception {
+        String response = this.connector.getResponse("GET /plain HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 200 OK\r\n");
+        Assertions.assertThat(response).endsWith("\r\n\r\nhandled /plain");
+    }
+
+    @Test
+    public void should_fall_back_to_http_1_1_when_request_arrives_in_pieces() throws Exception {
+        LocalConnector.LocalEndPoint endPoint = this.connector.connect();
+        endPoint.addInput("G");
+        Thread.sleep(50);
+        endPoint.addInput("ET /pieces HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        endPoint.addInputEOF();
+
+        String response = BufferUtils.toString(endPoint.getResponse().get(5, TimeUnit.SECONDS));
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 200 OK\r\n");
+        Assertions.assertThat(response).endsWith("\r\n\r\nhandled /pieces");
+    }
+
+    @Test
+    public void should_upgrade_to_detected_protocol_with_consumed_bytes() throws Exception {
+        String response = this.connector.getResponse(PREFACE + "frames", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).isEqualTo("h2c received " + (PREFACE.length() + "frames".length()));
+    }
+
+    @Test
+    public void should_close_when_detected_protocol_creates_no_connection() throws Exception {
+        // TLS 握手记录头，SslConnectionFactory 尚未实现连接
+        ByteBuffer clientHello = ByteBuffer.wrap(new byte[]{0x16, 0x03, 0x01, 0x00, 0x00});
+
+        ByteBuffer response = this.connector.getResponse(clientHello, 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(BufferUtils.isEmpty(response)).isTrue();
+    }
+
+    /**
+     * 记录升级时接管的字节数并写回，然后关闭连接
+     */
+    private static class RecordingConnectionFactory extends AbstractConnectionFactory {
+        private RecordingConnectionFactory(String protocol) {
+            super(protocol);
+        }
+
+        @Override
+        public Connection newConnection(Connector connector, EndPoint endPoint) {
+            return configure(new RecordingConnection(endPoint, connector, getProtocol()), connector, endPoint);
+        }
+    }
+
+    private static class RecordingConnection extends AbstractConnection implements Connection.UpgradeTo {
+        private final Connector connector;
+
+        private final String protocol;
+
+        private int received;
+
+        private RecordingConnection(EndPoint endPoint, Connector connector, String protocol) {
+            super(endPoint, connector.getExecutor());
+            this.connector = connector;
+            this.protocol = protocol;
+        }
+
+        @Override
+        public void onUpgradeTo(ByteBuffer buffer) {
+            this.received = BufferUtils.length(buffer);
+            this.connector.getByteBufferPool().release(buffer);
+        }
+
+        @Override
+        public void onOpen() {
+            super.onOpen();
+
+            try {
+                getEndPoint().flush(ByteBuffer.wrap(StringUtils.getBytes(this.protocol + " received " + this.received)));
+            } catch (IOException e) {
+                getEndPoint().close(e);
+                return;
+            }
+
+            getEndPoint().shutdownOutput();
+            getEndPoint().close();
+        }
+
+        @Override
+        public void onFillable() {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.pcz.simple.jetty.server;
+
+import com.pcz.simple.jetty.core.thread.ThreadPool;
+import com.pcz.simple.jetty.core.util.BufferUtils;
+import com.pcz.simple.jetty.server.handler.AbstractHandler;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class LocalConnectorTest {
+    private Server server;
+
+    private LocalConnector connector;
+
+    @BeforeEach
+    public void before() throws Exception {
+        this.server = new Server((ThreadPool) null);
+        this.connector = new LocalConnector(this.server);
+        this.server.setConnectors(new Connector[]{this.connector});
+        this.server.setHandler(new EchoHandler());
+        this.server.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        this.server.stop();
+    }
+
+    @Test
+    public void should_respond_to_a_request() throws Exception {
+        String response = this.connector.getResponse("GET /echo?name=jetty HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 200 OK\r\n");
+        Assertions.assertThat(response).contains("Content-Type: text/plain;charset=ISO-8859-1\r\n");
+        Assertions.assertThat(response).contains("Content-Length: 21\r\n");
+        Assertions.assertThat(response).endsWith("\r\n\r\nGET /echo name=jetty\n");
+    }
+
+    @Test
+    public void should_read_request_content() throws Exception {
+        String response = this.connector.getResponse("POST /echo HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Type: application/x-www-form-urlencoded\r\n" +
+                "Content-Length: 10\r\n" +
+                "\r\n" +
+                "name=jetty", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 200 OK\r\n");
+        Assertions.assertThat(response).endsWith("\r\n\r\nPOST /echo name=jetty\n");
+    }
+
+    @Test
+    public void should_respond_to_pipelined_requests_on_one_connection() throws Exception {
+        String response = this.connector.getResponse("GET /echo?name=a HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n" +
+                "GET /echo?name=b HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Connection: close\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).containsSubsequence(
+                "HTTP/1.1 200 OK\r\n", "GET /echo name=a\n",
+                "HTTP/1.1 200 OK\r\n", "Connection: close\r\n", "GET /echo name=b\n");
+    }
+
+    @Test
+    public void should_keep_connection_open_until_close() throws Exception {
+        LocalConnector.LocalEndPoint endPoint = this.connector.executeRequest("GET /echo?name=a HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n");
+        String first = BufferUtils.toString(endPoint.waitForOutput(5, TimeUnit.SECONDS));
+
+        Assertions.assertThat(first).startsWith("HTTP/1.1 200 OK\r\n").endsWith("GET /echo name=a\n");
+        Assertions.assertThat(endPoint.isOpen()).isTrue();
+
+        endPoint.addInput("GET /echo?name=b HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Connection: close\r\n" +
+                "\r\n");
+        String second = BufferUtils.toString(endPoint.getResponse().get(5, TimeUnit.SECONDS));
+
+        Assertions.assertThat(second).startsWith("HTTP/1.1 200 OK\r\n").endsWith("GET /echo name=b\n");
+        Assertions.assertThat(endPoint.waitForOutputShutdown(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void should_respond_not_found_when_not_handled() throws Exception {
+        String response = this.connector.getResponse("GET /missing HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 404 Not Found\r\n");
+    }
+
+    @Test
+    public void should_respond_bad_request_and_close() throws Exception {
+        String response = this.connector.getResponse("GET /echo HTTP/1.1\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.1 400 ");
+        Assertions.assertThat(response).contains("Connection: close\r\n");
+    }
+
+    @Test
+    public void should_close_http_1_0_connection_without_keep_alive() throws Exception {
+        String response = this.connector.getResponse("HEAD /echo HTTP/1.0\r\n" +
+                "\r\n", 5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(response).startsWith("HTTP/1.0 200 OK\r\n");
+        Assertions.assertThat(response).contains("Content-Length: 21\r\n", "Connection: close\r\n");
+        Assertions.assertThat(response).endsWith("\r\n\r\n");
+    }
+
+    /**
+     * 只处理 /echo，响应请求方法、路径和 name 参数
+     */
+    private static class EchoHandler extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+            if (!"/echo".equals(target)) {
+                return;
+            }
+
+            baseRequest.setHandled(true);
+            response.setContentType("text/plain");
+            response.getWriter().print(request.getMethod() + " " + target + " name=" + request.getParameter("name") + "\n");
+        }
+    }
+}